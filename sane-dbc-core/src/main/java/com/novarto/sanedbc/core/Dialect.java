@@ -0,0 +1,239 @@
+package com.novarto.sanedbc.core;
+
+import fj.data.Option;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static fj.data.Option.none;
+import static fj.data.Option.some;
+
+/**
+ * Database specifics which matter for performance: driver connection properties, the maximum number of bind
+ * parameters per statement, the fetch size which streams results, and the syntax of upserts and array parameters.
+ * Use {@link #fromUrl} to detect the dialect of a JDBC URL.
+ */
+public enum Dialect
+{
+    MYSQL(65_535, Integer.MIN_VALUE, "jdbc:mysql:", "jdbc:mariadb:")
+    {
+        @Override public Properties connectionProperties()
+        {
+            Properties result = new Properties();
+            result.setProperty("cachePrepStmts", "true");
+            result.setProperty("prepStmtCacheSize", "250");
+            result.setProperty("prepStmtCacheSqlLimit", "2048");
+            result.setProperty("rewriteBatchedStatements", "true");
+            return result;
+        }
+
+        @Override public Option<String> upsert(String table, List<String> keyColumns, List<String> valueColumns)
+        {
+            List<String> updates = new ArrayList<>();
+            for (String column : valueColumns.isEmpty() ? keyColumns : valueColumns)
+            {
+                updates.add(column + " = VALUES(" + column + ")");
+            }
+            return some(insert(table, keyColumns, valueColumns) + " ON DUPLICATE KEY UPDATE " +
+                    String.join(", ", updates));
+        }
+    },
+
+    /**
+     * Results are only streamed within a transaction, i.e. with auto-commit off
+     */
+    POSTGRESQL(32_767, 1000, "jdbc:postgresql:")
+    {
+        @Override public Properties connectionProperties()
+        {
+            Properties result = new Properties();
+            result.setProperty("reWriteBatchedInserts", "true");
+            // pooled connections live long, so prepare server-side from the first execution
+            result.setProperty("prepareThreshold", "1");
+            result.setProperty("defaultRowFetchSize", "1000");
+            return result;
+        }
+
+        @Override public Option<String> arrayMembership(String column)
+        {
+            return some(column + " = ANY(?)");
+        }
+
+        @Override public Option<String> upsert(String table, List<String> keyColumns, List<String> valueColumns)
+        {
+            String prefix = insert(table, keyColumns, valueColumns) + " ON CONFLICT (" +
+                    String.join(", ", keyColumns) + ") DO ";
+            if (valueColumns.isEmpty())
+            {
+                return some(prefix + "NOTHING");
+            }
+            List<String> updates = new ArrayList<>();
+            for (String column : valueColumns)
+            {
+                updates.add(column + " = EXCLUDED." + column);
+            }
+            return some(prefix + "UPDATE SET " + String.join(", ", updates));
+        }
+    },
+
+    H2(Integer.MAX_VALUE, 0, "jdbc:h2:")
+    {
+        @Override public Option<String> upsert(String table, List<String> keyColumns, List<String> valueColumns)
+        {
+            return some("MERGE INTO " + table + " (" + String.join(", ", columns(keyColumns, valueColumns)) +
+                    ") KEY (" + String.join(", ", keyColumns) + ") VALUES (" +
+                    SqlStringUtils.placeholders(keyColumns.size() + valueColumns.size()) + ")");
+        }
+    },
+
+    HSQLDB(Integer.MAX_VALUE, 0, "jdbc:hsqldb:")
+    {
+        @Override public Option<String> arrayMembership(String column)
+        {
+            return some(column + " IN (UNNEST(?))");
+        }
+
+        @Override public Option<String> upsert(String table, List<String> keyColumns, List<String> valueColumns)
+        {
+            List<String> columns = columns(keyColumns, valueColumns);
+            List<String> conditions = new ArrayList<>();
+            for (String column : keyColumns)
+            {
+                conditions.add(table + "." + column + " = V." + column);
+            }
+            List<String> values = new ArrayList<>();
+            for (String column : columns)
+            {
+                values.add("V." + column);
+            }
+
+            StringBuilder result = new StringBuilder("MERGE INTO ").append(table).append(" USING (VALUES (")
+                    .append(SqlStringUtils.placeholders(columns.size())).append(")) AS V (")
+                    .append(String.join(", ", columns)).append(") ON ").append(String.join(" AND ", conditions));
+            if (!valueColumns.isEmpty())
+            {
+                List<String> updates = new ArrayList<>();
+                for (String column : valueColumns)
+                {
+                    updates.add(table + "." + column + " = V." + column);
+                }
+                result.append(" WHEN MATCHED THEN UPDATE SET ").append(String.join(", ", updates));
+            }
+            return some(result.append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", columns))
+                    .append(") VALUES (").append(String.join(", ", values)).append(')').toString());
+        }
+    },
+
+    /**
+     * Any other database. Limits are conservative, and upserts are not supported.
+     */
+    GENERIC(2000, 0);
+
+    /**
+     * The maximum number of rows {@link #chunkSize(int)} returns, since very large statements get slow to parse and
+     * plan, and may exceed the maximum packet size of the server
+     */
+    public static final int MAX_CHUNK_SIZE = 1000;
+
+    private final int maxBindParameters;
+    private final int streamingFetchSize;
+    private final String[] urlPrefixes;
+
+    Dialect(int maxBindParameters, int streamingFetchSize, String... urlPrefixes)
+    {
+        this.maxBindParameters = maxBindParameters;
+        this.streamingFetchSize = streamingFetchSize;
+        this.urlPrefixes = urlPrefixes;
+    }
+
+    /**
+     * @return the dialect of the given JDBC URL, or GENERIC if not recognized
+     */
+    public static Dialect fromUrl(String url)
+    {
+        for (Dialect dialect : values())
+        {
+            for (String prefix : dialect.urlPrefixes)
+            {
+                if (url.regionMatches(true, 0, prefix, 0, prefix.length()))
+                {
+                    return dialect;
+                }
+            }
+        }
+        return GENERIC;
+    }
+
+    /**
+     * @return the maximum number of bind parameters in a single statement
+     */
+    public int maxBindParameters()
+    {
+        return maxBindParameters;
+    }
+
+    /**
+     * @return the fetch size to set on a statement in order to stream its results, rather than read them all in
+     * memory at once. 0 for embedded databases and unknown drivers, i.e. the driver default.
+     */
+    public int streamingFetchSize()
+    {
+        return streamingFetchSize;
+    }
+
+    /**
+     * @return a safe number of rows for a multi-row statement, such as an IN list or a multi-row insert, given the
+     * number of bind parameters per row
+     */
+    public int chunkSize(int parametersPerRow)
+    {
+        if (parametersPerRow < 1)
+        {
+            throw new IllegalArgumentException("parametersPerRow must be >=1");
+        }
+        return Math.max(1, Math.min(MAX_CHUNK_SIZE, maxBindParameters / parametersPerRow));
+    }
+
+    /**
+     * @return driver connection properties which improve performance, e.g. statement caching and batch rewriting.
+     * A new instance on each call.
+     */
+    public Properties connectionProperties()
+    {
+        return new Properties();
+    }
+
+    /**
+     * @return a predicate which tests whether a column is an element of a single SQL array parameter, bound via
+     * setArray, or none() if the dialect has no such syntax. Unlike an IN list of placeholders, its SQL is the same
+     * for any number of elements, so a single plan gets cached.
+     */
+    public Option<String> arrayMembership(String column)
+    {
+        return none();
+    }
+
+    /**
+     * @return a statement which inserts a row, or updates the row with the same key if it exists, or none() if the
+     * dialect has no such syntax. Its parameters are the key columns followed by the value columns, in order.
+     */
+    public Option<String> upsert(String table, List<String> keyColumns, List<String> valueColumns)
+    {
+        return none();
+    }
+
+    private static List<String> columns(List<String> keyColumns, List<String> valueColumns)
+    {
+        List<String> result = new ArrayList<>(keyColumns);
+        result.addAll(valueColumns);
+        return result;
+    }
+
+    private static String insert(String table, List<String> keyColumns, List<String> valueColumns)
+    {
+        List<String> columns = columns(keyColumns, valueColumns);
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" +
+                SqlStringUtils.placeholders(columns.size()) + ")";
+    }
+}
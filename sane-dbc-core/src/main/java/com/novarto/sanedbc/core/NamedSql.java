@@ -0,0 +1,325 @@
+package com.novarto.sanedbc.core;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL with named parameters, i.e. <code>:name</code>, compiled once into positional SQL and the positional indices
+ * of each name. A name may appear any number of times.
+ *
+ * Parameters are resolved into {@link Param} handles upfront, typically as constants. A handle binds a value to all
+ * the positions of its name by iterating an int array, so binding does no parsing and no lookups. Since the compiled
+ * SQL is plain JDBC SQL, and handles bind plain PreparedStatements, this works with any of the ops:
+ *
+ * <pre>
+ *     NamedSql sql = NamedSql.compile("SELECT * FROM EMPLOYEES WHERE DEPARTMENT_ID = :dept AND (BOSS_ID = :id OR ID = :id)");
+ *     NamedSql.Param dept = sql.param("dept");
+ *     NamedSql.Param id = sql.param("id");
+ *
+ *     new SelectOp.List&lt;&gt;(sql.sql(), ps -&gt; {
+ *         dept.setInt(ps, 1);
+ *         id.setLong(ps, 42L);
+ *     }, rs -&gt; rs.getString("NAME"));
+ * </pre>
+ *
+ * String literals, quoted identifiers, comments and Postgres-style <code>::</code> casts are not mistaken for
+ * parameters. Mixing named and positional (<code>?</code>) parameters is not supported. Instances are immutable.
+ */
+public final class NamedSql
+{
+    private final String namedSql;
+    private final String sql;
+    private final String[] names;
+    private final int[][] indices;
+    private final int parameterCount;
+
+    private NamedSql(String namedSql, String sql, String[] names, int[][] indices, int parameterCount)
+    {
+        this.namedSql = namedSql;
+        this.sql = sql;
+        this.names = names;
+        this.indices = indices;
+        this.parameterCount = parameterCount;
+    }
+
+    /**
+     * Parses SQL with named parameters
+     * @param namedSql the SQL
+     * @return the compiled SQL
+     * @throws IllegalArgumentException if the SQL contains positional parameters
+     */
+    public static NamedSql compile(String namedSql)
+    {
+        StringBuilder sql = new StringBuilder(namedSql.length());
+        List<String> names = new ArrayList<>();
+        List<List<Integer>> indices = new ArrayList<>();
+        int parameterCount = 0;
+
+        int n = namedSql.length();
+        int i = 0;
+        while (i < n)
+        {
+            char c = namedSql.charAt(i);
+            int end;
+            if (c == '\'' || c == '"' || c == '`')
+            {
+                end = namedSql.indexOf(c, i + 1);
+                end = end < 0 ? n : end + 1;
+            }
+            else if (c == '-' && i + 1 < n && namedSql.charAt(i + 1) == '-')
+            {
+                end = namedSql.indexOf('\n', i);
+                end = end < 0 ? n : end + 1;
+            }
+            else if (c == '/' && i + 1 < n && namedSql.charAt(i + 1) == '*')
+            {
+                end = namedSql.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+            }
+            else if (c == ':' && i + 1 < n && namedSql.charAt(i + 1) == ':')
+            {
+                end = i + 2;
+            }
+            else if (c == ':' && i + 1 < n && isNameStart(namedSql.charAt(i + 1)))
+            {
+                end = i + 2;
+                while (end < n && isNamePart(namedSql.charAt(end)))
+                {
+                    end++;
+                }
+
+                String name = namedSql.substring(i + 1, end);
+                int idx = names.indexOf(name);
+                if (idx < 0)
+                {
+                    idx = names.size();
+                    names.add(name);
+                    indices.add(new ArrayList<>());
+                }
+                indices.get(idx).add(++parameterCount);
+
+                sql.append('?');
+                i = end;
+                continue;
+            }
+            else if (c == '?')
+            {
+                throw new IllegalArgumentException("positional parameter at index " + i + " in " + namedSql);
+            }
+            else
+            {
+                end = i + 1;
+            }
+
+            sql.append(namedSql, i, end);
+            i = end;
+        }
+
+        int[][] indicesArray = new int[names.size()][];
+        for (int j = 0; j < indicesArray.length; j++)
+        {
+            List<Integer> xs = indices.get(j);
+            indicesArray[j] = new int[xs.size()];
+            for (int k = 0; k < xs.size(); k++)
+            {
+                indicesArray[j][k] = xs.get(k);
+            }
+        }
+
+        return new NamedSql(namedSql, sql.toString(), names.toArray(new String[0]), indicesArray, parameterCount);
+    }
+
+    private static boolean isNameStart(char c)
+    {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isNamePart(char c)
+    {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * @return the positional SQL, to be passed to an op
+     */
+    public String sql()
+    {
+        return sql;
+    }
+
+    /**
+     * @return the distinct parameter names, in order of first appearance
+     */
+    public List<String> names()
+    {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * @return the number of positional parameters in the compiled SQL
+     */
+    public int parameterCount()
+    {
+        return parameterCount;
+    }
+
+    /**
+     * Resolves a parameter by name. This is meant to be done once, rather than on every bind.
+     * @throws IllegalArgumentException if the SQL has no such parameter
+     */
+    public Param param(String name)
+    {
+        for (int i = 0; i < names.length; i++)
+        {
+            if (names[i].equals(name))
+            {
+                return new Param(name, indices[i]);
+            }
+        }
+        throw new IllegalArgumentException("no parameter :" + name + " in " + namedSql);
+    }
+
+    @Override public String toString()
+    {
+        return namedSql;
+    }
+
+    /**
+     * A handle to a named parameter, which binds a value to each of the parameter's positions
+     */
+    public static final class Param
+    {
+        private final String name;
+        private final int[] indices;
+
+        private Param(String name, int[] indices)
+        {
+            this.name = name;
+            this.indices = indices;
+        }
+
+        public String name()
+        {
+            return name;
+        }
+
+        /**
+         * @return the 1-based positional indices of this parameter
+         */
+        public int[] indices()
+        {
+            return indices.clone();
+        }
+
+        public void setInt(PreparedStatement ps, int x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setInt(i, x);
+            }
+        }
+
+        public void setLong(PreparedStatement ps, long x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setLong(i, x);
+            }
+        }
+
+        public void setDouble(PreparedStatement ps, double x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setDouble(i, x);
+            }
+        }
+
+        public void setBoolean(PreparedStatement ps, boolean x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setBoolean(i, x);
+            }
+        }
+
+        public void setString(PreparedStatement ps, String x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setString(i, x);
+            }
+        }
+
+        public void setBigDecimal(PreparedStatement ps, BigDecimal x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setBigDecimal(i, x);
+            }
+        }
+
+        public void setDate(PreparedStatement ps, Date x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setDate(i, x);
+            }
+        }
+
+        public void setTimestamp(PreparedStatement ps, Timestamp x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setTimestamp(i, x);
+            }
+        }
+
+        public void setBytes(PreparedStatement ps, byte[] x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setBytes(i, x);
+            }
+        }
+
+        public void setObject(PreparedStatement ps, Object x) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setObject(i, x);
+            }
+        }
+
+        public void setObject(PreparedStatement ps, Object x, int sqlType) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setObject(i, x, sqlType);
+            }
+        }
+
+        /**
+         * @param sqlType a constant from java.sql.Types
+         */
+        public void setNull(PreparedStatement ps, int sqlType) throws SQLException
+        {
+            for (int i : indices)
+            {
+                ps.setNull(i, sqlType);
+            }
+        }
+
+        @Override public String toString()
+        {
+            return ":" + name + Arrays.toString(indices);
+        }
+    }
+}
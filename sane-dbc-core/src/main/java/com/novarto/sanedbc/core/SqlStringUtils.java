@@ -1,62 +1,231 @@
 package com.novarto.sanedbc.core;
 
+import fj.data.Option;
 import fj.function.Effect2;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
 import static com.novarto.sanedbc.core.SqlStringUtils.StatementKind.*;
+import static fj.data.Option.none;
+import static fj.data.Option.some;
 import static java.text.MessageFormat.format;
+import static java.util.Arrays.asList;
 
 /**
  * A set of utility methods to aid you in building SQL queries.
  */
 public class SqlStringUtils
 {
+    private static final Set<String> CLAUSE_KEYWORDS = new HashSet<>(asList("WHERE", "JOIN", "INNER", "LEFT", "RIGHT",
+            "FULL", "OUTER", "CROSS", "NATURAL", "ON", "USING", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET", "FETCH",
+            "UNION", "EXCEPT", "INTERSECT", "MINUS", "WINDOW", "FOR", "SET", "VALUES", "RETURNING", "WHEN", "SELECT"));
+
+    private static final Set<String> NON_WRITING_STATEMENTS = new HashSet<>(asList("SELECT", "WITH", "VALUES", "(", "CREATE",
+            "SHOW", "EXPLAIN", "DESCRIBE", "SET"));
+
+    private static final Set<String> FINGERPRINT_KEYWORDS = new HashSet<>(asList("SELECT", "INSERT", "UPDATE", "DELETE",
+            "MERGE", "REPLACE", "CALL", "WITH", "AS", "FROM", "INTO", "VALUES", "SET", "DISTINCT", "AND", "OR", "NOT",
+            "IN", "IS", "NULL", "LIKE", "BETWEEN", "EXISTS", "CASE", "WHEN", "THEN", "ELSE", "END", "ASC", "DESC", "BY",
+            "ALL", "ANY", "DUPLICATE", "KEY", "IGNORE", "RETURNING", "COUNT", "SUM", "MIN", "MAX", "AVG"));
+
+    static
+    {
+        FINGERPRINT_KEYWORDS.addAll(CLAUSE_KEYWORDS);
+    }
+
+    private static final Pattern PLACEHOLDER_LIST_PATTERN = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private static final Pattern PLACEHOLDER_ROWS_PATTERN = Pattern.compile("\\(\\?\\+\\)(\\s*,\\s*\\(\\?\\+\\))+");
+
+    private static final int STATEMENT_KINDS_CACHED = 256;
+
+    // a direct-mapped cache; racy writes are fine since entries are immutable
+    private static final CachedStatementKind[] STATEMENT_KINDS = new CachedStatementKind[STATEMENT_KINDS_CACHED];
+
+    /**
+     * Rendered placeholder strings are cached up to this many characters in total, which bounds the cache at a few MB
+     */
+    private static final long PLACEHOLDER_CACHE_BUDGET = 1 << 20;
+
+    private static final int PLACEHOLDER_LISTS_CACHED = 1024;
+
+    private static final AtomicReferenceArray<String> PLACEHOLDER_LISTS =
+            new AtomicReferenceArray<>(PLACEHOLDER_LISTS_CACHED);
+
+    private static final int PLACEHOLDER_ROWS_CACHED = 64;
+
+    private static final int PLACEHOLDER_COLUMNS_CACHED = 16;
+
+    // small shapes are looked up without boxing a key
+    private static final AtomicReferenceArray<String> SMALL_PLACEHOLDER_ROWS =
+            new AtomicReferenceArray<>(PLACEHOLDER_ROWS_CACHED * PLACEHOLDER_COLUMNS_CACHED);
+
+    private static final ConcurrentHashMap<Long, String> PLACEHOLDER_ROWS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong PLACEHOLDER_CACHE_WEIGHT = new AtomicLong();
+
     /**
-     * Generates a number of PreparedStatement placeholders. For example, placeholders(3) will generate "?,?,?"
+     * Generates a number of PreparedStatement placeholders. For example, placeholders(3) will generate "?, ?, ?"
+     *
+     * Results are memoized, so repeated calls with the same argument return the same instance.
      * @param length
      * @throws IllegalArgumentException if length<1
      * @return
      */
     public static String placeholders(int length)
-    {
-        return placeholdersBuilder(length, new StringBuilder()).toString();
-    }
-
-    /**
-     * A placeholders() version which returns a StringBuilder
-     */
-    public static StringBuilder placeholdersBuilder(int length, StringBuilder sb)
     {
         if (length < 1)
         {
-            throw new IllegalArgumentException();
+            throw new IllegalArgumentException("length must be positive: " + length);
         }
 
-        for (int i = 0; i < length; i++)
+        if (length < PLACEHOLDER_LISTS_CACHED)
         {
-            sb.append("?, ");
+            String result = PLACEHOLDER_LISTS.get(length);
+            if (result == null)
+            {
+                result = renderPlaceholders(length);
+                PLACEHOLDER_LISTS.compareAndSet(length, null, result);
+                result = PLACEHOLDER_LISTS.get(length);
+            }
+            return result;
         }
 
-        return sb.delete(sb.length() - 2, sb.length());
+        return placeholderRows(1, length, false);
+    }
+
+    /**
+     * A placeholders() version which appends to a StringBuilder
+     */
+    public static StringBuilder placeholdersBuilder(int length, StringBuilder sb)
+    {
+        return sb.append(placeholders(length));
     }
 
     /**
      * Generates rows of PreparedStatement placeholders. For example, placeholderRows(4,2) will return
-     * (?,?),(?,?),(?,?),(?,?)
+     * (?, ?), (?, ?), (?, ?), (?, ?)
+     *
+     * Results are memoized within a bounded cache, so repeated calls with the same arguments usually return the same
+     * instance.
      * @param numRows the number of rows to generate
      * @param numColumns the number of columns in each row
+     * @throws IllegalArgumentException if numRows<1 or numColumns<1
      * @return the generated placeholders
      */
     public static String placeholderRows(int numRows, int numColumns)
     {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < numRows; i++)
+        if (numRows < 1 || numColumns < 1)
         {
-            sb.append("(");
-            sb = placeholdersBuilder(numColumns, sb);
-            sb.append("), ");
+            throw new IllegalArgumentException("numRows and numColumns must be positive: " + numRows + ", " + numColumns);
+        }
+
+        if (numRows < PLACEHOLDER_ROWS_CACHED && numColumns <= PLACEHOLDER_COLUMNS_CACHED)
+        {
+            int idx = (numColumns - 1) * PLACEHOLDER_ROWS_CACHED + numRows;
+            String result = SMALL_PLACEHOLDER_ROWS.get(idx);
+            if (result == null)
+            {
+                result = placeholderRows(numRows, numColumns, true);
+                SMALL_PLACEHOLDER_ROWS.lazySet(idx, result);
+            }
+            return result;
+        }
+
+        return placeholderRows(numRows, numColumns, true);
+    }
+
+    /**
+     * @return the length of placeholders(length)
+     */
+    static int placeholdersLength(int length)
+    {
+        return checkedLength(3L * length - 2);
+    }
+
+    /**
+     * @return the length of placeholderRows(numRows, numColumns)
+     */
+    static int placeholderRowsLength(int numRows, int numColumns)
+    {
+        return checkedLength(3L * numColumns * numRows + 2L * (numRows - 1));
+    }
+
+    private static int checkedLength(long length)
+    {
+        if (length > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException("too many placeholders");
+        }
+        return (int) length;
+    }
+
+    private static String placeholderRows(int numRows, int numColumns, boolean parenthesize)
+    {
+        Long key = ((long) numRows << 32 | numColumns) ^ (parenthesize ? 0 : Long.MIN_VALUE);
+        String result = PLACEHOLDER_ROWS.get(key);
+        if (result != null)
+        {
+            return result;
+        }
+
+        result = parenthesize ? renderPlaceholderRows(numRows, numColumns) : renderPlaceholders(numColumns);
+        if (PLACEHOLDER_CACHE_WEIGHT.get() + result.length() <= PLACEHOLDER_CACHE_BUDGET)
+        {
+            String existing = PLACEHOLDER_ROWS.putIfAbsent(key, result);
+            if (existing != null)
+            {
+                return existing;
+            }
+            PLACEHOLDER_CACHE_WEIGHT.addAndGet(result.length());
+        }
+        return result;
+    }
+
+    private static String renderPlaceholders(int length)
+    {
+        char[] result = new char[placeholdersLength(length)];
+        fillPlaceholders(result, 0, length);
+        return new String(result);
+    }
+
+    private static String renderPlaceholderRows(int numRows, int numColumns)
+    {
+        char[] result = new char[placeholderRowsLength(numRows, numColumns)];
+        int rowLength = 3 * numColumns;
+        result[0] = '(';
+        fillPlaceholders(result, 1, numColumns);
+        result[rowLength - 1] = ')';
+
+        for (int pos = rowLength; pos < result.length; pos += rowLength + 2)
+        {
+            result[pos] = ',';
+            result[pos + 1] = ' ';
+            System.arraycopy(result, 0, result, pos + 2, rowLength);
+        }
+        return new String(result);
+    }
+
+    private static void fillPlaceholders(char[] dest, int offset, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            int pos = offset + 3 * i;
+            dest[pos] = '?';
+            if (i < length - 1)
+            {
+                dest[pos + 1] = ',';
+                dest[pos + 2] = ' ';
+            }
         }
-        sb.delete(sb.length() - 2, sb.length());
-        return sb.toString();
     }
 
     /**
@@ -121,45 +290,480 @@ public class SqlStringUtils
 
     /**
      * Tries to detect the type of an sql statement as one of the enums in StatementKind.
-     * This method does no lexing or parsing, and almost no normalization, trying to strike a balance
-     * between efficiency and utility. It is not intended to be used in application code. Its result should
+     * This method does no lexing or parsing, trying to strike a balance between efficiency and utility. It skips
+     * leading whitespace, comments, opening parentheses and the JDBC call escape, and looks past common table
+     * expressions for the statement they precede. It does not allocate, and the result for a statement starting with
+     * WITH is cached per string instance. It is not intended to be used in application code. Its result should
      * only be interpreted as a hint.
      * @param sql
      * @return a value hinting the statement kind
      */
     public static StatementKind getStatementKind(String sql)
     {
+        int i = skipWhitespaceAndComments(sql, 0, true);
 
-        String prefix = sql.trim();
-        prefix = prefix.length() < 10 ? prefix : prefix.substring(0, 10);
-        prefix = prefix.toLowerCase();
+        // JDBC escape syntax, i.e. {call proc(?)} or {? = call proc(?)}
+        if (i < sql.length() && sql.charAt(i) == '{')
+        {
+            i = skipWhitespaceAndComments(sql, i + 1, false);
+            if (i < sql.length() && sql.charAt(i) == '?')
+            {
+                i = skipWhitespaceAndComments(sql, i + 1, false);
+                if (i < sql.length() && sql.charAt(i) == '=')
+                {
+                    i = skipWhitespaceAndComments(sql, i + 1, false);
+                }
+            }
+        }
 
-        if (prefix.startsWith("select"))
+        if (!isKeyword(sql, i, "WITH"))
         {
-            return SELECT;
+            return keywordKind(sql, i);
         }
-        else if (prefix.startsWith("insert"))
+
+        int slot = System.identityHashCode(sql) & (STATEMENT_KINDS_CACHED - 1);
+        CachedStatementKind cached = STATEMENT_KINDS[slot];
+        if (cached != null && cached.sql == sql)
         {
-            return INSERT;
+            return cached.kind;
         }
-        else if (prefix.startsWith("update"))
+
+        StatementKind result = commonTableExpressionKind(sql, i + "WITH".length());
+        STATEMENT_KINDS[slot] = new CachedStatementKind(sql, result);
+        return result;
+    }
+
+    private static StatementKind keywordKind(String sql, int i)
+    {
+        if (i >= sql.length())
         {
-            return UPDATE;
+            return UNKNOWN;
         }
-        else if (prefix.startsWith("delete"))
+
+        switch (Character.toUpperCase(sql.charAt(i)))
         {
-            return DELETE;
+            case 'S':
+                return isKeyword(sql, i, "SELECT") ? SELECT : UNKNOWN;
+            case 'I':
+                return isKeyword(sql, i, "INSERT") ? INSERT : UNKNOWN;
+            case 'U':
+                return isKeyword(sql, i, "UPDATE") ? UPDATE : UNKNOWN;
+            case 'D':
+                return isKeyword(sql, i, "DELETE") ? DELETE : UNKNOWN;
+            case 'M':
+                return isKeyword(sql, i, "MERGE") ? MERGE : UNKNOWN;
+            case 'R':
+                return isKeyword(sql, i, "REPLACE") ? REPLACE : UNKNOWN;
+            case 'C':
+                return isKeyword(sql, i, "CALL") ? CALL : UNKNOWN;
+            default:
+                return UNKNOWN;
         }
-        else
+    }
+
+    /**
+     * Scans past the common table expressions following WITH, returning the kind of the first statement keyword
+     * found outside of parentheses
+     */
+    private static StatementKind commonTableExpressionKind(String sql, int i)
+    {
+        int n = sql.length();
+        int depth = 0;
+        while (i < n)
         {
-            return UNKNOWN;
+            char c = sql.charAt(i);
+            if (c == '(')
+            {
+                depth++;
+                i++;
+            }
+            else if (c == ')')
+            {
+                depth--;
+                i++;
+            }
+            else if (c == '\'' || c == '"' || c == '`')
+            {
+                int end = sql.indexOf(c, i + 1);
+                i = end < 0 ? n : end + 1;
+            }
+            else if (isWordPart(c))
+            {
+                if (depth == 0)
+                {
+                    StatementKind kind = keywordKind(sql, i);
+                    if (kind != UNKNOWN && kind != CALL)
+                    {
+                        return kind;
+                    }
+                }
+                while (i < n && isWordPart(sql.charAt(i)))
+                {
+                    i++;
+                }
+            }
+            else
+            {
+                int next = skipWhitespaceAndComments(sql, i, false);
+                i = next == i ? i + 1 : next;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private static int skipWhitespaceAndComments(String sql, int i, boolean skipParentheses)
+    {
+        int n = sql.length();
+        while (i < n)
+        {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c) || (skipParentheses && c == '('))
+            {
+                i++;
+            }
+            else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-')
+            {
+                int eol = sql.indexOf('\n', i);
+                i = eol < 0 ? n : eol + 1;
+            }
+            else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*')
+            {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            }
+            else
+            {
+                return i;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isKeyword(String sql, int i, String keyword)
+    {
+        int end = i + keyword.length();
+        return sql.regionMatches(true, i, keyword, 0, keyword.length()) &&
+                (end == sql.length() || !isWordPart(sql.charAt(end)));
+    }
+
+    /**
+     * Normalizes an SQL statement, so that statements differing only in literal values, comments, whitespace or the
+     * length of their placeholder lists yield the same result. String and numeric literals are replaced by ?,
+     * comments are dropped, whitespace is collapsed, and parenthesized lists of placeholders (including VALUES rows)
+     * are collapsed to (?+). For example, both "SELECT * FROM FOO WHERE A = 'x' AND B IN (1, 2, 3)" and
+     * "select * from FOO where A = ? and B in (?)" yield "SELECT * FROM FOO WHERE A = ? AND B IN (?+)".
+     *
+     * Keywords are upper-cased, identifiers are left as-is. Like the rest of this class, no parsing is involved, so
+     * the result is meant for grouping statements e.g. in metrics, not for execution.
+     * @param sql
+     * @return the fingerprint
+     */
+    public static String fingerprint(String sql)
+    {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n)
+        {
+            char c = sql.charAt(i);
+            int next = skipWhitespaceAndComments(sql, i, false);
+            if (next > i)
+            {
+                if (sb.length() > 0 && next < n)
+                {
+                    sb.append(' ');
+                }
+                i = next;
+            }
+            else if (c == '\'')
+            {
+                //'' is an escaped quote, which the loop handles as two adjacent literals
+                int end = sql.indexOf('\'', i + 1);
+                i = end < 0 ? n : end + 1;
+                if (sb.length() == 0 || sb.charAt(sb.length() - 1) != '?')
+                {
+                    sb.append('?');
+                }
+            }
+            else if (c == '"' || c == '`')
+            {
+                int end = sql.indexOf(c, i + 1);
+                end = end < 0 ? n : end + 1;
+                sb.append(sql, i, end);
+                i = end;
+            }
+            else if (Character.isDigit(c))
+            {
+                while (i < n && (isWordPart(sql.charAt(i)) || sql.charAt(i) == '.'))
+                {
+                    i++;
+                }
+                sb.append('?');
+            }
+            else if (isWordPart(c))
+            {
+                int start = i;
+                while (i < n && isWordPart(sql.charAt(i)))
+                {
+                    i++;
+                }
+                String word = sql.substring(start, i);
+                String upper = word.toUpperCase(Locale.ROOT);
+                sb.append(FINGERPRINT_KEYWORDS.contains(upper) ? upper : word);
+            }
+            else
+            {
+                sb.append(c);
+                i++;
+            }
+        }
+
+        String result = PLACEHOLDER_LIST_PATTERN.matcher(sb).replaceAll("(?+)");
+        return PLACEHOLDER_ROWS_PATTERN.matcher(result).replaceAll("(?+)");
+    }
+
+    /**
+     * Tries to detect the tables an SQL statement reads from, i.e. the tables named in its FROM and JOIN clauses
+     * (including those of subqueries). Like {@link #getStatementKind(String)}, this method makes no attempt at parsing,
+     * and its result should be interpreted as a hint: it may contain names which are not tables (e.g. common table
+     * expression names), but is not expected to omit a table.
+     *
+     * Table names are normalized: the schema / catalog prefix is dropped, and the name is upper-cased.
+     * @param sql
+     * @return the names of the tables the statement reads from
+     */
+    public static Set<String> getReadTables(String sql)
+    {
+        List<String> tokens = tokens(sql);
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < tokens.size(); i++)
+        {
+            String t = tokens.get(i);
+            if (t.equals("FROM") || t.equals("JOIN"))
+            {
+                int j = i + 1;
+                while (isIdentifier(tokens, j))
+                {
+                    int end = endOfName(tokens, j);
+                    if (isToken(tokens, end, "("))
+                    {
+                        //a table function, e.g. UNNEST(?)
+                        break;
+                    }
+                    result.add(tokens.get(end - 1));
+
+                    j = skipAlias(tokens, end);
+                    if (!isToken(tokens, j, ","))
+                    {
+                        break;
+                    }
+                    j++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tries to detect the tables an SQL statement modifies, i.e. the targets of INSERT, UPDATE, DELETE, MERGE, REPLACE,
+     * TRUNCATE, ALTER TABLE and DROP TABLE. Table names are normalized as in {@link #getReadTables(String)}.
+     * @param sql
+     * @return the names of the tables the statement modifies, which is empty for queries and CREATE statements; or none,
+     * if the statement may modify data, but the tables it modifies could not be detected (e.g. a stored procedure call)
+     */
+    public static Option<Set<String>> getWrittenTables(String sql)
+    {
+        List<String> tokens = tokens(sql);
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < tokens.size(); i++)
+        {
+            int target = -1;
+            switch (tokens.get(i))
+            {
+                case "INSERT":
+                    target = after(tokens, skip(tokens, i + 1, "IGNORE", "LOW_PRIORITY", "HIGH_PRIORITY", "DELAYED"), "INTO");
+                    break;
+                case "REPLACE":
+                case "MERGE":
+                    target = after(tokens, i + 1, "INTO");
+                    break;
+                case "UPDATE":
+                    String previous = i > 0 ? tokens.get(i - 1) : "";
+                    boolean clause = previous.equals("FOR") || previous.equals("KEY") || previous.equals("DO") ||
+                            previous.equals("THEN");
+                    target = clause ? -1 : skip(tokens, i + 1, "LOW_PRIORITY", "IGNORE", "ONLY");
+                    break;
+                case "DELETE":
+                    target = skip(tokens, after(tokens, skip(tokens, i + 1, "LOW_PRIORITY", "QUICK", "IGNORE"), "FROM"), "ONLY");
+                    break;
+                case "TRUNCATE":
+                    target = skip(tokens, i + 1, "TABLE");
+                    break;
+                case "ALTER":
+                case "DROP":
+                    target = skip(tokens, after(tokens, i + 1, "TABLE"), "IF", "EXISTS");
+                    break;
+                default:
+                    break;
+            }
+
+            if (target > 0 && isIdentifier(tokens, target) && !isToken(tokens, target, "SET"))
+            {
+                result.add(tokens.get(endOfName(tokens, target) - 1));
+            }
+        }
+
+        if (!result.isEmpty())
+        {
+            return some(result);
+        }
+
+        return tokens.isEmpty() || NON_WRITING_STATEMENTS.contains(tokens.get(0)) ? some(result) : none();
+    }
+
+    /**
+     * Splits sql into upper-cased words and single-character punctuation, dropping whitespace, comments and string
+     * literals. Quoted identifiers are returned without the quotes.
+     */
+    private static List<String> tokens(String sql)
+    {
+        List<String> result = new ArrayList<>();
+        int n = sql.length();
+        int i = 0;
+        while (i < n)
+        {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c))
+            {
+                i++;
+            }
+            else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-')
+            {
+                int eol = sql.indexOf('\n', i);
+                i = eol < 0 ? n : eol + 1;
+            }
+            else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*')
+            {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            }
+            else if (c == '\'')
+            {
+                //'' is an escaped quote, which the loop handles as two adjacent literals
+                int end = sql.indexOf('\'', i + 1);
+                i = end < 0 ? n : end + 1;
+                result.add("'");
+            }
+            else if (c == '"' || c == '`' || c == '[')
+            {
+                char close = c == '[' ? ']' : c;
+                int end = sql.indexOf(close, i + 1);
+                end = end < 0 ? n : end;
+                result.add(sql.substring(i + 1, end).toUpperCase(Locale.ROOT));
+                i = end + 1;
+            }
+            else if (Character.isLetterOrDigit(c) || c == '_')
+            {
+                int start = i;
+                while (i < n && isWordPart(sql.charAt(i)))
+                {
+                    i++;
+                }
+                result.add(sql.substring(start, i).toUpperCase(Locale.ROOT));
+            }
+            else
+            {
+                result.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isWordPart(char c)
+    {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    private static boolean isToken(List<String> tokens, int i, String token)
+    {
+        return i >= 0 && i < tokens.size() && tokens.get(i).equals(token);
+    }
+
+    private static boolean isIdentifier(List<String> tokens, int i)
+    {
+        if (i < 0 || i >= tokens.size())
+        {
+            return false;
+        }
+        String t = tokens.get(i);
+        return !t.isEmpty() && (t.length() > 1 || isWordPart(t.charAt(0))) && !t.equals("'");
+    }
+
+    /**
+     * @return the index after a possibly qualified name (e.g. CATALOG.SCHEMA.TABLE) starting at i
+     */
+    private static int endOfName(List<String> tokens, int i)
+    {
+        int result = i + 1;
+        while (isToken(tokens, result, ".") && isIdentifier(tokens, result + 1))
+        {
+            result += 2;
+        }
+        return result;
+    }
+
+    private static int skipAlias(List<String> tokens, int i)
+    {
+        if (isToken(tokens, i, "AS"))
+        {
+            return i + 2;
         }
+        return isIdentifier(tokens, i) && !CLAUSE_KEYWORDS.contains(tokens.get(i)) ? i + 1 : i;
+    }
 
+    private static int skip(List<String> tokens, int i, String... optional)
+    {
+        int result = i;
+        boolean skipped = true;
+        while (skipped)
+        {
+            skipped = false;
+            for (String x : optional)
+            {
+                if (isToken(tokens, result, x))
+                {
+                    result++;
+                    skipped = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the index after the given token, if it is at position i, otherwise -1
+     */
+    private static int after(List<String> tokens, int i, String token)
+    {
+        return isToken(tokens, i, token) ? i + 1 : -1;
     }
 
     public enum StatementKind
     {
-        SELECT, UPDATE, DELETE, INSERT, UNKNOWN
+        SELECT, UPDATE, DELETE, INSERT, MERGE, REPLACE, CALL, UNKNOWN
+    }
+
+    private static final class CachedStatementKind
+    {
+        final String sql;
+        final StatementKind kind;
+
+        CachedStatementKind(String sql, StatementKind kind)
+        {
+            this.sql = sql;
+            this.kind = kind;
+        }
     }
 
     public enum LogicalOperator
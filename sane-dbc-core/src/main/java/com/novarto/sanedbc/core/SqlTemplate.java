@@ -0,0 +1,295 @@
+package com.novarto.sanedbc.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A precompiled SQL template with variable-arity placeholder segments, i.e. the IN (...) lists and VALUES (...) rows
+ * whose size is only known at runtime. The template is parsed once, so rendering it only copies precomputed segments
+ * into a pooled, exactly sized buffer.
+ *
+ * Two kinds of slots are recognized:
+ * <ul>
+ *     <li><code>{i}</code> renders as many placeholders as the i-th arity, as per
+ *     {@link SqlStringUtils#placeholders(int)}</li>
+ *     <li><code>{i:c}</code> renders as many rows of c placeholders as the i-th arity, as per
+ *     {@link SqlStringUtils#placeholderRows(int, int)}</li>
+ * </ul>
+ * Any other text, including braces which do not form a slot, is copied verbatim. For example:
+ *
+ * <pre>
+ *     SqlTemplate selectByIds = SqlTemplate.compile("SELECT ID, NAME FROM EMPLOYEES WHERE ID IN ({0})");
+ *     // SELECT ID, NAME FROM EMPLOYEES WHERE ID IN (?, ?, ?)
+ *     String sql = selectByIds.render(3);
+ * </pre>
+ *
+ * Templates with a single argument memoize their rendered SQL for small arities. Instances are thread safe.
+ */
+public final class SqlTemplate
+{
+    private static final int MEMOIZED_ARITIES = 256;
+
+    private static final int MAX_POOLED_CAPACITY = 1 << 16;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String template;
+
+    // literals[i] precedes the i-th slot; the last literal follows the last slot
+    private final String[] literals;
+    private final int[] arguments;
+    // 0 for a placeholder list, the number of columns for placeholder rows
+    private final int[] columns;
+    private final int arity;
+    private final int literalsLength;
+
+    private final AtomicReferenceArray<String> memo;
+
+    private SqlTemplate(String template, String[] literals, int[] arguments, int[] columns)
+    {
+        this.template = template;
+        this.literals = literals;
+        this.arguments = arguments;
+        this.columns = columns;
+
+        int maxArgument = -1;
+        for (int argument : arguments)
+        {
+            maxArgument = Math.max(maxArgument, argument);
+        }
+        this.arity = maxArgument + 1;
+
+        int length = 0;
+        for (String literal : literals)
+        {
+            length += literal.length();
+        }
+        this.literalsLength = length;
+
+        this.memo = arity == 1 ? new AtomicReferenceArray<>(MEMOIZED_ARITIES) : null;
+    }
+
+    /**
+     * Parses a template
+     * @param template SQL text with {i} and {i:c} slots, see the class docs
+     * @return the compiled template
+     */
+    public static SqlTemplate compile(String template)
+    {
+        List<String> literals = new ArrayList<>();
+        List<int[]> slots = new ArrayList<>();
+
+        int literalStart = 0;
+        int i = 0;
+        while (i < template.length())
+        {
+            int[] slot = new int[2];
+            int end = template.charAt(i) == '{' ? parseSlot(template, i + 1, slot) : -1;
+            if (end < 0)
+            {
+                i++;
+                continue;
+            }
+
+            literals.add(template.substring(literalStart, i));
+            slots.add(slot);
+            literalStart = i = end;
+        }
+        literals.add(template.substring(literalStart));
+
+        int[] arguments = new int[slots.size()];
+        int[] columns = new int[slots.size()];
+        for (int j = 0; j < slots.size(); j++)
+        {
+            arguments[j] = slots.get(j)[0];
+            columns[j] = slots.get(j)[1];
+        }
+
+        return new SqlTemplate(template, literals.toArray(new String[0]), arguments, columns);
+    }
+
+    /**
+     * @return the index just after the closing brace, or -1 if the text at start is not a slot
+     */
+    private static int parseSlot(String template, int start, int[] slot)
+    {
+        int i = start;
+        long argument = 0;
+        while (i < template.length() && isDigit(template.charAt(i)) && argument <= Integer.MAX_VALUE)
+        {
+            argument = argument * 10 + template.charAt(i++) - '0';
+        }
+        if (i == start || i == template.length() || argument > Integer.MAX_VALUE)
+        {
+            return -1;
+        }
+        slot[0] = (int) argument;
+
+        if (template.charAt(i) == ':')
+        {
+            int columnsStart = ++i;
+            long columns = 0;
+            while (i < template.length() && isDigit(template.charAt(i)) && columns <= Integer.MAX_VALUE)
+            {
+                columns = columns * 10 + template.charAt(i++) - '0';
+            }
+            if (i == columnsStart || i == template.length() || columns < 1 || columns > Integer.MAX_VALUE)
+            {
+                return -1;
+            }
+            slot[1] = (int) columns;
+        }
+
+        return template.charAt(i) == '}' ? i + 1 : -1;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return the number of arities rendering this template requires
+     */
+    public int arity()
+    {
+        return arity;
+    }
+
+    /**
+     * Renders a template with a single argument
+     */
+    public String render(int n)
+    {
+        if (arity != 1)
+        {
+            throw new IllegalArgumentException("expected " + arity + " arities, got 1");
+        }
+
+        if (n > 0 && n < MEMOIZED_ARITIES)
+        {
+            String result = memo.get(n);
+            if (result == null)
+            {
+                result = renderPooled(n, 0);
+                memo.compareAndSet(n, null, result);
+            }
+            return result;
+        }
+
+        return renderPooled(n, 0);
+    }
+
+    /**
+     * Renders a template with two arguments
+     */
+    public String render(int n0, int n1)
+    {
+        if (arity != 2)
+        {
+            throw new IllegalArgumentException("expected " + arity + " arities, got 2");
+        }
+        return renderPooled(n0, n1);
+    }
+
+    /**
+     * Renders a template with any number of arguments
+     * @param ns ns[i] is the arity of the slots referring to the i-th argument
+     * @throws IllegalArgumentException if the number of arities does not match the template, or an arity is not
+     * positive
+     */
+    public String render(int... ns)
+    {
+        if (ns.length == 1)
+        {
+            return render(ns[0]);
+        }
+        if (ns.length == 2)
+        {
+            return render(ns[0], ns[1]);
+        }
+        if (ns.length != arity)
+        {
+            throw new IllegalArgumentException("expected " + arity + " arities, got " + ns.length);
+        }
+
+        StringBuilder sb = buffer();
+        String result = appendTo(sb, ns).toString();
+        release(sb);
+        return result;
+    }
+
+    /**
+     * Appends this template, rendered with the given arities, to a StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder sb, int... ns)
+    {
+        if (ns.length != arity)
+        {
+            throw new IllegalArgumentException("expected " + arity + " arities, got " + ns.length);
+        }
+
+        long length = literalsLength;
+        for (int i = 0; i < arguments.length; i++)
+        {
+            length += segmentLength(ns[arguments[i]], columns[i]);
+        }
+        sb.ensureCapacity(sb.length() + (int) Math.min(length, Integer.MAX_VALUE));
+
+        for (int i = 0; i < arguments.length; i++)
+        {
+            sb.append(literals[i]).append(segment(ns[arguments[i]], columns[i]));
+        }
+        return sb.append(literals[arguments.length]);
+    }
+
+    private String renderPooled(int n0, int n1)
+    {
+        StringBuilder sb = buffer();
+        long length = literalsLength;
+        for (int i = 0; i < arguments.length; i++)
+        {
+            length += segmentLength(arguments[i] == 0 ? n0 : n1, columns[i]);
+        }
+        sb.ensureCapacity((int) Math.min(length, Integer.MAX_VALUE));
+
+        for (int i = 0; i < arguments.length; i++)
+        {
+            sb.append(literals[i]).append(segment(arguments[i] == 0 ? n0 : n1, columns[i]));
+        }
+        String result = sb.append(literals[arguments.length]).toString();
+        release(sb);
+        return result;
+    }
+
+    private static int segmentLength(int n, int columns)
+    {
+        return columns == 0 ? SqlStringUtils.placeholdersLength(n) : SqlStringUtils.placeholderRowsLength(n, columns);
+    }
+
+    private static String segment(int n, int columns)
+    {
+        return columns == 0 ? SqlStringUtils.placeholders(n) : SqlStringUtils.placeholderRows(n, columns);
+    }
+
+    private static StringBuilder buffer()
+    {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static void release(StringBuilder sb)
+    {
+        if (sb.capacity() > MAX_POOLED_CAPACITY)
+        {
+            BUFFER.remove();
+        }
+    }
+
+    @Override public String toString()
+    {
+        return template;
+    }
+}
@@ -0,0 +1,42 @@
+package com.novarto.sanedbc.core.cache;
+
+/**
+ * An immutable snapshot of {@link QueryCache} statistics.
+ */
+public final class CacheStats
+{
+    public final long hits;
+    public final long misses;
+    public final long evictions;
+    public final long expirations;
+    public final long invalidations;
+    public final long entries;
+    public final long weight;
+
+    public CacheStats(long hits, long misses, long evictions, long expirations, long invalidations, long entries,
+            long weight)
+    {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.entries = entries;
+        this.weight = weight;
+    }
+
+    /**
+     * @return hits / (hits + misses), or 0 if there were no lookups
+     */
+    public double hitRate()
+    {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override public String toString()
+    {
+        return "CacheStats{" + "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", expirations=" +
+                expirations + ", invalidations=" + invalidations + ", entries=" + entries + ", weight=" + weight + '}';
+    }
+}
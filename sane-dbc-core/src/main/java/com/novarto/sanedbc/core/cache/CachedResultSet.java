@@ -0,0 +1,65 @@
+package com.novarto.sanedbc.core.cache;
+
+import com.novarto.sanedbc.core.jdbc.Proxies;
+
+import javax.sql.rowset.CachedRowSet;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A read-only view of a cached result, with its own cursor. Closing the view leaves the cached rows intact.
+ */
+final class CachedResultSet implements InvocationHandler
+{
+    private final ResultSet delegate;
+    private final Statement owner;
+    private boolean closed;
+
+    private CachedResultSet(ResultSet delegate, Statement owner)
+    {
+        this.delegate = delegate;
+        this.owner = owner;
+    }
+
+    static ResultSet view(CachedRowSet rows, Statement owner) throws SQLException
+    {
+        ResultSet shared = rows.createShared();
+        shared.beforeFirst();
+        return Proxies.proxy(ResultSet.class, new CachedResultSet(shared, owner));
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        switch (method.getName())
+        {
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "getStatement":
+                return owner;
+            case "toString":
+                return "CachedResultSet";
+            default:
+                break;
+        }
+
+        if (closed)
+        {
+            throw new SQLException("result set is closed");
+        }
+
+        String name = method.getName();
+        if (name.startsWith("update") || "insertRow".equals(name) || "deleteRow".equals(name) ||
+                "moveToInsertRow".equals(name))
+        {
+            throw new SQLException("cached result sets are read-only");
+        }
+
+        return Proxies.invoke(delegate, method, args);
+    }
+}
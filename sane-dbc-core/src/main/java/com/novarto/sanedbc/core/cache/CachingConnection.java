@@ -0,0 +1,156 @@
+package com.novarto.sanedbc.core.cache;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import fj.data.Option;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.novarto.sanedbc.core.SqlStringUtils.StatementKind.SELECT;
+
+/**
+ * A connection wrapper which returns caching statements for cacheable queries, and write-tracking statements for
+ * everything else that may modify data. The tables written to are collected until the writes are committed, at which
+ * point the cache is notified.
+ *
+ * Like connections themselves, instances are not thread safe.
+ */
+final class CachingConnection implements InvocationHandler
+{
+    private final Connection delegate;
+    private final QueryCache cache;
+
+    private final Set<String> uncommitted = new HashSet<>();
+    private boolean uncommittedUnknown;
+
+    CachingConnection(Connection delegate, QueryCache cache)
+    {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        Connection self = (Connection) proxy;
+        switch (method.getName())
+        {
+            case "prepareStatement":
+                String sql = (String) args[0];
+                if (args.length == 1 && cache.isCacheable(sql))
+                {
+                    return Proxies.proxy(PreparedStatement.class, new CachingStatement(cache, this, delegate, self, sql));
+                }
+
+                PreparedStatement ps = (PreparedStatement) Proxies.invoke(delegate, method, args);
+                return SqlStringUtils.getStatementKind(sql) == SELECT ? ps :
+                        Proxies.proxy(PreparedStatement.class, new WriteTrackingStatement(ps, this, self, sql));
+            case "prepareCall":
+                return Proxies.proxy(CallableStatement.class,
+                        new WriteTrackingStatement(Proxies.invoke(delegate, method, args), this, self, (String) args[0]));
+            case "createStatement":
+                return Proxies.proxy(Statement.class,
+                        new WriteTrackingStatement(Proxies.invoke(delegate, method, args), this, self, null));
+            case "commit":
+                delegate.commit();
+                publish();
+                return null;
+            case "rollback":
+                Proxies.invoke(delegate, method, args);
+                if (args == null)
+                {
+                    discard();
+                }
+                return null;
+            case "setAutoCommit":
+                boolean commits = (Boolean) args[0] && !delegate.getAutoCommit();
+                delegate.setAutoCommit((Boolean) args[0]);
+                if (commits)
+                {
+                    publish();
+                }
+                return null;
+            case "close":
+                //whether the driver commits or rolls back is unspecified, so assume the worst
+                publish();
+                delegate.close();
+                return null;
+            default:
+                return Proxies.invoke(delegate, method, args);
+        }
+    }
+
+    /**
+     * Called after a statement which may have modified data was executed
+     */
+    void written(String sql) throws SQLException
+    {
+        Option<Set<String>> tables = SqlStringUtils.getWrittenTables(sql);
+        if (tables.isSome() && tables.some().isEmpty())
+        {
+            return;
+        }
+
+        if (tables.isSome())
+        {
+            uncommitted.addAll(tables.some());
+        }
+        else
+        {
+            uncommittedUnknown = true;
+        }
+
+        if (delegate.getAutoCommit())
+        {
+            publish();
+        }
+    }
+
+    /**
+     * @return true iff the current transaction has uncommitted writes to some of the tables the query reads from
+     */
+    boolean hasUncommittedWrites(String sql)
+    {
+        if (uncommittedUnknown)
+        {
+            return true;
+        }
+
+        if (uncommitted.isEmpty())
+        {
+            return false;
+        }
+
+        for (String table : cache.readTables(sql))
+        {
+            if (uncommitted.contains(TableVersions.normalize(table)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void publish()
+    {
+        if (uncommittedUnknown)
+        {
+            cache.versions().bumpAll();
+        }
+        cache.versions().bump(uncommitted);
+        discard();
+    }
+
+    private void discard()
+    {
+        uncommitted.clear();
+        uncommittedUnknown = false;
+    }
+}
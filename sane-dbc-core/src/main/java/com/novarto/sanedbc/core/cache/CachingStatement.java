@@ -0,0 +1,133 @@
+package com.novarto.sanedbc.core.cache;
+
+import com.novarto.sanedbc.core.jdbc.BoundParameters;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A prepared statement for a cacheable query. Setter calls are recorded, and the underlying statement is only prepared
+ * (and the recorded calls replayed onto it) when it is actually needed, i.e. on a cache miss, or upon a call this
+ * wrapper does not handle itself.
+ *
+ * The cache is bypassed altogether if the current transaction has uncommitted writes to a table the query reads from.
+ */
+final class CachingStatement implements InvocationHandler
+{
+    private final QueryCache cache;
+    private final CachingConnection owner;
+    private final Connection connection;
+    private final Connection connectionProxy;
+    private final String sql;
+    private final BoundParameters params = new BoundParameters();
+
+    private PreparedStatement delegate;
+    private boolean closed;
+
+    CachingStatement(QueryCache cache, CachingConnection owner, Connection connection, Connection connectionProxy, String sql)
+    {
+        this.cache = cache;
+        this.owner = owner;
+        this.connection = connection;
+        this.connectionProxy = connectionProxy;
+        this.sql = sql;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        if (Proxies.isSetter(method))
+        {
+            params.record(method, args);
+            if (delegate != null)
+            {
+                Proxies.invoke(delegate, method, args);
+            }
+            return null;
+        }
+
+        switch (method.getName())
+        {
+            case "executeQuery":
+                if (args == null)
+                {
+                    return executeQuery((Statement) proxy);
+                }
+                break;
+            case "clearParameters":
+                params.clear();
+                if (delegate != null)
+                {
+                    delegate.clearParameters();
+                }
+                return null;
+            case "close":
+                closed = true;
+                if (delegate != null)
+                {
+                    delegate.close();
+                }
+                return null;
+            case "isClosed":
+                return closed;
+            case "getConnection":
+                return connectionProxy;
+            case "toString":
+                return "CachingStatement[" + sql + "]";
+            default:
+                break;
+        }
+
+        return Proxies.invoke(delegate(), method, args);
+    }
+
+    private ResultSet executeQuery(Statement self) throws SQLException
+    {
+        if (!params.isComparable() || owner.hasUncommittedWrites(sql))
+        {
+            return delegate().executeQuery();
+        }
+
+        QueryKey key = new QueryKey(sql, params.copy());
+        ResultSet hit = cache.get(key, self);
+        if (hit != null)
+        {
+            return hit;
+        }
+
+        TableVersions.Snapshot dependencies = cache.versions().snapshot(cache.readTables(sql));
+        try (ResultSet rs = delegate().executeQuery())
+        {
+            return cache.put(key, dependencies, rs, self);
+        }
+    }
+
+    private PreparedStatement delegate() throws SQLException
+    {
+        if (closed)
+        {
+            throw new SQLException("statement is closed");
+        }
+
+        if (delegate == null)
+        {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            try
+            {
+                params.replay(ps);
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                ps.close();
+                throw e;
+            }
+            delegate = ps;
+        }
+        return delegate;
+    }
+}
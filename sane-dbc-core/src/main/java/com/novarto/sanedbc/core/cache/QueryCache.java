@@ -0,0 +1,301 @@
+package com.novarto.sanedbc.core.cache;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import com.novarto.sanedbc.core.interpreter.InterpreterUtils;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import fj.F;
+import fj.P;
+import fj.P3;
+import fj.function.Try0;
+
+import javax.sql.DataSource;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, in-heap cache of query results.
+ *
+ * The cache plugs into any interpreter by lifting its connection source, e.g.
+ * <pre>
+ *     QueryCache cache = new QueryCache(CACHEABLE_QUERIES::contains, 100_000, 5, TimeUnit.MINUTES);
+ *     AsyncDbInterpreter dbi = new AsyncDbInterpreter(cache.lift(dataSource), executor);
+ * </pre>
+ * and requires no changes to the {@link fj.control.db.DB} descriptions being interpreted.
+ *
+ * A query is cacheable iff its SQL text satisfies the predicate the cache was constructed with. Whenever such a query is
+ * prepared, the returned statement records the calls the binder issues against it. Upon execution, the SQL text together
+ * with the recorded parameters form the cache key. On a hit, the database is not accessed at all - the statement is not even
+ * prepared. On a miss, the query is executed and its result set is materialized in a {@link CachedRowSet}, which is then
+ * shared (read-only) between all subsequent hits.
+ *
+ * The cache is bounded by weight, which is the number of cached rows (an empty result counts as one row). When the bound
+ * is exceeded, least recently used entries are evicted. In addition, entries expire after a fixed time-to-live.
+ * Lookups are lock-free.
+ *
+ * Writes issued through a lifted connection invalidate the cached results of queries reading from the tables written to.
+ * The tables a query reads from are either declared, or detected from its SQL via {@link SqlStringUtils#getReadTables}. The
+ * tables a statement writes to are detected via {@link SqlStringUtils#getWrittenTables}, and if they cannot be detected,
+ * the whole cache is invalidated. Invalidation happens when the write is committed: immediately in auto-commit mode, and upon
+ * commit otherwise. Therefore a transaction which is rolled back does not invalidate anything. Until it commits, a
+ * transaction bypasses the cache for queries reading from tables it has written to, so that it observes its own writes.
+ * Writes which do not go through a lifted connection can be signalled via {@link #invalidate(Iterable)}.
+ *
+ * Queries binding streams, readers or LOBs are never cached.
+ */
+public class QueryCache
+{
+    private static final RowSetFactory ROW_SETS = rowSetFactory();
+
+    private final F<String, Boolean> isCacheable;
+    private final F<String, ? extends Iterable<String>> readTables;
+    private final long maxWeight;
+    private final long ttlNanos;
+
+    private final ConcurrentHashMap<QueryKey, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    private final Object evictionLock = new Object();
+    private final TableVersions versions = new TableVersions();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param isCacheable returns true iff the results of a query with the given SQL text should be cached
+     * @param readTables given the SQL text of a cacheable query, returns the tables it reads from
+     * @param maxRows the maximum number of rows to keep in the cache
+     * @param ttl the time-to-live of a cache entry
+     * @param unit the unit of ttl
+     */
+    public QueryCache(F<String, Boolean> isCacheable, F<String, ? extends Iterable<String>> readTables, long maxRows,
+            long ttl, TimeUnit unit)
+    {
+        if (maxRows < 1 || ttl < 1)
+        {
+            throw new IllegalArgumentException("maxRows and ttl must be >= 1");
+        }
+        this.isCacheable = isCacheable;
+        this.readTables = readTables;
+        this.maxWeight = maxRows;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Constructs a cache which detects the tables a query reads from via {@link SqlStringUtils#getReadTables}
+     */
+    public QueryCache(F<String, Boolean> isCacheable, long maxRows, long ttl, TimeUnit unit)
+    {
+        this(isCacheable, SqlStringUtils::getReadTables, maxRows, ttl, unit);
+    }
+
+    /**
+     * Lifts a connection source to one which spawns connections consulting this cache
+     */
+    public Try0<Connection, SQLException> lift(Try0<Connection, SQLException> ds)
+    {
+        return () -> Proxies.proxy(Connection.class, new CachingConnection(ds.f(), this));
+    }
+
+    /**
+     * Lifts a data source to a connection source which spawns connections consulting this cache
+     */
+    public Try0<Connection, SQLException> lift(DataSource ds)
+    {
+        return lift(InterpreterUtils.lift(ds));
+    }
+
+    /**
+     * Removes all entries from the cache
+     */
+    public void invalidateAll()
+    {
+        for (Map.Entry<QueryKey, Entry> e : entries.entrySet())
+        {
+            remove(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Invalidates the cached results of all queries reading from any of the given tables
+     */
+    public void invalidate(Iterable<String> tables)
+    {
+        versions.bump(tables);
+    }
+
+    public CacheStats stats()
+    {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum(),
+                entries.size(), weight.get());
+    }
+
+    boolean isCacheable(String sql)
+    {
+        return isCacheable.f(sql);
+    }
+
+    Iterable<String> readTables(String sql)
+    {
+        return readTables.f(sql);
+    }
+
+    TableVersions versions()
+    {
+        return versions;
+    }
+
+    /**
+     * @return a view of the cached result set, or null on a miss
+     */
+    ResultSet get(QueryKey key, Statement owner) throws SQLException
+    {
+        Entry entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry == null)
+        {
+            misses.increment();
+            return null;
+        }
+
+        if (now - entry.expiresAt >= 0)
+        {
+            if (remove(key, entry))
+            {
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        if (!entry.dependencies.isCurrent())
+        {
+            if (remove(key, entry))
+            {
+                invalidations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        entry.lastAccess = now;
+        hits.increment();
+        return CachedResultSet.view(entry.rows, owner);
+    }
+
+    /**
+     * Materializes the result set, caches it, and returns a view of it
+     * @param dependencies the versions of the tables the query reads from, as of before the query was executed
+     */
+    ResultSet put(QueryKey key, TableVersions.Snapshot dependencies, ResultSet rs, Statement owner) throws SQLException
+    {
+        CachedRowSet rows = ROW_SETS.createCachedRowSet();
+        rows.populate(rs);
+
+        long entryWeight = Math.max(1, rows.size());
+        if (entryWeight <= maxWeight)
+        {
+            long now = System.nanoTime();
+            Entry entry = new Entry(rows, dependencies, entryWeight, now + ttlNanos, now);
+            Entry previous = entries.put(key, entry);
+            weight.addAndGet(previous == null ? entryWeight : entryWeight - previous.weight);
+
+            if (weight.get() > maxWeight)
+            {
+                evict();
+            }
+        }
+
+        return CachedResultSet.view(rows, owner);
+    }
+
+    private boolean remove(QueryKey key, Entry entry)
+    {
+        if (entries.remove(key, entry))
+        {
+            weight.addAndGet(-entry.weight);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Evicts least recently used entries until the cache is at 90% of its capacity. Evicting in bulk amortizes the cost
+     * of ordering the entries over many insertions.
+     */
+    private void evict()
+    {
+        synchronized (evictionLock)
+        {
+            if (weight.get() <= maxWeight)
+            {
+                return;
+            }
+
+            // access stamps keep changing concurrently, so sort on a snapshot of them
+            List<P3<Long, QueryKey, Entry>> xs = new ArrayList<>(entries.size());
+            for (Map.Entry<QueryKey, Entry> e : entries.entrySet())
+            {
+                xs.add(P.p(e.getValue().lastAccess, e.getKey(), e.getValue()));
+            }
+            xs.sort(Comparator.comparing(P3::_1));
+
+            long target = maxWeight - maxWeight / 10;
+            for (P3<Long, QueryKey, Entry> x : xs)
+            {
+                if (weight.get() <= target)
+                {
+                    break;
+                }
+                if (remove(x._2(), x._3()))
+                {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static RowSetFactory rowSetFactory()
+    {
+        try
+        {
+            return RowSetProvider.newFactory();
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry
+    {
+        private final CachedRowSet rows;
+        private final TableVersions.Snapshot dependencies;
+        private final long weight;
+        private final long expiresAt;
+        private volatile long lastAccess;
+
+        private Entry(CachedRowSet rows, TableVersions.Snapshot dependencies, long weight, long expiresAt, long lastAccess)
+        {
+            this.rows = rows;
+            this.dependencies = dependencies;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
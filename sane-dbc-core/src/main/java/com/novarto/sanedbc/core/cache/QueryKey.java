@@ -0,0 +1,50 @@
+package com.novarto.sanedbc.core.cache;
+
+import com.novarto.sanedbc.core.jdbc.BoundParameters;
+
+/**
+ * Cache key of a query: its SQL text, plus everything its binder set on the statement
+ */
+final class QueryKey
+{
+    private final String sql;
+    private final BoundParameters params;
+    private final int hash;
+
+    QueryKey(String sql, BoundParameters params)
+    {
+        this.sql = sql;
+        this.params = params;
+        this.hash = 31 * sql.hashCode() + params.hashCode();
+    }
+
+    String sql()
+    {
+        return sql;
+    }
+
+    @Override public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+
+        QueryKey that = (QueryKey) o;
+        return hash == that.hash && sql.equals(that.sql) && params.equals(that.params);
+    }
+
+    @Override public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override public String toString()
+    {
+        return sql + " " + params;
+    }
+}
@@ -0,0 +1,98 @@
+package com.novarto.sanedbc.core.cache;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks a version number per table, which is incremented whenever a write to the table is committed.
+ * A cached result records the versions of the tables it depends on at the time the query was issued, and is current
+ * as long as none of them has changed since.
+ *
+ * In addition, there is a global version, which is incremented upon committing a write to an unknown set of tables.
+ * All cached results depend on it.
+ */
+final class TableVersions
+{
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final AtomicLong global = new AtomicLong();
+
+    /**
+     * Captures the current versions of the given tables. Must be called before the query depending on them is executed,
+     * so that a write committed while the query is in flight makes the result stale.
+     */
+    Snapshot snapshot(Iterable<String> tables)
+    {
+        int size = 0;
+        for (String ignore : tables)
+        {
+            size++;
+        }
+
+        AtomicLong[] refs = new AtomicLong[size];
+        long[] values = new long[size];
+        int i = 0;
+        for (String table : tables)
+        {
+            refs[i] = version(table);
+            values[i] = refs[i].get();
+            i++;
+        }
+        return new Snapshot(global.get(), refs, values);
+    }
+
+    void bump(Iterable<String> tables)
+    {
+        for (String table : tables)
+        {
+            version(table).incrementAndGet();
+        }
+    }
+
+    void bumpAll()
+    {
+        global.incrementAndGet();
+    }
+
+    static String normalize(String table)
+    {
+        String result = table.trim();
+        result = result.substring(result.lastIndexOf('.') + 1);
+        return result.replaceAll("[\"`\\[\\]]", "").toUpperCase(Locale.ROOT);
+    }
+
+    private AtomicLong version(String table)
+    {
+        return versions.computeIfAbsent(normalize(table), ignore -> new AtomicLong());
+    }
+
+    final class Snapshot
+    {
+        private final long globalVersion;
+        private final AtomicLong[] refs;
+        private final long[] values;
+
+        private Snapshot(long globalVersion, AtomicLong[] refs, long[] values)
+        {
+            this.globalVersion = globalVersion;
+            this.refs = refs;
+            this.values = values;
+        }
+
+        boolean isCurrent()
+        {
+            if (global.get() != globalVersion)
+            {
+                return false;
+            }
+            for (int i = 0; i < refs.length; i++)
+            {
+                if (refs[i].get() != values[i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.novarto.sanedbc.core.cache;
+
+import com.novarto.sanedbc.core.jdbc.Proxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A statement wrapper which reports executed SQL to its {@link CachingConnection}. Handles both prepared statements,
+ * for which the SQL is known upfront, and plain statements, for which it is passed to execute / addBatch.
+ *
+ * A statement is reported as executed even if execution failed, since a partially applied batch may still be committed.
+ */
+final class WriteTrackingStatement implements InvocationHandler
+{
+    private final Object delegate;
+    private final CachingConnection connection;
+    private final Connection connectionProxy;
+    private final String sql;
+    private final List<String> batch = new ArrayList<>();
+
+    WriteTrackingStatement(Object delegate, CachingConnection connection, Connection connectionProxy, String sql)
+    {
+        this.delegate = delegate;
+        this.connection = connection;
+        this.connectionProxy = connectionProxy;
+        this.sql = sql;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String name = method.getName();
+        if ("getConnection".equals(name))
+        {
+            return connectionProxy;
+        }
+
+        String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+        Object result;
+        try
+        {
+            result = Proxies.invoke(delegate, method, args);
+        }
+        catch (Throwable e)
+        {
+            try
+            {
+                track(name, executed);
+            }
+            catch (SQLException suppressed)
+            {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+
+        track(name, executed);
+        return result;
+    }
+
+    private void track(String methodName, String executed) throws SQLException
+    {
+        switch (methodName)
+        {
+            case "execute":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+            case "executeQuery":
+                connection.written(executed);
+                break;
+            case "addBatch":
+                if (sql == null)
+                {
+                    batch.add(executed);
+                }
+                break;
+            case "executeBatch":
+            case "executeLargeBatch":
+                if (sql != null)
+                {
+                    connection.written(sql);
+                }
+                for (String x : batch)
+                {
+                    connection.written(x);
+                }
+                batch.clear();
+                break;
+            case "clearBatch":
+                batch.clear();
+                break;
+            default:
+                break;
+        }
+    }
+}
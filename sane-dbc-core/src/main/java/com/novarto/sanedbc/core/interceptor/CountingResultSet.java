@@ -0,0 +1,72 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.jdbc.Proxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+
+/**
+ * A result set wrapper which counts the rows read, and reports the completion of the query to its statement once
+ * closed, or once iteration fails
+ */
+final class CountingResultSet implements InvocationHandler
+{
+    private final ResultSet delegate;
+    private final InterceptingStatement statement;
+    private final String sql;
+    private final long start;
+
+    private long rows;
+    private boolean completed;
+
+    CountingResultSet(ResultSet delegate, InterceptingStatement statement, String sql, long start)
+    {
+        this.delegate = delegate;
+        this.statement = statement;
+        this.sql = sql;
+        this.start = start;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        switch (method.getName())
+        {
+            case "next":
+                try
+                {
+                    boolean hasNext = delegate.next();
+                    if (hasNext)
+                    {
+                        rows++;
+                    }
+                    return hasNext;
+                }
+                catch (Throwable e)
+                {
+                    complete(e);
+                    throw e;
+                }
+            case "close":
+                try
+                {
+                    return Proxies.invoke(delegate, method, args);
+                }
+                finally
+                {
+                    complete(null);
+                }
+            default:
+                return Proxies.invoke(delegate, method, args);
+        }
+    }
+
+    void complete(Throwable error)
+    {
+        if (!completed)
+        {
+            completed = true;
+            statement.completed(this, sql, rows, System.nanoTime() - start, error);
+        }
+    }
+}
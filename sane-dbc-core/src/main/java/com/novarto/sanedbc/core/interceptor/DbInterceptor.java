@@ -0,0 +1,141 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.jdbc.BoundParameters;
+import fj.control.db.DB;
+import fj.data.Option;
+
+/**
+ * A hook into the execution of {@link DB} operations by an interpreter, e.g. for metrics, tracing or diagnostics.
+ * All the interpreters accept an interceptor, and notify it of:
+ *
+ * - the start and end of each submitted operation, including the time it waited for an executor thread
+ * - the time it took to acquire a connection
+ * - the time each statement preparation and execution took, and the update counts of batches
+ * - the time each commit / rollback took, e.g. the ones issued by {@link
+ * com.novarto.sanedbc.core.interpreter.InterpreterUtils#transactional(DB)}
+ * - optionally, the bound parameters and row count of each statement, see {@link #capturesParameters()}
+ *
+ * All callbacks for a single operation happen on the thread which runs the operation, in the order listed above, so
+ * implementations may keep per-operation state in a ThreadLocal. Callbacks for different operations happen
+ * concurrently, and implementations must be thread safe. Callbacks are invoked inline, on the hot path, so they should
+ * be cheap, and must not throw - except for statement callbacks which deliberately fail the operation, as
+ * {@link NPlusOneDetector#failing(int)} does, since their exceptions propagate to the operation.
+ *
+ * All methods have empty default implementations, so an interceptor only overrides the callbacks it is interested in.
+ */
+public interface DbInterceptor
+{
+    /**
+     * An interceptor which does nothing. Interpreters skip interception altogether when given this instance.
+     */
+    DbInterceptor NONE = new DbInterceptor()
+    {
+    };
+
+    /**
+     * Called by interpreters before each operation. If this returns false, the operation is not intercepted at all,
+     * e.g. because the interceptor is switched off.
+     */
+    default boolean isEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * Called before an operation starts, i.e. before a connection is acquired for it
+     * @param op the operation, as submitted to the interpreter
+     * @param queueNanos the time the operation waited between submission and start, e.g. in an executor queue. Always
+     *                   0 for synchronous interpreters
+     */
+    default void beforeOp(DB<?> op, long queueNanos)
+    {
+    }
+
+    /**
+     * Called after a connection was acquired for the current operation
+     * @param nanos the time acquisition took
+     */
+    default void connectionAcquired(long nanos)
+    {
+    }
+
+    /**
+     * Called after a statement was prepared by the current operation, i.e. upon return from prepareStatement or
+     * prepareCall
+     * @param sql the SQL prepared
+     * @param nanos the time preparation took
+     * @param error the exception preparation failed with, or null if it succeeded
+     */
+    default void statementPrepared(String sql, long nanos, Throwable error)
+    {
+    }
+
+    /**
+     * Called after a statement was executed by the current operation, i.e. upon return from one of the execute* methods
+     * of a Statement. For queries, the time does not include iterating the result set.
+     * @param sql the SQL executed
+     * @param nanos the time execution took
+     * @param error the exception execution failed with, or null if it succeeded
+     */
+    default void statementExecuted(String sql, long nanos, Throwable error)
+    {
+    }
+
+    /**
+     * Called after a batch was executed by the current operation, right after {@link #statementExecuted}
+     * @param sql the SQL executed; for a plain statement, the first SQL added to the batch
+     * @param batchSize the number of elements in the batch
+     * @param updateCount the total update count, as per
+     * {@link com.novarto.sanedbc.core.ops.Binders#sumBatchResult(int[])}; none() if unknown, or if execution failed
+     * @param nanos the time execution took
+     * @param error the exception execution failed with, or null if it succeeded
+     */
+    default void batchExecuted(String sql, int batchSize, Option<Integer> updateCount, long nanos, Throwable error)
+    {
+    }
+
+    /**
+     * If this returns true, statements record the parameters bound to them and count the rows read from their result
+     * sets, and report each execution to {@link #statementCompleted}. This costs an allocation per setter call, so it
+     * is off by default.
+     */
+    default boolean capturesParameters()
+    {
+        return false;
+    }
+
+    /**
+     * Called after a statement execution completed, iff {@link #capturesParameters()}. For queries, this happens when
+     * the result set (or the statement) is closed, so the time includes iterating the result set. Otherwise, this
+     * happens right after {@link #statementExecuted} / {@link #batchExecuted}.
+     * @param sql the SQL executed
+     * @param parameters the parameters bound, or for batches, the ones bound to the first element of the batch. Only
+     *                   valid during the call, use {@link BoundParameters#copy()} to retain them
+     * @param rows the number of rows read for queries, the update count for updates and batches, or -1 if unknown
+     * @param nanos the time from the start of the execution to completion
+     * @param error the exception execution failed with, or null if it succeeded
+     */
+    default void statementCompleted(String sql, BoundParameters parameters, long rows, long nanos, Throwable error)
+    {
+    }
+
+    /**
+     * Called after the current operation committed or rolled back its connection
+     * @param committed true for a commit, false for a rollback
+     * @param nanos the time the commit / rollback took
+     * @param error the exception the commit / rollback failed with, or null if it succeeded
+     */
+    default void transactionEnded(boolean committed, long nanos, Throwable error)
+    {
+    }
+
+    /**
+     * Called after an operation completed, and its connection was closed
+     * @param op the operation, as submitted to the interpreter
+     * @param nanos the time the operation took, from beforeOp to completion, excluding queueing time
+     * @param error the exception the operation failed with, or null if it succeeded
+     */
+    default void afterOp(DB<?> op, long nanos, Throwable error)
+    {
+    }
+}
@@ -0,0 +1,144 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.jdbc.BoundParameters;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import fj.control.db.DB;
+import fj.data.Option;
+
+import java.sql.Connection;
+import java.util.Arrays;
+
+/**
+ * Utilities for combining and applying {@link DbInterceptor}s
+ */
+public final class DbInterceptors
+{
+    private DbInterceptors()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Combines interceptors into one, which notifies each of them in order
+     */
+    public static DbInterceptor chain(DbInterceptor... interceptors)
+    {
+        DbInterceptor[] xs = Arrays.stream(interceptors).filter(x -> x != DbInterceptor.NONE)
+                .toArray(DbInterceptor[]::new);
+
+        if (xs.length == 0)
+        {
+            return DbInterceptor.NONE;
+        }
+        if (xs.length == 1)
+        {
+            return xs[0];
+        }
+
+        return new DbInterceptor()
+        {
+            @Override public boolean isEnabled()
+            {
+                for (DbInterceptor x : xs)
+                {
+                    if (x.isEnabled())
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override public void beforeOp(DB<?> op, long queueNanos)
+            {
+                for (DbInterceptor x : xs)
+                {
+                    x.beforeOp(op, queueNanos);
+                }
+            }
+
+            @Override public void connectionAcquired(long nanos)
+            {
+                for (DbInterceptor x : xs)
+                {
+                    x.connectionAcquired(nanos);
+                }
+            }
+
+            @Override public void statementExecuted(String sql, long nanos, Throwable error)
+            {
+                for (DbInterceptor x : xs)
+                {
+                    x.statementExecuted(sql, nanos, error);
+                }
+            }
+
+            @Override public void statementPrepared(String sql, long nanos, Throwable error)
+            {
+                for (DbInterceptor x : xs)
+                {
+                    x.statementPrepared(sql, nanos, error);
+                }
+            }
+
+            @Override public void batchExecuted(String sql, int batchSize, Option<Integer> updateCount, long nanos,
+                    Throwable error)
+            {
+                for (DbInterceptor x : xs)
+                {
+                    x.batchExecuted(sql, batchSize, updateCount, nanos, error);
+                }
+            }
+
+            @Override public boolean capturesParameters()
+            {
+                for (DbInterceptor x : xs)
+                {
+                    if (x.capturesParameters())
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override public void statementCompleted(String sql, BoundParameters parameters, long rows, long nanos,
+                    Throwable error)
+            {
+                for (DbInterceptor x : xs)
+                {
+                    x.statementCompleted(sql, parameters, rows, nanos, error);
+                }
+            }
+
+            @Override public void transactionEnded(boolean committed, long nanos, Throwable error)
+            {
+                for (DbInterceptor x : xs)
+                {
+                    x.transactionEnded(committed, nanos, error);
+                }
+            }
+
+            @Override public void afterOp(DB<?> op, long nanos, Throwable error)
+            {
+                for (DbInterceptor x : xs)
+                {
+                    x.afterOp(op, nanos, error);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a connection, so that it reports statement preparation, execution, commits and rollbacks to an
+     * interceptor. Returns the connection itself for {@link DbInterceptor#NONE}.
+     */
+    public static Connection intercept(Connection c, DbInterceptor interceptor)
+    {
+        if (interceptor == DbInterceptor.NONE || !interceptor.isEnabled())
+        {
+            return c;
+        }
+        return Proxies.proxy(Connection.class, new InterceptingConnection(c, interceptor));
+    }
+}
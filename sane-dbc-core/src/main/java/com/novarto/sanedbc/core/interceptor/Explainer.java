@@ -0,0 +1,122 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import com.novarto.sanedbc.core.jdbc.BoundParameters;
+import fj.F;
+import fj.data.Option;
+import fj.function.Try0;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static fj.data.Option.none;
+import static fj.data.Option.some;
+
+/**
+ * Captures execution plans of statements, by running the database's EXPLAIN statement for them on a separate
+ * connection. Explaining is rate limited, so that a burst of slow statements does not add even more load to an
+ * already struggling database.
+ */
+public final class Explainer
+{
+    /**
+     * <code>EXPLAIN sql</code>, as understood by MySQL, Postgres and H2
+     */
+    public static final F<String, String> EXPLAIN = sql -> "EXPLAIN " + sql;
+
+    /**
+     * <code>EXPLAIN PLAN FOR sql</code>, as understood by HSQLDB
+     */
+    public static final F<String, String> EXPLAIN_PLAN_FOR = sql -> "EXPLAIN PLAN FOR " + sql;
+
+    private final Try0<Connection, SQLException> connections;
+    private final F<String, String> explainSql;
+    private final Executor executor;
+    private final long minIntervalNanos;
+
+    private final AtomicLong nextAllowed = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param connections where to get connections for running EXPLAIN from; not the ones the explained statements ran
+     *                    on, which are still in use
+     * @param explainSql turns a statement into the EXPLAIN statement for it, e.g. {@link #EXPLAIN}
+     * @param executor where to run EXPLAIN statements, so that they do not block the operations being explained
+     * @param minInterval the minimum time between two EXPLAIN statements
+     */
+    public Explainer(Try0<Connection, SQLException> connections, F<String, String> explainSql, Executor executor,
+            long minInterval, TimeUnit unit)
+    {
+        this.connections = connections;
+        this.explainSql = explainSql;
+        this.executor = executor;
+        this.minIntervalNanos = unit.toNanos(minInterval);
+    }
+
+    /**
+     * @return true iff the statement can be explained, i.e. it is a query or DML, and explaining now does not exceed
+     * the rate limit. If this returns true, the caller is expected to explain the statement.
+     */
+    boolean tryAcquire(String sql)
+    {
+        switch (SqlStringUtils.getStatementKind(sql))
+        {
+            case CALL:
+            case UNKNOWN:
+                return false;
+            default:
+                break;
+        }
+
+        long now = System.nanoTime();
+        long next = nextAllowed.get();
+        return now - next >= 0 && nextAllowed.compareAndSet(next, now + minIntervalNanos);
+    }
+
+    Executor executor()
+    {
+        return executor;
+    }
+
+    /**
+     * Runs EXPLAIN for a statement, with the given parameters bound to it
+     * @return the plan, as the rows of the EXPLAIN result separated by new lines, and their columns by tabs
+     */
+    public Option<String> explain(String sql, BoundParameters parameters) throws SQLException
+    {
+        try (Connection c = connections.f(); PreparedStatement ps = c.prepareStatement(explainSql.f(sql)))
+        {
+            if (ps.getParameterMetaData().getParameterCount() > 0)
+            {
+                parameters.replay(ps);
+            }
+
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery())
+            {
+                ResultSetMetaData md = rs.getMetaData();
+                while (rs.next())
+                {
+                    if (plan.length() > 0)
+                    {
+                        plan.append('\n');
+                    }
+                    for (int i = 1; i <= md.getColumnCount(); i++)
+                    {
+                        if (i > 1)
+                        {
+                            plan.append('\t');
+                        }
+                        plan.append(rs.getString(i));
+                    }
+                }
+            }
+            return plan.length() == 0 ? none() : some(plan.toString());
+        }
+    }
+}
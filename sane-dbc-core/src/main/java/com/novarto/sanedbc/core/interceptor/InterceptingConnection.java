@@ -0,0 +1,82 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.jdbc.Proxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * A connection wrapper which times statement preparation, commits and rollbacks, and returns statements reporting
+ * their executions to an interceptor
+ */
+final class InterceptingConnection implements InvocationHandler
+{
+    private final Connection delegate;
+    private final DbInterceptor interceptor;
+
+    InterceptingConnection(Connection delegate, DbInterceptor interceptor)
+    {
+        this.delegate = delegate;
+        this.interceptor = interceptor;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        Connection self = (Connection) proxy;
+        switch (method.getName())
+        {
+            case "prepareStatement":
+                return Proxies.proxy(PreparedStatement.class,
+                        new InterceptingStatement(prepare(method, args), self, interceptor, (String) args[0]));
+            case "prepareCall":
+                return Proxies.proxy(CallableStatement.class,
+                        new InterceptingStatement(prepare(method, args), self, interceptor, (String) args[0]));
+            case "createStatement":
+                return Proxies.proxy(Statement.class,
+                        new InterceptingStatement(Proxies.invoke(delegate, method, args), self, interceptor, null));
+            case "commit":
+                return endTransaction(true, method, args);
+            case "rollback":
+                // rollback(Savepoint) does not end the transaction
+                return args == null ? endTransaction(false, method, null) : Proxies.invoke(delegate, method, args);
+            default:
+                return Proxies.invoke(delegate, method, args);
+        }
+    }
+
+    private Object prepare(Method method, Object[] args) throws Throwable
+    {
+        long start = System.nanoTime();
+        try
+        {
+            Object result = Proxies.invoke(delegate, method, args);
+            interceptor.statementPrepared((String) args[0], System.nanoTime() - start, null);
+            return result;
+        }
+        catch (Throwable e)
+        {
+            interceptor.statementPrepared((String) args[0], System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    private Object endTransaction(boolean committed, Method method, Object[] args) throws Throwable
+    {
+        long start = System.nanoTime();
+        try
+        {
+            Object result = Proxies.invoke(delegate, method, args);
+            interceptor.transactionEnded(committed, System.nanoTime() - start, null);
+            return result;
+        }
+        catch (Throwable e)
+        {
+            interceptor.transactionEnded(committed, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.jdbc.BoundParameters;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import com.novarto.sanedbc.core.ops.Binders;
+import fj.data.Option;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+import static fj.data.Option.none;
+
+/**
+ * A statement wrapper which times execute* calls, and reports them to an interceptor. Handles both prepared
+ * statements, for which the SQL is known upfront, and plain statements, for which it is passed to execute / addBatch.
+ *
+ * If the interceptor captures parameters, setter calls are recorded, and the result sets of queries are wrapped in
+ * order to count rows, and to report the execution once they are closed.
+ */
+final class InterceptingStatement implements InvocationHandler
+{
+    private final Object delegate;
+    private final Connection connectionProxy;
+    private final DbInterceptor interceptor;
+    private final String sql;
+
+    // the first SQL added to the batch of a plain statement
+    private String batchSql;
+    private int batchSize;
+
+    // null unless the interceptor captures parameters
+    private final BoundParameters params;
+    private BoundParameters batchParams;
+    private CountingResultSet openResultSet;
+
+    InterceptingStatement(Object delegate, Connection connectionProxy, DbInterceptor interceptor, String sql)
+    {
+        this.delegate = delegate;
+        this.connectionProxy = connectionProxy;
+        this.interceptor = interceptor;
+        this.sql = sql;
+        this.params = interceptor.capturesParameters() ? new BoundParameters() : null;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String name = method.getName();
+        if (!name.startsWith("execute"))
+        {
+            if (params != null)
+            {
+                capture(method, args);
+            }
+            switch (name)
+            {
+                case "getConnection":
+                    return connectionProxy;
+                case "addBatch":
+                    if (sql == null && batchSql == null && args != null)
+                    {
+                        batchSql = (String) args[0];
+                    }
+                    batchSize++;
+                    break;
+                case "clearBatch":
+                    batchSql = null;
+                    batchSize = 0;
+                    break;
+                default:
+                    break;
+            }
+            return Proxies.invoke(delegate, method, args);
+        }
+
+        String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] :
+                sql != null ? sql : batchSql;
+        boolean batch = name.endsWith("Batch");
+        int executedBatchSize = batchSize;
+        BoundParameters executedParams = batch && batchParams != null ? batchParams : params;
+        if (batch)
+        {
+            batchSql = null;
+            batchSize = 0;
+            batchParams = null;
+        }
+        if (openResultSet != null)
+        {
+            // executing a statement closes its current result set
+            openResultSet.complete(null);
+        }
+
+        long start = System.nanoTime();
+        Object result;
+        try
+        {
+            result = Proxies.invoke(delegate, method, args);
+        }
+        catch (Throwable e)
+        {
+            long nanos = System.nanoTime() - start;
+            interceptor.statementExecuted(executed, nanos, e);
+            if (batch)
+            {
+                interceptor.batchExecuted(executed, executedBatchSize, none(), nanos, e);
+            }
+            if (params != null)
+            {
+                interceptor.statementCompleted(executed, executedParams, -1, nanos, e);
+            }
+            throw e;
+        }
+
+        long nanos = System.nanoTime() - start;
+        interceptor.statementExecuted(executed, nanos, null);
+        Option<Integer> updateCount = batch ? updateCount(result) : none();
+        if (batch)
+        {
+            interceptor.batchExecuted(executed, executedBatchSize, updateCount, nanos, null);
+        }
+
+        if (params != null)
+        {
+            if (result instanceof ResultSet)
+            {
+                openResultSet = new CountingResultSet((ResultSet) result, this, executed, start);
+                return Proxies.proxy(ResultSet.class, openResultSet);
+            }
+            long rows = result instanceof Number ? ((Number) result).longValue() : updateCount.orSome(-1);
+            interceptor.statementCompleted(executed, executedParams, rows, nanos, null);
+        }
+        return result;
+    }
+
+    private void capture(Method method, Object[] args)
+    {
+        if (Proxies.isSetter(method))
+        {
+            params.record(method, args);
+            return;
+        }
+        switch (method.getName())
+        {
+            case "clearParameters":
+                params.clear();
+                break;
+            case "addBatch":
+                if (batchParams == null)
+                {
+                    batchParams = params.copy();
+                }
+                break;
+            case "clearBatch":
+                batchParams = null;
+                break;
+            case "close":
+                if (openResultSet != null)
+                {
+                    openResultSet.complete(null);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Called by the result set of a query, when closed
+     */
+    void completed(CountingResultSet rs, String executed, long rows, long nanos, Throwable error)
+    {
+        if (openResultSet == rs)
+        {
+            openResultSet = null;
+        }
+        interceptor.statementCompleted(executed, params, rows, nanos, error);
+    }
+
+    private static Option<Integer> updateCount(Object batchResult)
+    {
+        if (!(batchResult instanceof int[]))
+        {
+            return none();
+        }
+        try
+        {
+            return Binders.sumBatchResult((int[]) batchResult);
+        }
+        catch (IllegalStateException e)
+        {
+            return none();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the spirit of HdrHistogram: each power of two range
+ * is split into 16 linear sub-buckets, which bounds the relative error of reported percentiles to 1/16.
+ * Values from 0 to 2^40 nanoseconds (about 18 minutes) are tracked; larger values are clamped.
+ *
+ * Recording is a couple of atomic increments, and never allocates. Snapshots are not atomic with respect to
+ * concurrent recording, but every recorded value is eventually reflected in all the statistics.
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency
+     * @param nanos the latency in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos)
+    {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value))
+        {
+            currentMax = max.get();
+        }
+    }
+
+    static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the largest value which falls in the given bucket
+     */
+    static long highestValue(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lowest = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public Snapshot snapshot()
+    {
+        long[] xs = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            xs[i] = counts.get(i);
+            count += xs[i];
+        }
+        return new Snapshot(xs, count, sum.sum(), max.get());
+    }
+
+    /**
+     * An immutable view of a histogram at some point in time. All values are in nanoseconds.
+     */
+    public static final class Snapshot
+    {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max)
+        {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count()
+        {
+            return count;
+        }
+
+        public long sum()
+        {
+            return sum;
+        }
+
+        public long max()
+        {
+            return max;
+        }
+
+        public double mean()
+        {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param earlier an earlier snapshot of the same histogram
+         * @return a snapshot of the values recorded between the earlier snapshot and this one. Its maximum is the
+         * highest value of the last non-empty bucket, capped by the maximum of this snapshot.
+         */
+        public Snapshot since(Snapshot earlier)
+        {
+            long[] xs = new long[counts.length];
+            long count = 0;
+            long max = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                xs[i] = Math.max(0, counts[i] - earlier.counts[i]);
+                count += xs[i];
+                if (xs[i] > 0)
+                {
+                    max = Math.min(highestValue(i), this.max);
+                }
+            }
+            return new Snapshot(xs, count, Math.max(0, sum - earlier.sum), max);
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return a value such that the given percentage of recorded values are smaller than or equal to it, up to the
+         * histogram precision. 0 if nothing was recorded.
+         */
+        public long percentile(double percentile)
+        {
+            if (percentile < 0 || percentile > 100)
+            {
+                throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+            }
+            if (count == 0)
+            {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank)
+                {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override public String toString()
+        {
+            return "count=" + count + ", mean=" + micros((long) mean()) + ", p50=" + micros(percentile(50)) + ", p99=" +
+                    micros(percentile(99)) + ", p99.9=" + micros(percentile(99.9)) + ", max=" + micros(max);
+        }
+
+        private static String micros(long nanos)
+        {
+            return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+        }
+    }
+}
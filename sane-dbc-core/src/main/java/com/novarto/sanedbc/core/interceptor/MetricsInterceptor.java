@@ -0,0 +1,168 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import fj.control.db.DB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An interceptor which keeps latency histograms of executor queue wait, connection acquisition, whole operations,
+ * and statement executions per SQL fingerprint. Recording is lock-free and, once a statement has been seen, does not
+ * allocate.
+ *
+ * The number of distinct fingerprints tracked is bounded; executions of statements beyond the bound are accumulated
+ * under the {@link #OTHER} fingerprint.
+ */
+public class MetricsInterceptor implements DbInterceptor
+{
+    public static final String OTHER = "<other>";
+
+    private final int maxStatements;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram connectionAcquire = new LatencyHistogram();
+    private final LatencyHistogram ops = new LatencyHistogram();
+    private final LongAdder opErrors = new LongAdder();
+
+    // SQL strings are usually constants, so keying by the SQL itself saves fingerprinting on every execution
+    private final ConcurrentHashMap<String, StatementMetrics> bySql = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StatementMetrics> byFingerprint = new ConcurrentHashMap<>();
+    private final StatementMetrics other = new StatementMetrics(OTHER);
+
+    public MetricsInterceptor()
+    {
+        this(1000);
+    }
+
+    /**
+     * @param maxStatements the maximum number of distinct fingerprints to track
+     */
+    public MetricsInterceptor(int maxStatements)
+    {
+        this.maxStatements = maxStatements;
+    }
+
+    @Override public void beforeOp(DB<?> op, long queueNanos)
+    {
+        queueWait.record(queueNanos);
+    }
+
+    @Override public void connectionAcquired(long nanos)
+    {
+        connectionAcquire.record(nanos);
+    }
+
+    @Override public void statementExecuted(String sql, long nanos, Throwable error)
+    {
+        StatementMetrics metrics = sql == null ? other : bySql.get(sql);
+        if (metrics == null)
+        {
+            metrics = metricsFor(sql);
+        }
+
+        metrics.latency.record(nanos);
+        if (error != null)
+        {
+            metrics.errors.increment();
+        }
+    }
+
+    @Override public void afterOp(DB<?> op, long nanos, Throwable error)
+    {
+        ops.record(nanos);
+        if (error != null)
+        {
+            opErrors.increment();
+        }
+    }
+
+    private StatementMetrics metricsFor(String sql)
+    {
+        String fingerprint = SqlStringUtils.fingerprint(sql);
+        StatementMetrics result = byFingerprint.get(fingerprint);
+        if (result == null)
+        {
+            result = byFingerprint.size() < maxStatements ?
+                    byFingerprint.computeIfAbsent(fingerprint, StatementMetrics::new) : other;
+        }
+
+        if (bySql.size() < maxStatements * 4)
+        {
+            bySql.putIfAbsent(sql, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the time operations spent waiting for an executor thread
+     */
+    public LatencyHistogram.Snapshot queueWait()
+    {
+        return queueWait.snapshot();
+    }
+
+    /**
+     * @return the time it took to acquire connections
+     */
+    public LatencyHistogram.Snapshot connectionAcquire()
+    {
+        return connectionAcquire.snapshot();
+    }
+
+    /**
+     * @return the time operations took, from the start of the operation, including connection acquisition, to
+     * completion
+     */
+    public LatencyHistogram.Snapshot ops()
+    {
+        return ops.snapshot();
+    }
+
+    /**
+     * @return the number of operations which failed
+     */
+    public long opErrors()
+    {
+        return opErrors.sum();
+    }
+
+    /**
+     * @return the statistics of all the statements executed, slowest (by total time) first
+     */
+    public List<StatementStats> statements()
+    {
+        List<StatementStats> result = new ArrayList<>(byFingerprint.size() + 1);
+        for (StatementMetrics x : byFingerprint.values())
+        {
+            result.add(x.stats());
+        }
+        StatementStats otherStats = other.stats();
+        if (otherStats.latency.count() > 0)
+        {
+            result.add(otherStats);
+        }
+
+        result.sort((x, y) -> Long.compare(y.latency.sum(), x.latency.sum()));
+        return result;
+    }
+
+    private static final class StatementMetrics
+    {
+        final String fingerprint;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        StatementMetrics(String fingerprint)
+        {
+            this.fingerprint = fingerprint;
+        }
+
+        StatementStats stats()
+        {
+            return new StatementStats(fingerprint, errors.sum(), latency.snapshot());
+        }
+    }
+}
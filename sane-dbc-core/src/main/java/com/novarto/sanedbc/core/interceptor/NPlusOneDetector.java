@@ -0,0 +1,173 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import fj.control.db.DB;
+import fj.function.Effect1;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A diagnostic interceptor which detects the N+1 pattern, i.e. an operation (typically a bind chain, or a
+ * {@link com.novarto.sanedbc.core.ops.DbOps#sequence} of ops) which executes the same statement once per element,
+ * instead of once for all of them.
+ *
+ * Executions are counted per SQL fingerprint, within a single operation submitted to an interpreter. Statements
+ * executed more than a given number of times are reported once the operation completes - by default as a warning
+ * in the log. Use {@link #failing(int)} in tests, in order to fail the offending operations instead.
+ */
+public class NPlusOneDetector implements DbInterceptor
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(NPlusOneDetector.class);
+
+    private static final int MAX_CACHED_FINGERPRINTS = 1000;
+
+    private final int maxExecutions;
+    private final Effect1<RepeatedStatement> sink;
+    private final boolean fail;
+
+    // SQL strings are usually constants, so keying by the SQL itself saves fingerprinting on every execution
+    private final ConcurrentHashMap<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<OpState> current = new ThreadLocal<>();
+
+    /**
+     * Logs statements executed more than maxExecutions times by a single operation
+     */
+    public NPlusOneDetector(int maxExecutions)
+    {
+        this(maxExecutions, NPlusOneDetector::log);
+    }
+
+    /**
+     * @param sink what to do with statements executed more than maxExecutions times by a single operation, e.g. log
+     *             them or count them. Called on the thread which ran the operation, upon its completion
+     */
+    public NPlusOneDetector(int maxExecutions, Effect1<RepeatedStatement> sink)
+    {
+        this(maxExecutions, sink, false);
+    }
+
+    private NPlusOneDetector(int maxExecutions, Effect1<RepeatedStatement> sink, boolean fail)
+    {
+        if (maxExecutions < 1)
+        {
+            throw new IllegalArgumentException("maxExecutions must be positive: " + maxExecutions);
+        }
+        this.maxExecutions = maxExecutions;
+        this.sink = sink;
+        this.fail = fail;
+    }
+
+    /**
+     * A detector which fails an operation as soon as it executes a statement more than maxExecutions times, by
+     * throwing an IllegalStateException from the offending execution. Meant for tests.
+     */
+    public static NPlusOneDetector failing(int maxExecutions)
+    {
+        return new NPlusOneDetector(maxExecutions, x -> {
+        }, true);
+    }
+
+    /**
+     * The default sink, which logs a warning
+     */
+    public static void log(RepeatedStatement statement)
+    {
+        LOGGER.warn("{}", statement);
+    }
+
+    @Override public void beforeOp(DB<?> op, long queueNanos)
+    {
+        OpState state = current.get();
+        if (state == null)
+        {
+            state = new OpState();
+            current.set(state);
+        }
+        state.op = op;
+        state.counts.clear();
+    }
+
+    @Override public void statementExecuted(String sql, long nanos, Throwable error)
+    {
+        OpState state = current.get();
+        if (state == null || state.op == null || sql == null)
+        {
+            return;
+        }
+
+        String fingerprint = fingerprint(sql);
+        int[] count = state.counts.get(fingerprint);
+        if (count == null)
+        {
+            count = new int[1];
+            state.counts.put(fingerprint, count);
+        }
+        count[0]++;
+
+        if (fail && error == null && count[0] > maxExecutions)
+        {
+            throw new IllegalStateException(new RepeatedStatement(state.op, fingerprint, count[0], maxExecutions)
+                    .toString());
+        }
+    }
+
+    @Override public void afterOp(DB<?> op, long nanos, Throwable error)
+    {
+        OpState state = current.get();
+        if (state == null || state.op == null)
+        {
+            return;
+        }
+
+        state.op = null;
+        if (fail)
+        {
+            return;
+        }
+        for (Map.Entry<String, int[]> x : state.counts.entrySet())
+        {
+            int executions = x.getValue()[0];
+            if (executions > maxExecutions)
+            {
+                report(new RepeatedStatement(op, x.getKey(), executions, maxExecutions));
+            }
+        }
+    }
+
+    private void report(RepeatedStatement statement)
+    {
+        try
+        {
+            sink.f(statement);
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.error("N+1 sink failed", e);
+        }
+    }
+
+    private String fingerprint(String sql)
+    {
+        String result = fingerprints.get(sql);
+        if (result == null)
+        {
+            result = SqlStringUtils.fingerprint(sql);
+            if (fingerprints.size() < MAX_CACHED_FINGERPRINTS)
+            {
+                fingerprints.putIfAbsent(sql, result);
+            }
+        }
+        return result;
+    }
+
+    private static final class OpState
+    {
+        private final HashMap<String, int[]> counts = new HashMap<>();
+        private DB<?> op;
+    }
+}
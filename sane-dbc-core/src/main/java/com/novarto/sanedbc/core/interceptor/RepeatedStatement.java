@@ -0,0 +1,62 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import fj.control.db.DB;
+
+/**
+ * A statement which a single operation executed more times than allowed by a {@link NPlusOneDetector}
+ */
+public final class RepeatedStatement
+{
+    /**
+     * The operation, as submitted to the interpreter
+     */
+    public final DB<?> op;
+
+    /**
+     * The SQL fingerprint, see {@link SqlStringUtils#fingerprint(String)}
+     */
+    public final String fingerprint;
+
+    /**
+     * The number of executions by the operation; a batch counts as a single execution
+     */
+    public final int executions;
+
+    public final int maxExecutions;
+
+    public RepeatedStatement(DB<?> op, String fingerprint, int executions, int maxExecutions)
+    {
+        this.op = op;
+        this.fingerprint = fingerprint;
+        this.executions = executions;
+        this.maxExecutions = maxExecutions;
+    }
+
+    /**
+     * @return a hint on how to avoid executing the statement once per element
+     */
+    public String suggestion()
+    {
+        switch (SqlStringUtils.getStatementKind(fingerprint))
+        {
+            case SELECT:
+                return "select all the rows at once, e.g. with an IN list rendered by a SqlTemplate, or with a join";
+            case DELETE:
+                return "delete all the rows at once, e.g. with BatchDeleteOptimized";
+            case INSERT:
+            case UPDATE:
+            case MERGE:
+            case REPLACE:
+                return "execute a single batch, e.g. with BatchUpdateOp";
+            default:
+                return "execute a single batch";
+        }
+    }
+
+    @Override public String toString()
+    {
+        return "statement executed " + executions + " times by a single operation (at most " + maxExecutions +
+                " allowed): " + fingerprint + "; consider: " + suggestion();
+    }
+}
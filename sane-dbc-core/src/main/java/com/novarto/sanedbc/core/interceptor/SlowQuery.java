@@ -0,0 +1,71 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.jdbc.BoundParameters;
+import fj.data.Option;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A statement execution which exceeded the threshold of a {@link SlowQueryLog}
+ */
+public final class SlowQuery
+{
+    public final String sql;
+
+    /**
+     * The parameters bound to the statement; for batches, the ones bound to the first element
+     */
+    public final BoundParameters parameters;
+
+    /**
+     * The number of rows read for queries, the update count for updates and batches, or -1 if unknown
+     */
+    public final long rows;
+
+    /**
+     * The time from the start of the execution to completion, which for queries includes reading the result set
+     */
+    public final long nanos;
+
+    /**
+     * The exception execution failed with, or null if it succeeded
+     */
+    public final Throwable error;
+
+    /**
+     * The execution plan, if the log is configured with an {@link Explainer}, and this statement was explained
+     */
+    public final Option<String> plan;
+
+    public SlowQuery(String sql, BoundParameters parameters, long rows, long nanos, Throwable error,
+            Option<String> plan)
+    {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.rows = rows;
+        this.nanos = nanos;
+        this.error = error;
+        this.plan = plan;
+    }
+
+    public SlowQuery withPlan(Option<String> plan)
+    {
+        return new SlowQuery(sql, parameters, rows, nanos, error, plan);
+    }
+
+    @Override public String toString()
+    {
+        StringBuilder sb = new StringBuilder("slow statement (").append(TimeUnit.NANOSECONDS.toMillis(nanos))
+                .append("ms, ").append(rows < 0 ? "?" : String.valueOf(rows)).append(" rows");
+        if (error != null)
+        {
+            sb.append(", failed with ").append(error);
+        }
+        sb.append("): ").append(sql).append(' ').append(parameters);
+        if (plan.isSome())
+        {
+            sb.append("\nplan:\n").append(plan.some());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.jdbc.BoundParameters;
+import fj.data.Option;
+import fj.function.Effect1;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static fj.data.Option.none;
+
+/**
+ * An interceptor which reports statement executions exceeding a threshold, along with the parameters bound to them,
+ * the number of rows they read or updated, and optionally their execution plan, see {@link Explainer}. By default,
+ * slow statements are logged as warnings.
+ *
+ * For queries, the time measured includes reading the result set, so a query which is fast to execute, but returns
+ * too many rows, is reported as well. Capturing parameters costs an allocation per setter call on every statement,
+ * not just the slow ones.
+ */
+public class SlowQueryLog implements DbInterceptor
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final long thresholdNanos;
+    private final Effect1<SlowQuery> sink;
+    private final Option<Explainer> explainer;
+
+    public SlowQueryLog(long threshold, TimeUnit unit)
+    {
+        this(threshold, unit, SlowQueryLog::log, none());
+    }
+
+    /**
+     * @param sink what to do with slow statements. Called on the thread which ran the statement, or on the
+     *             explainer's executor if the statement was explained
+     */
+    public SlowQueryLog(long threshold, TimeUnit unit, Effect1<SlowQuery> sink)
+    {
+        this(threshold, unit, sink, none());
+    }
+
+    public SlowQueryLog(long threshold, TimeUnit unit, Effect1<SlowQuery> sink, Option<Explainer> explainer)
+    {
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.sink = sink;
+        this.explainer = explainer;
+    }
+
+    /**
+     * The default sink, which logs a warning
+     */
+    public static void log(SlowQuery query)
+    {
+        LOGGER.warn("{}", query);
+    }
+
+    @Override public boolean capturesParameters()
+    {
+        return true;
+    }
+
+    @Override public void statementCompleted(String sql, BoundParameters parameters, long rows, long nanos,
+            Throwable error)
+    {
+        if (nanos < thresholdNanos || sql == null)
+        {
+            return;
+        }
+
+        SlowQuery query = new SlowQuery(sql, parameters.copy(), rows, nanos, error, none());
+        if (explainer.isSome() && explainer.some().tryAcquire(sql))
+        {
+            Explainer x = explainer.some();
+            try
+            {
+                x.executor().execute(() -> report(query.withPlan(explain(x, query))));
+                return;
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOGGER.debug("could not schedule EXPLAIN", e);
+            }
+        }
+        report(query);
+    }
+
+    private static Option<String> explain(Explainer explainer, SlowQuery query)
+    {
+        try
+        {
+            return explainer.explain(query.sql, query.parameters);
+        }
+        catch (Exception e)
+        {
+            LOGGER.warn("EXPLAIN failed for " + query.sql, e);
+            return none();
+        }
+    }
+
+    private void report(SlowQuery query)
+    {
+        try
+        {
+            sink.f(query);
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.error("slow query sink failed", e);
+        }
+    }
+}
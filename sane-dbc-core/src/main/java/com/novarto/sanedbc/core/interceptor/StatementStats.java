@@ -0,0 +1,35 @@
+package com.novarto.sanedbc.core.interceptor;
+
+/**
+ * An immutable snapshot of the executions of statements sharing an SQL fingerprint, as collected by
+ * {@link MetricsInterceptor}
+ */
+public final class StatementStats
+{
+    /**
+     * The SQL fingerprint, see {@link com.novarto.sanedbc.core.SqlStringUtils#fingerprint(String)}
+     */
+    public final String fingerprint;
+
+    /**
+     * The number of executions which failed
+     */
+    public final long errors;
+
+    /**
+     * Execution latencies, including failed executions
+     */
+    public final LatencyHistogram.Snapshot latency;
+
+    public StatementStats(String fingerprint, long errors, LatencyHistogram.Snapshot latency)
+    {
+        this.fingerprint = fingerprint;
+        this.errors = errors;
+        this.latency = latency;
+    }
+
+    @Override public String toString()
+    {
+        return "StatementStats{" + fingerprint + ": errors=" + errors + ", " + latency + '}';
+    }
+}
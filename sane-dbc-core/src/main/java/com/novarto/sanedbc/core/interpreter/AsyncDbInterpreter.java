@@ -1,17 +1,19 @@
 package com.novarto.sanedbc.core.interpreter;
 
 import com.novarto.lang.SneakyThrow;
+import com.novarto.sanedbc.core.interceptor.DbInterceptor;
 import fj.control.db.DB;
 import fj.function.Try0;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 
 import static com.novarto.sanedbc.core.interpreter.InterpreterUtils.lift;
-import static com.novarto.sanedbc.core.interpreter.InterpreterUtils.transactional;
 
 
 /**
@@ -29,12 +31,23 @@ public class AsyncDbInterpreter
 
     private final Try0<Connection, SQLException> ds;
     private final ExecutorService executor;
+    private final DbInterceptor interceptor;
 
 
     public AsyncDbInterpreter(Try0<Connection, SQLException> ds, ExecutorService ex)
+    {
+        this(ds, ex, DbInterceptor.NONE);
+    }
+
+    /**
+     * Constructs an interpreter which notifies an interceptor of the operations it runs. The time between submission
+     * and the start of an operation is reported as its queue time.
+     */
+    public AsyncDbInterpreter(Try0<Connection, SQLException> ds, ExecutorService ex, DbInterceptor interceptor)
     {
         this.ds = ds;
         this.executor = ex;
+        this.interceptor = interceptor;
     }
 
     public AsyncDbInterpreter(DataSource ds, ExecutorService ex)
@@ -42,6 +55,11 @@ public class AsyncDbInterpreter
         this(lift(ds), ex);
     }
 
+    public AsyncDbInterpreter(DataSource ds, ExecutorService ex, DbInterceptor interceptor)
+    {
+        this(lift(ds), ex, interceptor);
+    }
+
 
     /**
      * Submits this operation for execution in the executor service. The operation is executed with connection autoCommit = true,
@@ -57,16 +75,55 @@ public class AsyncDbInterpreter
      */
     public <A> CompletableFuture<A> transact(DB<A> op)
     {
-        return withConnection(transactional(op), false);
+        return withConnection(op, false);
     }
 
 
+    /**
+     * Submits a number of operations for execution in the executor service, as a single task which runs them in order
+     * on a single connection, with autoCommit = true. This saves a task and a pool checkout per operation, and suits
+     * small independent reads.
+     *
+     * Each returned future completes as soon as its operation does, and fails iff its operation throws; the others
+     * still run. If the connection cannot be acquired, all futures fail.
+     * @return a future per operation, in the order of the operations
+     */
+    public <A> List<CompletableFuture<A>> submitAll(List<? extends DB<? extends A>> ops)
+    {
+        List<CompletableFuture<A>> futures = new ArrayList<>(ops.size());
+        for (int i = 0; i < ops.size(); i++)
+        {
+            futures.add(new CompletableFuture<>());
+        }
+        if (ops.isEmpty())
+        {
+            return futures;
+        }
+
+        List<DB<? extends A>> toRun = new ArrayList<>(ops);
+        long submittedAt = System.nanoTime();
+        executor.execute(() -> InterpreterUtils.runAllWithConnection(ds, toRun, interceptor, submittedAt,
+                (i, result, error) -> {
+                    if (error == null)
+                    {
+                        futures.get(i).complete(result);
+                    }
+                    else
+                    {
+                        futures.get(i).completeExceptionally(error);
+                    }
+                }));
+        return new ArrayList<>(futures);
+    }
+
     private <A> CompletableFuture<A> withConnection(DB<A> op, boolean autoCommit)
     {
+        long submittedAt = System.nanoTime();
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection c = getConnection(autoCommit))
+            try
             {
-                return op.run(c);
+                return InterpreterUtils.runWithConnection(() -> getConnection(autoCommit), op, !autoCommit, interceptor,
+                        submittedAt);
             }
             catch (Exception e)
             {
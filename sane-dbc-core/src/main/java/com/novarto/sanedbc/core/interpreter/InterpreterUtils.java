@@ -1,7 +1,10 @@
 package com.novarto.sanedbc.core.interpreter;
 
+import com.novarto.sanedbc.core.interceptor.DbInterceptor;
+import com.novarto.sanedbc.core.interceptor.DbInterceptors;
 import com.novarto.sanedbc.core.ops.DbOps;
 import fj.control.db.DB;
+import fj.function.Effect3;
 import fj.function.Try0;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * A set of utilities to aid in implementing {@link DB} interpreters.
@@ -83,6 +87,134 @@ public final class InterpreterUtils
         };
     }
 
+    /**
+     * Acquires a connection, runs an operation on it and closes the connection, notifying an interceptor along the way.
+     * This is the common core of the interpreters.
+     * @param ds the connection source
+     * @param op the operation
+     * @param transactional whether to run the operation as a transaction, see {@link #transactional(DB)}
+     * @param interceptor the interceptor to notify, or {@link DbInterceptor#NONE}
+     * @param submittedAt the System.nanoTime() at which the operation was submitted to the interpreter
+     */
+    public static <A> A runWithConnection(Try0<Connection, SQLException> ds, DB<A> op, boolean transactional,
+            DbInterceptor interceptor, long submittedAt) throws SQLException
+    {
+        DB<A> toRun = transactional ? transactional(op) : op;
+        if (interceptor == DbInterceptor.NONE || !interceptor.isEnabled())
+        {
+            try (Connection c = ds.f())
+            {
+                return toRun.run(c);
+            }
+        }
+
+        long start = System.nanoTime();
+        interceptor.beforeOp(op, Math.max(0, start - submittedAt));
+        Throwable error = null;
+        try
+        {
+            try (Connection c = ds.f())
+            {
+                interceptor.connectionAcquired(System.nanoTime() - start);
+                // closing c is enough, the wrapper only delegates
+                return toRun.run(DbInterceptors.intercept(c, interceptor));
+            }
+        }
+        catch (Throwable e)
+        {
+            error = e;
+            throw e;
+        }
+        finally
+        {
+            interceptor.afterOp(op, System.nanoTime() - start, error);
+        }
+    }
+
+    /**
+     * Acquires a single connection, runs a number of operations on it in order, with autoCommit = true, and closes
+     * the connection. This lets interpreters run small independent operations with a single task and pool checkout.
+     *
+     * Each operation is reported to the interceptor separately; the connection acquisition is reported within the first
+     * one. An operation failing does not prevent the next ones from running, but if the connection cannot be acquired,
+     * all of them fail with the same error.
+     * @param ds the connection source
+     * @param ops the operations, run in list order
+     * @param interceptor the interceptor to notify, or {@link DbInterceptor#NONE}
+     * @param submittedAt the System.nanoTime() at which the operations were submitted to the interpreter
+     * @param completion called as each operation completes, with its index, and either its result or its error
+     */
+    public static <A> void runAllWithConnection(Try0<Connection, SQLException> ds, List<? extends DB<? extends A>> ops,
+            DbInterceptor interceptor, long submittedAt, Effect3<Integer, A, Throwable> completion)
+    {
+        boolean intercepted = interceptor != DbInterceptor.NONE && interceptor.isEnabled();
+        // raw is what gets closed, as soon as it is acquired; c is only set once it is ready to run ops
+        Connection raw = null;
+        Connection c = null;
+        try
+        {
+            for (int i = 0; i < ops.size(); i++)
+            {
+                DB<? extends A> op = ops.get(i);
+                long start = System.nanoTime();
+                if (intercepted)
+                {
+                    interceptor.beforeOp(op, Math.max(0, start - submittedAt));
+                }
+
+                A result = null;
+                Throwable error = null;
+                try
+                {
+                    if (c == null)
+                    {
+                        raw = ds.f();
+                        if (intercepted)
+                        {
+                            interceptor.connectionAcquired(System.nanoTime() - start);
+                        }
+                        raw.setAutoCommit(true);
+                        c = intercepted ? DbInterceptors.intercept(raw, interceptor) : raw;
+                    }
+                    result = op.run(c);
+                }
+                catch (Throwable e)
+                {
+                    error = e;
+                }
+                if (intercepted)
+                {
+                    interceptor.afterOp(op, System.nanoTime() - start, error);
+                }
+                completion.f(i, result, error);
+
+                if (c == null)
+                {
+                    for (int j = i + 1; j < ops.size(); j++)
+                    {
+                        completion.f(j, null, error);
+                    }
+                    return;
+                }
+            }
+        }
+        finally
+        {
+            if (raw != null)
+            {
+                try
+                {
+                    // closing raw is enough, the wrapper only delegates
+                    raw.close();
+                }
+                catch (SQLException e)
+                {
+                    LOGGER.warn("failed to close connection", e);
+                }
+            }
+        }
+    }
+
     /**
      * Lifts a DataSource to Try0<Connection, SQLException> (i.e. converts it to Try0<Connection, SQLException>)
      */
@@ -1,13 +1,12 @@
 package com.novarto.sanedbc.core.interpreter;
 
+import com.novarto.sanedbc.core.interceptor.DbInterceptor;
 import fj.control.db.DB;
 import fj.function.Try0;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 
-import static com.novarto.sanedbc.core.interpreter.InterpreterUtils.transactional;
-
 /**
  * An interpreter for DB operations which blocks the caller thread. In addition it rethrows any SQL Exceptions as runtime ones.
  * Mostly useful for testing purposes.
@@ -16,6 +15,7 @@ import static com.novarto.sanedbc.core.interpreter.InterpreterUtils.transactiona
 public class SyncDbInterpreter
 {
     private final Try0<Connection, SQLException> ds;
+    private final DbInterceptor interceptor;
 
     /**
      * Construct an interpreter, given a piece of code which knows how to spawn connections, e.g. a Data Source, Connection Pool,
@@ -23,8 +23,19 @@ public class SyncDbInterpreter
      * @param ds - the data source, which can spawn connections
      */
     public SyncDbInterpreter(Try0<Connection, SQLException> ds)
+    {
+        this(ds, DbInterceptor.NONE);
+    }
+
+    /**
+     * Construct an interpreter which notifies an interceptor of the operations it runs
+     * @param ds - the data source, which can spawn connections
+     * @param interceptor - the interceptor
+     */
+    public SyncDbInterpreter(Try0<Connection, SQLException> ds, DbInterceptor interceptor)
     {
         this.ds = ds;
+        this.interceptor = interceptor;
     }
 
     /**
@@ -36,15 +47,7 @@ public class SyncDbInterpreter
      */
     public <A> A submit(DB<A> doOp)
     {
-        try (Connection c = ds.f())
-        {
-            return doOp.run(c);
-        }
-        catch (SQLException e)
-        {
-            throw new RuntimeException(e);
-        }
-
+        return run(doOp, false);
     }
 
     /**
@@ -57,8 +60,18 @@ public class SyncDbInterpreter
      */
     public <A> A transact(DB<A> doOp)
     {
+        return run(doOp, true);
+    }
 
-        return submit(transactional(doOp));
-
+    private <A> A run(DB<A> op, boolean transactional)
+    {
+        try
+        {
+            return InterpreterUtils.runWithConnection(ds, op, transactional, interceptor, System.nanoTime());
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.novarto.sanedbc.core.interpreter;
 
+import com.novarto.sanedbc.core.interceptor.DbInterceptor;
 import fj.P1;
 import fj.Try;
 import fj.control.db.DB;
@@ -9,32 +10,36 @@ import fj.function.Try0;
 import java.sql.Connection;
 import java.sql.SQLException;
 
-import static com.novarto.sanedbc.core.interpreter.InterpreterUtils.transactional;
-
 public class ValidationDbInterpreter
 {
     private final Try0<Connection, SQLException> ds;
+    private final DbInterceptor interceptor;
 
     public ValidationDbInterpreter(Try0<Connection, SQLException> ds)
+    {
+        this(ds, DbInterceptor.NONE);
+    }
+
+    public ValidationDbInterpreter(Try0<Connection, SQLException> ds, DbInterceptor interceptor)
     {
         this.ds = ds;
+        this.interceptor = interceptor;
     }
 
 
     public <A> P1<Validation<Exception, A>> submit(DB<A> db)
     {
-        return Try.<A, Exception>f(() -> {
-            try (Connection c = ds.f())
-            {
-                return db.run(c);
-            }
-        });
-
+        return run(db, false);
     }
 
     public <A> P1<Validation<Exception, A>> transact(DB<A> db)
     {
+        return run(db, true);
+    }
 
-        return submit(transactional(db));
+    private <A> P1<Validation<Exception, A>> run(DB<A> db, boolean transactional)
+    {
+        return Try.<A, Exception>f(
+                () -> InterpreterUtils.runWithConnection(ds, db, transactional, interceptor, System.nanoTime()));
     }
 }
@@ -0,0 +1,223 @@
+package com.novarto.sanedbc.core.jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A record of the setter calls a binder issued against a {@link PreparedStatement}, e.g. setInt(1, 42), setString(2, "a"),
+ * setFetchSize(100). Used by wrappers which need to know what was bound to a statement - for example in order to use it
+ * as a cache key, to log it, or to replay it onto another statement.
+ *
+ * Instances are mutable while being recorded, and are not thread safe. Use {@link #copy()} to obtain a snapshot.
+ */
+public final class BoundParameters
+{
+    private final ArrayList<Method> methods;
+    private final ArrayList<Object[]> args;
+    private boolean comparable;
+
+    public BoundParameters()
+    {
+        this(new ArrayList<>(), new ArrayList<>(), true);
+    }
+
+    private BoundParameters(ArrayList<Method> methods, ArrayList<Object[]> args, boolean comparable)
+    {
+        this.methods = methods;
+        this.args = args;
+        this.comparable = comparable;
+    }
+
+    /**
+     * Records a setter call
+     */
+    public void record(Method method, Object[] methodArgs)
+    {
+        Object[] xs = methodArgs == null ? new Object[0] : methodArgs.clone();
+        for (Object x : xs)
+        {
+            if (isOpaque(x))
+            {
+                comparable = false;
+            }
+        }
+        methods.add(method);
+        args.add(xs);
+    }
+
+    /**
+     * Forgets all recorded calls, as in {@link PreparedStatement#clearParameters()}
+     */
+    public void clear()
+    {
+        methods.clear();
+        args.clear();
+        comparable = true;
+    }
+
+    /**
+     * Issues all the recorded calls, in order, against the given statement
+     */
+    public void replay(PreparedStatement ps) throws SQLException
+    {
+        for (int i = 0; i < methods.size(); i++)
+        {
+            try
+            {
+                Proxies.invoke(ps, methods.get(i), args.get(i));
+            }
+            catch (SQLException | RuntimeException | Error e)
+            {
+                throw e;
+            }
+            catch (Throwable e)
+            {
+                throw new SQLException(e);
+            }
+        }
+    }
+
+    /**
+     * @return false iff a stream, reader or a LOB was bound. Such values have no meaningful equality,
+     * and therefore two instances of BoundParameters holding them should never be considered equal.
+     */
+    public boolean isComparable()
+    {
+        return comparable;
+    }
+
+    /**
+     * @return the number of recorded calls
+     */
+    public int size()
+    {
+        return methods.size();
+    }
+
+    /**
+     * @return the value last bound at the given (1-based) parameter index, or null if none was bound or null was bound
+     */
+    public Object get(int parameterIndex)
+    {
+        for (int i = methods.size() - 1; i >= 0; i--)
+        {
+            Object[] xs = args.get(i);
+            if (isParameterSetter(methods.get(i), xs) && (Integer) xs[0] == parameterIndex)
+            {
+                return "setNull".equals(methods.get(i).getName()) ? null : xs[1];
+            }
+        }
+        return null;
+    }
+
+    public BoundParameters copy()
+    {
+        return new BoundParameters(new ArrayList<>(methods), new ArrayList<>(args), comparable);
+    }
+
+    @Override public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+
+        BoundParameters that = (BoundParameters) o;
+
+        if (!comparable || !that.comparable || !methods.equals(that.methods))
+        {
+            return false;
+        }
+
+        for (int i = 0; i < args.size(); i++)
+        {
+            if (!Arrays.deepEquals(args.get(i), that.args.get(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override public int hashCode()
+    {
+        int result = methods.hashCode();
+        for (Object[] xs : args)
+        {
+            result = 31 * result + Arrays.deepHashCode(xs);
+        }
+        return result;
+    }
+
+    /**
+     * Renders the bound parameters by index, e.g. [1=42, 2='a', 3=NULL]. Statement configuration calls
+     * (setFetchSize, etc) are omitted.
+     */
+    @Override public String toString()
+    {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < methods.size(); i++)
+        {
+            Method m = methods.get(i);
+            Object[] xs = args.get(i);
+            if (!isParameterSetter(m, xs))
+            {
+                continue;
+            }
+
+            if (sb.length() > 1)
+            {
+                sb.append(", ");
+            }
+            sb.append(xs[0]).append('=');
+
+            Object value = xs.length > 1 ? xs[1] : null;
+            if ("setNull".equals(m.getName()) || value == null)
+            {
+                sb.append("NULL");
+            }
+            else if (isOpaque(value))
+            {
+                sb.append('<').append(value.getClass().getSimpleName()).append('>');
+            }
+            else if (value instanceof byte[])
+            {
+                sb.append("<byte[").append(((byte[]) value).length).append("]>");
+            }
+            else if (value instanceof CharSequence || value instanceof java.util.Date)
+            {
+                sb.append('\'').append(value).append('\'');
+            }
+            else
+            {
+                sb.append(value);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private static boolean isParameterSetter(Method m, Object[] xs)
+    {
+        return m.getDeclaringClass() == PreparedStatement.class && xs.length > 0 && xs[0] instanceof Integer;
+    }
+
+    private static boolean isOpaque(Object x)
+    {
+        return x instanceof InputStream || x instanceof Reader || x instanceof Blob || x instanceof Clob ||
+                x instanceof Array || x instanceof Ref || x instanceof SQLXML;
+    }
+}
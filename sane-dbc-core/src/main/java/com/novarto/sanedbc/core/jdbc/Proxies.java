@@ -0,0 +1,53 @@
+package com.novarto.sanedbc.core.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A set of utilities to aid in implementing JDBC wrappers (connections, statements, result sets) as
+ * {@link java.lang.reflect.Proxy} instances. Wrapping this way only requires handling the handful of methods a wrapper
+ * is interested in, and delegating the rest.
+ */
+public final class Proxies
+{
+    private Proxies()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a proxy implementing the given interface, dispatching all calls to the given handler
+     */
+    @SuppressWarnings("unchecked")
+    public static <A> A proxy(Class<A> iface, InvocationHandler handler)
+    {
+        return (A) Proxy.newProxyInstance(Proxies.class.getClassLoader(), new Class<?>[]{ iface }, handler);
+    }
+
+    /**
+     * Invokes a method on the delegate. If the method throws, the original exception is rethrown as-is,
+     * instead of being wrapped in an {@link InvocationTargetException}.
+     */
+    public static Object invoke(Object delegate, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(delegate, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns true iff the method is a void setter, i.e. a method which binds a prepared statement parameter
+     * (setInt, setString, setNull, etc), or configures a statement (setFetchSize, setQueryTimeout, etc).
+     */
+    public static boolean isSetter(Method method)
+    {
+        return method.getReturnType() == void.class && method.getName().startsWith("set");
+    }
+}
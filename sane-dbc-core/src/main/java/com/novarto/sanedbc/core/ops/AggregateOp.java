@@ -1,23 +1,19 @@
 package com.novarto.sanedbc.core.ops;
 
-import fj.control.db.DB;
 import fj.function.TryEffect1;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Iterator;
 
 import static com.novarto.sanedbc.core.ops.Binders.NO_BINDER;
 
-public class AggregateOp extends DB<Long>
+public class AggregateOp extends AbstractSelectOp<Long>
 {
 
-    private final SelectOp.List<Long> selectOp;
-
     public AggregateOp(String sql, TryEffect1<PreparedStatement, SQLException> binder)
     {
-        this.selectOp = new SelectOp.List<>(sql, binder, x -> x.getLong(1));
+        super(sql, binder);
     }
 
     public AggregateOp(String sql)
@@ -25,25 +21,20 @@ public class AggregateOp extends DB<Long>
         this(sql, NO_BINDER);
     }
 
-    @Override public Long run(Connection c) throws SQLException
+    @Override protected Long doRun(ResultSet rs) throws SQLException
     {
-        return selectOp.map(xs ->
+        if (!rs.next())
         {
+            throw new IllegalStateException("result is empty");
+        }
 
-            Iterator<Long> resultIterator = xs.iterator();
-            if (!resultIterator.hasNext())
-            {
-                throw new IllegalStateException("result is empty");
-
-            }
-            Long result = resultIterator.next();
+        long result = rs.getLong(1);
 
-            if (resultIterator.hasNext())
-            {
-                throw new IllegalStateException("result has more than one row");
-            }
-            return result;
-        }).run(c);
+        if (rs.next())
+        {
+            throw new IllegalStateException("result has more than one row");
+        }
+        return result;
     }
 
 }
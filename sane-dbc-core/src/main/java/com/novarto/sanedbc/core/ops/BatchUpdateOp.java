@@ -19,12 +19,25 @@ public class BatchUpdateOp<A> extends DB<Option<Integer>>
     private final String sql;
     private final Try1<PreparedStatement, Option<Integer>, SQLException> binder;
     private final Iterable<A> as;
+    private final boolean isInsert;
 
     public BatchUpdateOp(String sql, F<A, TryEffect1<PreparedStatement, SQLException>> binder, Iterable<A> as)
     {
         this.binder = batchBinder(binder, as);
         this.as = as;
         this.sql = sql;
+        this.isInsert = isInsert(sql);
+    }
+
+    /**
+     * Binds each element with a shape, which allocates nothing per element or parameter
+     */
+    public BatchUpdateOp(String sql, Binders.Shape<A> shape, Iterable<A> as)
+    {
+        this.binder = batchBinder(shape, as);
+        this.as = as;
+        this.sql = sql;
+        this.isInsert = isInsert(sql);
     }
 
     @Override
@@ -35,7 +48,7 @@ public class BatchUpdateOp<A> extends DB<Option<Integer>>
             return Option.none();
         }
 
-        if (!isInsert(sql))
+        if (!isInsert)
         {
             throwIfAutoCommit(c);
         }
@@ -58,7 +71,7 @@ public class BatchUpdateOp<A> extends DB<Option<Integer>>
 
     }
 
-    private boolean isInsert(String sql)
+    private static boolean isInsert(String sql)
     {
         return SqlStringUtils.getStatementKind(sql).equals(SqlStringUtils.StatementKind.INSERT);
     }
@@ -1,14 +1,26 @@
 package com.novarto.sanedbc.core.ops;
 
 import fj.F;
+import fj.control.db.DB;
 import fj.data.Option;
 import fj.function.Try1;
 import fj.function.Try3;
 import fj.function.TryEffect1;
 
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * A set of utility functions related to binder functions, e.g. functions which set prepared statement parameters
@@ -45,7 +57,28 @@ public class Binders
         };
     }
 
-    private static Option<Integer> sumBatchResult(int[] xs)
+    /**
+     * Like {@link #batchBinder(F, Iterable)}, but binds each element with a shape, which allocates nothing per element.
+     */
+    public static <A> Try1<PreparedStatement, Option<Integer>, SQLException> batchBinder(Shape<A> shape,
+            Iterable<A> as)
+    {
+        return ps -> {
+            for (A a : as)
+            {
+                shape.bind(ps, a);
+                ps.addBatch();
+            }
+            return sumBatchResult(ps.executeBatch());
+        };
+    }
+
+    /**
+     * Sums the update counts returned by executeBatch()
+     * @return the total update count, or none() iff any of the update counts is equal to Statement.SUCCESS_NO_INFO
+     * @throws IllegalStateException if any of the update counts is equal to Statement.EXECUTE_FAILED, or unrecognized
+     */
+    public static Option<Integer> sumBatchResult(int[] xs)
     {
         int result = 0;
         for (int x: xs)
@@ -74,7 +107,7 @@ public class Binders
      * Creates a binder for an iterable, given a binder for a single element in the iterable. This is useful in cases where
      * you want to issue a single prepared statement to update/insert/delete a collection of elements, instead of utilizing
      * a JDBC batch. Depending on the RDBMS implementation, driver and network latency, this can yield a performance boost in
-     * some cases.
+     * some cases. See BatchBenchmark in sane-dbc-jmh to compare both approaches.
      * @param binder a function which takes the current prepared statement parameter index, the prepared statement and the current
      *               iterable element, binds parameters for the current element, and returns the new prepared statement index.
      *
@@ -94,4 +127,289 @@ public class Binders
         };
     }
 
+    /**
+     * Binds a collection as a single SQL array parameter, e.g. for WHERE ID = ANY(?) on PostgreSQL, or
+     * WHERE ID IN (UNNEST(?)) on HSQLDB:
+     * <pre>
+     * Binders.withArray(1, "INTEGER", ids, binder -&gt; new SelectOp.List&lt;&gt;(sql, binder, mapper))
+     * </pre>
+     * The array is created on the connection of the returned operation, and freed once the operation built from the
+     * binder completes. See {@link com.novarto.sanedbc.core.Dialect#arrayMembership} and
+     * {@link com.novarto.sanedbc.core.ops.optimized.InListSelectOp}, which falls back to IN lists for drivers without
+     * array support.
+     * @param idx the parameter index
+     * @param elementType the SQL type name of the elements, as per Connection.createArrayOf, e.g. INTEGER
+     * @param op creates the operation to run, given a binder which binds the array
+     */
+    public static <A> DB<A> withArray(int idx, String elementType, Collection<?> xs,
+            F<TryEffect1<PreparedStatement, SQLException>, DB<A>> op)
+    {
+        return new DB<A>()
+        {
+            @Override public A run(Connection c) throws SQLException
+            {
+                Array array = c.createArrayOf(elementType, xs.toArray());
+                try
+                {
+                    return op.f(ps -> ps.setArray(idx, array)).run(c);
+                }
+                finally
+                {
+                    array.free();
+                }
+            }
+        };
+    }
+
+    /**
+     * Starts describing a binder shape, i.e. the typed parameters bound for a single element of type A, e.g.
+     * <pre>
+     * static final Binders.Shape&lt;Order&gt; ORDER = Binders.&lt;Order&gt;shape()
+     *         .withLong(x -&gt; x.id)
+     *         .withString(x -&gt; x.customer)
+     *         .withDouble(x -&gt; x.amount)
+     *         .withNullableLong(x -&gt; x.parentId);
+     * </pre>
+     */
+    public static <A> Shape<A> shape()
+    {
+        return Shape.EMPTY.cast();
+    }
+
+    /**
+     * A precompiled, reusable description of the parameters bound for an element of type A. Each parameter is set with
+     * its typed setter, e.g. setLong from a ToLongFunction, so primitives are not boxed, and the driver does not have
+     * to infer types as it does for setObject. Null values of the nullable slots are bound via setNull with the
+     * matching SQL type.
+     *
+     * Shapes are immutable: with* methods return a new shape with an extra parameter at the end. Build them once, e.g.
+     * as constants, and use them via {@link #binder(Object)}, {@link #bind(PreparedStatement, int, Object)}
+     * (e.g. from {@link Binders#iterableBinder(Try3, Iterable)}), or pass them to {@link BatchUpdateOp}.
+     */
+    public static final class Shape<A>
+    {
+        private static final Shape<Object> EMPTY = new Shape<>(emptySlots());
+
+        private final Slot<A>[] slots;
+
+        private Shape(Slot<A>[] slots)
+        {
+            this.slots = slots;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <A> Slot<A>[] emptySlots()
+        {
+            return (Slot<A>[]) new Slot<?>[0];
+        }
+
+        public Shape<A> withLong(ToLongFunction<A> f)
+        {
+            return with((ps, i, a) -> ps.setLong(i, f.applyAsLong(a)));
+        }
+
+        public Shape<A> withInt(ToIntFunction<A> f)
+        {
+            return with((ps, i, a) -> ps.setInt(i, f.applyAsInt(a)));
+        }
+
+        public Shape<A> withDouble(ToDoubleFunction<A> f)
+        {
+            return with((ps, i, a) -> ps.setDouble(i, f.applyAsDouble(a)));
+        }
+
+        public Shape<A> withBoolean(Predicate<A> f)
+        {
+            return with((ps, i, a) -> ps.setBoolean(i, f.test(a)));
+        }
+
+        public Shape<A> withNullableLong(F<A, Long> f)
+        {
+            return with((ps, i, a) -> {
+                Long x = f.f(a);
+                if (x == null)
+                {
+                    ps.setNull(i, Types.BIGINT);
+                }
+                else
+                {
+                    ps.setLong(i, x);
+                }
+            });
+        }
+
+        public Shape<A> withNullableInt(F<A, Integer> f)
+        {
+            return with((ps, i, a) -> {
+                Integer x = f.f(a);
+                if (x == null)
+                {
+                    ps.setNull(i, Types.INTEGER);
+                }
+                else
+                {
+                    ps.setInt(i, x);
+                }
+            });
+        }
+
+        public Shape<A> withNullableDouble(F<A, Double> f)
+        {
+            return with((ps, i, a) -> {
+                Double x = f.f(a);
+                if (x == null)
+                {
+                    ps.setNull(i, Types.DOUBLE);
+                }
+                else
+                {
+                    ps.setDouble(i, x);
+                }
+            });
+        }
+
+        public Shape<A> withNullableBoolean(F<A, Boolean> f)
+        {
+            return with((ps, i, a) -> {
+                Boolean x = f.f(a);
+                if (x == null)
+                {
+                    ps.setNull(i, Types.BOOLEAN);
+                }
+                else
+                {
+                    ps.setBoolean(i, x);
+                }
+            });
+        }
+
+        /**
+         * A nullable VARCHAR parameter
+         */
+        public Shape<A> withString(F<A, String> f)
+        {
+            return with((ps, i, a) -> {
+                String x = f.f(a);
+                if (x == null)
+                {
+                    ps.setNull(i, Types.VARCHAR);
+                }
+                else
+                {
+                    ps.setString(i, x);
+                }
+            });
+        }
+
+        /**
+         * A nullable DECIMAL parameter
+         */
+        public Shape<A> withBigDecimal(F<A, BigDecimal> f)
+        {
+            return with((ps, i, a) -> {
+                BigDecimal x = f.f(a);
+                if (x == null)
+                {
+                    ps.setNull(i, Types.DECIMAL);
+                }
+                else
+                {
+                    ps.setBigDecimal(i, x);
+                }
+            });
+        }
+
+        /**
+         * A nullable TIMESTAMP parameter
+         */
+        public Shape<A> withTimestamp(F<A, Timestamp> f)
+        {
+            return with((ps, i, a) -> {
+                Timestamp x = f.f(a);
+                if (x == null)
+                {
+                    ps.setNull(i, Types.TIMESTAMP);
+                }
+                else
+                {
+                    ps.setTimestamp(i, x);
+                }
+            });
+        }
+
+        /**
+         * A nullable VARBINARY parameter
+         */
+        public Shape<A> withBytes(F<A, byte[]> f)
+        {
+            return with((ps, i, a) -> {
+                byte[] x = f.f(a);
+                if (x == null)
+                {
+                    ps.setNull(i, Types.VARBINARY);
+                }
+                else
+                {
+                    ps.setBytes(i, x);
+                }
+            });
+        }
+
+        /**
+         * @return the number of parameters this shape binds
+         */
+        public int parameterCount()
+        {
+            return slots.length;
+        }
+
+        /**
+         * Binds the parameters of an element, starting at parameter index 1
+         */
+        public void bind(PreparedStatement ps, A a) throws SQLException
+        {
+            bind(ps, 1, a);
+        }
+
+        /**
+         * Binds the parameters of an element, starting at the given parameter index
+         * @return the index of the parameter following the ones bound
+         */
+        public int bind(PreparedStatement ps, int idx, A a) throws SQLException
+        {
+            int i = idx;
+            for (Slot<A> slot : slots)
+            {
+                slot.bind(ps, i++, a);
+            }
+            return i;
+        }
+
+        /**
+         * @return a binder for a single element, binding parameters starting at index 1
+         */
+        public TryEffect1<PreparedStatement, SQLException> binder(A a)
+        {
+            return ps -> bind(ps, a);
+        }
+
+        private Shape<A> with(Slot<A> slot)
+        {
+            Slot<A>[] result = Arrays.copyOf(slots, slots.length + 1);
+            result[slots.length] = slot;
+            return new Shape<>(result);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <B> Shape<B> cast()
+        {
+            return (Shape<B>) this;
+        }
+    }
+
+    private interface Slot<A>
+    {
+        void bind(PreparedStatement ps, int idx, A a) throws SQLException;
+    }
+
 }
@@ -0,0 +1,258 @@
+package com.novarto.sanedbc.core.ops;
+
+import fj.data.Option;
+import fj.function.Try1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static fj.data.Option.none;
+import static fj.data.Option.some;
+
+/**
+ * Binder and mapper helpers for large binary and character values (BLOB / CLOB columns), which stream the content
+ * to / from the driver instead of copying it into a byte[] or String first, as setBytes / getBytes would.
+ *
+ * The setters are meant to be called from binders, e.g.
+ * <pre>
+ * new UpdateOp("INSERT INTO DOCS VALUES (?, ?)", ps -> {
+ *     ps.setInt(1, id);
+ *     Lobs.setBinary(ps, 2, path);
+ * });
+ * </pre>
+ * and the mappers to be passed to {@link SelectOp} and friends. How much the driver itself buffers is up to it; some
+ * drivers read a whole BLOB into memory anyway, unless configured otherwise.
+ *
+ * IO errors are rethrown as SQLExceptions, so that the helpers fit binder and mapper signatures.
+ */
+public final class Lobs
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Lobs()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Binds the remaining content of a channel, of a known length. The channel is read while the statement executes,
+     * and is not closed.
+     */
+    public static void setBinary(PreparedStatement ps, int idx, ReadableByteChannel in, long length)
+            throws SQLException
+    {
+        ps.setBinaryStream(idx, Channels.newInputStream(in), length);
+    }
+
+    /**
+     * Binds the remaining content of a channel, of an unknown length. Drivers which need to know the length upfront
+     * may buffer the content; prefer {@link #setBinary(PreparedStatement, int, ReadableByteChannel, long)} if the
+     * length is known.
+     */
+    public static void setBinary(PreparedStatement ps, int idx, ReadableByteChannel in) throws SQLException
+    {
+        ps.setBinaryStream(idx, Channels.newInputStream(in));
+    }
+
+    /**
+     * Binds the remaining bytes of a buffer, which may be direct or memory-mapped. The buffer position is not
+     * modified, and the buffer must not be modified until the statement has executed.
+     */
+    public static void setBinary(PreparedStatement ps, int idx, ByteBuffer buf) throws SQLException
+    {
+        ps.setBinaryStream(idx, new ByteBufferInputStream(buf.duplicate()), buf.remaining());
+    }
+
+    /**
+     * Binds the content of a file by memory-mapping it, so that it is paged in by the OS as the driver reads it,
+     * rather than copied into the heap. The mapping is released once garbage collected. Files over 2GB cannot be
+     * mapped at once; bind a {@link FileChannel} of them instead.
+     */
+    public static void setBinary(PreparedStatement ps, int idx, Path file) throws SQLException
+    {
+        ByteBuffer mapped;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new SQLException(file + " is too large to map: " + size + " bytes");
+            }
+            // the mapping remains valid after the channel is closed
+            mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        catch (IOException e)
+        {
+            throw new SQLException("failed to map " + file, e);
+        }
+        setBinary(ps, idx, mapped);
+    }
+
+    /**
+     * Binds the remaining content of a channel as character data, decoded with the given charset. The channel is not
+     * closed.
+     */
+    public static void setCharacters(PreparedStatement ps, int idx, ReadableByteChannel in, Charset charset)
+            throws SQLException
+    {
+        ps.setCharacterStream(idx, Channels.newReader(in, charset.newDecoder(), -1));
+    }
+
+    /**
+     * A mapper which streams a binary column of the current row into a channel, which is not closed.
+     * @return the number of bytes written, or none() if the value is NULL
+     */
+    public static Try1<ResultSet, Option<Long>, SQLException> copyBinary(int column, WritableByteChannel out)
+    {
+        return rs -> {
+            try (InputStream in = rs.getBinaryStream(column))
+            {
+                return in == null ? none() : some(copy(in, out));
+            }
+            catch (IOException e)
+            {
+                throw new SQLException("failed to copy column " + column, e);
+            }
+        };
+    }
+
+    /**
+     * A mapper which streams a binary column of the current row into a file, created or truncated as needed.
+     * @param file gives the file for the current row
+     * @return the file written, or none() if the value is NULL, in which case no file is created
+     */
+    public static Try1<ResultSet, Option<Path>, SQLException> copyBinaryToFile(int column,
+            Try1<ResultSet, Path, SQLException> file)
+    {
+        return rs -> {
+            try (InputStream in = rs.getBinaryStream(column))
+            {
+                if (in == null)
+                {
+                    return none();
+                }
+                Path target = file.f(rs);
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING))
+                {
+                    copy(in, out);
+                }
+                return some(target);
+            }
+            catch (IOException e)
+            {
+                throw new SQLException("failed to copy column " + column, e);
+            }
+        };
+    }
+
+    /**
+     * A mapper which streams a character column of the current row into a channel, encoded with the given charset.
+     * The channel is not closed.
+     * @return the number of characters written, or none() if the value is NULL
+     */
+    public static Try1<ResultSet, Option<Long>, SQLException> copyCharacters(int column, WritableByteChannel out,
+            Charset charset)
+    {
+        return rs -> {
+            try (Reader in = rs.getCharacterStream(column))
+            {
+                if (in == null)
+                {
+                    return none();
+                }
+                // not closed, as that would close the channel
+                Writer writer = Channels.newWriter(out, charset.newEncoder(), -1);
+                char[] chunk = new char[BUFFER_SIZE / 2];
+                long result = 0;
+                int read;
+                while ((read = in.read(chunk)) >= 0)
+                {
+                    writer.write(chunk, 0, read);
+                    result += read;
+                }
+                writer.flush();
+                return some(result);
+            }
+            catch (IOException e)
+            {
+                throw new SQLException("failed to copy column " + column, e);
+            }
+        };
+    }
+
+    private static long copy(InputStream in, WritableByteChannel out) throws IOException
+    {
+        byte[] chunk = new byte[BUFFER_SIZE];
+        long result = 0;
+        int read;
+        while ((read = in.read(chunk)) >= 0)
+        {
+            ByteBuffer buf = ByteBuffer.wrap(chunk, 0, read);
+            while (buf.hasRemaining())
+            {
+                out.write(buf);
+            }
+            result += read;
+        }
+        return result;
+    }
+
+    /**
+     * An input stream over a buffer, which copies into the reader's array only what is read
+     */
+    private static final class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf)
+        {
+            this.buf = buf;
+        }
+
+        @Override public int read()
+        {
+            return buf.hasRemaining() ? buf.get() & 0xff : -1;
+        }
+
+        @Override public int read(byte[] b, int off, int len)
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            if (!buf.hasRemaining())
+            {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override public long skip(long n)
+        {
+            int skipped = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + skipped);
+            return skipped;
+        }
+
+        @Override public int available()
+        {
+            return buf.remaining();
+        }
+    }
+}
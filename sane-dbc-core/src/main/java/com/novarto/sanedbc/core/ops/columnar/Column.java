@@ -0,0 +1,198 @@
+package com.novarto.sanedbc.core.ops.columnar;
+
+/**
+ * A column of a {@link ColumnBatch}: the values of a single result set column for the rows of the batch, in a
+ * primitive vector, along with a bitmap of the NULL ones. The vectors are exposed as is, for tight loops; they must
+ * not be modified. The value of a NULL row is 0, or the code -1 for strings.
+ */
+public abstract class Column
+{
+    /**
+     * How the values of a column are stored
+     */
+    public enum Type
+    {
+        /**
+         * Integral numbers and booleans (as 0 / 1), in a {@link LongColumn}
+         */
+        LONG,
+        /**
+         * Floating point and decimal numbers, in a {@link DoubleColumn}. Decimals may lose precision.
+         */
+        DOUBLE,
+        /**
+         * Dates, times and timestamps, as epoch milliseconds in a {@link LongColumn}
+         */
+        TIMESTAMP,
+        /**
+         * Anything else, as dictionary-encoded strings in a {@link StringColumn}
+         */
+        STRING
+    }
+
+    private final String name;
+    private final Type type;
+    private final int size;
+    private final long[] nulls;
+
+    Column(String name, Type type, int size, long[] nulls)
+    {
+        this.name = name;
+        this.type = type;
+        this.size = size;
+        this.nulls = nulls;
+    }
+
+    /**
+     * @return the column label, as per ResultSetMetaData
+     */
+    public String name()
+    {
+        return name;
+    }
+
+    public Type type()
+    {
+        return type;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isNull(int row)
+    {
+        return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return the null bitmap: bit (row % 64) of word (row / 64) is set iff the row is NULL
+     */
+    public long[] nulls()
+    {
+        return nulls;
+    }
+
+    /**
+     * @return the number of NULL rows
+     */
+    public int nullCount()
+    {
+        int result = 0;
+        for (long word : nulls)
+        {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    @Override public String toString()
+    {
+        return name + " " + type + "[" + size + "]";
+    }
+
+    /**
+     * A column of integral numbers, booleans or timestamps
+     */
+    public static final class LongColumn extends Column
+    {
+        private final long[] values;
+
+        LongColumn(String name, Type type, int size, long[] nulls, long[] values)
+        {
+            super(name, type, size, nulls);
+            this.values = values;
+        }
+
+        public long get(int row)
+        {
+            return values[row];
+        }
+
+        /**
+         * @return the values, one per row
+         */
+        public long[] values()
+        {
+            return values;
+        }
+    }
+
+    /**
+     * A column of floating point or decimal numbers
+     */
+    public static final class DoubleColumn extends Column
+    {
+        private final double[] values;
+
+        DoubleColumn(String name, int size, long[] nulls, double[] values)
+        {
+            super(name, Type.DOUBLE, size, nulls);
+            this.values = values;
+        }
+
+        public double get(int row)
+        {
+            return values[row];
+        }
+
+        /**
+         * @return the values, one per row
+         */
+        public double[] values()
+        {
+            return values;
+        }
+    }
+
+    /**
+     * A dictionary-encoded column of strings: each row holds a code, the index of its value in the dictionary of the
+     * batch, in order of first appearance. Grouping or counting by the codes avoids hashing strings per row.
+     */
+    public static final class StringColumn extends Column
+    {
+        private final int[] codes;
+        private final String[] dictionary;
+
+        StringColumn(String name, int size, long[] nulls, int[] codes, String[] dictionary)
+        {
+            super(name, Type.STRING, size, nulls);
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * @return the value of a row, or null
+         */
+        public String get(int row)
+        {
+            int code = codes[row];
+            return code < 0 ? null : dictionary[code];
+        }
+
+        public int code(int row)
+        {
+            return codes[row];
+        }
+
+        /**
+         * @return the codes, one per row
+         */
+        public int[] codes()
+        {
+            return codes;
+        }
+
+        /**
+         * @return the distinct values of this batch, indexed by code
+         */
+        public String[] dictionary()
+        {
+            return dictionary;
+        }
+    }
+}
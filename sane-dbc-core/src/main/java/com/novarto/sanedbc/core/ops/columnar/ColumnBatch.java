@@ -0,0 +1,66 @@
+package com.novarto.sanedbc.core.ops.columnar;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A batch of consecutive result set rows, stored column by column. See {@link ColumnarSelectOp}.
+ */
+public final class ColumnBatch
+{
+    private final int size;
+    private final Column[] columns;
+
+    ColumnBatch(int size, Column[] columns)
+    {
+        this.size = size;
+        this.columns = columns;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public int columnCount()
+    {
+        return columns.length;
+    }
+
+    /**
+     * @param index the 0-based column index
+     */
+    public Column column(int index)
+    {
+        return columns[index];
+    }
+
+    /**
+     * @param name the column label, case-insensitively
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public Column column(String name)
+    {
+        for (Column column : columns)
+        {
+            if (column.name().equalsIgnoreCase(name))
+            {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("no column " + name + " in " + this);
+    }
+
+    public List<Column> columns()
+    {
+        return Arrays.asList(columns);
+    }
+
+    @Override public String toString()
+    {
+        return "ColumnBatch" + Arrays.toString(columns);
+    }
+}
@@ -0,0 +1,363 @@
+package com.novarto.sanedbc.core.ops.columnar;
+
+import com.novarto.sanedbc.core.ops.AbstractSelectOp;
+import fj.control.db.DB;
+import fj.function.TryEffect1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A select operation which reads its result set column by column into {@link ColumnBatch}es of a fixed number of
+ * rows, rather than into an object per row. Numbers are stored in primitive arrays, strings are dictionary-encoded,
+ * and NULLs are tracked in bitmaps, so aggregating a column is a loop over an array, with no boxing. See
+ * {@link Column.Type} for how SQL types are stored.
+ *
+ * Batches are handed to a consumer as they fill up, so that only one is in memory at a time; the operation returns
+ * the total number of rows. Use {@link #all(String, TryEffect1)} to get all batches at once instead. The statement
+ * fetch size is set to the batch size, before the binder runs.
+ */
+public class ColumnarSelectOp extends AbstractSelectOp<Long>
+{
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final int batchSize;
+    private final TryEffect1<ColumnBatch, SQLException> consumer;
+
+    public ColumnarSelectOp(String sql, TryEffect1<PreparedStatement, SQLException> binder,
+            TryEffect1<ColumnBatch, SQLException> consumer)
+    {
+        this(sql, binder, DEFAULT_BATCH_SIZE, consumer);
+    }
+
+    /**
+     * @param sql the query to execute
+     * @param binder a function to bind the PreparedStatement parameters
+     * @param batchSize the number of rows per batch; the last batch may be smaller
+     * @param consumer receives each batch once read
+     */
+    public ColumnarSelectOp(String sql, TryEffect1<PreparedStatement, SQLException> binder, int batchSize,
+            TryEffect1<ColumnBatch, SQLException> consumer)
+    {
+        super(sql, ps -> {
+            ps.setFetchSize(batchSize);
+            binder.f(ps);
+        });
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("batchSize must be >=1");
+        }
+        this.batchSize = batchSize;
+        this.consumer = consumer;
+    }
+
+    /**
+     * @return an operation which returns all batches of the query, in order
+     */
+    public static DB<List<ColumnBatch>> all(String sql, TryEffect1<PreparedStatement, SQLException> binder)
+    {
+        return all(sql, binder, DEFAULT_BATCH_SIZE);
+    }
+
+    public static DB<List<ColumnBatch>> all(String sql, TryEffect1<PreparedStatement, SQLException> binder,
+            int batchSize)
+    {
+        return new DB<List<ColumnBatch>>()
+        {
+            @Override public List<ColumnBatch> run(Connection c) throws SQLException
+            {
+                List<ColumnBatch> result = new ArrayList<>();
+                new ColumnarSelectOp(sql, binder, batchSize, result::add).run(c);
+                return result;
+            }
+        };
+    }
+
+    @Override protected Long doRun(ResultSet rs) throws SQLException
+    {
+        ResultSetMetaData md = rs.getMetaData();
+        ColumnReader[] readers = new ColumnReader[md.getColumnCount()];
+        for (int i = 0; i < readers.length; i++)
+        {
+            readers[i] = reader(md, i + 1);
+        }
+
+        long result = 0;
+        int row = 0;
+        while (rs.next())
+        {
+            if (row == 0)
+            {
+                for (ColumnReader reader : readers)
+                {
+                    reader.start(batchSize);
+                }
+            }
+            for (ColumnReader reader : readers)
+            {
+                reader.read(rs, row);
+            }
+            result++;
+            if (++row == batchSize)
+            {
+                emit(readers, row);
+                row = 0;
+            }
+        }
+        if (row > 0)
+        {
+            emit(readers, row);
+        }
+        return result;
+    }
+
+    private void emit(ColumnReader[] readers, int size) throws SQLException
+    {
+        Column[] columns = new Column[readers.length];
+        for (int i = 0; i < readers.length; i++)
+        {
+            columns[i] = readers[i].finish(size);
+        }
+        consumer.f(new ColumnBatch(size, columns));
+    }
+
+    private static ColumnReader reader(ResultSetMetaData md, int index) throws SQLException
+    {
+        String name = md.getColumnLabel(index);
+        switch (md.getColumnType(index))
+        {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return new LongReader(name, index, Column.Type.LONG)
+                {
+                    @Override long value(ResultSet rs) throws SQLException
+                    {
+                        return rs.getBoolean(index) ? 1 : 0;
+                    }
+                };
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return new LongReader(name, index, Column.Type.LONG);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                // e.g. NUMERIC(18) keys fit a long exactly
+                return md.getScale(index) == 0 && md.getPrecision(index) > 0 && md.getPrecision(index) <= 18 ?
+                        new LongReader(name, index, Column.Type.LONG) : new DoubleReader(name, index);
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new DoubleReader(name, index);
+            case Types.DATE:
+                return new TimestampReader(name, index)
+                {
+                    @Override Date date(ResultSet rs) throws SQLException
+                    {
+                        return rs.getDate(index);
+                    }
+                };
+            case Types.TIME:
+                return new TimestampReader(name, index)
+                {
+                    @Override Date date(ResultSet rs) throws SQLException
+                    {
+                        return rs.getTime(index);
+                    }
+                };
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return new TimestampReader(name, index);
+            default:
+                return new StringReader(name, index);
+        }
+    }
+
+    /**
+     * Accumulates the values of a column for the current batch
+     */
+    private abstract static class ColumnReader
+    {
+        final String name;
+        final int index;
+        long[] nulls;
+
+        ColumnReader(String name, int index)
+        {
+            this.name = name;
+            this.index = index;
+        }
+
+        void start(int capacity)
+        {
+            nulls = new long[(capacity + 63) >>> 6];
+        }
+
+        void setNull(int row)
+        {
+            nulls[row >>> 6] |= 1L << row;
+        }
+
+        long[] nulls(int size)
+        {
+            int words = (size + 63) >>> 6;
+            return words == nulls.length ? nulls : Arrays.copyOf(nulls, words);
+        }
+
+        abstract void read(ResultSet rs, int row) throws SQLException;
+
+        abstract Column finish(int size);
+    }
+
+    private static class LongReader extends ColumnReader
+    {
+        private final Column.Type type;
+        private long[] values;
+
+        LongReader(String name, int index, Column.Type type)
+        {
+            super(name, index);
+            this.type = type;
+        }
+
+        @Override void start(int capacity)
+        {
+            super.start(capacity);
+            values = new long[capacity];
+        }
+
+        long value(ResultSet rs) throws SQLException
+        {
+            return rs.getLong(index);
+        }
+
+        @Override void read(ResultSet rs, int row) throws SQLException
+        {
+            long x = value(rs);
+            if (x == 0 && rs.wasNull())
+            {
+                setNull(row);
+            }
+            else
+            {
+                values[row] = x;
+            }
+        }
+
+        @Override Column finish(int size)
+        {
+            return new Column.LongColumn(name, type, size, nulls(size),
+                    size == values.length ? values : Arrays.copyOf(values, size));
+        }
+    }
+
+    private static class TimestampReader extends LongReader
+    {
+        TimestampReader(String name, int index)
+        {
+            super(name, index, Column.Type.TIMESTAMP);
+        }
+
+        Date date(ResultSet rs) throws SQLException
+        {
+            return rs.getTimestamp(index);
+        }
+
+        @Override long value(ResultSet rs) throws SQLException
+        {
+            Date x = date(rs);
+            return x == null ? 0 : x.getTime();
+        }
+    }
+
+    private static final class DoubleReader extends ColumnReader
+    {
+        private double[] values;
+
+        DoubleReader(String name, int index)
+        {
+            super(name, index);
+        }
+
+        @Override void start(int capacity)
+        {
+            super.start(capacity);
+            values = new double[capacity];
+        }
+
+        @Override void read(ResultSet rs, int row) throws SQLException
+        {
+            double x = rs.getDouble(index);
+            if (x == 0 && rs.wasNull())
+            {
+                setNull(row);
+            }
+            else
+            {
+                values[row] = x;
+            }
+        }
+
+        @Override Column finish(int size)
+        {
+            return new Column.DoubleColumn(name, size, nulls(size),
+                    size == values.length ? values : Arrays.copyOf(values, size));
+        }
+    }
+
+    private static final class StringReader extends ColumnReader
+    {
+        private int[] codes;
+        private Map<String, Integer> codesByValue;
+        private List<String> dictionary;
+
+        StringReader(String name, int index)
+        {
+            super(name, index);
+        }
+
+        @Override void start(int capacity)
+        {
+            super.start(capacity);
+            codes = new int[capacity];
+            codesByValue = new HashMap<>();
+            dictionary = new ArrayList<>();
+        }
+
+        @Override void read(ResultSet rs, int row) throws SQLException
+        {
+            String x = rs.getString(index);
+            if (x == null)
+            {
+                setNull(row);
+                codes[row] = -1;
+                return;
+            }
+            Integer code = codesByValue.get(x);
+            if (code == null)
+            {
+                code = dictionary.size();
+                codesByValue.put(x, code);
+                dictionary.add(x);
+            }
+            codes[row] = code;
+        }
+
+        @Override Column finish(int size)
+        {
+            return new Column.StringColumn(name, size, nulls(size),
+                    size == codes.length ? codes : Arrays.copyOf(codes, size),
+                    dictionary.toArray(new String[dictionary.size()]));
+        }
+    }
+}
@@ -2,7 +2,8 @@ package com.novarto.sanedbc.core.ops.optimized;
 
 import com.novarto.lang.Collections;
 import com.novarto.lang.StringUtil;
-import com.novarto.sanedbc.core.SqlStringUtils;
+import com.novarto.sanedbc.core.Dialect;
+import com.novarto.sanedbc.core.SqlTemplate;
 import com.novarto.sanedbc.core.ops.DbOps;
 import fj.control.db.DB;
 import fj.function.Try3;
@@ -19,23 +20,30 @@ import static com.novarto.sanedbc.core.ops.Binders.iterableBinder;
 public class BatchDeleteOptimized<A> extends DB<Integer>
 {
 
-    private static final String SQL_TEMPLATE = "DELETE FROM {0} WHERE ({1}) IN ({2})";
+    private static final String SQL_TEMPLATE = "DELETE FROM {0} WHERE ({1}) IN ('{'0:{2}'}')";
 
     private final DB<Integer> op;
 
+    /**
+     * Deletes in chunks as large as the dialect safely allows, see {@link Dialect#chunkSize(int)}
+     */
+    public BatchDeleteOptimized(String tableName, List<String> whereColumns, Iterable<A> xs,
+            Try3<Integer, PreparedStatement, A, Integer, SQLException> binder, Dialect dialect)
+    {
+        this(tableName, whereColumns, xs, binder, dialect.chunkSize(whereColumns.size()));
+    }
+
     public BatchDeleteOptimized(String tableName, List<String> whereColumns, Iterable<A> xs,
             Try3<Integer, PreparedStatement, A, Integer, SQLException> binder, int batchSize)
     {
 
-        int whereColumnsLength = whereColumns.size();
+        String colsSegment = "(" + StringUtil.join(whereColumns, ", ") + ")";
+        SqlTemplate sql = SqlTemplate.compile(MessageFormat.format(SQL_TEMPLATE, tableName, colsSegment,
+                String.valueOf(whereColumns.size())));
 
         op = DbOps.toChunks(xs, ys -> {
-            String colsSegment = "(" + StringUtil.join(whereColumns, ", ") + ")";
-
-            String sql = MessageFormat.format(SQL_TEMPLATE, tableName, colsSegment,
-                    SqlStringUtils.placeholderRows(Collections.size(xs), whereColumnsLength));
 
-            TryEffect1<PreparedStatement, SQLException> populatedBinder = iterableBinder(binder, xs);
+            TryEffect1<PreparedStatement, SQLException> populatedBinder = iterableBinder(binder, ys);
 
             return new DB<Integer>()
             {
@@ -43,7 +51,7 @@ public class BatchDeleteOptimized<A> extends DB<Integer>
                 @Override
                 public Integer run(Connection c) throws SQLException
                 {
-                    try (PreparedStatement ps = c.prepareStatement(sql))
+                    try (PreparedStatement ps = c.prepareStatement(sql.render(Collections.size(ys))))
                     {
                         populatedBinder.f(ps);
                         return ps.executeUpdate();
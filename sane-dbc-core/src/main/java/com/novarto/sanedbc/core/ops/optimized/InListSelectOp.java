@@ -0,0 +1,154 @@
+package com.novarto.sanedbc.core.ops.optimized;
+
+import com.novarto.sanedbc.core.Dialect;
+import com.novarto.sanedbc.core.SqlTemplate;
+import com.novarto.sanedbc.core.ops.Binders;
+import fj.control.db.DB;
+import fj.data.Option;
+import fj.function.Try1;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selects the rows matching a set of keys, while keeping the number of distinct SQL statements small, so that the
+ * server and the driver statement cache reuse their plans, whatever the number of keys.
+ *
+ * The query contains a {0} slot, which is replaced by a predicate on the key column:
+ * <ul>
+ *     <li>If the dialect supports array parameters, see {@link Dialect#arrayMembership(String)}, all keys are bound as
+ *     a single SQL array of the given element type, so there is a single statement.</li>
+ *     <li>Otherwise, or if the driver does not support createArrayOf, the predicate is an IN list whose size is rounded
+ *     up to a power of two, padded by repeating the last key, so there are about log2(chunk size) statements. Key sets
+ *     larger than {@link Dialect#chunkSize(int)} are queried in chunks.</li>
+ * </ul>
+ *
+ * <pre>
+ *     new InListSelectOp&lt;&gt;(Dialect.POSTGRESQL, "SELECT ID, NAME FROM EMPLOYEES WHERE {0}", "ID", "INTEGER",
+ *             Binders.&lt;Integer&gt;shape().withInt(x -&gt; x), ids, rs -&gt; new Employee(rs.getInt(1), rs.getString(2)));
+ * </pre>
+ *
+ * The keys are the only parameters of the query, and should be distinct. Rows are returned in the order the database
+ * returns them, chunk after chunk, so an ORDER BY only applies within a chunk.
+ *
+ * @param <K> the key type
+ * @param <A> the type of a single result row
+ */
+public class InListSelectOp<K, A> extends DB<List<A>>
+{
+    private final Option<String> arraySql;
+    private final SqlTemplate listSql;
+    private final String elementType;
+    private final Binders.Shape<K> key;
+    private final List<K> keys;
+    private final Try1<ResultSet, A, SQLException> mapper;
+    private final int chunkSize;
+
+    /**
+     * @param sql the query, with a {0} slot for the key predicate
+     * @param column the key column
+     * @param elementType the SQL type name of the array elements, as per Connection.createArrayOf, e.g. INTEGER
+     * @param key binds a single key, when falling back to an IN list
+     * @param keys the keys
+     * @param mapper maps a single row
+     */
+    public InListSelectOp(Dialect dialect, String sql, String column, String elementType, Binders.Shape<K> key,
+            Iterable<K> keys, Try1<ResultSet, A, SQLException> mapper)
+    {
+        if (key.parameterCount() != 1)
+        {
+            throw new IllegalArgumentException("the key shape must bind a single parameter");
+        }
+        this.arraySql = dialect.arrayMembership(column).map(x -> sql.replace("{0}", x));
+        this.listSql = SqlTemplate.compile(sql.replace("{0}", column + " IN ({0})"));
+        this.elementType = elementType;
+        this.key = key;
+        this.keys = new ArrayList<>();
+        for (K k : keys)
+        {
+            this.keys.add(k);
+        }
+        this.mapper = mapper;
+        this.chunkSize = dialect.chunkSize(1);
+    }
+
+    @Override public List<A> run(Connection c) throws SQLException
+    {
+        List<A> result = new ArrayList<>();
+        if (keys.isEmpty())
+        {
+            return result;
+        }
+
+        if (arraySql.isSome())
+        {
+            Array array;
+            try
+            {
+                array = c.createArrayOf(elementType, keys.toArray());
+            }
+            catch (SQLFeatureNotSupportedException e)
+            {
+                array = null;
+            }
+            if (array != null)
+            {
+                try (PreparedStatement ps = c.prepareStatement(arraySql.some()))
+                {
+                    ps.setArray(1, array);
+                    collect(ps, result);
+                    return result;
+                }
+                finally
+                {
+                    array.free();
+                }
+            }
+        }
+
+        for (int from = 0; from < keys.size(); from += chunkSize)
+        {
+            int to = Math.min(keys.size(), from + chunkSize);
+            int size = bucket(to - from, chunkSize);
+            try (PreparedStatement ps = c.prepareStatement(listSql.render(size)))
+            {
+                for (int i = 0; i < size; i++)
+                {
+                    key.bind(ps, i + 1, keys.get(Math.min(from + i, to - 1)));
+                }
+                collect(ps, result);
+            }
+        }
+        return result;
+    }
+
+    private void collect(PreparedStatement ps, List<A> result) throws SQLException
+    {
+        try (ResultSet rs = ps.executeQuery())
+        {
+            while (rs.next())
+            {
+                result.add(mapper.f(rs));
+            }
+        }
+    }
+
+    /**
+     * @return the smallest power of two no less than n, but no more than max
+     */
+    static int bucket(int n, int max)
+    {
+        int result = Integer.highestOneBit(n);
+        if (result < n)
+        {
+            result <<= 1;
+        }
+        return Math.min(result, max);
+    }
+}
@@ -0,0 +1,184 @@
+package com.novarto.sanedbc.core;
+
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.core.ops.Binders;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import com.novarto.sanedbc.core.ops.columnar.Column;
+import com.novarto.sanedbc.core.ops.columnar.ColumnarSelectOp;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.novarto.sanedbc.testkit.Allocations.assertOverheadWithin;
+import static com.novarto.sanedbc.testkit.Allocations.assertWithin;
+
+/**
+ * Allocation budgets of hot paths, so that a change which e.g. adds boxing per row fails the build. Budgets of ops are
+ * expressed as overhead over the equivalent plain JDBC code, so that they do not depend on what the driver allocates.
+ * A budget of 1 byte per call means the call does not allocate.
+ */
+public class AllocationBudgetTest
+{
+    private static final int ROWS = 1000;
+    private static final int ELEMENTS = 100;
+
+    private static final String SELECT = "SELECT ID FROM AllocationBudgetTest_FOO";
+    private static final String COUNT = "SELECT COUNT(*) FROM AllocationBudgetTest_FOO WHERE ID > ?";
+
+    private static Connection c;
+
+    @BeforeClass
+    public static void setupSuite() throws SQLException
+    {
+        c = DriverManager.getConnection("jdbc:hsqldb:mem:AllocationBudgetTest", "sa", "");
+        try (Statement s = c.createStatement())
+        {
+            s.execute("CREATE TABLE AllocationBudgetTest_FOO (ID INTEGER PRIMARY KEY)");
+        }
+        try (PreparedStatement ps = c.prepareStatement("INSERT INTO AllocationBudgetTest_FOO VALUES (?)"))
+        {
+            for (int i = 0; i < ROWS; i++)
+            {
+                ps.setInt(1, i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @AfterClass
+    public static void shutdown() throws SQLException
+    {
+        c.close();
+    }
+
+    @Test
+    public void selectOpPerRow() throws Exception
+    {
+        SelectOp.List<Integer> op = new SelectOp.List<>(SELECT, ps -> {
+        }, rs -> rs.getInt(1));
+
+        assertOverheadWithin("SelectOp of " + ROWS + " rows", 4 * ROWS, 300, () -> {
+            try (PreparedStatement ps = c.prepareStatement(SELECT); ResultSet rs = ps.executeQuery())
+            {
+                List<Integer> xs = new ArrayList<>();
+                while (rs.next())
+                {
+                    xs.add(rs.getInt(1));
+                }
+            }
+        }, () -> op.run(c));
+    }
+
+    @Test
+    public void columnarSelectOpPerRow() throws Exception
+    {
+        long[] sum = new long[1];
+        ColumnarSelectOp op = new ColumnarSelectOp(SELECT, ps -> {
+        }, ROWS, batch -> sum[0] += ((Column.LongColumn) batch.column(0)).values()[0]);
+
+        // the long vector and the null bitmap, i.e. 8 bytes and 1 bit per row
+        assertOverheadWithin("ColumnarSelectOp of " + ROWS + " rows", 9 * ROWS, 300, () -> {
+            try (PreparedStatement ps = c.prepareStatement(SELECT); ResultSet rs = ps.executeQuery())
+            {
+                while (rs.next())
+                {
+                    sum[0] += rs.getInt(1);
+                }
+            }
+        }, () -> op.run(c));
+    }
+
+    @Test
+    public void aggregateOpPerCall() throws Exception
+    {
+        AggregateOp op = new AggregateOp(COUNT, ps -> ps.setInt(1, ROWS));
+
+        assertOverheadWithin("AggregateOp", 32, 20_000, () -> {
+            try (PreparedStatement ps = c.prepareStatement(COUNT))
+            {
+                ps.setInt(1, ROWS);
+                try (ResultSet rs = ps.executeQuery())
+                {
+                    rs.next();
+                    rs.getLong(1);
+                }
+            }
+        }, () -> op.run(c));
+    }
+
+    @Test
+    public void batchBinderPerElement() throws Exception
+    {
+        // a statement which does nothing, so that the measurement is not drowned by what a driver allocates
+        PreparedStatement ps = Proxies.proxy(PreparedStatement.class,
+                (proxy, method, args) -> "executeBatch".equals(method.getName()) ? new int[0] : null);
+        List<Integer> xs = new ArrayList<>();
+        for (int i = 0; i < ELEMENTS; i++)
+        {
+            xs.add(i);
+        }
+
+        // the binder function returns a closure per element, which escape analysis may or may not remove
+        assertOverheadWithin("batchBinder of " + ELEMENTS + " elements", 24 * ELEMENTS, 20_000, () -> {
+            for (Integer x : xs)
+            {
+                ps.setInt(1, x);
+                ps.addBatch();
+            }
+            Binders.sumBatchResult(ps.executeBatch());
+        }, () -> Binders.<Integer>batchBinder(x -> s -> s.setInt(1, x), xs).f(ps));
+    }
+
+    @Test
+    public void shapeBatchBinderPerElement() throws Exception
+    {
+        PreparedStatement ps = Proxies.proxy(PreparedStatement.class,
+                (proxy, method, args) -> "executeBatch".equals(method.getName()) ? new int[0] : null);
+        List<Long> xs = new ArrayList<>();
+        for (int i = 0; i < ELEMENTS; i++)
+        {
+            xs.add(1000L + i);
+        }
+        Binders.Shape<Long> shape = Binders.<Long>shape().withLong(x -> x).withNullableLong(x -> x);
+
+        // less than a single object per element, i.e. nothing but the iterator
+        assertOverheadWithin("shape batchBinder of " + ELEMENTS + " elements", ELEMENTS, 20_000, () -> {
+            for (Long x : xs)
+            {
+                ps.setLong(1, x);
+                ps.setLong(2, x);
+                ps.addBatch();
+            }
+            Binders.sumBatchResult(ps.executeBatch());
+        }, () -> Binders.batchBinder(shape, xs).f(ps));
+    }
+
+    @Test
+    public void sqlStringUtils() throws Exception
+    {
+        SqlTemplate template = SqlTemplate.compile("SELECT * FROM FOO WHERE ID IN ({0}) AND (A, B) IN ({1:2})");
+        StringBuilder sb = new StringBuilder(1024);
+
+        assertWithin("placeholders", 1, 100_000, () -> SqlStringUtils.placeholders(10));
+        assertWithin("placeholdersBuilder", 1, 100_000, () -> {
+            sb.setLength(0);
+            SqlStringUtils.placeholdersBuilder(10, sb);
+        });
+        assertWithin("placeholderRows", 1, 100_000, () -> SqlStringUtils.placeholderRows(10, 3));
+        assertWithin("getStatementKind", 1, 100_000,
+                () -> SqlStringUtils.getStatementKind("/* comment */ WITH X AS (SELECT 1) SELECT * FROM X"));
+        // the rendered string itself, no intermediate copies
+        assertWithin("SqlTemplate.render", 24 + 2 * 80, 100_000, () -> template.render(10, 5));
+    }
+}
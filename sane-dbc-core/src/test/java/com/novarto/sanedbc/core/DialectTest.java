@@ -0,0 +1,89 @@
+package com.novarto.sanedbc.core;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DialectTest
+{
+    @Test
+    public void detectsDialectFromUrl()
+    {
+        assertThat(Dialect.fromUrl("jdbc:mysql://localhost:3306/foo"), is(Dialect.MYSQL));
+        assertThat(Dialect.fromUrl("jdbc:mariadb://localhost/foo"), is(Dialect.MYSQL));
+        assertThat(Dialect.fromUrl("JDBC:PostgreSQL://localhost/foo"), is(Dialect.POSTGRESQL));
+        assertThat(Dialect.fromUrl("jdbc:h2:mem:foo"), is(Dialect.H2));
+        assertThat(Dialect.fromUrl("jdbc:hsqldb:mem:foo"), is(Dialect.HSQLDB));
+        assertThat(Dialect.fromUrl("jdbc:oracle:thin:@localhost:1521:foo"), is(Dialect.GENERIC));
+    }
+
+    @Test
+    public void chunkSizes()
+    {
+        assertThat(Dialect.POSTGRESQL.chunkSize(1), is(Dialect.MAX_CHUNK_SIZE));
+        assertThat(Dialect.POSTGRESQL.chunkSize(100), is(327));
+        assertThat(Dialect.GENERIC.chunkSize(3), is(666));
+        assertThat(Dialect.GENERIC.chunkSize(5000), is(1));
+    }
+
+    @Test
+    public void arrayMembership()
+    {
+        assertThat(Dialect.POSTGRESQL.arrayMembership("ID").some(), is("ID = ANY(?)"));
+        assertThat(Dialect.HSQLDB.arrayMembership("ID").some(), is("ID IN (UNNEST(?))"));
+        assertThat(Dialect.MYSQL.arrayMembership("ID").isNone(), is(true));
+        assertThat(Dialect.GENERIC.arrayMembership("ID").isNone(), is(true));
+    }
+
+    @Test
+    public void connectionProperties()
+    {
+        assertThat(Dialect.POSTGRESQL.connectionProperties().getProperty("reWriteBatchedInserts"), is("true"));
+        assertThat(Dialect.MYSQL.connectionProperties().getProperty("rewriteBatchedStatements"), is("true"));
+        assertThat(Dialect.HSQLDB.connectionProperties().isEmpty(), is(true));
+    }
+
+    @Test
+    public void upserts()
+    {
+        assertThat(Dialect.MYSQL.upsert("FOO", asList("A", "B"), asList("C")).some(),
+                is("INSERT INTO FOO (A, B, C) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE C = VALUES(C)"));
+        assertThat(Dialect.POSTGRESQL.upsert("FOO", asList("A", "B"), asList("C", "D")).some(),
+                is("INSERT INTO FOO (A, B, C, D) VALUES (?, ?, ?, ?) ON CONFLICT (A, B) DO UPDATE SET " +
+                        "C = EXCLUDED.C, D = EXCLUDED.D"));
+        assertThat(Dialect.POSTGRESQL.upsert("FOO", asList("A"), emptyList()).some(),
+                is("INSERT INTO FOO (A) VALUES (?) ON CONFLICT (A) DO NOTHING"));
+        assertThat(Dialect.H2.upsert("FOO", asList("A"), asList("C")).some(),
+                is("MERGE INTO FOO (A, C) KEY (A) VALUES (?, ?)"));
+        assertThat(Dialect.GENERIC.upsert("FOO", asList("A"), asList("C")).isNone(), is(true));
+    }
+
+    @Test
+    public void hsqldbUpsert()
+    {
+        SyncDbInterpreter dbi = new SyncDbInterpreter(
+                () -> DriverManager.getConnection("jdbc:hsqldb:mem:DialectTest", "sa", ""));
+        dbi.submit(new EffectOp("CREATE TABLE DialectTest_FOO (ID INTEGER PRIMARY KEY, NAME VARCHAR(10))"));
+
+        String sql = Dialect.HSQLDB.upsert("DialectTest_FOO", asList("ID"), asList("NAME")).some();
+        for (String name : asList("a", "b"))
+        {
+            assertThat(dbi.submit(new UpdateOp(sql, ps -> {
+                ps.setInt(1, 1);
+                ps.setString(2, name);
+            })), is(1));
+        }
+
+        assertThat(dbi.submit(new SelectOp.List<>("SELECT NAME FROM DialectTest_FOO", ps -> {
+        }, rs -> rs.getString(1))), is(asList("b")));
+    }
+}
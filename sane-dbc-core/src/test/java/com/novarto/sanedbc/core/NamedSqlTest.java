@@ -0,0 +1,91 @@
+package com.novarto.sanedbc.core;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import fj.P2;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.Types;
+
+import static fj.P.p;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NamedSqlTest
+{
+    private static final SyncDbInterpreter DB = new SyncDbInterpreter(
+            () -> DriverManager.getConnection("jdbc:hsqldb:mem:NamedSqlTest", "sa", ""));
+
+    private static final NamedSql INSERT = NamedSql.compile("INSERT INTO NamedSqlTest_PEOPLE VALUES (:id, :name)");
+    private static final NamedSql.Param INSERT_ID = INSERT.param("id");
+    private static final NamedSql.Param INSERT_NAME = INSERT.param("name");
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        DB.submit(new EffectOp("CREATE TABLE NamedSqlTest_PEOPLE (ID INTEGER PRIMARY KEY, NAME VARCHAR(100))"));
+    }
+
+    @Test
+    public void compile()
+    {
+        NamedSql sql = NamedSql.compile(
+                "SELECT * FROM FOO WHERE A = :a AND B = :b_1 OR A = :a -- :c\n AND C = ':d' AND D = \"x:y\" /* :e */ " +
+                        "AND E = F::INTEGER AND G = :a");
+
+        assertThat(sql.sql(), is("SELECT * FROM FOO WHERE A = ? AND B = ? OR A = ? -- :c\n AND C = ':d' AND D = \"x:y\" " +
+                "/* :e */ AND E = F::INTEGER AND G = ?"));
+        assertThat(sql.names(), is(asList("a", "b_1")));
+        assertThat(sql.parameterCount(), is(4));
+        assertThat(sql.param("a").indices(), is(new int[] { 1, 3, 4 }));
+        assertThat(sql.param("b_1").indices(), is(new int[] { 2 }));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownParameter()
+    {
+        NamedSql.compile("SELECT * FROM FOO WHERE A = :a").param("b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void positionalParameters()
+    {
+        NamedSql.compile("SELECT * FROM FOO WHERE A = :a AND B = ?");
+    }
+
+    @Test
+    public void bindsOps()
+    {
+        DB.submit(new BatchUpdateOp<P2<Integer, String>>(INSERT.sql(), x -> ps -> {
+            INSERT_NAME.setString(ps, x._2());
+            INSERT_ID.setInt(ps, x._1());
+        }, asList(p(1, "alice"), p(2, "bob"), p(3, "carol"))));
+
+        NamedSql update = NamedSql.compile("UPDATE NamedSqlTest_PEOPLE SET NAME = :name WHERE ID = :id");
+        NamedSql.Param updateName = update.param("name");
+        NamedSql.Param updateId = update.param("id");
+        assertThat(DB.submit(new UpdateOp(update.sql(), ps -> {
+            updateId.setInt(ps, 2);
+            updateName.setNull(ps, Types.VARCHAR);
+        })), is(1));
+
+        NamedSql select = NamedSql.compile(
+                "SELECT NAME FROM NamedSqlTest_PEOPLE WHERE ID >= :id AND (NAME IS NULL OR NAME <> :name) AND ID <> :id " +
+                        "ORDER BY ID");
+        NamedSql.Param selectId = select.param("id");
+        NamedSql.Param selectName = select.param("name");
+        assertThat(DB.submit(new SelectOp.List<>(select.sql(), ps -> {
+            selectId.setLong(ps, 1L);
+            selectName.setString(ps, "carol");
+        }, rs -> rs.getString(1))), is(asList((String) null)));
+
+        assertThat(DB.submit(new UpdateOp("DELETE FROM NamedSqlTest_PEOPLE", ps -> {
+        })), is(3));
+    }
+}
@@ -2,12 +2,18 @@ package com.novarto.sanedbc.core;
 
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import static com.novarto.sanedbc.core.SqlStringUtils.LogicalOperator.AND;
 import static com.novarto.sanedbc.core.SqlStringUtils.LogicalOperator.OR;
 import static com.novarto.sanedbc.core.SqlStringUtils.StatementKind.*;
 import static fj.data.List.list;
+import static fj.data.Option.none;
+import static fj.data.Option.some;
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 public class SqlStringUtilsTest
@@ -43,6 +49,31 @@ public class SqlStringUtilsTest
     {
         assertThat(SqlStringUtils.placeholderRows(3, 2).replaceAll(" ", ""),
                 is("(?,?),(?,?),(?,?)"));
+        assertThat(SqlStringUtils.placeholderRows(1, 1), is("(?)"));
+    }
+
+    @Test
+    public void placeholdersAreMemoized()
+    {
+        assertThat(SqlStringUtils.placeholders(7), sameInstance(SqlStringUtils.placeholders(7)));
+        assertThat(SqlStringUtils.placeholders(5000), sameInstance(SqlStringUtils.placeholders(5000)));
+        assertThat(SqlStringUtils.placeholderRows(1000, 3), sameInstance(SqlStringUtils.placeholderRows(1000, 3)));
+
+        assertThat(SqlStringUtils.placeholders(5000), is(SqlStringUtils.placeholderRows(5000, 1).replaceAll("[()]", "")));
+        assertThat(SqlStringUtils.placeholderRows(1000, 3).length(), is(1000 * "(?, ?, ?), ".length() - 2));
+        assertThat(SqlStringUtils.placeholdersBuilder(2, new StringBuilder("x")).toString(), is("x?, ?"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void placeholdersRejectNonPositiveLength()
+    {
+        SqlStringUtils.placeholders(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void placeholderRowsRejectNonPositiveRows()
+    {
+        SqlStringUtils.placeholderRows(0, 2);
     }
 
     @Test
@@ -101,5 +132,101 @@ public class SqlStringUtilsTest
         );
     }
 
+    @Test
+    public void statementKindSkipsCommentsAndParentheses()
+    {
+        assertThat(SqlStringUtils.getStatementKind("-- fetch\n/* all */ select * from foo"), is(SELECT));
+        assertThat(SqlStringUtils.getStatementKind("((SELECT 1) UNION (SELECT 2))"), is(SELECT));
+        assertThat(SqlStringUtils.getStatementKind("/* unterminated"), is(UNKNOWN));
+        assertThat(SqlStringUtils.getStatementKind(""), is(UNKNOWN));
+        assertThat(SqlStringUtils.getStatementKind("selected"), is(UNKNOWN));
+    }
+
+    @Test
+    public void statementKindRecognizesMoreStatements()
+    {
+        assertThat(SqlStringUtils.getStatementKind("MERGE INTO FOO USING BAR ON (1=1)"), is(MERGE));
+        assertThat(SqlStringUtils.getStatementKind("replace into foo values (?)"), is(REPLACE));
+        assertThat(SqlStringUtils.getStatementKind("CALL PROC(?)"), is(CALL));
+        assertThat(SqlStringUtils.getStatementKind("{call proc(?)}"), is(CALL));
+        assertThat(SqlStringUtils.getStatementKind("{ ? = call proc(?) }"), is(CALL));
+    }
+
+    @Test
+    public void statementKindLooksPastCommonTableExpressions()
+    {
+        assertThat(SqlStringUtils.getStatementKind("WITH x AS (SELECT * FROM FOO) SELECT * FROM x"), is(SELECT));
+        assertThat(SqlStringUtils.getStatementKind(
+                "with recursive x(a, b) as (select 1, 'update') , y as not materialized (select a from x) " +
+                        "delete from foo where a in (select a from y)"), is(DELETE));
+        assertThat(SqlStringUtils.getStatementKind(
+                "WITH \"INSERT\" AS (SELECT 1) UPDATE FOO SET A = (SELECT * FROM \"INSERT\")"), is(UPDATE));
+        assertThat(SqlStringUtils.getStatementKind("WITH x AS (SELECT 1) INSERT INTO FOO SELECT * FROM x"), is(INSERT));
+        assertThat(SqlStringUtils.getStatementKind("WITH x AS (SELECT 1)"), is(UNKNOWN));
+
+        String sql = "WITH x AS (SELECT 1) MERGE INTO FOO USING x ON (1=1)";
+        assertThat(SqlStringUtils.getStatementKind(sql), is(MERGE));
+        assertThat(SqlStringUtils.getStatementKind(sql), is(MERGE));
+    }
+
+    @Test
+    public void fingerprint()
+    {
+        assertThat(SqlStringUtils.fingerprint("SELECT * FROM FOO WHERE A = 'x' AND B IN (1, 2, 3)"),
+                is("SELECT * FROM FOO WHERE A = ? AND B IN (?+)"));
+        assertThat(SqlStringUtils.fingerprint("  select *\n  from FOO -- all of them\n where A = ? and B in (?) "),
+                is("SELECT * FROM FOO WHERE A = ? AND B IN (?+)"));
+        assertThat(SqlStringUtils.fingerprint("insert into Foo (a, b) values (?, ?), (?, ?) /* 2 rows */"),
+                is("INSERT INTO Foo (a, b) VALUES (?+)"));
+        assertThat(SqlStringUtils.fingerprint("insert into Foo (a, b) values ('it''s', 1.5)"),
+                is("INSERT INTO Foo (a, b) VALUES (?+)"));
+        assertThat(SqlStringUtils.fingerprint("UPDATE t2 SET \"col 1\" = -42 WHERE id = ?"),
+                is("UPDATE t2 SET \"col 1\" = -? WHERE id = ?"));
+    }
+
+    @Test
+    public void readTables()
+    {
+        assertThat(SqlStringUtils.getReadTables("SELECT * FROM FOO"), is(set("FOO")));
+        assertThat(SqlStringUtils.getReadTables("select a.x, b.y from app.foo a join \"Bar\" b on a.id=b.id where a.z=?"),
+                is(set("FOO", "BAR")));
+        assertThat(SqlStringUtils.getReadTables("SELECT * FROM FOO f, BAR AS b, BAZ WHERE 1=1"), is(set("FOO", "BAR", "BAZ")));
+        assertThat(SqlStringUtils.getReadTables(
+                "-- from comment\nSELECT 'from x' FROM (SELECT ID FROM FOO) x LEFT OUTER JOIN BAR ON x.ID = BAR.ID"),
+                is(set("FOO", "BAR")));
+        assertThat(SqlStringUtils.getReadTables("SELECT * FROM FOO WHERE ID IN (SELECT ID FROM /* from zzz */ BAR)"),
+                is(set("FOO", "BAR")));
+        assertThat(SqlStringUtils.getReadTables("SELECT * FROM UNNEST(?)"), is(set()));
+    }
+
+    @Test
+    public void writtenTables()
+    {
+        assertThat(SqlStringUtils.getWrittenTables("INSERT INTO foo VALUES (?, ?)"), is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("insert into app.foo(x) select x from bar"), is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("UPDATE Foo SET X=? WHERE ID IN (SELECT ID FROM BAR)"),
+                is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("DELETE FROM FOO WHERE (A, B) IN ((?, ?), (?, ?))"), is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("MERGE INTO FOO USING BAR ON FOO.ID = BAR.ID " +
+                "WHEN MATCHED THEN UPDATE SET X = BAR.X WHEN NOT MATCHED THEN INSERT VALUES (BAR.ID, BAR.X)"),
+                is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("INSERT INTO FOO VALUES (?) ON DUPLICATE KEY UPDATE X=?"),
+                is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("REPLACE INTO FOO VALUES (?)"), is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("TRUNCATE TABLE FOO"), is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("DROP TABLE IF EXISTS FOO"), is(some(set("FOO"))));
+        assertThat(SqlStringUtils.getWrittenTables("WITH X AS (SELECT ID FROM BAR) DELETE FROM FOO WHERE ID IN " +
+                "(SELECT ID FROM X)"), is(some(set("FOO"))));
+
+        assertThat(SqlStringUtils.getWrittenTables("SELECT * FROM FOO FOR UPDATE"), is(some(set())));
+        assertThat(SqlStringUtils.getWrittenTables("CREATE TABLE FOO (ID INTEGER)"), is(some(set())));
+
+        assertThat(SqlStringUtils.getWrittenTables("CALL DO_STUFF(?)"), is(none()));
+    }
+
+    private static Set<String> set(String... xs)
+    {
+        return new HashSet<>(asList(xs));
+    }
 
 }
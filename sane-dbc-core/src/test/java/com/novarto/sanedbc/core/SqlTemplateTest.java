@@ -0,0 +1,68 @@
+package com.novarto.sanedbc.core;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class SqlTemplateTest
+{
+    @Test
+    public void placeholderLists()
+    {
+        SqlTemplate template = SqlTemplate.compile("SELECT * FROM FOO WHERE ID IN ({0}) AND X = ?");
+        assertThat(template.arity(), is(1));
+        assertThat(template.render(1), is("SELECT * FROM FOO WHERE ID IN (?) AND X = ?"));
+        assertThat(template.render(3), is("SELECT * FROM FOO WHERE ID IN (?, ?, ?) AND X = ?"));
+        assertThat(template.render(1000),
+                is("SELECT * FROM FOO WHERE ID IN (" + SqlStringUtils.placeholders(1000) + ") AND X = ?"));
+    }
+
+    @Test
+    public void placeholderRows()
+    {
+        SqlTemplate template = SqlTemplate.compile("INSERT INTO FOO (A, B) VALUES {0:2}");
+        assertThat(template.render(3), is("INSERT INTO FOO (A, B) VALUES (?, ?), (?, ?), (?, ?)"));
+    }
+
+    @Test
+    public void multipleArguments()
+    {
+        SqlTemplate template = SqlTemplate.compile("SELECT * FROM FOO WHERE A IN ({0}) AND B IN ({1}) OR A IN ({0})");
+        assertThat(template.arity(), is(2));
+        assertThat(template.render(2, 1), is("SELECT * FROM FOO WHERE A IN (?, ?) AND B IN (?) OR A IN (?, ?)"));
+
+        template = SqlTemplate.compile("{2}|{1:2}|{0}");
+        assertThat(template.render(1, 2, 3), is("?, ?, ?|(?, ?), (?, ?)|?"));
+        assertThat(template.appendTo(new StringBuilder("> "), 1, 1, 1).toString(), is("> ?|(?, ?)|?"));
+    }
+
+    @Test
+    public void bracesWhichAreNotSlotsAreVerbatim()
+    {
+        String sql = "SELECT '{a}', '{}', '{1:}', '{:2}', '{0:0}', '{0' FROM FOO";
+        SqlTemplate template = SqlTemplate.compile(sql);
+        assertThat(template.arity(), is(0));
+        assertThat(template.render(), is(sql));
+    }
+
+    @Test
+    public void memoizesSingleArgumentTemplates()
+    {
+        SqlTemplate template = SqlTemplate.compile("SELECT * FROM FOO WHERE ID IN ({0})");
+        assertThat(template.render(5), sameInstance(template.render(5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongNumberOfArities()
+    {
+        SqlTemplate.compile("SELECT * FROM FOO WHERE A IN ({0}) AND B IN ({1})").render(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveArities()
+    {
+        SqlTemplate.compile("SELECT * FROM FOO WHERE A IN ({0})").render(0);
+    }
+}
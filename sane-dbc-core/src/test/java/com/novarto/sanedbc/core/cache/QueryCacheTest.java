@@ -0,0 +1,303 @@
+package com.novarto.sanedbc.core.cache;
+
+import com.novarto.lang.ConcurrentUtil;
+import com.novarto.sanedbc.core.interpreter.AsyncDbInterpreter;
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.InsertGenKeysOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import com.novarto.sanedbc.core.ops.optimized.BatchDeleteOptimized;
+import fj.Unit;
+import fj.control.db.DB;
+import fj.data.List;
+import fj.function.Try0;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.novarto.lang.testutil.TestUtil.tryTo;
+import static com.novarto.sanedbc.core.ops.Binders.NO_BINDER;
+import static fj.data.List.arrayList;
+import static fj.data.List.nil;
+import static fj.data.List.single;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class QueryCacheTest
+{
+    private static final String SELECT_BY_ID = "SELECT NAME FROM QueryCacheTest_COUNTRIES WHERE ID=?";
+    private static final String SELECT_ALL = "SELECT NAME FROM QueryCacheTest_COUNTRIES ORDER BY ID";
+
+    private static final Try0<Connection, SQLException> DS =
+            () -> DriverManager.getConnection("jdbc:hsqldb:mem:QueryCacheTest", "sa", "");
+
+    private static final SyncDbInterpreter UNCACHED = new SyncDbInterpreter(DS);
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        executor = Executors.newCachedThreadPool();
+        UNCACHED.submit(new EffectOp("CREATE TABLE QueryCacheTest_COUNTRIES (ID INTEGER PRIMARY KEY, NAME VARCHAR(100))"));
+        UNCACHED.submit(new EffectOp("CREATE TABLE QueryCacheTest_OTHER (ID INTEGER PRIMARY KEY IDENTITY, NAME VARCHAR(100))"));
+    }
+
+    @After
+    public void cleanup()
+    {
+        UNCACHED.submit(new EffectOp("DELETE FROM QueryCacheTest_COUNTRIES"));
+    }
+
+    @AfterClass
+    public static void teardownSuite()
+    {
+        ConcurrentUtil.shutdownAndAwaitTermination(executor, 5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void servesRepeatedQueriesFromCache()
+    {
+        insert(1, "Bulgaria");
+        QueryCache cache = new QueryCache(SELECT_BY_ID::equals, 100, 1, TimeUnit.HOURS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(cache.lift(DS));
+
+        assertThat(dbi.submit(selectById(1)), is(single("Bulgaria")));
+
+        //bypass the cache and modify the table; the cached result is still served
+        UNCACHED.submit(new EffectOp("UPDATE QueryCacheTest_COUNTRIES SET NAME='Germany'"));
+        assertThat(dbi.submit(selectById(1)), is(single("Bulgaria")));
+        assertThat(dbi.submit(selectById(1)), is(single("Bulgaria")));
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.hits, is(2L));
+        assertThat(stats.misses, is(1L));
+        assertThat(stats.entries, is(1L));
+
+        cache.invalidateAll();
+        assertThat(dbi.submit(selectById(1)), is(single("Germany")));
+    }
+
+    @Test
+    public void keyIncludesBoundParameters()
+    {
+        insert(1, "Bulgaria");
+        insert(2, "Germany");
+        QueryCache cache = new QueryCache(SELECT_BY_ID::equals, 100, 1, TimeUnit.HOURS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(cache.lift(DS));
+
+        assertThat(dbi.submit(selectById(1)), is(single("Bulgaria")));
+        assertThat(dbi.submit(selectById(2)), is(single("Germany")));
+        assertThat(dbi.submit(selectById(3)), is(nil()));
+        assertThat(dbi.submit(selectById(2)), is(single("Germany")));
+
+        assertThat(cache.stats().misses, is(3L));
+        assertThat(cache.stats().hits, is(1L));
+    }
+
+    @Test
+    public void onlyCachesCacheableQueries()
+    {
+        insert(1, "Bulgaria");
+        QueryCache cache = new QueryCache(SELECT_BY_ID::equals, 100, 1, TimeUnit.HOURS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(cache.lift(DS));
+
+        assertThat(dbi.submit(selectAll()), is(single("Bulgaria")));
+        assertThat(dbi.submit(new AggregateOp("SELECT COUNT(*) FROM QueryCacheTest_COUNTRIES")), is(1L));
+        insert(2, "Germany");
+        assertThat(dbi.submit(selectAll()), is(arrayList("Bulgaria", "Germany")));
+
+        assertThat(cache.stats().entries, is(0L));
+        assertThat(cache.stats().misses, is(0L));
+    }
+
+    @Test
+    public void expiresEntries() throws InterruptedException
+    {
+        insert(1, "Bulgaria");
+        QueryCache cache = new QueryCache(SELECT_BY_ID::equals, 100, 50, TimeUnit.MILLISECONDS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(cache.lift(DS));
+
+        assertThat(dbi.submit(selectById(1)), is(single("Bulgaria")));
+        UNCACHED.submit(new EffectOp("UPDATE QueryCacheTest_COUNTRIES SET NAME='Germany'"));
+
+        Thread.sleep(100);
+
+        assertThat(dbi.submit(selectById(1)), is(single("Germany")));
+        assertThat(cache.stats().expirations, is(1L));
+        assertThat(cache.stats().hits, is(0L));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws InterruptedException
+    {
+        UNCACHED.transact(new BatchUpdateOp<>("INSERT INTO QueryCacheTest_COUNTRIES VALUES (?, ?)", x -> ps -> {
+            ps.setInt(1, x);
+            ps.setString(2, "c" + x);
+        }, asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11)));
+
+        QueryCache cache = new QueryCache(SELECT_BY_ID::equals, 10, 1, TimeUnit.HOURS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(cache.lift(DS));
+
+        for (int i = 1; i <= 10; i++)
+        {
+            dbi.submit(selectById(i));
+            Thread.sleep(1);
+        }
+        //touch the first one, so that it is no longer the least recently used
+        dbi.submit(selectById(1));
+        assertThat(cache.stats().weight, is(10L));
+        assertThat(cache.stats().evictions, is(0L));
+
+        //overflow: evicts down to 90% of capacity
+        dbi.submit(selectById(11));
+        assertThat(cache.stats().evictions, is(2L));
+        assertThat(cache.stats().weight, is(9L));
+
+        long misses = cache.stats().misses;
+        dbi.submit(selectById(1));
+        dbi.submit(selectById(11));
+        assertThat(cache.stats().misses, is(misses));
+
+        dbi.submit(selectById(2));
+        assertThat(cache.stats().misses, is(misses + 1));
+    }
+
+    @Test
+    public void pluggableIntoAsyncInterpreter()
+    {
+        insert(1, "Bulgaria");
+        QueryCache cache = new QueryCache(SELECT_ALL::equals, 100, 1, TimeUnit.HOURS);
+        AsyncDbInterpreter dbi = new AsyncDbInterpreter(cache.lift(DS), executor);
+
+        DB<List<String>> twice = selectAll().bind(xs -> selectAll().map(ys -> xs.append(ys)));
+        assertThat(tryTo(() -> dbi.submit(twice).get()), is(arrayList("Bulgaria", "Bulgaria")));
+        assertThat(tryTo(() -> dbi.transact(selectAll()).get()), is(single("Bulgaria")));
+
+        assertThat(cache.stats().misses, is(1L));
+        assertThat(cache.stats().hits, is(2L));
+    }
+
+    @Test
+    public void writesInvalidateUponCommit()
+    {
+        insert(1, "Bulgaria");
+        QueryCache cache = new QueryCache(SELECT_BY_ID::equals, 100, 1, TimeUnit.HOURS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(cache.lift(DS));
+
+        assertThat(dbi.submit(selectById(1)), is(single("Bulgaria")));
+
+        //auto-commit
+        dbi.submit(rename(1, "Germany"));
+        assertThat(dbi.submit(selectById(1)), is(single("Germany")));
+
+        //transactional
+        dbi.transact(rename(1, "Spain").bind(ignore -> new InsertGenKeysOp.Int(
+                "INSERT INTO QueryCacheTest_OTHER (NAME) VALUES (?)", ps -> ps.setString(1, "x"))));
+        assertThat(dbi.submit(selectById(1)), is(single("Spain")));
+
+        dbi.transact(new BatchUpdateOp<>("UPDATE QueryCacheTest_COUNTRIES SET NAME=? WHERE ID=?", x -> ps -> {
+            ps.setString(1, x);
+            ps.setInt(2, 1);
+        }, single("France")));
+        assertThat(dbi.submit(selectById(1)), is(single("France")));
+
+        dbi.submit(new BatchDeleteOptimized<>("QueryCacheTest_COUNTRIES", singletonList("ID"), single(1), (idx, ps, x) -> {
+            ps.setInt(idx, x);
+            return idx + 1;
+        }, 10));
+        assertThat(dbi.submit(selectById(1)), is(nil()));
+
+        assertThat(cache.stats().invalidations, is(4L));
+    }
+
+    @Test
+    public void unrelatedWritesDoNotInvalidate()
+    {
+        insert(1, "Bulgaria");
+        QueryCache cache = new QueryCache(SELECT_BY_ID::equals, 100, 1, TimeUnit.HOURS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(cache.lift(DS));
+
+        dbi.submit(selectById(1));
+        dbi.submit(new InsertGenKeysOp.Int("INSERT INTO QueryCacheTest_OTHER (NAME) VALUES (?)", ps -> ps.setString(1, "x")));
+        dbi.submit(selectById(1));
+
+        assertThat(cache.stats().hits, is(1L));
+        assertThat(cache.stats().invalidations, is(0L));
+    }
+
+    @Test
+    public void rollbackDoesNotInvalidate()
+    {
+        insert(1, "Bulgaria");
+        QueryCache cache = new QueryCache(SELECT_BY_ID::equals, 100, 1, TimeUnit.HOURS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(cache.lift(DS));
+
+        dbi.submit(selectById(1));
+
+        AtomicReference<List<String>> observed = new AtomicReference<>();
+        DB<Unit> renameThenFail = rename(1, "Germany").bind(ignore -> selectById(1)).bind(xs -> new DB<Unit>()
+        {
+            @Override public Unit run(Connection c) throws SQLException
+            {
+                observed.set(xs);
+                throw new SQLException("failed i have");
+            }
+        });
+
+        try
+        {
+            dbi.transact(renameThenFail);
+            fail("expected failure");
+        }
+        catch (RuntimeException e)
+        {
+            assertThat(e.getCause().getMessage(), is("failed i have"));
+        }
+
+        //the transaction observed its own uncommitted write, bypassing the cache
+        assertThat(observed.get(), is(single("Germany")));
+
+        assertThat(dbi.submit(selectById(1)), is(single("Bulgaria")));
+        assertThat(cache.stats().hits, is(1L));
+        assertThat(cache.stats().invalidations, is(0L));
+    }
+
+    private static void insert(int id, String name)
+    {
+        UNCACHED.submit(new EffectOp("INSERT INTO QueryCacheTest_COUNTRIES VALUES (" + id + ", '" + name + "')"));
+    }
+
+    private static DB<List<String>> selectById(int id)
+    {
+        return new SelectOp.FjList<>(SELECT_BY_ID, ps -> ps.setInt(1, id), rs -> rs.getString(1));
+    }
+
+    private static DB<Integer> rename(int id, String name)
+    {
+        return new UpdateOp("UPDATE QueryCacheTest_COUNTRIES SET NAME=? WHERE ID=?", ps -> {
+            ps.setString(1, name);
+            ps.setInt(2, id);
+        });
+    }
+
+    private static DB<List<String>> selectAll()
+    {
+        return new SelectOp.FjList<>(SELECT_ALL, NO_BINDER, rs -> rs.getString(1));
+    }
+}
@@ -0,0 +1,285 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.interpreter.AsyncDbInterpreter;
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.interpreter.ValidationDbInterpreter;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import fj.control.db.DB;
+import fj.data.Option;
+import fj.data.Validation;
+import fj.function.Try1;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.novarto.lang.testutil.TestUtil.tryTo;
+import static fj.data.List.arrayList;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DbInterceptorTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:DbInterceptorTest";
+
+    private static final AggregateOp COUNT = new AggregateOp("SELECT COUNT(*) FROM DbInterceptorTest_FOO");
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        executor = Executors.newSingleThreadExecutor();
+        new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""))
+                .submit(new EffectOp("CREATE TABLE DbInterceptorTest_FOO (ID INTEGER)"));
+    }
+
+    @AfterClass
+    public static void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void syncInterpreter()
+    {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""), interceptor);
+
+        assertThat(dbi.submit(COUNT), is(0L));
+        assertThat(interceptor.events, is(asList("beforeOp", "connectionAcquired",
+                "statementExecuted SELECT COUNT(*) FROM DbInterceptorTest_FOO", "afterOp")));
+        assertThat(interceptor.ops, is(asList(COUNT, COUNT)));
+    }
+
+    @Test
+    public void transactionsReportTheSubmittedOp()
+    {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""), interceptor);
+
+        UpdateOp insert = new UpdateOp("INSERT INTO DbInterceptorTest_FOO VALUES (1)", ps -> {
+        });
+        DB<Integer> op = insert.bind(x -> new UpdateOp("DELETE FROM DbInterceptorTest_FOO", ps -> {
+        }));
+        assertThat(dbi.transact(op), is(1));
+        assertThat(interceptor.events, is(asList("beforeOp", "connectionAcquired",
+                "statementExecuted INSERT INTO DbInterceptorTest_FOO VALUES (1)",
+                "statementExecuted DELETE FROM DbInterceptorTest_FOO", "afterOp")));
+        assertThat(interceptor.ops.get(0), sameInstance(op));
+    }
+
+    @Test
+    public void plainStatements()
+    {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""), interceptor);
+
+        dbi.submit(DB.db((Try1<Connection, Integer, SQLException>) c -> {
+            try (Statement s = c.createStatement())
+            {
+                assertThat(s.getConnection(), sameInstance(c));
+                return s.executeUpdate("DELETE FROM DbInterceptorTest_FOO WHERE ID = -1");
+            }
+        }));
+        assertThat(interceptor.events.get(2), is("statementExecuted DELETE FROM DbInterceptorTest_FOO WHERE ID = -1"));
+    }
+
+    @Test
+    public void failures()
+    {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        ValidationDbInterpreter dbi = new ValidationDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                interceptor);
+
+        Validation<Exception, Long> result = dbi.submit(new AggregateOp("SELECT COUNT(*) FROM NO_SUCH_TABLE"))._1();
+        assertThat(result.isFail(), is(true));
+        assertThat(interceptor.events, is(asList("beforeOp", "connectionAcquired", "afterOp failed")));
+
+        interceptor = new RecordingInterceptor();
+        dbi = new ValidationDbInterpreter(() -> {
+            throw new SQLException("no connection for you");
+        }, interceptor);
+        assertThat(dbi.submit(COUNT)._1().fail().getMessage(), is("no connection for you"));
+        assertThat(interceptor.events, is(asList("beforeOp", "afterOp failed")));
+    }
+
+    @Test
+    public void closesTheConnectionIfACallbackThrows()
+    {
+        List<Connection> closed = new ArrayList<>();
+        ValidationDbInterpreter dbi = new ValidationDbInterpreter(() -> {
+            Connection c = DriverManager.getConnection(URL, "sa", "");
+            return Proxies.proxy(Connection.class, (proxy, method, args) -> {
+                if (method.getName().equals("close"))
+                {
+                    closed.add(c);
+                }
+                return Proxies.invoke(c, method, args);
+            });
+        }, new DbInterceptor()
+        {
+            @Override public void connectionAcquired(long nanos)
+            {
+                throw new IllegalStateException("failed i have");
+            }
+        });
+
+        assertThat(dbi.submit(COUNT)._1().fail().getMessage(), is("failed i have"));
+        assertThat(closed.size(), is(1));
+    }
+
+    @Test
+    public void asyncInterpreterReportsQueueWait()
+    {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        AsyncDbInterpreter dbi = new AsyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""), executor,
+                interceptor);
+
+        executor.submit(() -> tryTo(() -> {
+            Thread.sleep(50);
+            return null;
+        }));
+
+        assertThat(dbi.transact(COUNT).join(), is(0L));
+        assertThat(interceptor.events, is(asList("beforeOp", "connectionAcquired",
+                "statementExecuted SELECT COUNT(*) FROM DbInterceptorTest_FOO", "afterOp")));
+        assertThat(interceptor.queueNanos >= 40_000_000, is(true));
+    }
+
+    @Test
+    public void chain()
+    {
+        RecordingInterceptor first = new RecordingInterceptor();
+        RecordingInterceptor second = new RecordingInterceptor();
+        assertThat(DbInterceptors.chain(DbInterceptor.NONE, first), sameInstance(first));
+        assertThat(DbInterceptors.chain(), sameInstance(DbInterceptor.NONE));
+
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                DbInterceptors.chain(first, DbInterceptor.NONE, second));
+        dbi.submit(COUNT);
+        assertThat(first.events.size(), is(4));
+        assertThat(second.events, is(first.events));
+    }
+
+    @Test
+    public void preparesAndTransactions()
+    {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""), interceptor);
+
+        dbi.transact(COUNT);
+        assertThat(interceptor.details, is(asList("statementPrepared SELECT COUNT(*) FROM DbInterceptorTest_FOO",
+                "transactionEnded commit")));
+
+        interceptor.details.clear();
+        Validation<Exception, Long> result = new ValidationDbInterpreter(
+                () -> DriverManager.getConnection(URL, "sa", ""), interceptor)
+                .transact(new AggregateOp("SELECT COUNT(*) FROM NO_SUCH_TABLE"))._1();
+        assertThat(result.isFail(), is(true));
+        assertThat(interceptor.details, is(asList("statementPrepared SELECT COUNT(*) FROM NO_SUCH_TABLE failed",
+                "transactionEnded rollback")));
+    }
+
+    @Test
+    public void batches()
+    {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""), interceptor);
+
+        String sql = "INSERT INTO DbInterceptorTest_FOO VALUES (?)";
+        Option<Integer> inserted = dbi.transact(new BatchUpdateOp<>(sql, (Integer x) -> ps -> ps.setInt(1, x),
+                arrayList(-1, -2, -3)).bind(count -> new UpdateOp(
+                "DELETE FROM DbInterceptorTest_FOO WHERE ID < 0", ps -> {
+        }).map(ignore -> count)));
+
+        assertThat(inserted, is(Option.some(3)));
+        assertThat(interceptor.details.contains("batchExecuted " + sql + " 3 Some(3)"), is(true));
+    }
+
+    @Test
+    public void disabledInterceptorsAreSkipped()
+    {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        interceptor.enabled = false;
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                DbInterceptors.chain(interceptor, new RecordingInterceptor()
+                {
+                    @Override public boolean isEnabled()
+                    {
+                        return false;
+                    }
+                }));
+
+        assertThat(dbi.submit(COUNT), is(0L));
+        assertThat(interceptor.events.isEmpty(), is(true));
+    }
+
+    private static class RecordingInterceptor implements DbInterceptor
+    {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final List<String> details = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean enabled = true;
+        final List<DB<?>> ops = Collections.synchronizedList(new ArrayList<>());
+        volatile long queueNanos;
+
+        @Override public boolean isEnabled()
+        {
+            return enabled;
+        }
+
+        @Override public void beforeOp(DB<?> op, long queueNanos)
+        {
+            events.add("beforeOp");
+            ops.add(op);
+            this.queueNanos = queueNanos;
+        }
+
+        @Override public void connectionAcquired(long nanos)
+        {
+            events.add("connectionAcquired");
+        }
+
+        @Override public void statementExecuted(String sql, long nanos, Throwable error)
+        {
+            events.add("statementExecuted " + sql + (error == null ? "" : " failed"));
+        }
+
+        @Override public void statementPrepared(String sql, long nanos, Throwable error)
+        {
+            details.add("statementPrepared " + sql + (error == null ? "" : " failed"));
+        }
+
+        @Override public void batchExecuted(String sql, int batchSize, Option<Integer> updateCount, long nanos,
+                Throwable error)
+        {
+            details.add("batchExecuted " + sql + " " + batchSize + " " + updateCount + (error == null ? "" : " failed"));
+        }
+
+        @Override public void transactionEnded(boolean committed, long nanos, Throwable error)
+        {
+            details.add("transactionEnded " + (committed ? "commit" : "rollback") + (error == null ? "" : " failed"));
+        }
+
+        @Override public void afterOp(DB<?> op, long nanos, Throwable error)
+        {
+            events.add("afterOp" + (error == null ? "" : " failed"));
+            ops.add(op);
+        }
+    }
+}
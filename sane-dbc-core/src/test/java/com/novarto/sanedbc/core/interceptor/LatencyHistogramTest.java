@@ -0,0 +1,72 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void bucketsCoverValues()
+    {
+        for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 123_456_789, (1L << 40) - 1 })
+        {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value + " <= highest of its bucket", value <= LatencyHistogram.highestValue(bucket));
+            assertTrue(value + " > highest of the previous bucket",
+                    bucket == 0 || value > LatencyHistogram.highestValue(bucket - 1));
+        }
+    }
+
+    @Test
+    public void percentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+        {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count(), is(1001L));
+        assertThat(snapshot.max(), is(1_000_000L));
+        assertThat(snapshot.percentile(100), is(1_000_000L));
+        assertThat(snapshot.percentile(0), is(0L));
+        assertWithinPrecision(snapshot.percentile(50), 500_000);
+        assertWithinPrecision(snapshot.percentile(99), 990_000);
+        assertWithinPrecision((long) snapshot.mean(), 500_000);
+    }
+
+    @Test
+    public void since()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        LatencyHistogram.Snapshot earlier = histogram.snapshot();
+        histogram.record(1000);
+        histogram.record(2000);
+
+        LatencyHistogram.Snapshot delta = histogram.snapshot().since(earlier);
+        assertThat(delta.count(), is(2L));
+        assertThat(delta.sum(), is(3000L));
+        assertWithinPrecision(delta.max(), 2000);
+        assertWithinPrecision(delta.percentile(50), 1000);
+    }
+
+    @Test
+    public void empty()
+    {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertThat(snapshot.count(), is(0L));
+        assertThat(snapshot.percentile(99), is(0L));
+        assertThat(snapshot.mean(), is(0.0));
+    }
+
+    private static void assertWithinPrecision(long actual, long expected)
+    {
+        assertTrue(actual + " ~ " + expected, Math.abs(actual - expected) <= expected / 16);
+    }
+}
@@ -0,0 +1,99 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MetricsInterceptorTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:MetricsInterceptorTest";
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""))
+                .submit(new EffectOp("CREATE TABLE MetricsInterceptorTest_FOO (ID INTEGER PRIMARY KEY)"));
+    }
+
+    @Test
+    public void groupsStatementsByFingerprint()
+    {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""), metrics);
+
+        for (int i = 0; i < 10; i++)
+        {
+            dbi.submit(new UpdateOp("INSERT INTO MetricsInterceptorTest_FOO VALUES (" + i + ")", ps -> {
+            }));
+        }
+        dbi.submit(new UpdateOp("DELETE FROM MetricsInterceptorTest_FOO WHERE ID IN (?, ?)", ps -> {
+            ps.setInt(1, 1);
+            ps.setInt(2, 2);
+        }));
+        try
+        {
+            dbi.submit(new UpdateOp("INSERT INTO MetricsInterceptorTest_FOO VALUES (5)", ps -> {
+            }));
+            fail("expected a constraint violation");
+        }
+        catch (RuntimeException expected)
+        {
+        }
+
+        List<StatementStats> statements = metrics.statements();
+        assertThat(statements.size(), is(2));
+
+        StatementStats inserts = find(statements, "INSERT INTO MetricsInterceptorTest_FOO VALUES (?+)");
+        assertThat(inserts.latency.count(), is(11L));
+        assertThat(inserts.errors, is(1L));
+
+        StatementStats deletes = find(statements, "DELETE FROM MetricsInterceptorTest_FOO WHERE ID IN (?+)");
+        assertThat(deletes.latency.count(), is(1L));
+        assertThat(deletes.errors, is(0L));
+
+        assertThat(statements.get(0).latency.sum() >= statements.get(1).latency.sum(), is(true));
+
+        assertThat(metrics.ops().count(), is(12L));
+        assertThat(metrics.opErrors(), is(1L));
+        assertThat(metrics.connectionAcquire().count(), is(12L));
+        assertThat(metrics.queueWait().count(), is(12L));
+    }
+
+    @Test
+    public void boundsTheNumberOfFingerprints()
+    {
+        MetricsInterceptor metrics = new MetricsInterceptor(2);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""), metrics);
+
+        for (String where : new String[] { "ID IS NULL", "ID < -1", "ID < -1 OR ID > 1000", "ID BETWEEN -2 AND -1" })
+        {
+            dbi.submit(new UpdateOp("UPDATE MetricsInterceptorTest_FOO SET ID = ID WHERE " + where, ps -> {
+            }));
+        }
+
+        List<StatementStats> statements = metrics.statements();
+        assertThat(statements.size(), is(3));
+        assertThat(find(statements, MetricsInterceptor.OTHER).latency.count(), is(2L));
+    }
+
+    private static StatementStats find(List<StatementStats> xs, String fingerprint)
+    {
+        for (StatementStats x : xs)
+        {
+            if (x.fingerprint.equals(fingerprint))
+            {
+                return x;
+            }
+        }
+        throw new AssertionError(fingerprint + " not found in " + xs);
+    }
+}
@@ -0,0 +1,94 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.interpreter.ValidationDbInterpreter;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.core.ops.DbOps;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import fj.control.db.DB;
+import fj.data.Option;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static fj.data.List.range;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NPlusOneDetectorTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:NPlusOneDetectorTest";
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""))
+                .submit(new EffectOp("CREATE TABLE NPlusOneDetectorTest_FOO (ID INTEGER, NAME VARCHAR(20))"));
+    }
+
+    private static DB<fj.data.List<Option<String>>> selectEach(int n)
+    {
+        return DbOps.sequence(range(0, n).map(id -> new SelectOp.FjList<>(
+                "SELECT NAME FROM NPlusOneDetectorTest_FOO WHERE ID = ?", ps -> ps.setInt(1, id),
+                rs -> rs.getString(1)).map(fj.data.List::headOption)));
+    }
+
+    @Test
+    public void reportsRepeatedStatements()
+    {
+        List<RepeatedStatement> reported = new ArrayList<>();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                new NPlusOneDetector(3, reported::add));
+
+        dbi.submit(selectEach(3));
+        assertThat(reported.isEmpty(), is(true));
+
+        DB<fj.data.List<Option<String>>> op = selectEach(5);
+        dbi.submit(op);
+        assertThat(reported.size(), is(1));
+        RepeatedStatement statement = reported.get(0);
+        assertThat(statement.op == op, is(true));
+        assertThat(statement.executions, is(5));
+        assertThat(statement.fingerprint, is("SELECT NAME FROM NPlusOneDetectorTest_FOO WHERE ID = ?"));
+        assertThat(statement.toString(), containsString("IN list"));
+    }
+
+    @Test
+    public void groupsByFingerprint()
+    {
+        List<RepeatedStatement> reported = new ArrayList<>();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                new NPlusOneDetector(2, reported::add));
+
+        dbi.submit(DbOps.sequence(range(0, 3).map(
+                id -> new AggregateOp("SELECT COUNT(*) FROM NPlusOneDetectorTest_FOO WHERE ID = " + id))));
+        assertThat(reported.size(), is(1));
+        assertThat(reported.get(0).executions, is(3));
+
+        // counts are per operation
+        reported.clear();
+        for (int i = 0; i < 3; i++)
+        {
+            dbi.submit(selectEach(2));
+        }
+        assertThat(reported.isEmpty(), is(true));
+    }
+
+    @Test
+    public void failingDetectorFailsTheOperation()
+    {
+        ValidationDbInterpreter dbi = new ValidationDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                NPlusOneDetector.failing(3));
+
+        assertThat(dbi.submit(selectEach(3))._1().isSuccess(), is(true));
+
+        Exception e = dbi.transact(selectEach(4))._1().fail();
+        assertThat(e instanceof IllegalStateException, is(true));
+        assertThat(e.getMessage(), containsString("executed 4 times"));
+    }
+}
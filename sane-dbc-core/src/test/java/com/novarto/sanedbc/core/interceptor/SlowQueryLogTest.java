@@ -0,0 +1,94 @@
+package com.novarto.sanedbc.core.interceptor;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import fj.data.Option;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static fj.data.List.arrayList;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SlowQueryLogTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:SlowQueryLogTest";
+
+    private static final SelectOp.List<String> SELECT = new SelectOp.List<>(
+            "SELECT NAME FROM SlowQueryLogTest_FOO WHERE ID > ?", ps -> ps.setInt(1, 1), rs -> rs.getString(1));
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""));
+        dbi.submit(new EffectOp("CREATE TABLE SlowQueryLogTest_FOO (ID INTEGER, NAME VARCHAR(20))"));
+        dbi.submit(new BatchUpdateOp<>("INSERT INTO SlowQueryLogTest_FOO VALUES (?, ?)", (Integer x) -> ps -> {
+            ps.setInt(1, x);
+            ps.setString(2, "n" + x);
+        }, arrayList(1, 2, 3)));
+    }
+
+    @Test
+    public void reportsParametersAndRows()
+    {
+        List<SlowQuery> queries = new ArrayList<>();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                new SlowQueryLog(0, TimeUnit.NANOSECONDS, queries::add));
+
+        dbi.submit(SELECT);
+        dbi.submit(new UpdateOp("UPDATE SlowQueryLogTest_FOO SET NAME = ? WHERE ID = ?", ps -> {
+            ps.setString(1, "x");
+            ps.setInt(2, 3);
+        }));
+
+        assertThat(queries.size(), is(2));
+
+        SlowQuery select = queries.get(0);
+        assertThat(select.sql, is("SELECT NAME FROM SlowQueryLogTest_FOO WHERE ID > ?"));
+        assertThat(select.parameters.toString(), is("[1=1]"));
+        assertThat(select.rows, is(2L));
+        assertThat(select.plan, is(Option.none()));
+
+        SlowQuery update = queries.get(1);
+        assertThat(update.parameters.toString(), is("[1='x', 2=3]"));
+        assertThat(update.rows, is(1L));
+        assertThat(update.toString(), containsString("1 rows): UPDATE SlowQueryLogTest_FOO"));
+    }
+
+    @Test
+    public void ignoresFastStatements()
+    {
+        List<SlowQuery> queries = new ArrayList<>();
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                new SlowQueryLog(1, TimeUnit.HOURS, queries::add));
+
+        dbi.submit(SELECT);
+        assertThat(queries.isEmpty(), is(true));
+    }
+
+    @Test
+    public void explainsWithRateLimiting()
+    {
+        List<SlowQuery> queries = new ArrayList<>();
+        Explainer explainer = new Explainer(() -> DriverManager.getConnection(URL, "sa", ""),
+                Explainer.EXPLAIN_PLAN_FOR, Runnable::run, 1, TimeUnit.HOURS);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""),
+                new SlowQueryLog(0, TimeUnit.NANOSECONDS, queries::add, Option.some(explainer)));
+
+        dbi.submit(SELECT);
+        dbi.submit(SELECT);
+
+        assertThat(queries.size(), is(2));
+        assertThat(queries.get(0).plan.some(), containsString("SLOWQUERYLOGTEST_FOO"));
+        assertThat(queries.get(1).plan, is(Option.none()));
+    }
+}
@@ -1,12 +1,15 @@
 package com.novarto.sanedbc.core.interpreter;
 
 import com.novarto.lang.ConcurrentUtil;
+import com.novarto.sanedbc.core.jdbc.Proxies;
 import com.novarto.sanedbc.core.ops.EffectOp;
 import com.novarto.sanedbc.core.ops.SelectOp;
 import com.novarto.sanedbc.core.ops.UpdateOp;
+import fj.F;
 import fj.Unit;
 import fj.control.db.DB;
 import fj.data.List;
+import fj.function.Try1;
 import junit.framework.AssertionFailedError;
 import org.hsqldb.jdbc.JDBCPool;
 import org.junit.AfterClass;
@@ -15,6 +18,8 @@ import org.junit.Test;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.*;
 
 import static com.novarto.lang.testutil.TestUtil.tryTo;
@@ -89,6 +94,60 @@ public class AsyncDbInterpreterTest
 
     }
 
+    @Test public void submitAll()
+    {
+        SQLException ex = new SQLException("failed i have");
+        DB<Object> sameConnection = DB.db((F<Connection, Object>) c -> c);
+        java.util.List<CompletableFuture<Object>> results = dbi.submitAll(Arrays.asList(sameConnection,
+                DB.db((Try1<Connection, Object, SQLException>) c -> {
+                    throw ex;
+                }), sameConnection));
+
+        assertThat(results.size(), is(3));
+        assertThat(awaitFailure(results.get(1)), is(ex));
+        assertThat(awaitSuccess(results.get(0)) == awaitSuccess(results.get(2)), is(true));
+
+        SQLException noConn = new SQLException("no connection");
+        AsyncDbInterpreter noConnection = new AsyncDbInterpreter(() -> {
+            throw noConn;
+        }, executor);
+        for (CompletableFuture<Integer> x : noConnection.submitAll(Arrays.asList(DB.unit(1), DB.unit(2))))
+        {
+            assertThat(awaitFailure(x), is(noConn));
+        }
+
+        assertThat(dbi.submitAll(Collections.emptyList()).isEmpty(), is(true));
+    }
+
+    @Test public void submitAllClosesTheConnectionIfItCannotBeSetUp() throws InterruptedException
+    {
+        SQLException ex = new SQLException("failed i have");
+        CountDownLatch closed = new CountDownLatch(1);
+        AsyncDbInterpreter failingSetup = new AsyncDbInterpreter(() -> {
+            Connection c = ds.getConnection();
+            return Proxies.proxy(Connection.class, (proxy, method, args) -> {
+                switch (method.getName())
+                {
+                    case "setAutoCommit":
+                        throw ex;
+                    case "close":
+                        closed.countDown();
+                        break;
+                    default:
+                        break;
+                }
+                return Proxies.invoke(c, method, args);
+            });
+        }, executor);
+
+        for (CompletableFuture<Integer> x : failingSetup.submitAll(Arrays.asList(DB.unit(1), DB.unit(2))))
+        {
+            assertThat(awaitFailure(x), is(ex));
+        }
+        // the connection is closed after the completions run
+        assertThat(closed.await(5, TimeUnit.SECONDS), is(true));
+    }
+
     private DB<Integer> insert(String x)
     {
         return new UpdateOp("INSERT INTO BAR VALUES(?)", ps -> ps.setString(1, x));
@@ -0,0 +1,100 @@
+package com.novarto.sanedbc.core.ops;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static fj.data.Option.some;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BindersTest
+{
+    private static final SyncDbInterpreter DB = new SyncDbInterpreter(
+            () -> DriverManager.getConnection("jdbc:hsqldb:mem:BindersTest", "sa", ""));
+
+    private static final Binders.Shape<Item> ITEM = Binders.<Item>shape()
+            .withLong(x -> x.id)
+            .withInt(x -> x.qty)
+            .withDouble(x -> x.price)
+            .withBoolean(x -> x.active)
+            .withNullableLong(x -> x.parent)
+            .withString(x -> x.name)
+            .withBigDecimal(x -> x.amount);
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        DB.submit(new EffectOp("CREATE TABLE BindersTest_ITEMS (ID BIGINT, QTY INTEGER, PRICE DOUBLE, " +
+                "ACTIVE BOOLEAN, PARENT BIGINT, NAME VARCHAR(20), AMOUNT DECIMAL(10, 2))"));
+    }
+
+    @Test
+    public void shape()
+    {
+        List<Item> items = asList(new Item(1, 2, 3.5, true, 7L, "a", new BigDecimal("1.25")),
+                new Item(2, 0, 0, false, null, null, null));
+
+        assertThat(ITEM.parameterCount(), is(7));
+        assertThat(DB.transact(new BatchUpdateOp<>("INSERT INTO BindersTest_ITEMS VALUES (?, ?, ?, ?, ?, ?, ?)", ITEM,
+                items)), is(some(2)));
+
+        List<String> rows = DB.submit(new SelectOp.List<>("SELECT * FROM BindersTest_ITEMS ORDER BY ID",
+                Binders.NO_BINDER, rs -> rs.getLong(1) + "," + rs.getInt(2) + "," + rs.getDouble(3) + "," +
+                rs.getBoolean(4) + "," + rs.getObject(5) + "," + rs.getString(6) + "," + rs.getBigDecimal(7)));
+        assertThat(rows, is(asList("1,2,3.5,true,7,a,1.25", "2,0,0.0,false,null,null,null")));
+
+        assertThat(DB.submit(new SelectOp.List<>("SELECT ID FROM BindersTest_ITEMS WHERE NAME = ?",
+                Binders.<String>shape().withString(x -> x).binder("a"), rs -> rs.getLong(1))), is(asList(1L)));
+    }
+
+    @Test
+    public void typedSetters() throws Exception
+    {
+        List<String> calls = new ArrayList<>();
+        PreparedStatement ps = Proxies.proxy(PreparedStatement.class, (proxy, method, args) -> {
+            calls.add(method.getName() + args[0]);
+            return null;
+        });
+
+        Binders.Shape<Item> shape = Binders.<Item>shape().withLong(x -> x.id).withNullableLong(x -> x.parent)
+                .withString(x -> x.name);
+        assertThat(shape.bind(ps, 3, new Item(1, 0, 0, false, null, "x", null)), is(6));
+        assertThat(calls, is(asList("setLong3", "setNull4", "setString5")));
+
+        calls.clear();
+        Binders.iterableBinder((i, s, x) -> shape.bind(s, i, x), asList(new Item(1, 0, 0, false, 2L, null, null),
+                new Item(3, 0, 0, false, null, "y", null))).f(ps);
+        assertThat(calls, is(asList("setLong1", "setLong2", "setNull3", "setLong4", "setNull5", "setString6")));
+    }
+
+    private static final class Item
+    {
+        final long id;
+        final int qty;
+        final double price;
+        final boolean active;
+        final Long parent;
+        final String name;
+        final BigDecimal amount;
+
+        Item(long id, int qty, double price, boolean active, Long parent, String name, BigDecimal amount)
+        {
+            this.id = id;
+            this.qty = qty;
+            this.price = price;
+            this.active = active;
+            this.parent = parent;
+            this.name = name;
+            this.amount = amount;
+        }
+    }
+}
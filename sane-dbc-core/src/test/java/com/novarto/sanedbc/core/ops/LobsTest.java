@@ -0,0 +1,143 @@
+package com.novarto.sanedbc.core.ops;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import fj.data.Option;
+import fj.function.Try1;
+import fj.function.TryEffect1;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Random;
+
+import static fj.data.Option.none;
+import static fj.data.Option.some;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LobsTest
+{
+    private static final SyncDbInterpreter DB = new SyncDbInterpreter(
+            () -> DriverManager.getConnection("jdbc:hsqldb:mem:LobsTest", "sa", ""));
+
+    private static final byte[] CONTENT = new byte[300 * 1024];
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        new Random(42).nextBytes(CONTENT);
+        DB.submit(new EffectOp("CREATE TABLE LobsTest_DOCS (ID INTEGER, BODY BLOB, TEXT CLOB)"));
+    }
+
+    @After
+    public void cleanup()
+    {
+        DB.submit(new EffectOp("DELETE FROM LobsTest_DOCS"));
+    }
+
+    @Test
+    public void binary() throws IOException
+    {
+        Path file = Files.createTempFile("LobsTest", ".bin");
+        try
+        {
+            Files.write(file, CONTENT);
+            ByteBuffer direct = ByteBuffer.allocateDirect(CONTENT.length);
+            direct.put(CONTENT).flip();
+
+            insert(1, ps -> Lobs.setBinary(ps, 2, Channels.newChannel(new ByteArrayInputStream(CONTENT)),
+                    CONTENT.length));
+            insert(2, ps -> Lobs.setBinary(ps, 2, Channels.newChannel(new ByteArrayInputStream(CONTENT))));
+            insert(3, ps -> Lobs.setBinary(ps, 2, direct));
+            insert(4, ps -> Lobs.setBinary(ps, 2, file));
+            insert(5, ps -> ps.setNull(2, Types.BLOB));
+
+            assertThat(direct.remaining(), is(CONTENT.length));
+
+            for (int id = 1; id <= 4; id++)
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                assertThat(selectBody(id, Lobs.copyBinary(1, Channels.newChannel(out))),
+                        is(some((long) CONTENT.length)));
+                assertThat(out.toByteArray(), is(CONTENT));
+            }
+            assertThat(selectBody(5, Lobs.copyBinary(1, Channels.newChannel(new ByteArrayOutputStream()))),
+                    is(none()));
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void binaryToFiles() throws IOException
+    {
+        insert(1, ps -> Lobs.setBinary(ps, 2, ByteBuffer.wrap(CONTENT)));
+        insert(2, ps -> ps.setNull(2, Types.BLOB));
+
+        Path dir = Files.createTempDirectory("LobsTest");
+        List<Option<Path>> written = DB.submit(new SelectOp.List<>("SELECT ID, BODY FROM LobsTest_DOCS ORDER BY ID",
+                Binders.NO_BINDER, Lobs.copyBinaryToFile(2, rs -> dir.resolve(rs.getInt(1) + ".bin"))));
+
+        Path first = dir.resolve("1.bin");
+        assertThat(written, is(asList(some(first), none())));
+        assertThat(Files.readAllBytes(first), is(CONTENT));
+
+        Files.delete(first);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void characters()
+    {
+        String text = "caf\u00e9 \u0436\u0443\u0440\u043d\u0430\u043b ";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++)
+        {
+            sb.append(text);
+        }
+        byte[] utf8 = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        insert(1, ps -> Lobs.setCharacters(ps, 3, Channels.newChannel(new ByteArrayInputStream(utf8)),
+                StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Option<Long> chars = DB.submit(new SelectOp.List<>("SELECT TEXT FROM LobsTest_DOCS WHERE ID = 1",
+                Binders.NO_BINDER, Lobs.copyCharacters(1, Channels.newChannel(out), StandardCharsets.UTF_8))).get(0);
+
+        assertThat(chars, is(some((long) sb.length())));
+        assertThat(out.toByteArray(), is(utf8));
+    }
+
+    private static void insert(int id, TryEffect1<PreparedStatement, SQLException> lob)
+    {
+        DB.submit(new UpdateOp("INSERT INTO LobsTest_DOCS (ID, BODY, TEXT) VALUES (?, ?, ?)", ps -> {
+            ps.setInt(1, id);
+            ps.setNull(2, Types.BLOB);
+            ps.setNull(3, Types.CLOB);
+            lob.f(ps);
+        }));
+    }
+
+    private static <A> A selectBody(int id, Try1<ResultSet, A, SQLException> mapper)
+    {
+        return DB.submit(new SelectOp.List<>("SELECT BODY FROM LobsTest_DOCS WHERE ID = ?", ps -> ps.setInt(1, id),
+                mapper)).get(0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.novarto.sanedbc.core.ops.columnar;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.Binders;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ColumnarSelectOpTest
+{
+    private static final SyncDbInterpreter DB = new SyncDbInterpreter(
+            () -> DriverManager.getConnection("jdbc:hsqldb:mem:ColumnarSelectOpTest", "sa", ""));
+
+    private static final int ROWS = 1000;
+
+    private static final String SELECT =
+            "SELECT ID, AMOUNT, PRICE, REGION, ACTIVE, CREATED FROM ColumnarSelectOpTest_SALES ORDER BY ID";
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        DB.submit(new EffectOp("CREATE TABLE ColumnarSelectOpTest_SALES (ID INTEGER, AMOUNT BIGINT, " +
+                "PRICE DECIMAL(10, 2), REGION VARCHAR(10), ACTIVE BOOLEAN, CREATED TIMESTAMP)"));
+
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++)
+        {
+            ids.add(i);
+        }
+        DB.transact(new BatchUpdateOp<>("INSERT INTO ColumnarSelectOpTest_SALES VALUES (?, ?, ?, ?, ?, ?)",
+                Binders.<Integer>shape()
+                        .withInt(x -> x)
+                        .withNullableLong(x -> x % 10 == 0 ? null : (long) x * 2)
+                        .withDouble(x -> x / 4.0)
+                        .withString(x -> x % 7 == 0 ? null : "r" + x % 3)
+                        .withBoolean(x -> x % 2 == 0)
+                        .withTimestamp(x -> new Timestamp(1_000_000L * x)),
+                ids));
+    }
+
+    @Test
+    public void batches()
+    {
+        List<ColumnBatch> batches = DB.submit(ColumnarSelectOp.all(SELECT, Binders.NO_BINDER, 300));
+
+        assertThat(batches.size(), is(4));
+        assertThat(batches.get(0).size(), is(300));
+        assertThat(batches.get(3).size(), is(100));
+
+        ColumnBatch last = batches.get(3);
+        assertThat(last.columnCount(), is(6));
+        assertThat(last.column(0).type(), is(Column.Type.LONG));
+        assertThat(last.column("PRICE").type(), is(Column.Type.DOUBLE));
+        assertThat(last.column("REGION").type(), is(Column.Type.STRING));
+        assertThat(last.column("ACTIVE").type(), is(Column.Type.LONG));
+        assertThat(last.column("CREATED").type(), is(Column.Type.TIMESTAMP));
+
+        Column.LongColumn ids = (Column.LongColumn) last.column("ID");
+        assertThat(ids.values().length, is(100));
+        assertThat(ids.get(0), is(900L));
+
+        // row 0 of the last batch is ID 900, row 1 is 901
+        Column.LongColumn amounts = (Column.LongColumn) last.column("AMOUNT");
+        assertThat(amounts.isNull(0), is(true));
+        assertThat(amounts.get(0), is(0L));
+        assertThat(amounts.get(1), is(1802L));
+        assertThat(amounts.nullCount(), is(10));
+        assertThat(amounts.nulls().length, is(2));
+
+        assertThat(((Column.DoubleColumn) last.column("PRICE")).get(1), is(225.25));
+        assertThat(((Column.LongColumn) last.column("ACTIVE")).values()[0], is(1L));
+        assertThat(((Column.LongColumn) last.column("CREATED")).get(1), is(901_000_000L));
+
+        Column.StringColumn regions = (Column.StringColumn) last.column("REGION");
+        assertThat(regions.dictionary().length, is(3));
+        assertThat(regions.get(0), is("r0"));
+        assertThat(regions.code(1), is(1));
+        assertThat(regions.get(2), is("r2"));
+        // 903 is a multiple of 7
+        assertThat(regions.isNull(3), is(true));
+        assertThat(regions.code(3), is(-1));
+        assertThat(regions.get(3), is((String) null));
+    }
+
+    @Test
+    public void streams()
+    {
+        List<Integer> sizes = new ArrayList<>();
+        long[] sum = new long[1];
+        long rows = DB.submit(new ColumnarSelectOp(SELECT, Binders.NO_BINDER, 400, batch -> {
+            sizes.add(batch.size());
+            for (long x : ((Column.LongColumn) batch.column(1)).values())
+            {
+                sum[0] += x;
+            }
+        }));
+
+        long expected = 0;
+        for (int i = 0; i < ROWS; i++)
+        {
+            expected += i % 10 == 0 ? 0 : i * 2;
+        }
+        assertThat(rows, is((long) ROWS));
+        assertThat(sizes, is(asList(400, 400, 200)));
+        assertThat(sum[0], is(expected));
+
+        assertThat(DB.submit(new ColumnarSelectOp(SELECT.replace("ORDER BY", "WHERE ID < 0 ORDER BY"),
+                Binders.NO_BINDER, batch -> sizes.add(-1))), is(0L));
+        assertThat(sizes.size(), is(3));
+    }
+}
@@ -0,0 +1,175 @@
+package com.novarto.sanedbc.core.ops.optimized;
+
+import com.novarto.sanedbc.core.Dialect;
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.Binders;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class InListSelectOpTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:InListSelectOpTest";
+
+    private static final String SQL = "SELECT ID FROM InListSelectOpTest_FOO WHERE {0}";
+
+    private static final Binders.Shape<Integer> KEY = Binders.<Integer>shape().withInt(x -> x);
+
+    private static final SyncDbInterpreter DB = new SyncDbInterpreter(() -> DriverManager.getConnection(URL, "sa", ""));
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        DB.submit(new EffectOp("CREATE TABLE InListSelectOpTest_FOO (ID INTEGER PRIMARY KEY)"));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++)
+        {
+            ids.add(i);
+        }
+        DB.transact(new BatchUpdateOp<>("INSERT INTO InListSelectOpTest_FOO VALUES (?)", KEY, ids));
+    }
+
+    @Test
+    public void buckets()
+    {
+        assertThat(InListSelectOp.bucket(1, 1000), is(1));
+        assertThat(InListSelectOp.bucket(3, 1000), is(4));
+        assertThat(InListSelectOp.bucket(64, 1000), is(64));
+        assertThat(InListSelectOp.bucket(513, 1000), is(1000));
+    }
+
+    @Test
+    public void arrayParameter() throws Exception
+    {
+        Set<String> statements = new LinkedHashSet<>();
+        for (List<Integer> keys : asList(asList(5), asList(1, 2, 3), asList(7, 4000, 9, 11, 13)))
+        {
+            assertThat(sorted(run(Dialect.HSQLDB, keys, statements, false)), is(sorted(existing(keys))));
+        }
+        assertThat(statements, is(Collections.singleton("SELECT ID FROM InListSelectOpTest_FOO WHERE ID IN (UNNEST(?))")));
+    }
+
+    @Test
+    public void withArrayFreesTheArray() throws Exception
+    {
+        List<Array> arrays = new ArrayList<>();
+        try (Connection c = DriverManager.getConnection(URL, "sa", ""))
+        {
+            List<Integer> result = Binders.withArray(1, "INTEGER", asList(3, 1), binder -> new SelectOp.List<>(
+                    "SELECT ID FROM InListSelectOpTest_FOO WHERE ID IN (UNNEST(?))", binder, rs -> rs.getInt(1)))
+                    .run(Proxies.proxy(Connection.class, (proxy, method, args) -> {
+                        Object array = Proxies.invoke(c, method, args);
+                        if (method.getName().equals("createArrayOf"))
+                        {
+                            arrays.add((Array) array);
+                        }
+                        return array;
+                    }));
+            assertThat(sorted(result), is(asList(1, 3)));
+        }
+        assertThat(arrays.size(), is(1));
+        try
+        {
+            arrays.get(0).getArray();
+            fail("expected the array to be freed");
+        }
+        catch (SQLException expected)
+        {
+        }
+    }
+
+    @Test
+    public void paddedPlaceholders() throws Exception
+    {
+        Set<String> statements = new LinkedHashSet<>();
+        assertThat(sorted(run(Dialect.GENERIC, asList(1, 2, 3), statements, false)), is(asList(1, 2, 3)));
+        assertThat(run(Dialect.GENERIC, asList(4, 5, 6, 7), statements, false).size(), is(4));
+        assertThat(statements, is(Collections.singleton("SELECT ID FROM InListSelectOpTest_FOO WHERE ID IN (?, ?, ?, ?)")));
+
+        List<Integer> many = new ArrayList<>();
+        for (int i = 0; i < 2500; i++)
+        {
+            many.add(i);
+        }
+        statements.clear();
+        assertThat(sorted(run(Dialect.GENERIC, many, statements, false)), is(many));
+        // two chunks of 1000 and one of 500, padded to 512
+        assertThat(statements.size(), is(2));
+
+        assertThat(run(Dialect.GENERIC, Collections.emptyList(), statements, false).isEmpty(), is(true));
+    }
+
+    @Test
+    public void fallsBackWithoutDriverSupport() throws Exception
+    {
+        Set<String> statements = new LinkedHashSet<>();
+        assertThat(sorted(run(Dialect.HSQLDB, asList(3, 2), statements, true)), is(asList(2, 3)));
+        assertThat(statements, is(Collections.singleton("SELECT ID FROM InListSelectOpTest_FOO WHERE ID IN (?, ?)")));
+    }
+
+    private static List<Integer> run(Dialect dialect, List<Integer> keys, Set<String> statements,
+            boolean noArrays) throws Exception
+    {
+        InListSelectOp<Integer, Integer> op = new InListSelectOp<>(dialect, SQL, "ID", "INTEGER", KEY, keys,
+                rs -> rs.getInt(1));
+        try (Connection c = DriverManager.getConnection(URL, "sa", ""))
+        {
+            return op.run(Proxies.proxy(Connection.class, (proxy, method, args) -> {
+                switch (method.getName())
+                {
+                    case "prepareStatement":
+                        statements.add((String) args[0]);
+                        break;
+                    case "createArrayOf":
+                        if (noArrays)
+                        {
+                            throw new SQLFeatureNotSupportedException();
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                return Proxies.invoke(c, method, args);
+            }));
+        }
+    }
+
+    private static List<Integer> existing(List<Integer> keys)
+    {
+        List<Integer> result = new ArrayList<>();
+        for (Integer x : keys)
+        {
+            if (x < 3000)
+            {
+                result.add(x);
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> sorted(List<Integer> xs)
+    {
+        List<Integer> result = new ArrayList<>(xs);
+        Collections.sort(result);
+        return result;
+    }
+}
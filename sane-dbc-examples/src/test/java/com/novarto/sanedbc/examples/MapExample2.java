@@ -1,6 +1,6 @@
 package com.novarto.sanedbc.examples;
 
-import com.novarto.sanedbc.core.SqlStringUtils;
+import com.novarto.sanedbc.core.SqlTemplate;
 import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
 import com.novarto.sanedbc.core.ops.BatchUpdateOp;
 import com.novarto.sanedbc.core.ops.EffectOp;
@@ -18,7 +18,6 @@ import java.util.stream.Collectors;
 
 import static com.novarto.lang.Collections.size;
 import static com.novarto.sanedbc.core.ops.Binders.iterableBinder;
-import static java.text.MessageFormat.format;
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -132,12 +131,13 @@ public class MapExample2
                     .map(ignore -> Unit.unit());
         }
 
+        private static final SqlTemplate SELECT_BY_IDS =
+                SqlTemplate.compile("SELECT ID, NAME, DEPARTMENT_ID FROM EMPLOYEES WHERE ID IN ({0}) ORDER BY ID");
+
         public static DB<List<Employee>> selectByIds(Iterable<Integer> ids)
         {
             return new SelectOp.List<>(
-                    format("SELECT ID, NAME, DEPARTMENT_ID FROM EMPLOYEES WHERE ID IN ({0}) ORDER BY ID",
-                            SqlStringUtils.placeholders(size(ids))
-                    ),
+                    SELECT_BY_IDS.render(size(ids)),
                     iterableBinder((idx, ps, id) -> {
                         ps.setInt(idx++, id);
                         return idx;
@@ -3,6 +3,8 @@ package com.novarto.sanedbc.guava;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.novarto.sanedbc.core.interceptor.MetricsInterceptor;
+import com.novarto.sanedbc.core.ops.AggregateOp;
 import com.novarto.sanedbc.hikari.Hikari;
 import com.zaxxer.hikari.HikariDataSource;
 import fj.control.db.DB;
@@ -13,6 +15,8 @@ import org.junit.Test;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 import static com.novarto.lang.guava.testutil.FuturesTestUtil.awaitAndGet;
@@ -53,6 +57,40 @@ public class SanityTest
 
     }
 
+    @Test public void interceptor()
+    {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+        GuavaDbInterpreter dbi = new GuavaDbInterpreter(ds, ex, metrics);
+
+        assertThat(awaitAndGet(dbi.transact(new AggregateOp("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS"))) > 0,
+                is(true));
+        awaitAndGetFailure(dbi.submit(new AggregateOp("SELECT COUNT(*) FROM NO_SUCH_TABLE")));
+
+        assertThat(metrics.ops().count(), is(2L));
+        assertThat(metrics.opErrors(), is(1L));
+        assertThat(metrics.statements().get(0).fingerprint,
+                is("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS"));
+    }
+
+    @Test public void submitAll()
+    {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+        GuavaDbInterpreter dbi = new GuavaDbInterpreter(ds, ex, metrics);
+
+        List<ListenableFuture<Long>> results = dbi.submitAll(Arrays.asList(
+                new AggregateOp("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS"),
+                new AggregateOp("SELECT COUNT(*) FROM NO_SUCH_TABLE"),
+                new AggregateOp("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS WHERE 1 = 0")));
+
+        assertThat(awaitAndGet(results.get(0)) > 0, is(true));
+        assertThat(awaitAndGetFailure(results.get(1)) instanceof SQLException, is(true));
+        assertThat(awaitAndGet(results.get(2)), is(0L));
+
+        assertThat(metrics.ops().count(), is(3L));
+        assertThat(metrics.opErrors(), is(1L));
+        assertThat(metrics.connectionAcquire().count(), is(1L));
+    }
+
     @AfterClass public static void shutdownHikari()
     {
         gracefulShutdown(ex, ds);
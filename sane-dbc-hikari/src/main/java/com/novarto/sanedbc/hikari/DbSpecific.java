@@ -1,16 +1,14 @@
 package com.novarto.sanedbc.hikari;
 
+import com.novarto.sanedbc.core.Dialect;
+
 import java.util.Properties;
 
 public class DbSpecific
 {
     public static Properties defaultMysqlConnectionProps(boolean profile)
     {
-        Properties config = new Properties();
-        config.setProperty("cachePrepStmts", "true");
-        config.setProperty("prepStmtCacheSize", "250");
-        config.setProperty("prepStmtCacheSqlLimit", "2048");
-        config.setProperty("rewriteBatchedStatements", "true");
+        Properties config = Dialect.MYSQL.connectionProperties();
         config.setProperty("allowMultiQueries", "true");
         config.setProperty("characterEncoding", "utf-8");
         config.setProperty("connectionCollation", "utf8_unicode_ci");
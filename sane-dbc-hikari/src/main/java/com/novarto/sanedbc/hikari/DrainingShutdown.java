@@ -0,0 +1,280 @@
+package com.novarto.sanedbc.hikari;
+
+import com.novarto.sanedbc.core.interceptor.DbInterceptor;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import com.zaxxer.hikari.HikariDataSource;
+import fj.control.db.DB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shuts a pool and its executor down without failing operations which are already running or queued, e.g. during a
+ * rolling deploy. {@link #shutdown(long, long, TimeUnit)}:
+ * <ol>
+ *     <li>shuts the executor down, so that new submit / transact calls are rejected with a
+ *     {@link java.util.concurrent.RejectedExecutionException}, while queued operations still run</li>
+ *     <li>waits for running and queued operations to complete, up to a drain timeout</li>
+ *     <li>cancels the stragglers: their statements are cancelled via {@link Statement#cancel()}, and operations which
+ *     have not acquired a connection yet fail to. Operations of a submitAll batch which start later fail to create
+ *     statements</li>
+ *     <li>waits up to a grace timeout for them to complete, then interrupts the executor threads, and waits up to the
+ *     grace timeout again</li>
+ *     <li>closes the pool</li>
+ * </ol>
+ *
+ * In order to track operations and their statements, interpreters need to use both the data source and the
+ * interceptor of this class:
+ * <pre>
+ * DrainingShutdown drain = new DrainingShutdown(ds, executor);
+ * AsyncDbInterpreter dbi = new AsyncDbInterpreter(drain.dataSource(), executor, drain);
+ * </pre>
+ */
+public final class DrainingShutdown implements DbInterceptor
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(DrainingShutdown.class);
+
+    private static final int RUNNING = 0;
+    private static final int DRAINING = 1;
+    private static final int CANCELLING = 2;
+
+    private final HikariDataSource ds;
+    private final ExecutorService executor;
+    private final DataSource dataSource;
+
+    private final Set<InFlight> inFlight = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<InFlight> current = new ThreadLocal<>();
+    private volatile int phase = RUNNING;
+
+    private final AtomicInteger drained = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public DrainingShutdown(HikariDataSource ds, ExecutorService executor)
+    {
+        this.ds = ds;
+        this.executor = executor;
+        this.dataSource = Proxies.proxy(DataSource.class, (proxy, method, args) -> {
+            if (!method.getName().equals("getConnection"))
+            {
+                return Proxies.invoke(ds, method, args);
+            }
+            if (phase == CANCELLING)
+            {
+                throw new SQLException("pool " + ds.getPoolName() + " is shutting down");
+            }
+            Connection result = (Connection) Proxies.invoke(ds, method, args);
+            return current.get() == null ? result : track(result);
+        });
+    }
+
+    /**
+     * @return the data source to pass to interpreters, which tracks the statements of running operations
+     */
+    public DataSource dataSource()
+    {
+        return dataSource;
+    }
+
+    @Override public void beforeOp(DB<?> op, long queueNanos)
+    {
+        InFlight x = new InFlight();
+        // e.g. a later operation of a submitAll batch, which reuses a connection acquired before the cancellation
+        x.cancelled = phase == CANCELLING;
+        current.set(x);
+        inFlight.add(x);
+    }
+
+    @Override public void afterOp(DB<?> op, long nanos, Throwable error)
+    {
+        InFlight x = current.get();
+        if (x == null)
+        {
+            return;
+        }
+        current.remove();
+        inFlight.remove(x);
+
+        if (phase != RUNNING)
+        {
+            (x.cancelled ? cancelled : error == null ? drained : failed).incrementAndGet();
+        }
+    }
+
+    /**
+     * Shuts down with a grace timeout of 5 seconds
+     */
+    public Report shutdown(long drainTimeout, TimeUnit unit)
+    {
+        return shutdown(unit.toNanos(drainTimeout), TimeUnit.SECONDS.toNanos(5), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Drains, cancels and closes as per the class description. Waits up to drainTimeout + 2 * graceTimeout.
+     */
+    public Report shutdown(long drainTimeout, long graceTimeout, TimeUnit unit)
+    {
+        long start = System.nanoTime();
+        phase = DRAINING;
+        executor.shutdown();
+        LOGGER.info("draining pool {}: {} operations in flight", ds.getPoolName(), inFlight.size());
+
+        int abandoned = 0;
+        try
+        {
+            if (!executor.awaitTermination(drainTimeout, unit))
+            {
+                phase = CANCELLING;
+                LOGGER.warn("cancelling {} operations still in flight on pool {}", inFlight.size(), ds.getPoolName());
+                for (InFlight x : inFlight)
+                {
+                    x.cancel();
+                }
+
+                if (!executor.awaitTermination(graceTimeout, unit))
+                {
+                    executor.shutdownNow();
+                    if (!executor.awaitTermination(graceTimeout, unit))
+                    {
+                        abandoned = inFlight.size();
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            executor.shutdownNow();
+            abandoned = inFlight.size();
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            ds.close();
+        }
+
+        Report result = new Report(drained.get(), cancelled.get(), failed.get(), abandoned,
+                System.nanoTime() - start);
+        LOGGER.info("shut down pool {}: {}", ds.getPoolName(), result);
+        return result;
+    }
+
+    /**
+     * Statements are attributed to the operation running when they are created, rather than to the one which acquired
+     * the connection, as submitAll runs a list of operations on a single connection
+     */
+    private Connection track(Connection delegate)
+    {
+        return Proxies.proxy(Connection.class, (proxy, method, args) -> {
+            String name = method.getName();
+            InFlight op = name.equals("createStatement") || name.equals("prepareStatement") ||
+                    name.equals("prepareCall") ? current.get() : null;
+            if (op != null && op.cancelled)
+            {
+                throw new SQLException("operation cancelled by shutdown");
+            }
+            Object result = Proxies.invoke(delegate, method, args);
+            if (op != null)
+            {
+                op.add((Statement) result);
+            }
+            return result;
+        });
+    }
+
+    private static final class InFlight
+    {
+        private final List<Statement> statements = new ArrayList<>();
+        private volatile boolean cancelled;
+
+        synchronized void add(Statement statement) throws SQLException
+        {
+            if (cancelled)
+            {
+                statement.cancel();
+            }
+            // only open statements need cancelling, so an operation running many statements does not retain them all
+            for (Iterator<Statement> it = statements.iterator(); it.hasNext(); )
+            {
+                if (it.next().isClosed())
+                {
+                    it.remove();
+                }
+            }
+            statements.add(statement);
+        }
+
+        synchronized void cancel()
+        {
+            cancelled = true;
+            for (Statement statement : statements)
+            {
+                try
+                {
+                    if (!statement.isClosed())
+                    {
+                        statement.cancel();
+                    }
+                }
+                catch (SQLException e)
+                {
+                    LOGGER.warn("failed to cancel statement", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The outcome of a shutdown. Operations are counted from the start of the shutdown.
+     */
+    public static final class Report
+    {
+        /**
+         * Operations which completed successfully
+         */
+        public final int drained;
+
+        /**
+         * Operations which were cancelled, as they did not complete within the drain timeout
+         */
+        public final int cancelled;
+
+        /**
+         * Operations which failed on their own
+         */
+        public final int failed;
+
+        /**
+         * Operations which did not complete even after interrupting the executor
+         */
+        public final int abandoned;
+
+        public final long nanos;
+
+        public Report(int drained, int cancelled, int failed, int abandoned, long nanos)
+        {
+            this.drained = drained;
+            this.cancelled = cancelled;
+            this.failed = failed;
+            this.abandoned = abandoned;
+            this.nanos = nanos;
+        }
+
+        @Override public String toString()
+        {
+            return "Report{drained=" + drained + ", cancelled=" + cancelled + ", failed=" + failed + ", abandoned=" +
+                    abandoned + ", millis=" + nanos / 1_000_000 + '}';
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.novarto.sanedbc.hikari;
 
 import com.novarto.lang.ConcurrentUtil;
+import com.novarto.sanedbc.core.Dialect;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
 import fj.F0;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,7 +18,27 @@ public class Hikari
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(Hikari.class);
 
+    /**
+     * Creates a datasource with the connection properties of the {@link Dialect} detected from the URL, e.g. statement
+     * caching and batch rewriting for MySQL and PostgreSQL. Properties in dsProps take precedence over these.
+     */
     public static HikariDataSource createHikari(String url, String user, String pass, Properties dsProps)
+    {
+        return new HikariDataSource(createConfig(url, user, pass, dsProps));
+    }
+
+    /**
+     * Creates a datasource which reports pool metrics to the given factory, e.g. a {@link PoolMetrics}
+     */
+    public static HikariDataSource createHikari(String url, String user, String pass, Properties dsProps,
+            MetricsTrackerFactory metrics)
+    {
+        HikariConfig config = createConfig(url, user, pass, dsProps);
+        config.setMetricsTrackerFactory(metrics);
+        return new HikariDataSource(config);
+    }
+
+    private static HikariConfig createConfig(String url, String user, String pass, Properties dsProps)
     {
         HikariConfig config = new HikariConfig();
 
@@ -24,11 +46,14 @@ public class Hikari
         config.setUsername(user);
         config.setPassword(pass);
 
-        config.setDataSourceProperties(dsProps);
+        // the performance presets of the dialect, unless overridden
+        Properties props = Dialect.fromUrl(url).connectionProperties();
+        props.putAll(dsProps);
+        config.setDataSourceProperties(props);
 
         LOGGER.info("creating hikaricp datasource. using jdbc url {}", config.getJdbcUrl());
 
-        return new HikariDataSource(config);
+        return config;
     }
 
     public static ExecutorService createExecutorFor(HikariDataSource ds, boolean shutdownOnJvmExit)
@@ -57,10 +82,15 @@ public class Hikari
     }
 
 
+    /**
+     * Shuts the executor down, waiting up to 5 seconds for running operations, then closes the pool. See
+     * {@link DrainingShutdown} for a shutdown which drains in-flight operations and reports on them.
+     */
     public static void gracefulShutdown(ExecutorService ex, HikariDataSource ds)
     {
-        ds.close();
+        // the executor goes first, so that running operations do not fail on a closed pool
         ConcurrentUtil.shutdownAndAwaitTermination(ex, 5, TimeUnit.SECONDS);
+        ds.close();
     }
 
 }
@@ -0,0 +1,146 @@
+package com.novarto.sanedbc.hikari;
+
+import com.novarto.sanedbc.core.interceptor.LatencyHistogram;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An executor service which delegates to another one, and tracks the number of queued and running tasks, along with
+ * histograms of the time tasks wait in the queue and the time they run. Works with any executor, not only a
+ * {@link java.util.concurrent.ThreadPoolExecutor}.
+ *
+ * Tasks returned by {@link #shutdownNow()} are the wrappers which this class submitted to the delegate.
+ */
+public final class InstrumentedExecutorService extends AbstractExecutorService
+{
+    private final ExecutorService delegate;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+
+    public InstrumentedExecutorService(ExecutorService delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override public void execute(Runnable command)
+    {
+        long submitted = System.nanoTime();
+        queued.incrementAndGet();
+        try
+        {
+            delegate.execute(() -> run(command, submitted));
+        }
+        catch (RejectedExecutionException e)
+        {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    private void run(Runnable command, long submitted)
+    {
+        long start = System.nanoTime();
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        waitTime.record(start - submitted);
+        try
+        {
+            command.run();
+        }
+        finally
+        {
+            runTime.record(System.nanoTime() - start);
+            active.decrementAndGet();
+            completed.increment();
+        }
+    }
+
+    public Snapshot snapshot()
+    {
+        return new Snapshot(queued.get(), active.get(), completed.sum(), rejected.sum(), waitTime.snapshot(),
+                runTime.snapshot());
+    }
+
+    @Override public void shutdown()
+    {
+        delegate.shutdown();
+    }
+
+    @Override public List<Runnable> shutdownNow()
+    {
+        // the returned tasks will never start, so they are no longer queued
+        List<Runnable> result = delegate.shutdownNow();
+        queued.addAndGet(-result.size());
+        return result;
+    }
+
+    @Override public boolean isShutdown()
+    {
+        return delegate.isShutdown();
+    }
+
+    @Override public boolean isTerminated()
+    {
+        return delegate.isTerminated();
+    }
+
+    @Override public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * An immutable view of the executor metrics at some point in time. Histogram values are in nanoseconds.
+     */
+    public static final class Snapshot
+    {
+        /**
+         * The number of tasks submitted, but not yet started
+         */
+        public final int queued;
+
+        /**
+         * The number of tasks running
+         */
+        public final int active;
+
+        public final long completed;
+        public final long rejected;
+
+        /**
+         * The time tasks waited between submission and start
+         */
+        public final LatencyHistogram.Snapshot waitTime;
+
+        public final LatencyHistogram.Snapshot runTime;
+
+        public Snapshot(int queued, int active, long completed, long rejected, LatencyHistogram.Snapshot waitTime,
+                LatencyHistogram.Snapshot runTime)
+        {
+            this.queued = queued;
+            this.active = active;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.waitTime = waitTime;
+            this.runTime = runTime;
+        }
+
+        @Override public String toString()
+        {
+            return "Executor{queued=" + queued + ", active=" + active + ", completed=" + completed + ", rejected=" +
+                    rejected + ", wait(" + waitTime + "), run(" + runTime + ")}";
+        }
+    }
+}
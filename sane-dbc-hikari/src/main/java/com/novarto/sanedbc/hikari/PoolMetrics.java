@@ -0,0 +1,124 @@
+package com.novarto.sanedbc.hikari;
+
+import com.novarto.sanedbc.core.interceptor.LatencyHistogram;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lightweight registry for the metrics HikariCP reports about a single pool: connection counts, the number of
+ * threads waiting for a connection, and histograms of connection acquisition, usage and creation times. Pass it to
+ * {@link com.zaxxer.hikari.HikariConfig#setMetricsTrackerFactory}, or use
+ * {@link Hikari#createHikari(String, String, String, java.util.Properties, MetricsTrackerFactory)}.
+ *
+ * Connection counts are refreshed by HikariCP at most once a second, so they may lag behind slightly.
+ */
+public final class PoolMetrics implements MetricsTrackerFactory
+{
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram usage = new LatencyHistogram();
+    private final LatencyHistogram creation = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+
+    private volatile String poolName;
+    private volatile PoolStats poolStats;
+
+    @Override public IMetricsTracker create(String poolName, PoolStats poolStats)
+    {
+        if (this.poolStats != null)
+        {
+            throw new IllegalStateException("already tracking pool " + this.poolName + ", cannot track " + poolName);
+        }
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+
+        return new IMetricsTracker()
+        {
+            @Override public void recordConnectionCreatedMillis(long millis)
+            {
+                creation.record(TimeUnit.MILLISECONDS.toNanos(millis));
+            }
+
+            @Override public void recordConnectionAcquiredNanos(long nanos)
+            {
+                acquire.record(nanos);
+            }
+
+            @Override public void recordConnectionUsageMillis(long millis)
+            {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(millis));
+            }
+
+            @Override public void recordConnectionTimeout()
+            {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public Snapshot snapshot()
+    {
+        PoolStats stats = poolStats;
+        return stats == null ?
+                new Snapshot(null, 0, 0, 0, 0, timeouts.sum(), acquire.snapshot(), usage.snapshot(),
+                        creation.snapshot()) :
+                new Snapshot(poolName, stats.getTotalConnections(), stats.getActiveConnections(),
+                        stats.getIdleConnections(), stats.getPendingThreads(), timeouts.sum(), acquire.snapshot(),
+                        usage.snapshot(), creation.snapshot());
+    }
+
+    /**
+     * An immutable view of the pool metrics at some point in time. Histogram values are in nanoseconds, although
+     * HikariCP reports usage and creation times with millisecond precision.
+     */
+    public static final class Snapshot
+    {
+        /**
+         * The pool name, or null if the pool has not been created yet
+         */
+        public final String poolName;
+
+        public final int totalConnections;
+        public final int activeConnections;
+        public final int idleConnections;
+
+        /**
+         * The number of threads waiting for a connection
+         */
+        public final int pendingThreads;
+
+        /**
+         * The number of connection requests which timed out
+         */
+        public final long timeouts;
+
+        public final LatencyHistogram.Snapshot acquireTime;
+        public final LatencyHistogram.Snapshot usageTime;
+        public final LatencyHistogram.Snapshot creationTime;
+
+        public Snapshot(String poolName, int totalConnections, int activeConnections, int idleConnections,
+                int pendingThreads, long timeouts, LatencyHistogram.Snapshot acquireTime,
+                LatencyHistogram.Snapshot usageTime, LatencyHistogram.Snapshot creationTime)
+        {
+            this.poolName = poolName;
+            this.totalConnections = totalConnections;
+            this.activeConnections = activeConnections;
+            this.idleConnections = idleConnections;
+            this.pendingThreads = pendingThreads;
+            this.timeouts = timeouts;
+            this.acquireTime = acquireTime;
+            this.usageTime = usageTime;
+            this.creationTime = creationTime;
+        }
+
+        @Override public String toString()
+        {
+            return "Pool{" + poolName + ": total=" + totalConnections + ", active=" + activeConnections + ", idle=" +
+                    idleConnections + ", pending=" + pendingThreads + ", timeouts=" + timeouts + ", acquire(" +
+                    acquireTime + "), usage(" + usageTime + "), creation(" + creationTime + ")}";
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.novarto.sanedbc.hikari;
+
+import com.novarto.sanedbc.core.interceptor.LatencyHistogram;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import fj.data.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resizes a Hikari pool, along with the executor which runs operations against it, based on the observed workload.
+ * Each {@link #sample()} compares the connection wait and the time connections are held since the previous sample,
+ * as recorded by a {@link PoolMetrics}, and the number of threads waiting for a connection:
+ * <ul>
+ *     <li>if the pool was saturated for a number of consecutive samples, it grows by a quarter (at least one)</li>
+ *     <li>if, as per Little's law, less than half of the connections were in use for a number of consecutive
+ *     samples, it shrinks by one</li>
+ *     <li>if a growth made connections be held for much longer, the database is considered oversubscribed, and the
+ *     growth is reverted</li>
+ * </ul>
+ * See {@link PoolSizing} for the bounds and thresholds. HikariCP reports the time connections are held in whole
+ * milliseconds, so sub-millisecond holds, e.g. of point queries, are recorded as 0. When all holds since the previous
+ * sample were, usage is unknown, and the pool neither shrinks nor reverts a growth on that sample.
+ *
+ * The maximum pool size is changed via {@link HikariConfigMXBean}. For a pool with a fixed size, i.e. whose minimum
+ * idle is equal to its maximum size, the minimum idle follows. Surplus connections are retired by HikariCP once idle.
+ * The core size of the executor, if any, is kept at the size of the pool, so that as many operations run as there are
+ * connections, and the rest queue. Executors which hand tasks over to threads rather than queueing them, e.g.
+ * {@link Executors#newCachedThreadPool()}, start a thread per concurrent operation anyway, and are left as is: capping
+ * them would make them reject operations.
+ */
+public final class PoolSizeController implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PoolSizeController.class);
+
+    private final HikariConfigMXBean config;
+    private final HikariPoolMXBean pool;
+    private final PoolMetrics metrics;
+    private final Option<ThreadPoolExecutor> executor;
+    private final PoolSizing sizing;
+
+    private PoolMetrics.Snapshot previous;
+    private long previousNanos;
+    private int saturatedSamples;
+    private int underusedSamples;
+    private int ceiling;
+
+    // the size before the last growth, and the mean time connections were held before it, or 0 if not checking
+    private int grownFrom;
+    private double heldBeforeGrowth;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param ds a datasource reporting to the given metrics, see
+     * {@link Hikari#createHikari(String, String, String, java.util.Properties,
+     * com.zaxxer.hikari.metrics.MetricsTrackerFactory)}
+     * @param executor the executor running operations against the datasource, to be resized along with it if it
+     *                 queues tasks
+     */
+    public PoolSizeController(HikariDataSource ds, PoolMetrics metrics, Option<ThreadPoolExecutor> executor,
+            PoolSizing sizing)
+    {
+        this.config = ds.getHikariConfigMXBean();
+        this.pool = ds.getHikariPoolMXBean();
+        this.metrics = metrics;
+        this.executor = executor.filter(x -> !(x.getQueue() instanceof SynchronousQueue));
+        this.sizing = sizing;
+        this.ceiling = sizing.maxSize;
+        this.previous = metrics.snapshot();
+        this.previousNanos = System.nanoTime();
+
+        int size = config.getMaximumPoolSize();
+        int bounded = Math.min(Math.max(size, sizing.minSize), sizing.maxSize);
+        if (bounded != size || this.executor.exists(x -> x.getCorePoolSize() != bounded))
+        {
+            resize(size, bounded, "bounds " + sizing);
+        }
+    }
+
+    /**
+     * Samples every given period, on a daemon thread, until closed
+     */
+    public synchronized PoolSizeController start(long period, TimeUnit unit)
+    {
+        if (scheduler != null)
+        {
+            throw new IllegalStateException("already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread result = new Thread(r, "PoolSizeController@" + config.getPoolName());
+            result.setDaemon(true);
+            return result;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try
+            {
+                sample();
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.warn("failed to sample pool {}", config.getPoolName(), e);
+            }
+        }, period, period, unit);
+        return this;
+    }
+
+    /**
+     * Takes a sample, and resizes the pool if needed
+     * @return the maximum pool size after the sample
+     */
+    public synchronized int sample()
+    {
+        PoolMetrics.Snapshot current = metrics.snapshot();
+        long now = System.nanoTime();
+        LatencyHistogram.Snapshot wait = current.acquireTime.since(previous.acquireTime);
+        LatencyHistogram.Snapshot held = current.usageTime.since(previous.usageTime);
+        long elapsed = Math.max(1, now - previousNanos);
+        previous = current;
+        previousNanos = now;
+
+        int size = config.getMaximumPoolSize();
+
+        if (grownFrom > 0 && held.sum() > 0)
+        {
+            int from = grownFrom;
+            grownFrom = 0;
+            if (held.mean() > heldBeforeGrowth * sizing.latencyTolerance)
+            {
+                ceiling = from;
+                saturatedSamples = 0;
+                resize(size, from, "connections held for " + micros(held.mean()) + " on average, up from " +
+                        micros(heldBeforeGrowth));
+                return from;
+            }
+        }
+
+        boolean saturated = pool.getThreadsAwaitingConnection() > 0 || wait.percentile(99) > sizing.targetWaitNanos;
+        // the average number of connections in use, as per Little's law
+        double inUse = (double) held.sum() / elapsed;
+        // connections were held, but for less than HikariCP's millisecond precision
+        boolean heldUnknown = held.count() > 0 && held.sum() == 0;
+
+        if (saturated)
+        {
+            underusedSamples = 0;
+            saturatedSamples++;
+            int limit = Math.min(sizing.maxSize, ceiling);
+            if (saturatedSamples >= sizing.growAfter && size < limit)
+            {
+                saturatedSamples = 0;
+                int newSize = Math.min(limit, size + Math.max(1, size / 4));
+                if (held.sum() > 0)
+                {
+                    grownFrom = size;
+                    heldBeforeGrowth = held.mean();
+                }
+                resize(size, newSize, "connection wait p99 " + micros(wait.percentile(99)) + ", " +
+                        pool.getThreadsAwaitingConnection() + " threads waiting");
+                return newSize;
+            }
+        }
+        else if (!heldUnknown && inUse < size / 2.0)
+        {
+            saturatedSamples = 0;
+            underusedSamples++;
+            if (underusedSamples >= sizing.shrinkAfter && size > sizing.minSize)
+            {
+                underusedSamples = 0;
+                // the workload has changed, so a previously oversubscribed size may be fine now
+                ceiling = sizing.maxSize;
+                grownFrom = 0;
+                resize(size, size - 1, String.format("%.1f connections in use on average", inUse));
+                return size - 1;
+            }
+        }
+        else
+        {
+            saturatedSamples = 0;
+            underusedSamples = 0;
+        }
+        return size;
+    }
+
+    private void resize(int from, int to, String reason)
+    {
+        LOGGER.info("resizing pool {} from {} to {}: {}", config.getPoolName(), from, to, reason);
+
+        if (to > from)
+        {
+            config.setMaximumPoolSize(to);
+            if (config.getMinimumIdle() == from)
+            {
+                config.setMinimumIdle(to);
+            }
+        }
+        else
+        {
+            if (config.getMinimumIdle() >= to)
+            {
+                config.setMinimumIdle(to);
+            }
+            config.setMaximumPoolSize(to);
+        }
+
+        executor.foreachDoEffect(x -> {
+            // the core size may not exceed the maximum size
+            if (to > x.getMaximumPoolSize())
+            {
+                x.setMaximumPoolSize(to);
+            }
+            x.setCorePoolSize(to);
+        });
+    }
+
+    private static String micros(double nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros((long) nanos) + "us";
+    }
+
+    @Override public synchronized void close()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.novarto.sanedbc.hikari;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bounds and thresholds within which a {@link PoolSizeController} resizes a pool. Instances are immutable; the
+ * with* methods return modified copies, e.g.
+ * <pre>
+ *     PoolSizing.between(4, 32).withTargetWait(2, TimeUnit.MILLISECONDS).withHysteresis(3, 12)
+ * </pre>
+ */
+public final class PoolSizing
+{
+    final int minSize;
+    final int maxSize;
+    final long targetWaitNanos;
+    final int growAfter;
+    final int shrinkAfter;
+    final double latencyTolerance;
+
+    private PoolSizing(int minSize, int maxSize, long targetWaitNanos, int growAfter, int shrinkAfter,
+            double latencyTolerance)
+    {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetWaitNanos = targetWaitNanos;
+        this.growAfter = growAfter;
+        this.shrinkAfter = shrinkAfter;
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Sizing between the given bounds, which grows the pool when the 99th percentile of connection wait exceeds 1ms,
+     * or threads wait for a connection, for 2 consecutive samples, and shrinks it after 10 consecutive samples in which
+     * less than half of the connections were used. A growth is reverted if it increases the time connections are
+     * held by more than 50%.
+     */
+    public static PoolSizing between(int minSize, int maxSize)
+    {
+        if (minSize < 1 || maxSize < minSize)
+        {
+            throw new IllegalArgumentException("invalid bounds: " + minSize + ", " + maxSize);
+        }
+        return new PoolSizing(minSize, maxSize, TimeUnit.MILLISECONDS.toNanos(1), 2, 10, 1.5);
+    }
+
+    /**
+     * @param wait the 99th percentile of connection wait above which the pool is considered saturated
+     */
+    public PoolSizing withTargetWait(long wait, TimeUnit unit)
+    {
+        return new PoolSizing(minSize, maxSize, unit.toNanos(wait), growAfter, shrinkAfter, latencyTolerance);
+    }
+
+    /**
+     * @param growAfter the number of consecutive saturated samples after which the pool grows
+     * @param shrinkAfter the number of consecutive underused samples after which the pool shrinks
+     */
+    public PoolSizing withHysteresis(int growAfter, int shrinkAfter)
+    {
+        if (growAfter < 1 || shrinkAfter < 1)
+        {
+            throw new IllegalArgumentException("invalid hysteresis: " + growAfter + ", " + shrinkAfter);
+        }
+        return new PoolSizing(minSize, maxSize, targetWaitNanos, growAfter, shrinkAfter, latencyTolerance);
+    }
+
+    /**
+     * @param latencyTolerance the ratio by which the mean time connections are held may increase after growing the
+     * pool. Beyond it, the database is considered oversubscribed: the growth is reverted, and the pool does not grow
+     * past its previous size again until it shrinks.
+     */
+    public PoolSizing withLatencyTolerance(double latencyTolerance)
+    {
+        if (latencyTolerance < 1)
+        {
+            throw new IllegalArgumentException("latency tolerance must be at least 1: " + latencyTolerance);
+        }
+        return new PoolSizing(minSize, maxSize, targetWaitNanos, growAfter, shrinkAfter, latencyTolerance);
+    }
+
+    @Override public String toString()
+    {
+        return "PoolSizing{" + minSize + ".." + maxSize + ", targetWait=" +
+                TimeUnit.NANOSECONDS.toMicros(targetWaitNanos) + "us, growAfter=" + growAfter + ", shrinkAfter=" +
+                shrinkAfter + ", latencyTolerance=" + latencyTolerance + '}';
+    }
+}
@@ -0,0 +1,197 @@
+package com.novarto.sanedbc.hikari;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Warms a pool up before it serves requests: opens connections up to the minimum idle size of the pool, and prepares
+ * a set of hot statements on each of them, so that the statement caches of the driver and the server are primed,
+ * e.g. with the cachePrepStmts option of MySQL. Statements are prepared and closed, never executed.
+ *
+ * Some drivers, e.g. PostgreSQL, only send a statement to the server when it is first executed. With describe on,
+ * the parameter metadata of each statement is also requested, which makes such drivers parse it on the server. Not
+ * all drivers support this, e.g. MySQL with client-side prepared statements does not.
+ *
+ * A statement which fails to prepare, e.g. because its table does not exist yet, is reported rather than failing the
+ * warm-up; a connection which cannot be opened fails it.
+ */
+public final class PoolWarmup
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PoolWarmup.class);
+
+    private final HikariDataSource ds;
+    private final List<String> hotStatements = new ArrayList<>();
+    private final boolean describe;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final CompletableFuture<Report> ready = new CompletableFuture<>();
+
+    public PoolWarmup(HikariDataSource ds, Iterable<String> hotStatements)
+    {
+        this(ds, hotStatements, false);
+    }
+
+    public PoolWarmup(HikariDataSource ds, Iterable<String> hotStatements, boolean describe)
+    {
+        this.ds = ds;
+        hotStatements.forEach(this.hotStatements::add);
+        this.describe = describe;
+    }
+
+    /**
+     * Starts warming up on the given executor, unless already started
+     * @return the readiness future
+     */
+    public CompletableFuture<Report> start(Executor executor)
+    {
+        if (started.compareAndSet(false, true))
+        {
+            try
+            {
+                executor.execute(() -> {
+                    try
+                    {
+                        ready.complete(warmUp());
+                    }
+                    catch (SQLException | RuntimeException e)
+                    {
+                        LOGGER.warn("warm-up of pool {} failed", ds.getPoolName(), e);
+                        ready.completeExceptionally(e);
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOGGER.warn("warm-up of pool {} was rejected", ds.getPoolName(), e);
+                ready.completeExceptionally(e);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * @return a future which completes when the warm-up is done, e.g. for a readiness check
+     */
+    public CompletableFuture<Report> ready()
+    {
+        return ready;
+    }
+
+    private Report warmUp() throws SQLException
+    {
+        long start = System.nanoTime();
+        int target = Math.max(1, Math.min(ds.getMinimumIdle(), ds.getMaximumPoolSize()));
+        Map<String, SQLException> failures = new LinkedHashMap<>();
+        int prepared = 0;
+
+        // holding on to the connections makes the pool open new ones, rather than hand out the same one
+        List<Connection> connections = new ArrayList<>(target);
+        try
+        {
+            for (int i = 0; i < target; i++)
+            {
+                connections.add(ds.getConnection());
+            }
+            for (Connection c : connections)
+            {
+                prepared += prepare(c, failures);
+            }
+        }
+        finally
+        {
+            for (Connection c : connections)
+            {
+                try
+                {
+                    c.close();
+                }
+                catch (SQLException e)
+                {
+                    LOGGER.warn("failed to release connection after warm-up", e);
+                }
+            }
+        }
+
+        Report result = new Report(connections.size(), prepared, unmodifiableMap(failures),
+                System.nanoTime() - start);
+        LOGGER.info("warmed up pool {}: {}", ds.getPoolName(), result);
+        return result;
+    }
+
+    private int prepare(Connection c, Map<String, SQLException> failures)
+    {
+        int result = 0;
+        for (String sql : hotStatements)
+        {
+            if (failures.containsKey(sql))
+            {
+                continue;
+            }
+            try (PreparedStatement ps = c.prepareStatement(sql))
+            {
+                if (describe)
+                {
+                    ps.getParameterMetaData();
+                }
+                result++;
+            }
+            catch (SQLException e)
+            {
+                failures.put(sql, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The outcome of a warm-up
+     */
+    public static final class Report
+    {
+        /**
+         * The number of connections warmed up
+         */
+        public final int connections;
+
+        /**
+         * The number of statements prepared, across all connections
+         */
+        public final int statementsPrepared;
+
+        /**
+         * The statements which failed to prepare, along with the error, in order
+         */
+        public final Map<String, SQLException> failures;
+
+        public final long nanos;
+
+        public Report(int connections, int statementsPrepared, Map<String, SQLException> failures, long nanos)
+        {
+            this.connections = connections;
+            this.statementsPrepared = statementsPrepared;
+            this.failures = failures;
+            this.nanos = nanos;
+        }
+
+        @Override public String toString()
+        {
+            return "Report{connections=" + connections + ", statementsPrepared=" + statementsPrepared +
+                    ", failures=" + failures.keySet() + ", millis=" + nanos / 1_000_000 + '}';
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.novarto.sanedbc.hikari;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Pool and executor metrics side by side, so that connection pool exhaustion can be correlated with executor backlog:
+ *
+ * <pre>
+ * SaturationMetrics metrics = new SaturationMetrics();
+ * HikariDataSource ds = Hikari.createHikari(url, user, pass, props, metrics.pool());
+ * ExecutorService executor = Hikari.createExecutorFor(ds, true, () -&gt; metrics.instrument(
+ *         Executors.newFixedThreadPool(10)));
+ * ...
+ * System.out.println(metrics.snapshot());
+ * </pre>
+ */
+public final class SaturationMetrics
+{
+    private final PoolMetrics pool = new PoolMetrics();
+    private volatile InstrumentedExecutorService executor;
+
+    public PoolMetrics pool()
+    {
+        return pool;
+    }
+
+    /**
+     * Wraps the executor of the pool, and tracks it from now on
+     */
+    public InstrumentedExecutorService instrument(ExecutorService delegate)
+    {
+        if (executor != null)
+        {
+            throw new IllegalStateException("already tracking an executor");
+        }
+        InstrumentedExecutorService result = new InstrumentedExecutorService(delegate);
+        executor = result;
+        return result;
+    }
+
+    public Snapshot snapshot()
+    {
+        InstrumentedExecutorService ex = executor;
+        return new Snapshot(pool.snapshot(), ex == null ? null : ex.snapshot());
+    }
+
+    public static final class Snapshot
+    {
+        public final PoolMetrics.Snapshot pool;
+
+        /**
+         * Null if no executor was instrumented
+         */
+        public final InstrumentedExecutorService.Snapshot executor;
+
+        public Snapshot(PoolMetrics.Snapshot pool, InstrumentedExecutorService.Snapshot executor)
+        {
+            this.pool = pool;
+            this.executor = executor;
+        }
+
+        @Override public String toString()
+        {
+            return pool + ", " + executor;
+        }
+    }
+}
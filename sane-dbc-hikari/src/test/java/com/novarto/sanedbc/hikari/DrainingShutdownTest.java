@@ -0,0 +1,159 @@
+package com.novarto.sanedbc.hikari;
+
+import com.novarto.sanedbc.core.interpreter.AsyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.zaxxer.hikari.HikariDataSource;
+import fj.control.db.DB;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DrainingShutdownTest
+{
+    @Test
+    public void drainsThenCancels() throws Exception
+    {
+        HikariDataSource ds = Hikari.createHikari("jdbc:hsqldb:mem:DrainingShutdownTest", "sa", "",
+                new Properties());
+        ds.setMaximumPoolSize(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        DrainingShutdown drain = new DrainingShutdown(ds, executor);
+        AsyncDbInterpreter dbi = new AsyncDbInterpreter(drain.dataSource(), executor, drain);
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch never = new CountDownLatch(1);
+
+        CompletableFuture<Long> slow = dbi.submit(new DB<Long>()
+        {
+            @Override public Long run(Connection c) throws SQLException
+            {
+                started.countDown();
+                sleep(200);
+                return new AggregateOp("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS").run(c);
+            }
+        });
+        CompletableFuture<Long> stuck = dbi.submit(new DB<Long>()
+        {
+            @Override public Long run(Connection c) throws SQLException
+            {
+                PreparedStatement ps = c.prepareStatement("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+                try
+                {
+                    started.countDown();
+                    never.await();
+                    return 1L;
+                }
+                catch (InterruptedException e)
+                {
+                    throw new SQLException(e);
+                }
+                finally
+                {
+                    ps.close();
+                }
+            }
+        });
+        started.await();
+
+        DrainingShutdown.Report report = drain.shutdown(1000, 100, TimeUnit.MILLISECONDS);
+        assertThat(report.drained, is(1));
+        assertThat(report.cancelled, is(1));
+        assertThat(report.failed, is(0));
+        assertThat(report.abandoned, is(0));
+
+        assertThat(slow.get() > 0, is(true));
+        try
+        {
+            stuck.get();
+            fail("expected the stuck operation to be cancelled");
+        }
+        catch (ExecutionException e)
+        {
+            assertThat(e.getCause() instanceof SQLException, is(true));
+        }
+        assertThat(ds.isClosed(), is(true));
+
+        try
+        {
+            dbi.submit(new AggregateOp("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS"));
+            fail("expected new operations to be rejected");
+        }
+        catch (RejectedExecutionException expected)
+        {
+        }
+    }
+
+    @Test
+    public void cancelsOperationsOfABatch() throws Exception
+    {
+        HikariDataSource ds = Hikari.createHikari("jdbc:hsqldb:mem:DrainingShutdownTest_batch", "sa", "",
+                new Properties());
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        DrainingShutdown drain = new DrainingShutdown(ds, executor);
+        AsyncDbInterpreter dbi = new AsyncDbInterpreter(drain.dataSource(), executor, drain);
+
+        CountDownLatch started = new CountDownLatch(1);
+        AggregateOp count = new AggregateOp("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+        // runs statements until one is refused; the connection was acquired by the first operation
+        DB<Long> loop = new DB<Long>()
+        {
+            @Override public Long run(Connection c) throws SQLException
+            {
+                started.countDown();
+                while (true)
+                {
+                    count.run(c);
+                    sleep(10);
+                }
+            }
+        };
+        List<CompletableFuture<Long>> results = dbi.submitAll(asList(count, loop, count));
+        started.await();
+
+        DrainingShutdown.Report report = drain.shutdown(100, 5000, TimeUnit.MILLISECONDS);
+        assertThat(report.cancelled, is(2));
+        assertThat(report.abandoned, is(0));
+
+        assertThat(results.get(0).get() > 0, is(true));
+        for (CompletableFuture<Long> x : results.subList(1, 3))
+        {
+            try
+            {
+                x.get();
+                fail("expected the operation to be cancelled");
+            }
+            catch (ExecutionException e)
+            {
+                assertThat(e.getCause().getMessage(), is("operation cancelled by shutdown"));
+            }
+        }
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
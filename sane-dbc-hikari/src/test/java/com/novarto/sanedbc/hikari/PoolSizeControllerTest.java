@@ -0,0 +1,152 @@
+package com.novarto.sanedbc.hikari;
+
+import com.zaxxer.hikari.HikariDataSource;
+import fj.data.Option;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PoolSizeControllerTest
+{
+    private PoolMetrics metrics;
+    private HikariDataSource ds;
+    private ThreadPoolExecutor executor;
+    private PoolSizeController controller;
+
+    @Before
+    public void setup()
+    {
+        metrics = new PoolMetrics();
+        ds = Hikari.createHikari("jdbc:hsqldb:mem:PoolSizeControllerTest", "sa", "", new Properties(), metrics);
+        executor = new ThreadPoolExecutor(10, 10, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+        controller = new PoolSizeController(ds, metrics, Option.some(executor),
+                PoolSizing.between(2, 3).withHysteresis(2, 3));
+    }
+
+    @After
+    public void shutdown()
+    {
+        controller.close();
+        Hikari.gracefulShutdown(executor, ds);
+    }
+
+    @Test
+    public void appliesBounds()
+    {
+        assertThat(ds.getMaximumPoolSize(), is(3));
+        assertThat(executor.getCorePoolSize(), is(3));
+        // the queue is unbounded, so no thread is started beyond the core ones
+        assertThat(executor.getMaximumPoolSize(), is(10));
+    }
+
+    @Test
+    public void leavesHandOffExecutorsAsIs() throws Exception
+    {
+        ThreadPoolExecutor cached = (ThreadPoolExecutor) Hikari.createExecutorFor(ds, false);
+        try (PoolSizeController c = new PoolSizeController(ds, metrics, Option.some(cached), PoolSizing.between(2, 2)))
+        {
+            assertThat(ds.getMaximumPoolSize(), is(2));
+            assertThat(cached.getMaximumPoolSize(), is(Integer.MAX_VALUE));
+
+            // more operations at once than connections wait for one, rather than being rejected
+            CountDownLatch release = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++)
+            {
+                futures.add(cached.submit(() -> {
+                    release.await();
+                    return null;
+                }));
+            }
+            release.countDown();
+            for (Future<?> x : futures)
+            {
+                x.get();
+            }
+            c.sample();
+            assertThat(cached.getMaximumPoolSize(), is(Integer.MAX_VALUE));
+        }
+        finally
+        {
+            cached.shutdown();
+        }
+    }
+
+    @Test
+    public void growsWhenSaturatedAndShrinksWhenUnderused() throws Exception
+    {
+        // shrink to the minimum first
+        for (int i = 0; i < 3; i++)
+        {
+            controller.sample();
+        }
+        assertThat(ds.getMaximumPoolSize(), is(2));
+        assertThat(executor.getCorePoolSize(), is(2));
+
+        Connection c1 = ds.getConnection();
+        Connection c2 = ds.getConnection();
+        Thread waiter = new Thread(() -> {
+            try (Connection c = ds.getConnection())
+            {
+                c.isValid(1);
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+        waiter.start();
+        while (ds.getHikariPoolMXBean().getThreadsAwaitingConnection() == 0)
+        {
+            Thread.sleep(1);
+        }
+
+        assertThat(controller.sample(), is(2));
+        assertThat(controller.sample(), is(3));
+        assertThat(executor.getCorePoolSize(), is(3));
+
+        waiter.join(10_000);
+        assertThat(waiter.isAlive(), is(false));
+
+        // at the upper bound
+        assertThat(controller.sample(), is(3));
+        assertThat(controller.sample(), is(3));
+
+        c1.close();
+        c2.close();
+        // connections held throughout the test were in use as of this sample
+        assertThat(controller.sample(), is(3));
+        controller.sample();
+        controller.sample();
+        assertThat(controller.sample(), is(2));
+        assertThat(executor.getCorePoolSize(), is(2));
+    }
+
+    @Test
+    public void doesNotShrinkOnSubMillisecondHolds() throws Exception
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            // reported by HikariCP as held for 0ms
+            try (Connection c = ds.getConnection())
+            {
+                c.getAutoCommit();
+            }
+            assertThat(controller.sample(), is(3));
+        }
+        assertThat(ds.getMaximumPoolSize(), is(3));
+    }
+}
@@ -0,0 +1,81 @@
+package com.novarto.sanedbc.hikari;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PoolWarmupTest
+{
+    @Test
+    public void prefillsAndPreparesHotStatements() throws Exception
+    {
+        HikariDataSource ds = Hikari.createHikari("jdbc:hsqldb:mem:PoolWarmupTest", "sa", "", new Properties());
+        ds.setMaximumPoolSize(5);
+        ds.setMinimumIdle(3);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            try (Connection c = ds.getConnection(); Statement s = c.createStatement())
+            {
+                s.execute("CREATE TABLE PoolWarmupTest_FOO (ID INTEGER, NAME VARCHAR(10))");
+            }
+
+            PoolWarmup warmup = new PoolWarmup(ds, asList("SELECT NAME FROM PoolWarmupTest_FOO WHERE ID = ?",
+                    "UPDATE PoolWarmupTest_FOO SET NAME = ? WHERE ID = ?", "SELECT * FROM PoolWarmupTest_BAR"), true);
+            assertThat(warmup.ready().isDone(), is(false));
+            assertThat(warmup.start(executor), sameInstance(warmup.ready()));
+
+            PoolWarmup.Report report = warmup.ready().get(10, TimeUnit.SECONDS);
+            assertThat(report.connections, is(3));
+            assertThat(report.statementsPrepared, is(6));
+            assertThat(report.failures.keySet(), is(singleton("SELECT * FROM PoolWarmupTest_BAR")));
+            assertThat(ds.getHikariPoolMXBean().getTotalConnections() >= 3, is(true));
+            assertThat(ds.getHikariPoolMXBean().getActiveConnections(), is(0));
+        }
+        finally
+        {
+            Hikari.gracefulShutdown(executor, ds);
+        }
+    }
+
+    @Test
+    public void failsIfTheExecutorRejectsIt() throws Exception
+    {
+        HikariDataSource ds = Hikari.createHikari("jdbc:hsqldb:mem:PoolWarmupTest_rejected", "sa", "",
+                new Properties());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        try
+        {
+            PoolWarmup warmup = new PoolWarmup(ds, singleton("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS"));
+            try
+            {
+                warmup.start(executor).get(10, TimeUnit.SECONDS);
+                fail("expected the warm-up to fail");
+            }
+            catch (ExecutionException e)
+            {
+                assertThat(e.getCause() instanceof RejectedExecutionException, is(true));
+            }
+        }
+        finally
+        {
+            ds.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.novarto.sanedbc.hikari;
+
+import com.novarto.sanedbc.core.interpreter.AsyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SaturationMetricsTest
+{
+    @Test
+    public void tracksPoolAndExecutor() throws Exception
+    {
+        SaturationMetrics metrics = new SaturationMetrics();
+        assertThat(metrics.snapshot().pool.poolName, is(nullValue()));
+        assertThat(metrics.snapshot().executor, is(nullValue()));
+
+        HikariDataSource ds = Hikari.createHikari("jdbc:hsqldb:mem:SaturationMetricsTest", "sa", "",
+                new Properties(), metrics.pool());
+        ds.setMaximumPoolSize(2);
+        ExecutorService executor = Hikari.createExecutorFor(ds, false,
+                () -> metrics.instrument(Executors.newFixedThreadPool(2)));
+        try
+        {
+            AsyncDbInterpreter dbi = new AsyncDbInterpreter(ds, executor);
+            dbi.submit(new EffectOp("CREATE TABLE SaturationMetricsTest_FOO (ID INTEGER)")).get();
+
+            List<CompletableFuture<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++)
+            {
+                results.add(dbi.submit(new AggregateOp("SELECT COUNT(*) FROM SaturationMetricsTest_FOO")));
+            }
+            for (CompletableFuture<Long> result : results)
+            {
+                assertThat(result.get(), is(0L));
+            }
+            // tasks are counted as completed right after they complete their futures
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+
+            SaturationMetrics.Snapshot snapshot = metrics.snapshot();
+            assertThat(snapshot.pool.poolName != null, is(true));
+            assertThat(snapshot.pool.acquireTime.count(), is(21L));
+            assertThat(snapshot.pool.usageTime.count(), is(21L));
+            assertThat(snapshot.pool.timeouts, is(0L));
+            assertThat(snapshot.executor.completed, is(21L));
+            assertThat(snapshot.executor.waitTime.count(), is(21L));
+            assertThat(snapshot.executor.queued, is(0));
+            assertThat(snapshot.executor.active, is(0));
+        }
+        finally
+        {
+            Hikari.gracefulShutdown(executor, ds);
+        }
+    }
+
+    @Test
+    public void tracksQueuedAndActiveTasks() throws Exception
+    {
+        InstrumentedExecutorService executor = new InstrumentedExecutorService(Executors.newSingleThreadExecutor());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try
+        {
+            executor.submit(() -> {
+                started.countDown();
+                release.await();
+                return null;
+            });
+            executor.submit(() -> {
+            });
+            started.await();
+
+            InstrumentedExecutorService.Snapshot snapshot = executor.snapshot();
+            assertThat(snapshot.active, is(1));
+            assertThat(snapshot.queued, is(1));
+            assertThat(snapshot.completed, is(0L));
+        }
+        finally
+        {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownNowDequeuesTasks() throws Exception
+    {
+        InstrumentedExecutorService executor = new InstrumentedExecutorService(Executors.newSingleThreadExecutor());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {
+        });
+        executor.execute(() -> {
+        });
+        started.await();
+        assertThat(executor.snapshot().queued, is(2));
+
+        assertThat(executor.shutdownNow().size(), is(2));
+        assertThat(executor.snapshot().queued, is(0));
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        assertThat(executor.snapshot().active, is(0));
+    }
+}
@@ -0,0 +1,39 @@
+package com.novarto.sanedbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Execution of a batch, i.e. a call to executeBatch
+ */
+@Name("com.novarto.sanedbc.BatchExecute")
+@Label("Batch Execute")
+@Category("sane-dbc")
+@Description("A call to executeBatch")
+@StackTrace(false)
+public final class BatchExecuteEvent extends Event
+{
+    @Label("Fingerprint")
+    @Description("The SQL, with literals replaced by placeholders")
+    String fingerprint;
+
+    @Label("Batch Size")
+    @Description("The number of elements in the batch")
+    int batchSize;
+
+    @Label("Rows")
+    @Description("The total update count, or -1 if unknown")
+    int rows;
+
+    @Label("Execute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long executeTime;
+
+    @Label("Error")
+    String error;
+}
@@ -0,0 +1,24 @@
+package com.novarto.sanedbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Acquisition of a connection by a DB operation
+ */
+@Name("com.novarto.sanedbc.ConnectionAcquire")
+@Label("Connection Acquire")
+@Category("sane-dbc")
+@Description("Acquisition of a connection from a data source")
+@StackTrace(false)
+public final class ConnectionAcquireEvent extends Event
+{
+    @Label("Acquire Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long acquireTime;
+}
@@ -0,0 +1,30 @@
+package com.novarto.sanedbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A DB operation submitted to an interpreter, from connection acquisition to completion
+ */
+@Name("com.novarto.sanedbc.DbOperation")
+@Label("DB Operation")
+@Category("sane-dbc")
+@Description("A DB operation run by an interpreter, from connection acquisition to completion")
+public final class DbOperationEvent extends Event
+{
+    @Label("Operation")
+    @Description("The class of the operation")
+    String operation;
+
+    @Label("Queue Time")
+    @Description("The time the operation waited for an executor thread")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+
+    @Label("Error")
+    String error;
+}
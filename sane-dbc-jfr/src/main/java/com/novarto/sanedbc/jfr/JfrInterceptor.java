@@ -0,0 +1,165 @@
+package com.novarto.sanedbc.jfr;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import com.novarto.sanedbc.core.interceptor.DbInterceptor;
+import fj.control.db.DB;
+import fj.data.Option;
+import jdk.jfr.EventType;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An interceptor which emits Java Flight Recorder events for DB operations, connection acquisition, statement
+ * preparation and execution, batches, commits and rollbacks. See the event classes in this package for their fields.
+ * Statements are identified by their SQL fingerprint, as per {@link SqlStringUtils#fingerprint(String)}.
+ *
+ * When none of the events is enabled in a running recording, {@link #isEnabled()} is false, so interpreters do not
+ * intercept anything, and the cost is a check per operation. Otherwise, events are only allocated if their type is
+ * enabled.
+ *
+ * Apart from {@link DbOperationEvent}, events are reported after the fact, so their durations are recorded in an
+ * explicit field (e.g. executeTime) rather than in the built-in duration.
+ */
+public class JfrInterceptor implements DbInterceptor
+{
+    private static final EventType OPERATION = EventType.getEventType(DbOperationEvent.class);
+    private static final EventType CONNECTION_ACQUIRE = EventType.getEventType(ConnectionAcquireEvent.class);
+    private static final EventType STATEMENT_PREPARE = EventType.getEventType(StatementPrepareEvent.class);
+    private static final EventType STATEMENT_EXECUTE = EventType.getEventType(StatementExecuteEvent.class);
+    private static final EventType BATCH_EXECUTE = EventType.getEventType(BatchExecuteEvent.class);
+    private static final EventType TRANSACTION = EventType.getEventType(TransactionEvent.class);
+
+    private final int maxStatements;
+
+    // SQL strings are usually constants, so keying by the SQL itself saves fingerprinting on every event
+    private final ConcurrentHashMap<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<DbOperationEvent> currentOp = new ThreadLocal<>();
+
+    public JfrInterceptor()
+    {
+        this(1000);
+    }
+
+    /**
+     * @param maxStatements the maximum number of SQL fingerprints to cache
+     */
+    public JfrInterceptor(int maxStatements)
+    {
+        this.maxStatements = maxStatements;
+    }
+
+    @Override public boolean isEnabled()
+    {
+        return OPERATION.isEnabled() || CONNECTION_ACQUIRE.isEnabled() || STATEMENT_PREPARE.isEnabled() ||
+                STATEMENT_EXECUTE.isEnabled() || BATCH_EXECUTE.isEnabled() || TRANSACTION.isEnabled();
+    }
+
+    @Override public void beforeOp(DB<?> op, long queueNanos)
+    {
+        if (OPERATION.isEnabled())
+        {
+            DbOperationEvent event = new DbOperationEvent();
+            event.operation = op.getClass().getName();
+            event.queueTime = queueNanos;
+            event.begin();
+            currentOp.set(event);
+        }
+    }
+
+    @Override public void connectionAcquired(long nanos)
+    {
+        if (CONNECTION_ACQUIRE.isEnabled())
+        {
+            ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+            event.acquireTime = nanos;
+            event.commit();
+        }
+    }
+
+    @Override public void statementPrepared(String sql, long nanos, Throwable error)
+    {
+        if (STATEMENT_PREPARE.isEnabled())
+        {
+            StatementPrepareEvent event = new StatementPrepareEvent();
+            event.fingerprint = fingerprint(sql);
+            event.prepareTime = nanos;
+            event.error = describe(error);
+            event.commit();
+        }
+    }
+
+    @Override public void statementExecuted(String sql, long nanos, Throwable error)
+    {
+        if (STATEMENT_EXECUTE.isEnabled())
+        {
+            StatementExecuteEvent event = new StatementExecuteEvent();
+            event.fingerprint = fingerprint(sql);
+            event.executeTime = nanos;
+            event.error = describe(error);
+            event.commit();
+        }
+    }
+
+    @Override public void batchExecuted(String sql, int batchSize, Option<Integer> updateCount, long nanos,
+            Throwable error)
+    {
+        if (BATCH_EXECUTE.isEnabled())
+        {
+            BatchExecuteEvent event = new BatchExecuteEvent();
+            event.fingerprint = fingerprint(sql);
+            event.batchSize = batchSize;
+            event.rows = updateCount.orSome(-1);
+            event.executeTime = nanos;
+            event.error = describe(error);
+            event.commit();
+        }
+    }
+
+    @Override public void transactionEnded(boolean committed, long nanos, Throwable error)
+    {
+        if (TRANSACTION.isEnabled())
+        {
+            TransactionEvent event = new TransactionEvent();
+            event.committed = committed;
+            event.endTime = nanos;
+            event.error = describe(error);
+            event.commit();
+        }
+    }
+
+    @Override public void afterOp(DB<?> op, long nanos, Throwable error)
+    {
+        DbOperationEvent event = currentOp.get();
+        if (event != null)
+        {
+            currentOp.remove();
+            event.error = describe(error);
+            event.commit();
+        }
+    }
+
+    private String fingerprint(String sql)
+    {
+        if (sql == null)
+        {
+            return null;
+        }
+
+        String result = fingerprints.get(sql);
+        if (result == null)
+        {
+            result = SqlStringUtils.fingerprint(sql);
+            if (fingerprints.size() < maxStatements)
+            {
+                fingerprints.putIfAbsent(sql, result);
+            }
+        }
+        return result;
+    }
+
+    private static String describe(Throwable error)
+    {
+        return error == null ? null : error.getClass().getName() + ": " + error.getMessage();
+    }
+}
@@ -0,0 +1,31 @@
+package com.novarto.sanedbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Execution of a statement, i.e. a call to one of the execute* methods
+ */
+@Name("com.novarto.sanedbc.StatementExecute")
+@Label("Statement Execute")
+@Category("sane-dbc")
+@Description("A call to execute, executeQuery, executeUpdate or executeBatch")
+@StackTrace(false)
+public final class StatementExecuteEvent extends Event
+{
+    @Label("Fingerprint")
+    @Description("The SQL, with literals replaced by placeholders")
+    String fingerprint;
+
+    @Label("Execute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long executeTime;
+
+    @Label("Error")
+    String error;
+}
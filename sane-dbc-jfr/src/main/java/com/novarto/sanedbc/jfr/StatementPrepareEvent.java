@@ -0,0 +1,31 @@
+package com.novarto.sanedbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Preparation of a statement, i.e. a call to prepareStatement or prepareCall
+ */
+@Name("com.novarto.sanedbc.StatementPrepare")
+@Label("Statement Prepare")
+@Category("sane-dbc")
+@Description("A call to prepareStatement or prepareCall")
+@StackTrace(false)
+public final class StatementPrepareEvent extends Event
+{
+    @Label("Fingerprint")
+    @Description("The SQL, with literals replaced by placeholders")
+    String fingerprint;
+
+    @Label("Prepare Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long prepareTime;
+
+    @Label("Error")
+    String error;
+}
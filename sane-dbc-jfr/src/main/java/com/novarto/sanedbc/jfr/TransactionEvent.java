@@ -0,0 +1,32 @@
+package com.novarto.sanedbc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The end of a transaction, i.e. a call to commit or rollback
+ */
+@Name("com.novarto.sanedbc.Transaction")
+@Label("Transaction End")
+@Category("sane-dbc")
+@Description("A call to commit or rollback")
+@StackTrace(false)
+public final class TransactionEvent extends Event
+{
+    @Label("Committed")
+    @Description("True for a commit, false for a rollback")
+    boolean committed;
+
+    @Label("End Time")
+    @Description("The time the commit or rollback took")
+    @Timespan(Timespan.NANOSECONDS)
+    long endTime;
+
+    @Label("Error")
+    String error;
+}
@@ -0,0 +1,97 @@
+package com.novarto.sanedbc.jfr;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static fj.data.List.arrayList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class JfrInterceptorTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:JfrInterceptorTest";
+
+    private static final SyncDbInterpreter DBI = new SyncDbInterpreter(
+            () -> DriverManager.getConnection(URL, "sa", ""), new JfrInterceptor());
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        DBI.submit(new EffectOp("CREATE TABLE JfrInterceptorTest_FOO (ID INTEGER)"));
+    }
+
+    @Test
+    public void disabledWithoutARecording()
+    {
+        assertThat(new JfrInterceptor().isEnabled(), is(false));
+    }
+
+    @Test
+    public void recordsEvents() throws Exception
+    {
+        Path file = Files.createTempFile("JfrInterceptorTest", ".jfr");
+        try (Recording recording = new Recording())
+        {
+            recording.enable("com.novarto.sanedbc.*");
+            recording.start();
+            assertThat(new JfrInterceptor().isEnabled(), is(true));
+
+            DBI.transact(new BatchUpdateOp<>("INSERT INTO JfrInterceptorTest_FOO VALUES (?)",
+                    (Integer x) -> ps -> ps.setInt(1, x), arrayList(1, 2, 3)));
+            DBI.submit(new AggregateOp("SELECT COUNT(*) FROM JfrInterceptorTest_FOO WHERE ID > 1"));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(x -> x.getEventType().getName().startsWith("com.novarto.sanedbc."))
+                .collect(Collectors.toList());
+        Files.delete(file);
+
+        assertThat(count(events, "DbOperation"), is(2L));
+        assertThat(count(events, "ConnectionAcquire"), is(2L));
+        assertThat(count(events, "StatementPrepare"), is(2L));
+        assertThat(count(events, "StatementExecute"), is(2L));
+        assertThat(count(events, "Transaction"), is(1L));
+
+        RecordedEvent batch = only(events, "BatchExecute");
+        assertThat(batch.getString("fingerprint"), is("INSERT INTO JfrInterceptorTest_FOO VALUES (?+)"));
+        assertThat(batch.getInt("batchSize"), is(3));
+        assertThat(batch.getInt("rows"), is(3));
+        assertThat(batch.getString("error"), nullValue());
+
+        RecordedEvent select = events.stream().filter(x -> x.getEventType().getName().endsWith("StatementExecute") &&
+                x.getString("fingerprint").startsWith("SELECT")).findFirst().get();
+        assertThat(select.getString("fingerprint"), is("SELECT COUNT(*) FROM JfrInterceptorTest_FOO WHERE ID > ?"));
+        assertThat(select.getDuration("executeTime").isNegative(), is(false));
+
+        assertThat(only(events, "Transaction").getBoolean("committed"), is(true));
+        assertThat(only(events, "DbOperation").getString("operation") != null, is(true));
+    }
+
+    private static long count(List<RecordedEvent> events, String name)
+    {
+        return events.stream().filter(x -> x.getEventType().getName().equals("com.novarto.sanedbc." + name)).count();
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name)
+    {
+        return events.stream().filter(x -> x.getEventType().getName().equals("com.novarto.sanedbc." + name))
+                .findFirst().get();
+    }
+}
@@ -0,0 +1,95 @@
+package com.novarto.sanedbc.jmh;
+
+import com.novarto.sanedbc.core.SqlTemplate;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import com.novarto.sanedbc.core.ops.optimized.BatchDeleteOptimized;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.novarto.sanedbc.core.ops.Binders.iterableBinder;
+import static java.util.Collections.singletonList;
+
+/**
+ * JDBC batches (BatchUpdateOp) vs. a single multi-row statement (Binders.iterableBinder, BatchDeleteOptimized).
+ * Each invocation inserts and then deletes the same elements, and commits, so the table is empty between
+ * invocations.
+ */
+@State(Scope.Thread)
+public class BatchBenchmark
+{
+    private static final SqlTemplate INSERT_ROWS = SqlTemplate.compile("INSERT INTO BATCH_BENCH VALUES {0:2}");
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private HikariDataSource ds;
+    private Connection c;
+    private List<Integer> xs;
+
+    @Setup
+    public void setup() throws SQLException
+    {
+        ds = HsqlDb.dataSource("BatchBenchmark" + size, 1);
+        c = ds.getConnection();
+        HsqlDb.execute(c, "DROP TABLE BATCH_BENCH IF EXISTS",
+                "CREATE TABLE BATCH_BENCH (ID INTEGER PRIMARY KEY, NAME VARCHAR(100))");
+        c.setAutoCommit(false);
+
+        xs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            xs.add(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        c.close();
+        ds.close();
+    }
+
+    @Benchmark
+    public int jdbcBatch() throws SQLException
+    {
+        int result = new BatchUpdateOp<Integer>("INSERT INTO BATCH_BENCH VALUES (?, ?)", x -> ps -> {
+            ps.setInt(1, x);
+            ps.setString(2, "name");
+        }, xs).run(c).some();
+
+        result += new BatchUpdateOp<Integer>("DELETE FROM BATCH_BENCH WHERE ID = ?", x -> ps -> ps.setInt(1, x), xs)
+                .run(c).some();
+
+        c.commit();
+        return result;
+    }
+
+    @Benchmark
+    public int multiRowStatement() throws SQLException
+    {
+        int result = new UpdateOp(INSERT_ROWS.render(size), iterableBinder((idx, ps, x) -> {
+            ps.setInt(idx++, x);
+            ps.setString(idx++, "name");
+            return idx;
+        }, xs)).run(c);
+
+        result += new BatchDeleteOptimized<Integer>("BATCH_BENCH", singletonList("ID"), xs, (idx, ps, x) -> {
+            ps.setInt(idx++, x);
+            return idx;
+        }, 1000).run(c);
+
+        c.commit();
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package com.novarto.sanedbc.jmh;
+
+import com.novarto.sanedbc.hikari.Hikari;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * In-memory HSQLDB fixtures shared by the benchmarks. Each benchmark uses its own database, so state does not leak
+ * between benchmarks run in the same JVM.
+ */
+final class HsqlDb
+{
+    private HsqlDb()
+    {
+    }
+
+    static HikariDataSource dataSource(String name, int poolSize)
+    {
+        HikariDataSource ds = Hikari.createHikari("jdbc:hsqldb:mem:" + name, "sa", "", new Properties());
+        ds.setMaximumPoolSize(poolSize);
+        ds.setMinimumIdle(poolSize);
+        return ds;
+    }
+
+    static void execute(Connection c, String... sqls) throws SQLException
+    {
+        try (Statement s = c.createStatement())
+        {
+            for (String sql : sqls)
+            {
+                s.execute(sql);
+            }
+        }
+    }
+}
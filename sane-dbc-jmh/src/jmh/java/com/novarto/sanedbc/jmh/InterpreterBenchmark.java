@@ -0,0 +1,108 @@
+package com.novarto.sanedbc.jmh;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.novarto.sanedbc.core.interpreter.AsyncDbInterpreter;
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.guava.GuavaDbInterpreter;
+import com.novarto.sanedbc.netty.FutureInterpreter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.novarto.sanedbc.core.interpreter.InterpreterUtils.lift;
+
+/**
+ * The per-operation overhead of the interpreters, i.e. connection acquisition from a pool, hand-off to an executor,
+ * and completion of the respective future type. The op itself is a trivial single-row query. The direct benchmark
+ * runs the op on an already acquired connection, as a baseline.
+ */
+@State(Scope.Benchmark)
+public class InterpreterBenchmark
+{
+    private static final int POOL_SIZE = 4;
+
+    private static final AggregateOp OP = new AggregateOp("SELECT COUNT(*) FROM INTERPRETER_BENCH");
+
+    private HikariDataSource ds;
+    private Connection c;
+    private ExecutorService executor;
+    private ListeningExecutorService listeningExecutor;
+    private EventExecutorGroup eventExecutors;
+
+    private SyncDbInterpreter sync;
+    private AsyncDbInterpreter async;
+    private GuavaDbInterpreter guava;
+    private FutureInterpreter future;
+
+    @Setup
+    public void setup() throws SQLException
+    {
+        ds = HsqlDb.dataSource("InterpreterBenchmark", POOL_SIZE + 1);
+        c = ds.getConnection();
+        HsqlDb.execute(c, "DROP TABLE INTERPRETER_BENCH IF EXISTS", "CREATE TABLE INTERPRETER_BENCH (ID INTEGER)",
+                "INSERT INTO INTERPRETER_BENCH VALUES (1)");
+
+        executor = Executors.newFixedThreadPool(POOL_SIZE);
+        listeningExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(POOL_SIZE));
+        eventExecutors = new DefaultEventExecutorGroup(POOL_SIZE);
+
+        sync = new SyncDbInterpreter(lift(ds));
+        async = new AsyncDbInterpreter(ds, executor);
+        guava = new GuavaDbInterpreter(ds, listeningExecutor);
+        future = new FutureInterpreter(ds, eventExecutors);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException, InterruptedException
+    {
+        executor.shutdown();
+        listeningExecutor.shutdown();
+        eventExecutors.shutdownGracefully(0, 1, TimeUnit.SECONDS).await();
+        c.close();
+        ds.close();
+    }
+
+    @Benchmark
+    public Long direct() throws SQLException
+    {
+        return OP.run(c);
+    }
+
+    @Benchmark
+    public Long syncDbInterpreter()
+    {
+        return sync.submit(OP);
+    }
+
+    @Benchmark
+    public Long asyncDbInterpreter()
+    {
+        return async.submit(OP).join();
+    }
+
+    @Benchmark
+    public Long guavaDbInterpreter() throws ExecutionException, InterruptedException
+    {
+        return guava.submit(OP).get();
+    }
+
+    @Benchmark
+    public Long futureInterpreter() throws ExecutionException, InterruptedException
+    {
+        return future.submit(OP).get();
+    }
+}
@@ -0,0 +1,39 @@
+package com.novarto.sanedbc.jmh;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import com.novarto.sanedbc.core.SqlTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Building IN lists of placeholders per request: memoized placeholders, a precompiled template, and string
+ * concatenation of the memoized placeholders as a baseline.
+ */
+@State(Scope.Thread)
+public class PlaceholdersBenchmark
+{
+    private static final SqlTemplate IN_LIST = SqlTemplate.compile("SELECT * FROM FOO WHERE ID IN ({0}) AND X = ?");
+
+    @Param({ "10", "1000" })
+    public int arity;
+
+    @Benchmark
+    public String placeholders()
+    {
+        return SqlStringUtils.placeholders(arity);
+    }
+
+    @Benchmark
+    public String concatenation()
+    {
+        return "SELECT * FROM FOO WHERE ID IN (" + SqlStringUtils.placeholders(arity) + ") AND X = ?";
+    }
+
+    @Benchmark
+    public String template()
+    {
+        return IN_LIST.render(arity);
+    }
+}
@@ -0,0 +1,106 @@
+package com.novarto.sanedbc.jmh;
+
+import com.novarto.sanedbc.core.SqlTemplate;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.DbOps;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import com.novarto.sanedbc.testkit.NetworkProfile;
+import com.novarto.sanedbc.testkit.SimulatedNetwork;
+import com.zaxxer.hikari.HikariDataSource;
+import fj.data.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import static com.novarto.sanedbc.core.ops.Binders.iterableBinder;
+
+/**
+ * Statement per element vs. JDBC batch vs. multi-row statement, behind a simulated network with the given round trip
+ * latency. Unlike BatchBenchmark, this shows the round trips saved, which dominate against a remote database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RoundTripBenchmark
+{
+    private static final SqlTemplate INSERT_ROWS = SqlTemplate.compile("INSERT INTO ROUND_TRIP_BENCH VALUES {0:2}");
+    private static final String INSERT = "INSERT INTO ROUND_TRIP_BENCH VALUES (?, ?)";
+
+    @Param({ "0", "200", "1000" })
+    public int roundTripMicros;
+
+    @Param({ "10", "100" })
+    public int size;
+
+    private HikariDataSource ds;
+    private Connection c;
+    private List<Integer> xs;
+
+    @Setup
+    public void setup() throws SQLException
+    {
+        ds = HsqlDb.dataSource("RoundTripBenchmark" + roundTripMicros + "_" + size, 1);
+        try (Connection local = ds.getConnection())
+        {
+            HsqlDb.execute(local, "DROP TABLE ROUND_TRIP_BENCH IF EXISTS",
+                    "CREATE TABLE ROUND_TRIP_BENCH (ID INTEGER PRIMARY KEY, NAME VARCHAR(100))");
+        }
+
+        SimulatedNetwork network = new SimulatedNetwork(
+                NetworkProfile.roundTrip(roundTripMicros, TimeUnit.MICROSECONDS));
+        c = network.lift(ds).f();
+        c.setAutoCommit(false);
+        xs = List.range(0, size);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        c.close();
+        ds.close();
+    }
+
+    @Benchmark
+    public int statementPerElement() throws SQLException
+    {
+        int result = DbOps.sequence(xs.map(x -> new UpdateOp(INSERT, ps -> {
+            ps.setInt(1, x);
+            ps.setString(2, "name");
+        }))).run(c).foldLeft((acc, x) -> acc + x, 0);
+        c.rollback();
+        return result;
+    }
+
+    @Benchmark
+    public int jdbcBatch() throws SQLException
+    {
+        int result = new BatchUpdateOp<Integer>(INSERT, x -> ps -> {
+            ps.setInt(1, x);
+            ps.setString(2, "name");
+        }, xs).run(c).some();
+        c.rollback();
+        return result;
+    }
+
+    @Benchmark
+    public int multiRowStatement() throws SQLException
+    {
+        int result = new UpdateOp(INSERT_ROWS.render(size), iterableBinder((idx, ps, x) -> {
+            ps.setInt(idx++, x);
+            ps.setString(idx++, "name");
+            return idx;
+        }, xs)).run(c);
+        c.rollback();
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+package com.novarto.sanedbc.jmh;
+
+import com.novarto.sanedbc.core.ops.FoldLeftSelectOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.novarto.sanedbc.core.ops.Binders.NO_BINDER;
+
+/**
+ * Materializing a result set into a list via SelectOp, vs. reducing it on the fly via FoldLeftSelectOp.
+ * Ops are run directly on a connection, so interpreter overhead is excluded.
+ */
+@State(Scope.Thread)
+public class SelectBenchmark
+{
+    private static final String SELECT = "SELECT ID, NAME, AMOUNT FROM SELECT_BENCH";
+
+    @Param({ "1", "100", "10000" })
+    public int rows;
+
+    private HikariDataSource ds;
+    private Connection c;
+
+    private final SelectOp.List<Row> selectOp = new SelectOp.List<>(SELECT, NO_BINDER,
+            rs -> new Row(rs.getInt(1), rs.getString(2), rs.getLong(3)));
+
+    private final FoldLeftSelectOp<Long> foldLeftSelectOp = new FoldLeftSelectOp<>(SELECT, NO_BINDER,
+            (acc, rs) -> acc + rs.getLong(3), 0L);
+
+    @Setup
+    public void setup() throws SQLException
+    {
+        ds = HsqlDb.dataSource("SelectBenchmark" + rows, 1);
+        c = ds.getConnection();
+        HsqlDb.execute(c, "DROP TABLE SELECT_BENCH IF EXISTS",
+                "CREATE TABLE SELECT_BENCH (ID INTEGER PRIMARY KEY, NAME VARCHAR(100), AMOUNT BIGINT)");
+
+        try (PreparedStatement ps = c.prepareStatement("INSERT INTO SELECT_BENCH VALUES (?, ?, ?)"))
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                ps.setInt(1, i);
+                ps.setString(2, "name" + i);
+                ps.setLong(3, i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        c.close();
+        ds.close();
+    }
+
+    @Benchmark
+    public List<Row> selectOp() throws SQLException
+    {
+        return selectOp.run(c);
+    }
+
+    @Benchmark
+    public Long foldLeftSelectOp() throws SQLException
+    {
+        return foldLeftSelectOp.run(c);
+    }
+
+    public static final class Row
+    {
+        public final int id;
+        public final String name;
+        public final long amount;
+
+        Row(int id, String name, long amount)
+        {
+            this.id = id;
+            this.name = name;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.novarto.sanedbc.jmh;
+
+import com.novarto.sanedbc.core.ops.DbOps;
+import fj.control.db.DB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.novarto.lang.CanBuildFrom.listCanBuildFrom;
+
+/**
+ * The overhead of composing DB descriptions via DbOps.sequence, vs. running them in a loop. The composed ops
+ * do not touch the connection, so this measures description and composition cost only.
+ */
+@State(Scope.Thread)
+public class SequenceBenchmark
+{
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private List<DB<Integer>> ops;
+
+    @Setup
+    public void setup()
+    {
+        ops = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            ops.add(DB.unit(i));
+        }
+    }
+
+    @Benchmark
+    public fj.data.List<Integer> sequenceFjList() throws SQLException
+    {
+        return DbOps.sequence(ops).run(null);
+    }
+
+    @Benchmark
+    public List<Integer> sequenceJavaList() throws SQLException
+    {
+        return DbOps.sequence(ops, listCanBuildFrom()).run(null);
+    }
+
+    @Benchmark
+    public List<Integer> loop() throws SQLException
+    {
+        Connection c = null;
+        List<Integer> result = new ArrayList<>(ops.size());
+        for (DB<Integer> op : ops)
+        {
+            result.add(op.run(c));
+        }
+        return result;
+    }
+}
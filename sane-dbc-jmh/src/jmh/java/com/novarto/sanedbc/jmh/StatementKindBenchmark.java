@@ -0,0 +1,26 @@
+package com.novarto.sanedbc.jmh;
+
+import com.novarto.sanedbc.core.SqlStringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * SqlStringUtils.getStatementKind, which runs on every batch operation. With the gc profiler, it is expected to
+ * allocate 0 bytes per operation.
+ */
+@State(Scope.Thread)
+public class StatementKindBenchmark
+{
+    @Param({ "SELECT * FROM FOO WHERE ID = ?", "  insert into foo values (?, ?)",
+            "/* batch */ UPDATE FOO SET X = ? WHERE ID = ?",
+            "WITH x AS (SELECT ID FROM BAR) DELETE FROM FOO WHERE ID IN (SELECT ID FROM x)" })
+    public String sql;
+
+    @Benchmark
+    public SqlStringUtils.StatementKind statementKind()
+    {
+        return SqlStringUtils.getStatementKind(sql);
+    }
+}
@@ -0,0 +1,219 @@
+package com.novarto.sanedbc.loadtest;
+
+import com.novarto.sanedbc.core.interceptor.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link Workload} against a {@link Target}, in one of two ways:
+ * <ul>
+ *     <li>closed loop: a fixed number of clients, each submitting an operation and waiting for it to complete before
+ *     submitting the next one. This finds the maximum throughput, but hides queueing: when the system stalls, clients
+ *     stop submitting, so the stall shows up as a single slow operation per client</li>
+ *     <li>open loop: operations are scheduled at a fixed arrival rate, regardless of how many are in flight, and
+ *     response times are measured from the scheduled time. This is what users of a service see, and is corrected for
+ *     coordinated omission</li>
+ * </ul>
+ * Each run starts with a warmup, which is not measured.
+ */
+public final class LoadTest
+{
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Workload workload;
+    private final long warmupNanos;
+    private final long durationNanos;
+
+    public LoadTest(Workload workload, long warmup, long duration, TimeUnit unit)
+    {
+        this.workload = workload;
+        this.warmupNanos = unit.toNanos(warmup);
+        this.durationNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * Runs the workload with the given number of concurrent clients
+     */
+    public LoadTestResult closedLoop(Target target, int concurrency) throws InterruptedException
+    {
+        Measurement m = new Measurement(target);
+
+        List<Thread> clients = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++)
+        {
+            Thread client = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < m.end)
+                {
+                    int x = random.nextInt(Integer.MAX_VALUE);
+                    long submitted = System.nanoTime();
+                    Throwable error = null;
+                    try
+                    {
+                        target.run(workload.pick(x), x).join();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        error = e;
+                    }
+                    m.completed(submitted, submitted, error);
+                }
+            }, "load-test-client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+        }
+
+        m.start();
+        for (Thread client : clients)
+        {
+            client.start();
+        }
+        parkUntil(m.measureStart);
+        target.resetHistograms();
+        for (Thread client : clients)
+        {
+            client.join();
+        }
+
+        return m.result("closed(" + concurrency + ")");
+    }
+
+    /**
+     * Runs the workload at the given arrival rate
+     * @param maxInFlight the maximum number of operations in flight. When reached, submission is delayed, and the
+     *                    delay is charged to the response time of the delayed operations
+     */
+    public LoadTestResult openLoop(Target target, double opsPerSecond, int maxInFlight) throws InterruptedException
+    {
+        if (opsPerSecond <= 0 || maxInFlight < 1)
+        {
+            throw new IllegalArgumentException("opsPerSecond and maxInFlight must be positive");
+        }
+
+        Measurement m = new Measurement(target);
+        AtomicInteger inFlight = new AtomicInteger();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double intervalNanos = 1e9 / opsPerSecond;
+        boolean measuring = false;
+
+        m.start();
+        for (long i = 0; ; i++)
+        {
+            long scheduled = m.start + (long) (i * intervalNanos);
+            if (scheduled - m.end >= 0)
+            {
+                break;
+            }
+            parkUntil(scheduled);
+            if (!measuring && scheduled - m.measureStart >= 0)
+            {
+                target.resetHistograms();
+                measuring = true;
+            }
+            while (inFlight.get() >= maxInFlight)
+            {
+                LockSupport.parkNanos(10_000);
+            }
+
+            int x = random.nextInt(Integer.MAX_VALUE);
+            long submitted = System.nanoTime();
+            inFlight.incrementAndGet();
+            try
+            {
+                target.run(workload.pick(x), x).whenComplete((result, error) -> {
+                    m.completed(scheduled, submitted, error);
+                    inFlight.decrementAndGet();
+                });
+            }
+            catch (RuntimeException e)
+            {
+                // e.g. the executor rejected the submission
+                m.completed(scheduled, submitted, e);
+                inFlight.decrementAndGet();
+            }
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0)
+        {
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+            LockSupport.parkNanos(1_000_000);
+        }
+
+        return m.result(String.format("open(%.0f/s)", opsPerSecond));
+    }
+
+    private static void parkUntil(long deadline)
+    {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > 0)
+        {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * The histograms and counters of a single run. Operations scheduled before the end of the warmup are not
+     * recorded, and the queue / pool wait histograms of the target are reset once the warmup ends.
+     */
+    private final class Measurement
+    {
+        private final Target target;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private final LongAdder operations = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private volatile long start;
+        private volatile long measureStart;
+        private volatile long end;
+
+        Measurement(Target target)
+        {
+            this.target = target;
+            this.end = Long.MAX_VALUE;
+        }
+
+        void start()
+        {
+            start = System.nanoTime();
+            measureStart = start + warmupNanos;
+            end = measureStart + durationNanos;
+        }
+
+        void completed(long scheduled, long submitted, Throwable error)
+        {
+            if (scheduled - measureStart < 0)
+            {
+                return;
+            }
+
+            long now = System.nanoTime();
+            latency.record(now - scheduled);
+            serviceTime.record(now - submitted);
+            operations.increment();
+            if (error != null)
+            {
+                errors.increment();
+            }
+        }
+
+        LoadTestResult result(String mode)
+        {
+            long ops = operations.sum();
+            return new LoadTestResult(mode, target.poolSize(), target.threads(), ops, errors.sum(),
+                    ops * 1e9 / durationNanos, latency.snapshot(), serviceTime.snapshot(),
+                    target.queueWait().snapshot(), target.poolWait().snapshot());
+        }
+    }
+}
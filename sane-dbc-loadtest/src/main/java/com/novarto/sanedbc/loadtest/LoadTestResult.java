@@ -0,0 +1,89 @@
+package com.novarto.sanedbc.loadtest;
+
+import com.novarto.sanedbc.core.interceptor.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a single load test run. All latencies are in nanoseconds.
+ */
+public final class LoadTestResult
+{
+    /**
+     * e.g. "closed(64)" for 64 concurrent clients, or "open(5000/s)" for an arrival rate of 5000 operations per second
+     */
+    public final String mode;
+    public final int poolSize;
+    public final int threads;
+
+    /**
+     * The number of operations completed during measurement, including failed ones
+     */
+    public final long operations;
+    public final long errors;
+
+    /**
+     * Operations completed per second
+     */
+    public final double throughput;
+
+    /**
+     * Response time, i.e. from the time an operation was meant to be submitted to its completion. In open loop mode,
+     * this is corrected for coordinated omission: an operation which could not be submitted on schedule, e.g. because
+     * too many were in flight, is charged for the delay. In closed loop mode, it is the same as the service time.
+     */
+    public final LatencyHistogram.Snapshot latency;
+
+    /**
+     * From the actual submission of an operation to its completion
+     */
+    public final LatencyHistogram.Snapshot serviceTime;
+
+    /**
+     * The time operations waited for an executor thread
+     */
+    public final LatencyHistogram.Snapshot queueWait;
+
+    /**
+     * The time operations waited for a connection from the pool
+     */
+    public final LatencyHistogram.Snapshot poolWait;
+
+    public LoadTestResult(String mode, int poolSize, int threads, long operations, long errors, double throughput,
+            LatencyHistogram.Snapshot latency, LatencyHistogram.Snapshot serviceTime,
+            LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot poolWait)
+    {
+        this.mode = mode;
+        this.poolSize = poolSize;
+        this.threads = threads;
+        this.operations = operations;
+        this.errors = errors;
+        this.throughput = throughput;
+        this.latency = latency;
+        this.serviceTime = serviceTime;
+        this.queueWait = queueWait;
+        this.poolWait = poolWait;
+    }
+
+    /**
+     * @return the column names of {@link #toString()}
+     */
+    public static String header()
+    {
+        return String.format("%-14s %5s %7s %10s %7s %9s %9s %9s %9s %9s %9s", "mode", "pool", "threads", "ops/s",
+                "errors", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "queue99", "pool99");
+    }
+
+    @Override public String toString()
+    {
+        return String.format("%-14s %5d %7d %10.0f %7d %9d %9d %9d %9d %9d %9d", mode, poolSize, threads, throughput,
+                errors, micros(latency.percentile(50)), micros(latency.percentile(99)),
+                micros(latency.percentile(99.9)), micros(latency.max()), micros(queueWait.percentile(99)),
+                micros(poolWait.percentile(99)));
+    }
+
+    private static long micros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,151 @@
+package com.novarto.sanedbc.loadtest;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+
+import java.sql.DriverManager;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static fj.data.List.range;
+
+/**
+ * Runs a key-value workload (select by id, and increment by id) against a local database, e.g.
+ * <pre>
+ *     ./gradlew :sane-dbc-loadtest:run -PloadtestArgs="url=jdbc:h2:mem:loadtest mode=sweep pools=2,4,8 threads=4,8,16"
+ * </pre>
+ * Arguments are key=value pairs:
+ * <ul>
+ *     <li>url, user, password: the database, by default in-memory HSQLDB</li>
+ *     <li>mode: closed, open or sweep (default)</li>
+ *     <li>concurrency: the number of clients in closed loop and sweep modes</li>
+ *     <li>rate, maxInFlight: the arrival rate (operations per second) and in-flight bound in open loop mode</li>
+ *     <li>pools, threads: comma separated pool sizes and executor thread counts; the first ones are used in closed
+ *     and open loop modes</li>
+ *     <li>reads: the percentage of reads, by default 90</li>
+ *     <li>rows: the number of rows in the table</li>
+ *     <li>warmup, duration: in seconds</li>
+ * </ul>
+ */
+public final class Main
+{
+    private static final String TABLE = "LOAD_TEST";
+
+    private Main()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> opts = new HashMap<>();
+        opts.put("url", "jdbc:hsqldb:mem:loadtest");
+        opts.put("user", "sa");
+        opts.put("password", "");
+        opts.put("mode", "sweep");
+        opts.put("concurrency", "64");
+        opts.put("rate", "10000");
+        opts.put("maxInFlight", "10000");
+        opts.put("pools", "1,2,4,8,16");
+        opts.put("threads", "1,2,4,8,16,32");
+        opts.put("reads", "90");
+        opts.put("rows", "10000");
+        opts.put("warmup", "3");
+        opts.put("duration", "10");
+        for (String arg : args)
+        {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !opts.containsKey(arg.substring(0, eq)))
+            {
+                throw new IllegalArgumentException("unknown argument " + arg + ", expected one of " + opts.keySet());
+            }
+            opts.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        String url = opts.get("url");
+        String user = opts.get("user");
+        String password = opts.get("password");
+        int rows = Integer.parseInt(opts.get("rows"));
+        setup(new SyncDbInterpreter(() -> DriverManager.getConnection(url, user, password)), rows);
+
+        Workload workload = keyValue(rows, Integer.parseInt(opts.get("reads")));
+        LoadTest test = new LoadTest(workload, Long.parseLong(opts.get("warmup")),
+                Long.parseLong(opts.get("duration")), TimeUnit.SECONDS);
+        int[] pools = ints(opts.get("pools"));
+        int[] threads = ints(opts.get("threads"));
+        int concurrency = Integer.parseInt(opts.get("concurrency"));
+
+        System.out.println(url + ": " + workload);
+        System.out.println(LoadTestResult.header());
+        switch (opts.get("mode"))
+        {
+            case "closed":
+                try (Target target = Target.hikari(url, user, password, pools[0], threads[0]))
+                {
+                    System.out.println(test.closedLoop(target, concurrency));
+                }
+                break;
+            case "open":
+                try (Target target = Target.hikari(url, user, password, pools[0], threads[0]))
+                {
+                    System.out.println(test.openLoop(target, Double.parseDouble(opts.get("rate")),
+                            Integer.parseInt(opts.get("maxInFlight"))));
+                }
+                break;
+            case "sweep":
+                List<LoadTestResult> results = PoolSweep.sweep(test,
+                        (pool, n) -> Target.hikari(url, user, password, pool, n), pools, threads, concurrency,
+                        System.out::println);
+                System.out.println("knee:");
+                System.out.println(PoolSweep.knee(results, 0.05));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown mode " + opts.get("mode"));
+        }
+    }
+
+    static void setup(SyncDbInterpreter dbi, int rows)
+    {
+        dbi.submit(new EffectOp("DROP TABLE " + TABLE + " IF EXISTS"));
+        dbi.submit(new EffectOp("CREATE TABLE " + TABLE + " (ID INTEGER PRIMARY KEY, NAME VARCHAR(100), HITS BIGINT)"));
+        dbi.transact(new BatchUpdateOp<>("INSERT INTO " + TABLE + " VALUES (?, ?, 0)", (Integer x) -> ps -> {
+            ps.setInt(1, x);
+            ps.setString(2, "name" + x);
+        }, range(0, rows)));
+    }
+
+    static Workload keyValue(int rows, int readPercent)
+    {
+        Workload result = Workload.EMPTY;
+        if (readPercent > 0)
+        {
+            result = result.read("select by id", readPercent,
+                    x -> new SelectOp.List<>("SELECT NAME, HITS FROM " + TABLE + " WHERE ID = ?",
+                            ps -> ps.setInt(1, x % rows), rs -> rs.getString(1)));
+        }
+        if (readPercent < 100)
+        {
+            result = result.write("increment by id", 100 - readPercent,
+                    x -> new UpdateOp("UPDATE " + TABLE + " SET HITS = HITS + 1 WHERE ID = ?",
+                            ps -> ps.setInt(1, x % rows)));
+        }
+        return result;
+    }
+
+    static long count(SyncDbInterpreter dbi)
+    {
+        return dbi.submit(new AggregateOp("SELECT COUNT(*) FROM " + TABLE));
+    }
+
+    private static int[] ints(String csv)
+    {
+        return Arrays.stream(csv.split(",")).mapToInt(x -> Integer.parseInt(x.trim())).toArray();
+    }
+}
@@ -0,0 +1,82 @@
+package com.novarto.sanedbc.loadtest;
+
+import fj.F2;
+import fj.function.Effect1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a closed loop load test for each combination of pool size and executor thread count, in order to find the
+ * knee: the smallest configuration which achieves (nearly) the best throughput. Beyond the knee, adding connections
+ * or threads only adds contention, and latency.
+ */
+public final class PoolSweep
+{
+    private PoolSweep()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param targets creates a target from a pool size and a thread count; each target is closed after its run
+     * @param concurrency the number of concurrent clients, which should exceed the largest pool size and thread count
+     *                    in order to saturate them
+     * @param onResult called after each run, e.g. to print progress
+     * @return the results, in the order run
+     */
+    public static List<LoadTestResult> sweep(LoadTest test, F2<Integer, Integer, Target> targets, int[] poolSizes,
+            int[] threadCounts, int concurrency, Effect1<LoadTestResult> onResult)
+            throws InterruptedException
+    {
+        List<LoadTestResult> results = new ArrayList<>();
+        for (int poolSize : poolSizes)
+        {
+            for (int threads : threadCounts)
+            {
+                try (Target target = targets.f(poolSize, threads))
+                {
+                    LoadTestResult result = test.closedLoop(target, concurrency);
+                    onResult.f(result);
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param tolerance e.g. 0.05 in order to accept configurations within 5% of the best throughput
+     * @return among the configurations achieving at least (1 - tolerance) of the best throughput, the one using the
+     * fewest connections, then the fewest threads, then with the lowest p99 latency
+     */
+    public static LoadTestResult knee(List<LoadTestResult> results, double tolerance)
+    {
+        double best = 0;
+        for (LoadTestResult x : results)
+        {
+            best = Math.max(best, x.throughput);
+        }
+
+        LoadTestResult knee = null;
+        for (LoadTestResult x : results)
+        {
+            if (x.throughput < best * (1 - tolerance))
+            {
+                continue;
+            }
+            if (knee == null || x.poolSize < knee.poolSize ||
+                    x.poolSize == knee.poolSize && x.threads < knee.threads ||
+                    x.poolSize == knee.poolSize && x.threads == knee.threads &&
+                            x.latency.percentile(99) < knee.latency.percentile(99))
+            {
+                knee = x;
+            }
+        }
+        if (knee == null)
+        {
+            throw new IllegalArgumentException("no results");
+        }
+        return knee;
+    }
+}
@@ -0,0 +1,108 @@
+package com.novarto.sanedbc.loadtest;
+
+import com.novarto.sanedbc.core.interceptor.DbInterceptor;
+import com.novarto.sanedbc.core.interceptor.LatencyHistogram;
+import com.novarto.sanedbc.core.interpreter.AsyncDbInterpreter;
+import com.novarto.sanedbc.hikari.Hikari;
+import com.zaxxer.hikari.HikariDataSource;
+import fj.control.db.DB;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The system under test: an {@link AsyncDbInterpreter} over a Hikari pool of the given size, and a fixed executor
+ * with the given number of threads, created as in production, via {@link Hikari#createHikari} and
+ * {@link Hikari#createExecutorFor}. Records executor queue time and pool wait, i.e. connection acquisition time.
+ */
+public final class Target implements AutoCloseable
+{
+    private final int poolSize;
+    private final int threads;
+    private final HikariDataSource ds;
+    private final ExecutorService executor;
+    private final AsyncDbInterpreter dbi;
+
+    private volatile Histograms histograms = new Histograms();
+
+    private Target(int poolSize, int threads, HikariDataSource ds, ExecutorService executor)
+    {
+        this.poolSize = poolSize;
+        this.threads = threads;
+        this.ds = ds;
+        this.executor = executor;
+        this.dbi = new AsyncDbInterpreter(ds, executor, new DbInterceptor()
+        {
+            @Override public void beforeOp(DB<?> op, long queueNanos)
+            {
+                histograms.queueWait.record(queueNanos);
+            }
+
+            @Override public void connectionAcquired(long nanos)
+            {
+                histograms.poolWait.record(nanos);
+            }
+        });
+    }
+
+    public static Target hikari(String url, String user, String pass, int poolSize, int threads)
+    {
+        HikariDataSource ds = Hikari.createHikari(url, user, pass, new Properties());
+        ds.setMaximumPoolSize(poolSize);
+        ds.setMinimumIdle(poolSize);
+        return new Target(poolSize, threads, ds,
+                Hikari.createExecutorFor(ds, false, () -> Executors.newFixedThreadPool(threads)));
+    }
+
+    public int poolSize()
+    {
+        return poolSize;
+    }
+
+    public int threads()
+    {
+        return threads;
+    }
+
+    public AsyncDbInterpreter interpreter()
+    {
+        return dbi;
+    }
+
+    CompletableFuture<?> run(Workload.Op op, int random)
+    {
+        DB<?> db = op.create.f(random);
+        return op.transactional ? dbi.transact(db) : dbi.submit(db);
+    }
+
+    /**
+     * Starts recording afresh, e.g. after a warmup
+     */
+    void resetHistograms()
+    {
+        histograms = new Histograms();
+    }
+
+    LatencyHistogram queueWait()
+    {
+        return histograms.queueWait;
+    }
+
+    LatencyHistogram poolWait()
+    {
+        return histograms.poolWait;
+    }
+
+    @Override public void close()
+    {
+        Hikari.gracefulShutdown(executor, ds);
+    }
+
+    private static final class Histograms
+    {
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final LatencyHistogram poolWait = new LatencyHistogram();
+    }
+}
@@ -0,0 +1,114 @@
+package com.novarto.sanedbc.loadtest;
+
+import fj.F;
+import fj.control.db.DB;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A weighted mix of operations to drive a load test with. Each operation is created from a random non-negative int,
+ * e.g. in order to pick a random key. Reads are submitted, writes are transacted. Instances are immutable, e.g.
+ * <pre>
+ *     Workload.EMPTY
+ *         .read("select by id", 90, x -&gt; selectById(x % rows))
+ *         .write("update by id", 10, x -&gt; updateById(x % rows));
+ * </pre>
+ */
+public final class Workload
+{
+    public static final Workload EMPTY = new Workload(Collections.emptyList());
+
+    private final List<Op> ops;
+    private final int totalWeight;
+
+    private Workload(List<Op> ops)
+    {
+        this.ops = ops;
+        int weight = 0;
+        for (Op op : ops)
+        {
+            weight += op.weight;
+        }
+        this.totalWeight = weight;
+    }
+
+    /**
+     * Adds an operation which is submitted, i.e. run in auto-commit mode
+     */
+    public Workload read(String name, int weight, F<Integer, DB<?>> op)
+    {
+        return with(new Op(name, weight, op, false));
+    }
+
+    /**
+     * Adds an operation which is transacted
+     */
+    public Workload write(String name, int weight, F<Integer, DB<?>> op)
+    {
+        return with(new Op(name, weight, op, true));
+    }
+
+    private Workload with(Op op)
+    {
+        if (op.weight < 1)
+        {
+            throw new IllegalArgumentException("weight must be positive: " + op.weight);
+        }
+        List<Op> xs = new ArrayList<>(ops);
+        xs.add(op);
+        return new Workload(Collections.unmodifiableList(xs));
+    }
+
+    /**
+     * @param random a non-negative random int, used both for picking the operation and for creating it
+     */
+    Op pick(int random)
+    {
+        if (ops.isEmpty())
+        {
+            throw new IllegalStateException("empty workload");
+        }
+        int x = random % totalWeight;
+        for (Op op : ops)
+        {
+            x -= op.weight;
+            if (x < 0)
+            {
+                return op;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Op op : ops)
+        {
+            if (sb.length() > 0)
+            {
+                sb.append(", ");
+            }
+            sb.append(op.name).append(' ').append(op.weight * 100 / totalWeight).append('%');
+        }
+        return sb.toString();
+    }
+
+    static final class Op
+    {
+        final String name;
+        final int weight;
+        final F<Integer, DB<?>> create;
+        final boolean transactional;
+
+        private Op(String name, int weight, F<Integer, DB<?>> create, boolean transactional)
+        {
+            this.name = name;
+            this.weight = weight;
+            this.create = create;
+            this.transactional = transactional;
+        }
+    }
+}
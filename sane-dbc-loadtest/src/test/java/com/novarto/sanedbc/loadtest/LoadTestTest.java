@@ -0,0 +1,79 @@
+package com.novarto.sanedbc.loadtest;
+
+import com.novarto.sanedbc.core.interceptor.LatencyHistogram;
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class LoadTestTest
+{
+    private static final LatencyHistogram.Snapshot EMPTY = new LatencyHistogram().snapshot();
+
+    @Test
+    public void closedAndOpenLoop() throws Exception
+    {
+        for (String url : asList("jdbc:hsqldb:mem:LoadTestTest", "jdbc:h2:mem:LoadTestTest;DB_CLOSE_DELAY=-1"))
+        {
+            SyncDbInterpreter dbi = new SyncDbInterpreter(() -> DriverManager.getConnection(url, "sa", ""));
+            Main.setup(dbi, 100);
+            assertThat(Main.count(dbi), is(100L));
+
+            LoadTest test = new LoadTest(Main.keyValue(100, 80), 100, 300, TimeUnit.MILLISECONDS);
+            try (Target target = Target.hikari(url, "sa", "", 2, 2))
+            {
+                LoadTestResult closed = test.closedLoop(target, 4);
+                assertThat(closed.operations > 0, is(true));
+                assertThat(closed.errors, is(0L));
+                assertThat(closed.poolWait.count() > 0, is(true));
+
+                LoadTestResult open = test.openLoop(target, 500, 100);
+                assertThat(open.errors, is(0L));
+                // 500/s for 300ms, give or take the schedule boundaries
+                assertThat(Math.abs(open.operations - 150) <= 2, is(true));
+                assertThat(open.latency.percentile(50) >= open.serviceTime.percentile(50), is(true));
+            }
+        }
+    }
+
+    @Test
+    public void openLoopRecordsRejectedSubmissions() throws Exception
+    {
+        LoadTest test = new LoadTest(Main.keyValue(100, 80), 0, 100, TimeUnit.MILLISECONDS);
+        Target target = Target.hikari("jdbc:hsqldb:mem:LoadTestTest_rejected", "sa", "", 1, 1);
+        // the executor rejects everything from now on
+        target.close();
+
+        // submissions fail synchronously, and must each release their slot
+        LoadTestResult open = test.openLoop(target, 100, 1);
+        assertThat(open.operations > 0, is(true));
+        assertThat(open.errors, is(open.operations));
+    }
+
+    @Test
+    public void kneeIsTheSmallestConfigurationCloseToTheBest()
+    {
+        List<LoadTestResult> results = new ArrayList<>();
+        results.add(result(1, 1, 1000));
+        results.add(result(1, 4, 1500));
+        results.add(result(2, 4, 2960));
+        results.add(result(4, 4, 3000));
+        results.add(result(4, 8, 2900));
+
+        assertThat(PoolSweep.knee(results, 0.05), sameInstance(results.get(2)));
+        assertThat(PoolSweep.knee(results, 0), sameInstance(results.get(3)));
+    }
+
+    private static LoadTestResult result(int poolSize, int threads, double throughput)
+    {
+        return new LoadTestResult("closed(8)", poolSize, threads, 0, 0, throughput, EMPTY, EMPTY, EMPTY, EMPTY);
+    }
+}
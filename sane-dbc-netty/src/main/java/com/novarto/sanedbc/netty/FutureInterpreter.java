@@ -1,26 +1,77 @@
 package com.novarto.sanedbc.netty;
 
+import com.novarto.sanedbc.core.interceptor.DbInterceptor;
+import com.novarto.sanedbc.core.interpreter.InterpreterUtils;
 import fj.control.db.DB;
 import fj.function.Try0;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorGroup;
 import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.UnorderedThreadPoolEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.novarto.sanedbc.core.interpreter.InterpreterUtils.lift;
-import static com.novarto.sanedbc.core.interpreter.InterpreterUtils.transactional;
 
+/**
+ * An interpreter which runs operations on a netty {@link EventExecutorGroup}, and lifts their results to netty
+ * {@link Future}s.
+ *
+ * JDBC calls block, so the executor must not be an IO event loop group, lest a query stall every channel on the
+ * loop; a warning is logged if it is one. Use a dedicated pool, e.g. {@link #blockingPool(int)}, sized along with the
+ * connection pool.
+ *
+ * When called from a channel handler, pass the channel's executor (ctx.executor()) to submit / transact, so that the
+ * returned future completes on it, and its listeners run there rather than on the DB thread, without handing over
+ * back to the event loop.
+ */
 public class FutureInterpreter
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FutureInterpreter.class);
+
     private final Try0<Connection, SQLException> ds;
     private final EventExecutorGroup ex;
+    private final DbInterceptor interceptor;
 
     public FutureInterpreter(Try0<Connection, SQLException> ds, EventExecutorGroup ex)
+    {
+        this(ds, ex, DbInterceptor.NONE);
+    }
+
+    /**
+     * Constructs an interpreter which notifies an interceptor of the operations it runs. The time between submission
+     * and the start of an operation is reported as its queue time.
+     */
+    public FutureInterpreter(Try0<Connection, SQLException> ds, EventExecutorGroup ex, DbInterceptor interceptor)
     {
         this.ds = ds;
         this.ex = ex;
+        this.interceptor = interceptor;
+
+        if (isEventLoop(ex))
+        {
+            LOGGER.warn("{} is an event loop group: blocking JDBC calls will stall its channels. Use a dedicated " +
+                    "blocking pool, e.g. FutureInterpreter.blockingPool(int)", ex);
+        }
+    }
+
+    /**
+     * Creates a pool of the given number of threads suitable for blocking JDBC calls. Unlike a
+     * {@link io.netty.util.concurrent.DefaultEventExecutorGroup}, which queues tasks per thread, any idle thread picks
+     * up the next operation, so a slow operation does not delay the ones behind it. Threads are daemons.
+     */
+    public static UnorderedThreadPoolEventExecutor blockingPool(int threads)
+    {
+        return new UnorderedThreadPoolEventExecutor(threads, new DefaultThreadFactory("sane-dbc-blocking", true));
     }
 
     public FutureInterpreter(DataSource ds, EventExecutorGroup ex)
@@ -28,6 +79,11 @@ public class FutureInterpreter
         this(lift(ds), ex);
     }
 
+    public FutureInterpreter(DataSource ds, EventExecutorGroup ex, DbInterceptor interceptor)
+    {
+        this(lift(ds), ex, interceptor);
+    }
+
     /**
      * Submits this operation for execution in the executor service. The operation is executed with connection autoCommit = true,
      * i.e. non-transactionally.
@@ -42,19 +98,113 @@ public class FutureInterpreter
      */
     public <A> Future<A> transact(DB<A> op)
     {
-        return withConnection(transactional(op), false);
+        return withConnection(op, false);
     }
 
-    private <A> Future<A> withConnection(DB<A> op, boolean autoCommit)
+    /**
+     * Like {@link #submit(DB)}, but the returned future completes on the given executor, e.g. that of the calling
+     * channel. Cancelling it cancels the operation, unless already running.
+     */
+    public <A> Future<A> submit(DB<A> op, EventExecutor caller)
+    {
+        return completeOn(withConnection(op, true), caller);
+    }
+
+    /**
+     * Like {@link #transact(DB)}, but the returned future completes on the given executor, e.g. that of the calling
+     * channel. Cancelling it cancels the operation, unless already running.
+     */
+    public <A> Future<A> transact(DB<A> op, EventExecutor caller)
+    {
+        return completeOn(withConnection(op, false), caller);
+    }
+
+    /**
+     * Submits a number of operations for execution in the executor service, as a single task which runs them in order
+     * on a single connection, with autoCommit = true. This saves a task and a pool checkout per operation, and suits
+     * small independent reads.
+     *
+     * Each returned future completes as soon as its operation does, and fails iff its operation throws; the others
+     * still run. If the connection cannot be acquired, all futures fail.
+     * @return a future per operation, in the order of the operations
+     */
+    public <A> List<Future<A>> submitAll(List<? extends DB<? extends A>> ops)
+    {
+        EventExecutor runOn = ex.next();
+        return submitAll(ops, runOn, runOn);
+    }
+
+    /**
+     * Like {@link #submitAll(List)}, but the returned futures complete on the given executor, e.g. that of the calling
+     * channel.
+     */
+    public <A> List<Future<A>> submitAll(List<? extends DB<? extends A>> ops, EventExecutor caller)
     {
-        return ex.submit(() ->
+        return submitAll(ops, ex.next(), caller);
+    }
+
+    private <A> List<Future<A>> submitAll(List<? extends DB<? extends A>> ops, EventExecutor runOn,
+            EventExecutor caller)
+    {
+        List<Promise<A>> promises = new ArrayList<>(ops.size());
+        for (int i = 0; i < ops.size(); i++)
+        {
+            promises.add(caller.newPromise());
+        }
+        if (ops.isEmpty())
         {
+            return new ArrayList<>(promises);
+        }
 
-            try (Connection c = getConnection(autoCommit))
+        List<DB<? extends A>> toRun = new ArrayList<>(ops);
+        long submittedAt = System.nanoTime();
+        runOn.execute(() -> InterpreterUtils.runAllWithConnection(ds, toRun, interceptor, submittedAt,
+                (i, result, error) -> {
+                    if (error == null)
+                    {
+                        promises.get(i).trySuccess(result);
+                    }
+                    else
+                    {
+                        promises.get(i).tryFailure(error);
+                    }
+                }));
+        return new ArrayList<>(promises);
+    }
+
+    private static <A> Future<A> completeOn(Future<A> future, EventExecutor caller)
+    {
+        // a promise notifies its listeners on its executor, whichever thread completes it
+        Promise<A> result = caller.newPromise();
+        future.addListener(x -> {
+            if (x.isSuccess())
             {
-                return op.run(c);
+                result.trySuccess(future.getNow());
+            }
+            else
+            {
+                result.tryFailure(x.cause());
             }
         });
+        result.addListener(x -> {
+            if (x.isCancelled())
+            {
+                future.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    static boolean isEventLoop(EventExecutorGroup ex)
+    {
+        return ex instanceof EventLoopGroup;
+    }
+
+    private <A> Future<A> withConnection(DB<A> op, boolean autoCommit)
+    {
+        long submittedAt = System.nanoTime();
+        return ex.submit(() -> InterpreterUtils.runWithConnection(() -> getConnection(autoCommit), op, !autoCommit,
+                interceptor, submittedAt));
     }
 
     private Connection getConnection(boolean autoCommit) throws SQLException
@@ -0,0 +1,238 @@
+package com.novarto.sanedbc.netty.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Map;
+
+/**
+ * A compact binary row format. The header is the number of columns as a big-endian int, followed by the type tag
+ * (a byte) and the label (a string) of each column. Each row is a null bitmap of (columns + 7) / 8 bytes, in which
+ * bit (i - 1) % 8 of byte (i - 1) / 8 is set iff column i is null, followed by the values of the non-null columns:
+ * <ul>
+ *     <li>{@link #BOOL}: a byte, 0 or 1</li>
+ *     <li>{@link #INT64}: a zig-zag encoded varint, as in protobuf</li>
+ *     <li>{@link #FLOAT64}: a big-endian IEEE 754 double</li>
+ *     <li>{@link #STRING}: the length in bytes as a varint, followed by the UTF-8 bytes; also used for decimals</li>
+ *     <li>{@link #BYTES}: the length as a varint, followed by the bytes</li>
+ *     <li>{@link #TIMESTAMP}: milliseconds since the epoch, as an {@link #INT64}; used for dates and times too</li>
+ * </ul>
+ * An encoder given for a column must write the representation of the column type.
+ */
+public final class BinaryRowFormat implements RowFormat
+{
+    public static final byte BOOL = 1;
+    public static final byte INT64 = 2;
+    public static final byte FLOAT64 = 3;
+    public static final byte STRING = 4;
+    public static final byte BYTES = 5;
+    public static final byte TIMESTAMP = 6;
+
+    BinaryRowFormat()
+    {
+    }
+
+    @Override public RowWriter prepare(ResultSetMetaData md, Map<String, ColumnEncoder> encoders) throws SQLException
+    {
+        int columns = md.getColumnCount();
+        int bitmapBytes = (columns + 7) / 8;
+        String[] labels = new String[columns + 1];
+        byte[] tags = new byte[columns + 1];
+        ColumnEncoder[] xs = new ColumnEncoder[columns + 1];
+        for (int i = 1; i <= columns; i++)
+        {
+            labels[i] = md.getColumnLabel(i);
+            tags[i] = tag(md.getColumnType(i));
+            ColumnEncoder encoder = encoders.get(labels[i]);
+            xs[i] = encoder != null ? encoder : encoder(tags[i]);
+        }
+
+        return new RowWriter()
+        {
+            @Override public void writeHeader(ByteBuf out)
+            {
+                out.writeInt(columns);
+                for (int i = 1; i <= columns; i++)
+                {
+                    out.writeByte(tags[i]);
+                    writeString(out, labels[i]);
+                }
+            }
+
+            @Override public void writeRow(ResultSet rs, ByteBuf out) throws SQLException
+            {
+                int bitmap = out.writerIndex();
+                out.writeZero(bitmapBytes);
+                for (int i = 1; i <= columns; i++)
+                {
+                    if (!xs[i].encode(rs, i, out))
+                    {
+                        int index = bitmap + (i - 1) / 8;
+                        out.setByte(index, out.getByte(index) | 1 << (i - 1) % 8);
+                    }
+                }
+            }
+        };
+    }
+
+    private static byte tag(int sqlType)
+    {
+        switch (sqlType)
+        {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return BOOL;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return INT64;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return FLOAT64;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BYTES;
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return TIMESTAMP;
+            default:
+                return STRING;
+        }
+    }
+
+    private static ColumnEncoder encoder(byte tag)
+    {
+        switch (tag)
+        {
+            case BOOL:
+                return (rs, i, out) -> {
+                    boolean x = rs.getBoolean(i);
+                    if (rs.wasNull())
+                    {
+                        return false;
+                    }
+                    out.writeByte(x ? 1 : 0);
+                    return true;
+                };
+            case INT64:
+                return (rs, i, out) -> {
+                    long x = rs.getLong(i);
+                    if (rs.wasNull())
+                    {
+                        return false;
+                    }
+                    writeVarLong(out, zigZag(x));
+                    return true;
+                };
+            case FLOAT64:
+                return (rs, i, out) -> {
+                    double x = rs.getDouble(i);
+                    if (rs.wasNull())
+                    {
+                        return false;
+                    }
+                    out.writeDouble(x);
+                    return true;
+                };
+            case BYTES:
+                return (rs, i, out) -> {
+                    byte[] x = rs.getBytes(i);
+                    if (x == null)
+                    {
+                        return false;
+                    }
+                    writeVarLong(out, x.length);
+                    out.writeBytes(x);
+                    return true;
+                };
+            case TIMESTAMP:
+                return (rs, i, out) -> {
+                    Timestamp x = rs.getTimestamp(i);
+                    if (x == null)
+                    {
+                        return false;
+                    }
+                    writeVarLong(out, zigZag(x.getTime()));
+                    return true;
+                };
+            default:
+                return (rs, i, out) -> {
+                    String x = rs.getString(i);
+                    if (x == null)
+                    {
+                        return false;
+                    }
+                    writeString(out, x);
+                    return true;
+                };
+        }
+    }
+
+    static long zigZag(long x)
+    {
+        return (x << 1) ^ (x >> 63);
+    }
+
+    static void writeVarLong(ByteBuf out, long x)
+    {
+        while ((x & ~0x7FL) != 0)
+        {
+            out.writeByte((int) (x & 0x7F) | 0x80);
+            x >>>= 7;
+        }
+        out.writeByte((int) x);
+    }
+
+    static void writeString(ByteBuf out, CharSequence x)
+    {
+        int length = utf8Length(x);
+        writeVarLong(out, length);
+        if (ByteBufUtil.writeUtf8(out, x) != length)
+        {
+            throw new IllegalStateException("unexpected UTF-8 length of " + x);
+        }
+    }
+
+    private static int utf8Length(CharSequence x)
+    {
+        int result = 0;
+        for (int i = 0; i < x.length(); i++)
+        {
+            char c = x.charAt(i);
+            if (c < 0x80)
+            {
+                result++;
+            }
+            else if (c < 0x800)
+            {
+                result += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < x.length() && Character.isLowSurrogate(x.charAt(i + 1)))
+            {
+                result += 4;
+                i++;
+            }
+            else
+            {
+                // lone surrogates are written as '?' by netty
+                result += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return result;
+    }
+
+    @Override public String toString()
+    {
+        return "BINARY";
+    }
+}
@@ -0,0 +1,20 @@
+package com.novarto.sanedbc.netty.stream;
+
+import io.netty.buffer.ByteBuf;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes the value of a column of the current row of a result set, in the representation of a {@link RowFormat},
+ * e.g. a JSON value for {@link RowFormat#JSON_LINES}. The format takes care of separators, quoting of keys, and nulls.
+ */
+@FunctionalInterface
+public interface ColumnEncoder
+{
+    /**
+     * @param column the 1-based column index
+     * @return false iff the value is SQL NULL, in which case nothing must have been written
+     */
+    boolean encode(ResultSet rs, int column, ByteBuf out) throws SQLException;
+}
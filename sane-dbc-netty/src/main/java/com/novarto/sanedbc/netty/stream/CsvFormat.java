@@ -0,0 +1,58 @@
+package com.novarto.sanedbc.netty.stream;
+
+import io.netty.buffer.ByteBuf;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+
+final class CsvFormat implements RowFormat
+{
+    @Override public RowWriter prepare(ResultSetMetaData md, Map<String, ColumnEncoder> encoders) throws SQLException
+    {
+        int columns = md.getColumnCount();
+        String[] labels = new String[columns + 1];
+        ColumnEncoder[] xs = new ColumnEncoder[columns + 1];
+        for (int i = 1; i <= columns; i++)
+        {
+            labels[i] = md.getColumnLabel(i);
+            ColumnEncoder encoder = encoders.get(labels[i]);
+            xs[i] = encoder != null ? encoder : Text.encoder(md.getColumnType(i), false);
+        }
+
+        return new RowWriter()
+        {
+            @Override public void writeHeader(ByteBuf out)
+            {
+                for (int i = 1; i <= columns; i++)
+                {
+                    if (i > 1)
+                    {
+                        out.writeByte(',');
+                    }
+                    Text.writeCsvField(out, labels[i]);
+                }
+                out.writeByte('\r').writeByte('\n');
+            }
+
+            @Override public void writeRow(ResultSet rs, ByteBuf out) throws SQLException
+            {
+                for (int i = 1; i <= columns; i++)
+                {
+                    if (i > 1)
+                    {
+                        out.writeByte(',');
+                    }
+                    xs[i].encode(rs, i, out);
+                }
+                out.writeByte('\r').writeByte('\n');
+            }
+        };
+    }
+
+    @Override public String toString()
+    {
+        return "CSV";
+    }
+}
@@ -0,0 +1,62 @@
+package com.novarto.sanedbc.netty.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+
+final class JsonLinesFormat implements RowFormat
+{
+    @Override public RowWriter prepare(ResultSetMetaData md, Map<String, ColumnEncoder> encoders) throws SQLException
+    {
+        int columns = md.getColumnCount();
+        // the keys are encoded once per result set, e.g. ,"NAME":
+        byte[][] keys = new byte[columns + 1][];
+        ColumnEncoder[] xs = new ColumnEncoder[columns + 1];
+        for (int i = 1; i <= columns; i++)
+        {
+            String label = md.getColumnLabel(i);
+            ByteBuf key = Unpooled.buffer();
+            key.writeByte(i == 1 ? '{' : ',');
+            Text.writeJsonString(key, label);
+            key.writeByte(':');
+            keys[i] = ByteBufUtil.getBytes(key);
+
+            ColumnEncoder encoder = encoders.get(label);
+            xs[i] = encoder != null ? encoder : Text.encoder(md.getColumnType(i), true);
+        }
+
+        return new RowWriter()
+        {
+            @Override public void writeHeader(ByteBuf out)
+            {
+            }
+
+            @Override public void writeRow(ResultSet rs, ByteBuf out) throws SQLException
+            {
+                if (columns == 0)
+                {
+                    out.writeByte('{');
+                }
+                for (int i = 1; i <= columns; i++)
+                {
+                    out.writeBytes(keys[i]);
+                    if (!xs[i].encode(rs, i, out))
+                    {
+                        out.writeBytes(Text.NULL);
+                    }
+                }
+                out.writeByte('}').writeByte('\n');
+            }
+        };
+    }
+
+    @Override public String toString()
+    {
+        return "JSON_LINES";
+    }
+}
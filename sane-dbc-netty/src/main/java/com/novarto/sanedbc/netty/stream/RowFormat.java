@@ -0,0 +1,33 @@
+package com.novarto.sanedbc.netty.stream;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * A format in which result set rows are written to byte buffers, without intermediate row objects
+ */
+public interface RowFormat
+{
+    /**
+     * RFC 4180 CSV, with a header line of column labels, and CRLF line endings. Nulls are empty fields; binary values
+     * are Base64 encoded.
+     */
+    RowFormat CSV = new CsvFormat();
+
+    /**
+     * A JSON object per line, keyed by column label. Numbers and booleans are JSON numbers and booleans; binary values
+     * are Base64 encoded strings; everything else is a string.
+     */
+    RowFormat JSON_LINES = new JsonLinesFormat();
+
+    /**
+     * A compact binary format, see {@link BinaryRowFormat}
+     */
+    RowFormat BINARY = new BinaryRowFormat();
+
+    /**
+     * @param encoders encoders which replace the default ones of the format, by column label
+     */
+    RowWriter prepare(ResultSetMetaData md, Map<String, ColumnEncoder> encoders) throws SQLException;
+}
@@ -0,0 +1,22 @@
+package com.novarto.sanedbc.netty.stream;
+
+import io.netty.buffer.ByteBuf;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes the rows of a single result set, as prepared by {@link RowFormat#prepare}
+ */
+public interface RowWriter
+{
+    /**
+     * Writes what precedes the rows, e.g. the column names. Called once, before any row.
+     */
+    void writeHeader(ByteBuf out) throws SQLException;
+
+    /**
+     * Writes the current row of the result set
+     */
+    void writeRow(ResultSet rs, ByteBuf out) throws SQLException;
+}
@@ -0,0 +1,153 @@
+package com.novarto.sanedbc.netty.stream;
+
+import fj.control.db.DB;
+import fj.function.TryEffect1;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A query which streams its result straight into a channel, in a given {@link RowFormat}, without creating row
+ * objects. Rows are encoded into direct buffers from the channel's allocator (pooled by default), and each buffer is
+ * written and flushed once it holds at least chunkSize bytes. Buffers hold whole rows, so a single large row may
+ * exceed chunkSize.
+ *
+ * Writes are subject to backpressure: while the channel is not writable, i.e. its outbound buffer is above the high
+ * water mark, the operation waits for the previous chunk to be written before reading further rows. It must
+ * therefore not run on the channel's event loop.
+ *
+ * The result is the number of rows streamed. If a write fails, e.g. the channel was closed, the operation fails with
+ * an SQLException caused by the write failure, which closes the statement and stops the query.
+ */
+public class StreamingSelectOp extends DB<Long>
+{
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final String sql;
+    private final TryEffect1<PreparedStatement, SQLException> binder;
+    private final RowFormat format;
+    private final Map<String, ColumnEncoder> encoders;
+    private final Channel channel;
+    private final int chunkSize;
+    private final int fetchSize;
+
+    public StreamingSelectOp(String sql, TryEffect1<PreparedStatement, SQLException> binder, RowFormat format,
+            Channel channel)
+    {
+        this(sql, binder, format, Collections.emptyMap(), channel, DEFAULT_CHUNK_SIZE, 0);
+    }
+
+    /**
+     * @param encoders encoders replacing those of the format, by column label
+     * @param chunkSize the number of bytes after which a buffer is written to the channel
+     * @param fetchSize the fetch size of the statement, or 0 for the driver default. See
+     * {@link com.novarto.sanedbc.core.Dialect#streamingFetchSize()}
+     */
+    public StreamingSelectOp(String sql, TryEffect1<PreparedStatement, SQLException> binder, RowFormat format,
+            Map<String, ColumnEncoder> encoders, Channel channel, int chunkSize, int fetchSize)
+    {
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("chunkSize must be >=1");
+        }
+        this.sql = sql;
+        this.binder = binder;
+        this.format = format;
+        this.encoders = encoders;
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override public Long run(Connection c) throws SQLException
+    {
+        try (PreparedStatement ps = c.prepareStatement(sql))
+        {
+            binder.f(ps);
+            if (fetchSize != 0)
+            {
+                ps.setFetchSize(fetchSize);
+            }
+            try (ResultSet rs = ps.executeQuery())
+            {
+                return stream(rs);
+            }
+        }
+    }
+
+    private long stream(ResultSet rs) throws SQLException
+    {
+        RowWriter writer = format.prepare(rs.getMetaData(), encoders);
+        ChannelFuture lastWrite = null;
+        long rows = 0;
+
+        ByteBuf chunk = channel.alloc().directBuffer(chunkSize);
+        try
+        {
+            writer.writeHeader(chunk);
+            while (rs.next())
+            {
+                writer.writeRow(rs, chunk);
+                rows++;
+                if (chunk.readableBytes() >= chunkSize)
+                {
+                    lastWrite = write(chunk, lastWrite);
+                    // owned by the channel from now on
+                    chunk = null;
+                    chunk = channel.alloc().directBuffer(chunkSize);
+                }
+            }
+
+            if (chunk.isReadable())
+            {
+                lastWrite = write(chunk, lastWrite);
+                chunk = null;
+            }
+            checkFailed(lastWrite);
+            return rows;
+        }
+        finally
+        {
+            if (chunk != null)
+            {
+                chunk.release();
+            }
+        }
+    }
+
+    /**
+     * Writes a chunk. The channel takes ownership of it, unless this throws.
+     */
+    private ChannelFuture write(ByteBuf chunk, ChannelFuture lastWrite) throws SQLException
+    {
+        if (lastWrite != null && !channel.isWritable())
+        {
+            try
+            {
+                lastWrite.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new SQLException("interrupted while waiting for " + channel + " to become writable", e);
+            }
+        }
+        checkFailed(lastWrite);
+        return channel.writeAndFlush(chunk);
+    }
+
+    private void checkFailed(ChannelFuture write) throws SQLException
+    {
+        if (write != null && write.isDone() && !write.isSuccess())
+        {
+            throw new SQLException("failed to write to " + channel, write.cause());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.novarto.sanedbc.netty.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.Base64;
+
+/**
+ * Encoding of values as text directly into byte buffers, shared by the CSV and JSON lines formats
+ */
+final class Text
+{
+    private Text()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * @param json whether strings and binary values are quoted, and non-finite doubles are nulls
+     */
+    static ColumnEncoder encoder(int sqlType, boolean json)
+    {
+        switch (sqlType)
+        {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return (rs, i, out) -> {
+                    boolean x = rs.getBoolean(i);
+                    if (rs.wasNull())
+                    {
+                        return false;
+                    }
+                    out.writeBytes(x ? TRUE : FALSE);
+                    return true;
+                };
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return (rs, i, out) -> {
+                    long x = rs.getLong(i);
+                    if (rs.wasNull())
+                    {
+                        return false;
+                    }
+                    writeLong(out, x);
+                    return true;
+                };
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return (rs, i, out) -> {
+                    double x = rs.getDouble(i);
+                    if (rs.wasNull())
+                    {
+                        return false;
+                    }
+                    if (json && (Double.isNaN(x) || Double.isInfinite(x)))
+                    {
+                        out.writeBytes(NULL);
+                    }
+                    else
+                    {
+                        ByteBufUtil.writeAscii(out, Double.toString(x));
+                    }
+                    return true;
+                };
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return (rs, i, out) -> {
+                    BigDecimal x = rs.getBigDecimal(i);
+                    if (x == null)
+                    {
+                        return false;
+                    }
+                    ByteBufUtil.writeAscii(out, x.toString());
+                    return true;
+                };
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return (rs, i, out) -> {
+                    byte[] x = rs.getBytes(i);
+                    if (x == null)
+                    {
+                        return false;
+                    }
+                    if (json)
+                    {
+                        out.writeByte('"');
+                    }
+                    out.writeBytes(Base64.getEncoder().encode(x));
+                    if (json)
+                    {
+                        out.writeByte('"');
+                    }
+                    return true;
+                };
+            default:
+                return (rs, i, out) -> {
+                    String x = rs.getString(i);
+                    if (x == null)
+                    {
+                        return false;
+                    }
+                    if (json)
+                    {
+                        writeJsonString(out, x);
+                    }
+                    else
+                    {
+                        writeCsvField(out, x);
+                    }
+                    return true;
+                };
+        }
+    }
+
+    /**
+     * Writes the decimal digits of a long, without going through a String
+     */
+    static void writeLong(ByteBuf out, long x)
+    {
+        if (x == Long.MIN_VALUE)
+        {
+            ByteBufUtil.writeAscii(out, Long.toString(x));
+            return;
+        }
+        if (x < 0)
+        {
+            out.writeByte('-');
+            x = -x;
+        }
+        int digits = 1;
+        for (long y = x / 10; y > 0; y /= 10)
+        {
+            digits++;
+        }
+        out.ensureWritable(digits);
+        int end = out.writerIndex() + digits;
+        for (int i = end - 1; i >= out.writerIndex(); i--)
+        {
+            out.setByte(i, (int) ('0' + x % 10));
+            x /= 10;
+        }
+        out.writerIndex(end);
+    }
+
+    static void writeCsvField(ByteBuf out, CharSequence x)
+    {
+        boolean quote = false;
+        for (int i = 0; i < x.length() && !quote; i++)
+        {
+            char c = x.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote)
+        {
+            ByteBufUtil.writeUtf8(out, x);
+            return;
+        }
+
+        out.writeByte('"');
+        int from = 0;
+        for (int i = 0; i < x.length(); i++)
+        {
+            if (x.charAt(i) == '"')
+            {
+                ByteBufUtil.writeUtf8(out, x.subSequence(from, i + 1));
+                out.writeByte('"');
+                from = i + 1;
+            }
+        }
+        ByteBufUtil.writeUtf8(out, x.subSequence(from, x.length()));
+        out.writeByte('"');
+    }
+
+    static void writeJsonString(ByteBuf out, CharSequence x)
+    {
+        out.writeByte('"');
+        int from = 0;
+        for (int i = 0; i < x.length(); i++)
+        {
+            char c = x.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20)
+            {
+                if (i > from)
+                {
+                    ByteBufUtil.writeUtf8(out, x.subSequence(from, i));
+                }
+                out.writeByte('\\');
+                switch (c)
+                {
+                    case '"':
+                    case '\\':
+                        out.writeByte(c);
+                        break;
+                    case '\n':
+                        out.writeByte('n');
+                        break;
+                    case '\r':
+                        out.writeByte('r');
+                        break;
+                    case '\t':
+                        out.writeByte('t');
+                        break;
+                    default:
+                        ByteBufUtil.writeAscii(out, String.format("u%04x", (int) c));
+                        break;
+                }
+                from = i + 1;
+            }
+        }
+        if (from == 0)
+        {
+            ByteBufUtil.writeUtf8(out, x);
+        }
+        else if (from < x.length())
+        {
+            ByteBufUtil.writeUtf8(out, x.subSequence(from, x.length()));
+        }
+        out.writeByte('"');
+    }
+}
@@ -1,9 +1,13 @@
 package com.novarto.sanedbc.netty;
 
+import com.novarto.sanedbc.core.interceptor.MetricsInterceptor;
+import com.novarto.sanedbc.core.ops.AggregateOp;
 import com.novarto.sanedbc.hikari.Hikari;
 import com.zaxxer.hikari.HikariDataSource;
 import fj.control.db.DB;
 import fj.function.Try1;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.util.concurrent.DefaultEventExecutor;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.UnorderedThreadPoolEventExecutor;
@@ -13,7 +17,10 @@ import org.junit.Test;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 import static com.novarto.lang.testutil.TestUtil.tryTo;
 import static com.novarto.sanedbc.hikari.Hikari.gracefulShutdown;
@@ -73,6 +80,90 @@ public class SanityTest
 
     }
 
+    @Test public void interceptor()
+    {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+        FutureInterpreter dbi = new FutureInterpreter(ds, ex, metrics);
+
+        assertThat(awaitAndGet(dbi.transact(new AggregateOp("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS"))) > 0,
+                is(true));
+        awaitAndGetFailure(dbi.submit(new AggregateOp("SELECT COUNT(*) FROM NO_SUCH_TABLE")));
+
+        assertThat(metrics.ops().count(), is(2L));
+        assertThat(metrics.opErrors(), is(1L));
+        assertThat(metrics.statements().get(0).fingerprint,
+                is("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS"));
+    }
+
+    @Test public void completesOnCaller() throws Exception
+    {
+        DefaultEventExecutor caller = new DefaultEventExecutor();
+        try
+        {
+            CompletableFuture<Boolean> onCaller = new CompletableFuture<>();
+            Future<Integer> result = dbAsync.submit(DB.unit(42), caller);
+            result.addListener(x -> onCaller.complete(caller.inEventLoop()));
+
+            assertThat(awaitAndGet(result), is(42));
+            assertThat(onCaller.get(), is(true));
+
+            SQLException failure = new SQLException("failed i have");
+            assertThat(awaitAndGetFailure(dbAsync.transact(DB.db((Try1<Connection, Integer, SQLException>) c -> {
+                throw failure;
+            }), caller)), is(failure));
+        }
+        finally
+        {
+            caller.shutdownGracefully();
+        }
+    }
+
+    @Test public void submitAll() throws Exception
+    {
+        MetricsInterceptor metrics = new MetricsInterceptor();
+        FutureInterpreter dbi = new FutureInterpreter(ds, ex, metrics);
+        DefaultEventExecutor caller = new DefaultEventExecutor();
+        try
+        {
+            List<Future<Long>> results = dbi.submitAll(Arrays.asList(
+                    new AggregateOp("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS WHERE 1 = 0"),
+                    new AggregateOp("SELECT COUNT(*) FROM NO_SUCH_TABLE")), caller);
+
+            CompletableFuture<Boolean> onCaller = new CompletableFuture<>();
+            results.get(0).addListener(x -> onCaller.complete(caller.inEventLoop()));
+
+            assertThat(awaitAndGet(results.get(0)), is(0L));
+            assertThat(awaitAndGetFailure(results.get(1)) instanceof SQLException, is(true));
+            assertThat(onCaller.get(), is(true));
+
+            assertThat(metrics.ops().count(), is(2L));
+            assertThat(metrics.connectionAcquire().count(), is(1L));
+
+            assertThat(awaitAndGet(dbAsync.submitAll(Arrays.asList(DB.unit(1), DB.unit(2))).get(1)), is(2));
+        }
+        finally
+        {
+            caller.shutdownGracefully();
+        }
+    }
+
+    @Test public void detectsEventLoops()
+    {
+        assertThat(FutureInterpreter.isEventLoop(ex), is(false));
+        assertThat(FutureInterpreter.isEventLoop(new DefaultEventExecutor()), is(false));
+
+        DefaultEventLoopGroup loops = new DefaultEventLoopGroup(1);
+        try
+        {
+            assertThat(FutureInterpreter.isEventLoop(loops), is(true));
+            assertThat(FutureInterpreter.isEventLoop(loops.next()), is(true));
+        }
+        finally
+        {
+            loops.shutdownGracefully();
+        }
+    }
+
     @AfterClass public static void shutdownHikari()
     {
         gracefulShutdown(ex, ds);
@@ -0,0 +1,154 @@
+package com.novarto.sanedbc.netty.stream;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.DriverManager;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static fj.data.List.arrayList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StreamingSelectOpTest
+{
+    private static final SyncDbInterpreter DBI = new SyncDbInterpreter(
+            () -> DriverManager.getConnection("jdbc:hsqldb:mem:StreamingSelectOpTest", "sa", ""));
+
+    private static final String SELECT = "SELECT ID, NAME, SCORE, ACTIVE FROM StreamingSelectOpTest_FOO ORDER BY ID";
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        DBI.submit(new EffectOp("CREATE TABLE StreamingSelectOpTest_FOO " +
+                "(ID INTEGER, NAME VARCHAR(20), SCORE DOUBLE, ACTIVE BOOLEAN)"));
+        DBI.submit(new BatchUpdateOp<>("INSERT INTO StreamingSelectOpTest_FOO VALUES (?, ?, ?, ?)",
+                (Integer x) -> ps -> {
+                    ps.setInt(1, x);
+                    if (x == 3)
+                    {
+                        ps.setNull(2, Types.VARCHAR);
+                        ps.setNull(3, Types.DOUBLE);
+                    }
+                    else
+                    {
+                        ps.setString(2, x == 1 ? "plain" : "say \"hi\", \u00e9");
+                        ps.setDouble(3, x * 1.5);
+                    }
+                    ps.setBoolean(4, x % 2 == 0);
+                }, arrayList(1, 2, 3, -1234567890)));
+    }
+
+    @Test
+    public void csv()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        assertThat(DBI.submit(new StreamingSelectOp(SELECT, ps -> {
+        }, RowFormat.CSV, channel)), is(4L));
+
+        assertThat(text(readAll(channel)), is("ID,NAME,SCORE,ACTIVE\r\n" +
+                "-1234567890,\"say \"\"hi\"\", \u00e9\",-1.851851835E9,true\r\n" +
+                "1,plain,1.5,false\r\n" +
+                "2,\"say \"\"hi\"\", \u00e9\",3.0,true\r\n" +
+                "3,,,false\r\n"));
+    }
+
+    @Test
+    public void jsonLinesInChunksOfWholeRows()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        DBI.submit(new StreamingSelectOp(SELECT + " LIMIT 3", ps -> {
+        }, RowFormat.JSON_LINES, Collections.singletonMap("SCORE", (rs, i, out) -> {
+            out.writeByte('0');
+            return true;
+        }), channel, 1, 0));
+
+        List<ByteBuf> chunks = readAll(channel);
+        assertThat(chunks.size(), is(3));
+        assertThat(text(chunks.subList(0, 1)),
+                is("{\"ID\":-1234567890,\"NAME\":\"say \\\"hi\\\", \u00e9\",\"SCORE\":0,\"ACTIVE\":true}\n"));
+        assertThat(text(chunks.subList(1, 3)), is("{\"ID\":1,\"NAME\":\"plain\",\"SCORE\":0,\"ACTIVE\":false}\n" +
+                "{\"ID\":2,\"NAME\":\"say \\\"hi\\\", \u00e9\",\"SCORE\":0,\"ACTIVE\":true}\n"));
+    }
+
+    @Test
+    public void binary()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        DBI.submit(new StreamingSelectOp(SELECT + " OFFSET 3", ps -> {
+        }, RowFormat.BINARY, channel));
+
+        ByteBuf out = channel.readOutbound();
+        assertThat(out.readInt(), is(4));
+        assertThat(out.readByte(), is(BinaryRowFormat.INT64));
+        assertThat(readString(out), is("ID"));
+        assertThat(out.readByte(), is(BinaryRowFormat.STRING));
+        assertThat(readString(out), is("NAME"));
+        assertThat(out.readByte(), is(BinaryRowFormat.FLOAT64));
+        assertThat(readString(out), is("SCORE"));
+        assertThat(out.readByte(), is(BinaryRowFormat.BOOL));
+        assertThat(readString(out), is("ACTIVE"));
+
+        // NAME and SCORE are null
+        assertThat(out.readByte(), is((byte) 0b0110));
+        assertThat(out.readByte(), is((byte) 6));
+        assertThat(out.readByte(), is((byte) 0));
+        assertThat(out.isReadable(), is(false));
+        out.release();
+    }
+
+    @Test
+    public void failsOnClosedChannel()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.close();
+        try
+        {
+            DBI.submit(new StreamingSelectOp(SELECT, ps -> {
+            }, RowFormat.CSV, Collections.emptyMap(), channel, 1, 0));
+            throw new AssertionError("expected a failure");
+        }
+        catch (RuntimeException e)
+        {
+            assertThat(e.getMessage().contains("failed to write"), is(true));
+        }
+    }
+
+    private static String readString(ByteBuf out)
+    {
+        int length = out.readByte();
+        return out.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    private static List<ByteBuf> readAll(EmbeddedChannel channel)
+    {
+        List<ByteBuf> result = new ArrayList<>();
+        for (ByteBuf x = channel.readOutbound(); x != null; x = channel.readOutbound())
+        {
+            assertThat(x.isDirect(), is(true));
+            result.add(x);
+        }
+        return result;
+    }
+
+    private static String text(List<ByteBuf> chunks)
+    {
+        StringBuilder result = new StringBuilder();
+        for (ByteBuf x : chunks)
+        {
+            result.append(new String(ByteBufUtil.getBytes(x), StandardCharsets.UTF_8));
+            x.release();
+        }
+        return result.toString();
+    }
+}
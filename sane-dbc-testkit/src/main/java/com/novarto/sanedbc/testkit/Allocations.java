@@ -0,0 +1,148 @@
+package com.novarto.sanedbc.testkit;
+
+import fj.function.TryEffect0;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the current thread, in order to assert allocation budgets in tests, e.g.
+ * <pre>
+ *     Allocations.assertWithin("placeholders(10)", 0, 10_000, () -&gt; SqlStringUtils.placeholders(10));
+ * </pre>
+ * Each measurement first runs the code as many times as it measures it, so that it is JIT compiled, and escape
+ * analysis has had a chance to eliminate short-lived allocations, as it would in production.
+ *
+ * Relies on com.sun.management.ThreadMXBean, which HotSpot based JVMs provide. Where it is not available, see
+ * {@link #isSupported()}, budgets are not asserted.
+ */
+public final class Allocations
+{
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    // the bytes allocated by a measurement itself, i.e. by a pair of calls to allocatedBytes()
+    private static final long OVERHEAD = overhead();
+
+    private Allocations()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean()
+    {
+        java.lang.management.ThreadMXBean result = ManagementFactory.getThreadMXBean();
+        if (!(result instanceof com.sun.management.ThreadMXBean))
+        {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) result;
+        if (!threads.isThreadAllocatedMemorySupported())
+        {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private static long overhead()
+    {
+        if (THREADS == null)
+        {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++)
+        {
+            long before = allocatedBytes();
+            min = Math.min(min, allocatedBytes() - before);
+        }
+        return min;
+    }
+
+    /**
+     * @return true iff allocations can be measured on this JVM
+     */
+    public static boolean isSupported()
+    {
+        return THREADS != null;
+    }
+
+    /**
+     * @return the total number of bytes allocated by the current thread so far
+     */
+    public static long allocatedBytes()
+    {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Runs op iterations times as a warmup, and then iterations more times, measuring allocations
+     * @return the average number of bytes op allocates
+     */
+    public static double bytesPerOp(int iterations, TryEffect0<? extends Exception> op) throws Exception
+    {
+        if (!isSupported())
+        {
+            throw new UnsupportedOperationException("thread allocation measurement is not supported by this JVM");
+        }
+
+        for (int i = 0; i < iterations; i++)
+        {
+            op.f();
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < iterations; i++)
+        {
+            op.f();
+        }
+        long bytes = allocatedBytes() - before - OVERHEAD;
+        return Math.max(0, bytes) / (double) iterations;
+    }
+
+    /**
+     * Asserts that op allocates at most maxBytes on average. Does nothing if allocations cannot be measured.
+     * @param what a description of op, for the assertion message
+     */
+    public static void assertWithin(String what, double maxBytes, int iterations, TryEffect0<? extends Exception> op)
+            throws Exception
+    {
+        if (!isSupported())
+        {
+            return;
+        }
+        check(what, maxBytes, bytesPerOp(iterations, op));
+    }
+
+    /**
+     * Asserts that op allocates at most maxBytes more than baseline on average, e.g. in order to budget the overhead
+     * of a library call over the equivalent plain JDBC calls, regardless of what the driver allocates. Does nothing if
+     * allocations cannot be measured.
+     * @param what a description of op, for the assertion message
+     */
+    public static void assertOverheadWithin(String what, double maxBytes, int iterations,
+            TryEffect0<? extends Exception> baseline, TryEffect0<? extends Exception> op) throws Exception
+    {
+        if (!isSupported())
+        {
+            return;
+        }
+        double baselineBytes = bytesPerOp(iterations, baseline);
+        double opBytes = bytesPerOp(iterations, op);
+        check(what + " (baseline " + format(baselineBytes) + ", measured " + format(opBytes) + ")", maxBytes,
+                opBytes - baselineBytes);
+    }
+
+    private static void check(String what, double maxBytes, double actual)
+    {
+        if (actual > maxBytes)
+        {
+            throw new AssertionError(
+                    what + " allocated " + format(actual) + " bytes per op, over the budget of " + format(maxBytes));
+        }
+    }
+
+    private static String format(double bytes)
+    {
+        return String.format("%.1f", bytes);
+    }
+}
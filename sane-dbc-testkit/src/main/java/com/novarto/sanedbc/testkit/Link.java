@@ -0,0 +1,118 @@
+package com.novarto.sanedbc.testkit;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The simulated link of a single connection. Like the connection itself, it is not meant for concurrent use.
+ *
+ * Transfer delays are accumulated, and paid together with the next round trip, or as soon as they add up to a
+ * millisecond - sleeping for every column read would mostly measure timer overhead.
+ */
+final class Link
+{
+    private static final long MAX_TRANSFER_DEBT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // parkNanos tends to oversleep by tens of microseconds, so the tail of a delay is spun instead
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final SimulatedNetwork network;
+    private final NetworkProfile profile;
+
+    private long transferDebt;
+
+    Link(SimulatedNetwork network)
+    {
+        this.network = network;
+        this.profile = network.profile();
+    }
+
+    void roundTrip(String method) throws SQLException
+    {
+        network.roundTrips.increment();
+
+        long jitter = profile.jitterNanos() == 0 ? 0 : ThreadLocalRandom.current().nextLong(profile.jitterNanos() + 1);
+        long delay = profile.roundTripNanos() + jitter + transferDebt;
+        transferDebt = 0;
+        pause(delay);
+
+        if (profile.mayFail(method) && ThreadLocalRandom.current().nextDouble() < profile.failureRate())
+        {
+            network.failures.increment();
+            throw new SQLTransientConnectionException("simulated network failure in " + method);
+        }
+    }
+
+    void transfer(long bytes)
+    {
+        network.bytes.add(bytes);
+        if (profile.bytesPerSecond() == 0)
+        {
+            return;
+        }
+
+        transferDebt += bytes * 1_000_000_000L / profile.bytesPerSecond();
+        if (transferDebt >= MAX_TRANSFER_DEBT)
+        {
+            long delay = transferDebt;
+            transferDebt = 0;
+            pause(delay);
+        }
+    }
+
+    private void pause(long nanos)
+    {
+        if (nanos <= 0)
+        {
+            return;
+        }
+        network.delayNanos.add(nanos);
+
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0)
+        {
+            if (remaining > SPIN_NANOS)
+            {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            }
+            else
+            {
+                Thread.yield();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * @return the estimated size of a value on the wire
+     */
+    static long sizeOf(Object x)
+    {
+        if (x == null)
+        {
+            return 1;
+        }
+        if (x instanceof CharSequence)
+        {
+            return ((CharSequence) x).length();
+        }
+        if (x instanceof byte[])
+        {
+            return ((byte[]) x).length;
+        }
+        if (x instanceof BigDecimal)
+        {
+            return 16;
+        }
+        if (x instanceof Number || x instanceof Boolean || x instanceof java.util.Date)
+        {
+            return 8;
+        }
+        return 16;
+    }
+}
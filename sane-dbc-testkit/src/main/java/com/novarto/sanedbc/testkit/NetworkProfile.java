@@ -0,0 +1,147 @@
+package com.novarto.sanedbc.testkit;
+
+import fj.F;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The characteristics of a simulated network between an application and its database, see {@link SimulatedNetwork}.
+ * Instances are immutable; the with* methods return modified copies, e.g.
+ * <pre>
+ *     NetworkProfile.roundTrip(1, TimeUnit.MILLISECONDS).withJitter(200, TimeUnit.MICROSECONDS).withFailures(0.01)
+ * </pre>
+ */
+public final class NetworkProfile
+{
+    private static final F<String, Boolean> ALL_METHODS = x -> true;
+
+    /**
+     * No latency at all, i.e. the local driver as is
+     */
+    public static final NetworkProfile LOCAL = new NetworkProfile(0, 0, 0, 0, ALL_METHODS);
+
+    /**
+     * A database in the same datacenter
+     */
+    public static final NetworkProfile DATACENTER = roundTrip(500, TimeUnit.MICROSECONDS)
+            .withJitter(100, TimeUnit.MICROSECONDS).withBandwidth(1_000_000_000L / 8);
+
+    /**
+     * A database in another region
+     */
+    public static final NetworkProfile CROSS_REGION = roundTrip(30, TimeUnit.MILLISECONDS)
+            .withJitter(5, TimeUnit.MILLISECONDS).withBandwidth(100_000_000L / 8);
+
+    private final long roundTripNanos;
+    private final long jitterNanos;
+    private final long bytesPerSecond;
+    private final double failureRate;
+    private final F<String, Boolean> failingMethods;
+
+    private NetworkProfile(long roundTripNanos, long jitterNanos, long bytesPerSecond, double failureRate,
+            F<String, Boolean> failingMethods)
+    {
+        this.roundTripNanos = roundTripNanos;
+        this.jitterNanos = jitterNanos;
+        this.bytesPerSecond = bytesPerSecond;
+        this.failureRate = failureRate;
+        this.failingMethods = failingMethods;
+    }
+
+    /**
+     * A network with the given latency per round trip, unlimited bandwidth, and no failures
+     */
+    public static NetworkProfile roundTrip(long latency, TimeUnit unit)
+    {
+        return LOCAL.withRoundTrip(latency, unit);
+    }
+
+    public NetworkProfile withRoundTrip(long latency, TimeUnit unit)
+    {
+        return new NetworkProfile(nonNegative(unit.toNanos(latency)), jitterNanos, bytesPerSecond, failureRate,
+                failingMethods);
+    }
+
+    /**
+     * @param jitter the maximum random latency added to each round trip, uniformly distributed
+     */
+    public NetworkProfile withJitter(long jitter, TimeUnit unit)
+    {
+        return new NetworkProfile(roundTripNanos, nonNegative(unit.toNanos(jitter)), bytesPerSecond, failureRate,
+                failingMethods);
+    }
+
+    /**
+     * @param bytesPerSecond the bandwidth of each connection, or 0 for unlimited
+     */
+    public NetworkProfile withBandwidth(long bytesPerSecond)
+    {
+        return new NetworkProfile(roundTripNanos, jitterNanos, nonNegative(bytesPerSecond), failureRate,
+                failingMethods);
+    }
+
+    /**
+     * @param rate the probability of each round trip failing, between 0 and 1
+     */
+    public NetworkProfile withFailures(double rate)
+    {
+        return withFailures(rate, ALL_METHODS);
+    }
+
+    /**
+     * @param rate the probability of each round trip issued by one of the given methods failing, between 0 and 1
+     * @param methods the names of the JDBC methods which may fail, e.g. "commit", "executeQuery". Round trips are
+     *                issued by getConnection, prepareStatement, prepareCall, the execute* methods, commit, rollback,
+     *                setAutoCommit, and ResultSet.next when fetching the next chunk of rows
+     */
+    public NetworkProfile withFailures(double rate, F<String, Boolean> methods)
+    {
+        if (rate < 0 || rate > 1)
+        {
+            throw new IllegalArgumentException("failure rate must be between 0 and 1: " + rate);
+        }
+        return new NetworkProfile(roundTripNanos, jitterNanos, bytesPerSecond, rate, methods);
+    }
+
+    public long roundTripNanos()
+    {
+        return roundTripNanos;
+    }
+
+    public long jitterNanos()
+    {
+        return jitterNanos;
+    }
+
+    public long bytesPerSecond()
+    {
+        return bytesPerSecond;
+    }
+
+    public double failureRate()
+    {
+        return failureRate;
+    }
+
+    boolean mayFail(String method)
+    {
+        return failureRate > 0 && failingMethods.f(method);
+    }
+
+    private static long nonNegative(long x)
+    {
+        if (x < 0)
+        {
+            throw new IllegalArgumentException("must not be negative: " + x);
+        }
+        return x;
+    }
+
+    @Override public String toString()
+    {
+        return "NetworkProfile{roundTrip=" + TimeUnit.NANOSECONDS.toMicros(roundTripNanos) + "us, jitter=" +
+                TimeUnit.NANOSECONDS.toMicros(jitterNanos) + "us, bytesPerSecond=" +
+                (bytesPerSecond == 0 ? "unlimited" : String.valueOf(bytesPerSecond)) + ", failureRate=" + failureRate +
+                '}';
+    }
+}
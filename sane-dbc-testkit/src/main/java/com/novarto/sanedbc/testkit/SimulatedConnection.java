@@ -0,0 +1,56 @@
+package com.novarto.sanedbc.testkit;
+
+import com.novarto.sanedbc.core.jdbc.Proxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * A connection behind a simulated network. Statement preparation is assumed to happen on the server, and therefore
+ * costs a round trip.
+ */
+final class SimulatedConnection implements InvocationHandler
+{
+    private final Connection delegate;
+    private final Link link;
+
+    SimulatedConnection(Connection delegate, Link link)
+    {
+        this.delegate = delegate;
+        this.link = link;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        Connection self = (Connection) proxy;
+        String name = method.getName();
+        switch (name)
+        {
+            case "prepareStatement":
+                link.transfer(((String) args[0]).length());
+                link.roundTrip(name);
+                return Proxies.proxy(PreparedStatement.class,
+                        new SimulatedStatement(Proxies.invoke(delegate, method, args), self, link));
+            case "prepareCall":
+                link.transfer(((String) args[0]).length());
+                link.roundTrip(name);
+                return Proxies.proxy(CallableStatement.class,
+                        new SimulatedStatement(Proxies.invoke(delegate, method, args), self, link));
+            case "createStatement":
+                return Proxies.proxy(Statement.class,
+                        new SimulatedStatement(Proxies.invoke(delegate, method, args), self, link));
+            case "commit":
+            case "rollback":
+            case "setAutoCommit":
+            case "setTransactionIsolation":
+                link.roundTrip(name);
+                return Proxies.invoke(delegate, method, args);
+            default:
+                return Proxies.invoke(delegate, method, args);
+        }
+    }
+}
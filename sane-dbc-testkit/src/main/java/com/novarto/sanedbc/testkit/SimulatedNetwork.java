@@ -0,0 +1,127 @@
+package com.novarto.sanedbc.testkit;
+
+import com.novarto.sanedbc.core.interpreter.InterpreterUtils;
+import com.novarto.sanedbc.core.jdbc.Proxies;
+import fj.function.Try0;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulates a network between an application and a local (typically in-memory) database, so that the benefits of
+ * saving round trips - batching, multi-row statements, chunking, fetch sizes - can be measured on a laptop.
+ *
+ * Connections obtained through {@link #lift(Try0)} or {@link #wrap(DataSource)} delay each round trip by the latency
+ * of the profile, plus jitter, and delay transfers according to its bandwidth. A round trip is issued when connecting,
+ * preparing a statement, executing one, committing or rolling back, changing auto-commit, and fetching each chunk of
+ * rows of a result set with a positive fetch size. Request sizes are estimated from the SQL and the bound parameters,
+ * and response sizes from the values read from result sets.
+ *
+ * Failures are injected before the wrapped driver is called, i.e. they model requests lost on the way to the
+ * database, and are reported as {@link java.sql.SQLTransientConnectionException}s.
+ *
+ * Instances are thread safe, and keep statistics of the simulated traffic.
+ */
+public final class SimulatedNetwork
+{
+    private final NetworkProfile profile;
+
+    final LongAdder roundTrips = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder failures = new LongAdder();
+    final LongAdder delayNanos = new LongAdder();
+
+    public SimulatedNetwork(NetworkProfile profile)
+    {
+        this.profile = profile;
+    }
+
+    public NetworkProfile profile()
+    {
+        return profile;
+    }
+
+    /**
+     * Lifts a connection source to one which spawns connections behind this network
+     */
+    public Try0<Connection, SQLException> lift(Try0<Connection, SQLException> ds)
+    {
+        return () -> {
+            Link link = new Link(this);
+            link.roundTrip("getConnection");
+            return Proxies.proxy(Connection.class, new SimulatedConnection(ds.f(), link));
+        };
+    }
+
+    /**
+     * Lifts a data source to a connection source which spawns connections behind this network
+     */
+    public Try0<Connection, SQLException> lift(DataSource ds)
+    {
+        return lift(InterpreterUtils.lift(ds));
+    }
+
+    /**
+     * Wraps a data source, so that its connections are behind this network. Useful in order to put a connection pool
+     * in front of the simulated connections, e.g. via HikariConfig.setDataSource.
+     */
+    public DataSource wrap(DataSource ds)
+    {
+        return Proxies.proxy(DataSource.class, (proxy, method, args) -> {
+            if ("getConnection".equals(method.getName()))
+            {
+                return lift(() -> args == null ? ds.getConnection() :
+                        ds.getConnection((String) args[0], (String) args[1])).f();
+            }
+            return Proxies.invoke(ds, method, args);
+        });
+    }
+
+    /**
+     * @return the number of round trips simulated so far, including failed ones
+     */
+    public long roundTrips()
+    {
+        return roundTrips.sum();
+    }
+
+    /**
+     * @return the estimated number of bytes transferred so far
+     */
+    public long bytes()
+    {
+        return bytes.sum();
+    }
+
+    /**
+     * @return the number of failures injected so far
+     */
+    public long failures()
+    {
+        return failures.sum();
+    }
+
+    /**
+     * @return the total delay injected so far, in nanoseconds
+     */
+    public long delayNanos()
+    {
+        return delayNanos.sum();
+    }
+
+    public void resetStats()
+    {
+        roundTrips.reset();
+        bytes.reset();
+        failures.reset();
+        delayNanos.reset();
+    }
+
+    @Override public String toString()
+    {
+        return "SimulatedNetwork{" + profile + ", roundTrips=" + roundTrips() + ", bytes=" + bytes() +
+                ", failures=" + failures() + '}';
+    }
+}
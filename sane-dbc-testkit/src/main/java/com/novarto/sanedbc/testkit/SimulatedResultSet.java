@@ -0,0 +1,63 @@
+package com.novarto.sanedbc.testkit;
+
+import com.novarto.sanedbc.core.jdbc.Proxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * A result set behind a simulated network. The first chunk of rows arrives with the response to the query; with a
+ * positive fetch size, each subsequent chunk costs a round trip. The values read count towards the transferred bytes.
+ */
+final class SimulatedResultSet implements InvocationHandler
+{
+    private final ResultSet delegate;
+    private final Statement statementProxy;
+    private final Link link;
+    private final int fetchSize;
+
+    private long rows;
+
+    SimulatedResultSet(ResultSet delegate, Statement statementProxy, Link link, int fetchSize)
+    {
+        this.delegate = delegate;
+        this.statementProxy = statementProxy;
+        this.link = link;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String name = method.getName();
+        switch (name)
+        {
+            case "next":
+                if (fetchSize > 0 && rows > 0 && rows % fetchSize == 0)
+                {
+                    link.roundTrip(name);
+                }
+                boolean hasNext = delegate.next();
+                if (hasNext)
+                {
+                    rows++;
+                }
+                return hasNext;
+            case "getStatement":
+                return statementProxy;
+            case "getMetaData":
+                return delegate.getMetaData();
+            default:
+                break;
+        }
+
+        Object result = Proxies.invoke(delegate, method, args);
+        if (name.startsWith("get") && args != null && args.length > 0 &&
+                (args[0] instanceof Integer || args[0] instanceof String))
+        {
+            link.transfer(Link.sizeOf(result));
+        }
+        return result;
+    }
+}
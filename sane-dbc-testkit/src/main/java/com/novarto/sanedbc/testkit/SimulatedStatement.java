@@ -0,0 +1,87 @@
+package com.novarto.sanedbc.testkit;
+
+import com.novarto.sanedbc.core.jdbc.Proxies;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * A statement behind a simulated network. Bound parameters and batched SQL are accumulated into the request, which
+ * is sent upon execution, in a single round trip.
+ */
+final class SimulatedStatement implements InvocationHandler
+{
+    private final Object delegate;
+    private final Connection connectionProxy;
+    private final Link link;
+
+    private long requestBytes;
+    // as requested, since local drivers tend to ignore fetch sizes
+    private int fetchSize;
+
+    SimulatedStatement(Object delegate, Connection connectionProxy, Link link)
+    {
+        this.delegate = delegate;
+        this.connectionProxy = connectionProxy;
+        this.link = link;
+    }
+
+    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String name = method.getName();
+        if (Proxies.isSetter(method))
+        {
+            if (args != null && args.length > 1 && args[0] instanceof Integer)
+            {
+                requestBytes += Link.sizeOf(args[1]);
+            }
+            else if ("setFetchSize".equals(name))
+            {
+                fetchSize = (Integer) args[0];
+            }
+            return Proxies.invoke(delegate, method, args);
+        }
+
+        if (name.startsWith("execute"))
+        {
+            long bytes = requestBytes + (args != null && args.length > 0 && args[0] instanceof String ?
+                    ((String) args[0]).length() : 0);
+            requestBytes = 0;
+            link.transfer(bytes);
+            link.roundTrip(name);
+            return wrap(proxy, Proxies.invoke(delegate, method, args));
+        }
+
+        switch (name)
+        {
+            case "addBatch":
+                if (args != null)
+                {
+                    requestBytes += ((String) args[0]).length();
+                }
+                break;
+            case "getConnection":
+                return connectionProxy;
+            case "getResultSet":
+            case "getGeneratedKeys":
+                return wrap(proxy, Proxies.invoke(delegate, method, args));
+            default:
+                break;
+        }
+        return Proxies.invoke(delegate, method, args);
+    }
+
+    private Object wrap(Object proxy, Object result) throws Throwable
+    {
+        if (!(result instanceof ResultSet))
+        {
+            return result;
+        }
+        ResultSet rs = (ResultSet) result;
+        return Proxies.proxy(ResultSet.class,
+                new SimulatedResultSet(rs, (Statement) proxy, link, fetchSize > 0 ? fetchSize : rs.getFetchSize()));
+    }
+}
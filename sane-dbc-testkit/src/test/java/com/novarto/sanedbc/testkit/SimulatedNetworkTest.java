@@ -0,0 +1,126 @@
+package com.novarto.sanedbc.testkit;
+
+import com.novarto.sanedbc.core.interpreter.SyncDbInterpreter;
+import com.novarto.sanedbc.core.interpreter.ValidationDbInterpreter;
+import com.novarto.sanedbc.core.ops.AggregateOp;
+import com.novarto.sanedbc.core.ops.BatchUpdateOp;
+import com.novarto.sanedbc.core.ops.DbOps;
+import com.novarto.sanedbc.core.ops.EffectOp;
+import com.novarto.sanedbc.core.ops.SelectOp;
+import com.novarto.sanedbc.core.ops.UpdateOp;
+import fj.data.List;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+
+import static fj.data.List.range;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SimulatedNetworkTest
+{
+    private static final String URL = "jdbc:hsqldb:mem:SimulatedNetworkTest";
+
+    private static final SyncDbInterpreter LOCAL = new SyncDbInterpreter(
+            () -> DriverManager.getConnection(URL, "sa", ""));
+
+    private static final AggregateOp COUNT = new AggregateOp("SELECT COUNT(*) FROM SimulatedNetworkTest_FOO");
+
+    @BeforeClass
+    public static void setupSuite()
+    {
+        LOCAL.submit(new EffectOp("CREATE TABLE SimulatedNetworkTest_FOO (ID INTEGER, NAME VARCHAR(20000))"));
+    }
+
+    @Before
+    public void setup()
+    {
+        LOCAL.submit(new EffectOp("DELETE FROM SimulatedNetworkTest_FOO"));
+    }
+
+    @Test
+    public void batchingSavesRoundTrips()
+    {
+        SimulatedNetwork network = new SimulatedNetwork(NetworkProfile.roundTrip(2, TimeUnit.MILLISECONDS));
+        SyncDbInterpreter dbi = new SyncDbInterpreter(network.lift(() -> DriverManager.getConnection(URL, "sa", "")));
+
+        long start = System.nanoTime();
+        dbi.transact(DbOps.sequence(range(0, 20).map(x -> new UpdateOp(
+                "INSERT INTO SimulatedNetworkTest_FOO (ID) VALUES (?)", ps -> ps.setInt(1, x)))));
+        long oneByOne = System.nanoTime() - start;
+
+        // connect, setAutoCommit(false), 20 x (prepare, execute), commit, setAutoCommit(true)
+        assertThat(network.roundTrips(), is(44L));
+        assertThat(oneByOne >= TimeUnit.MILLISECONDS.toNanos(88), is(true));
+
+        network.resetStats();
+        dbi.transact(new BatchUpdateOp<>("INSERT INTO SimulatedNetworkTest_FOO (ID) VALUES (?)",
+                (Integer x) -> ps -> ps.setInt(1, x), range(0, 20)));
+        assertThat(network.roundTrips(), is(6L));
+
+        assertThat(LOCAL.submit(COUNT), is(40L));
+    }
+
+    @Test
+    public void fetchSizeAndBandwidth()
+    {
+        LOCAL.submit(new BatchUpdateOp<>("INSERT INTO SimulatedNetworkTest_FOO VALUES (?, ?)", (Integer x) -> ps -> {
+            ps.setInt(1, x);
+            ps.setString(2, "name");
+        }, range(0, 10)));
+
+        SimulatedNetwork network = new SimulatedNetwork(NetworkProfile.LOCAL.withBandwidth(100_000));
+        SyncDbInterpreter dbi = new SyncDbInterpreter(network.lift(() -> DriverManager.getConnection(URL, "sa", "")));
+
+        SelectOp.FjList<String> select = new SelectOp.FjList<>("SELECT NAME FROM SimulatedNetworkTest_FOO",
+                ps -> ps.setFetchSize(3), rs -> rs.getString(1));
+        assertThat(dbi.submit(select).length(), is(10));
+        // connect, prepare, execute, and 3 more chunks of 3 rows
+        assertThat(network.roundTrips(), is(6L));
+        assertThat(network.bytes() >= 40, is(true));
+
+        network.resetStats();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 10_000; i++)
+        {
+            name.append('x');
+        }
+        dbi.submit(new UpdateOp("UPDATE SimulatedNetworkTest_FOO SET NAME = ? WHERE ID = 1",
+                ps -> ps.setString(1, name.toString())));
+        // 10KB at 100KB/s
+        assertThat(network.delayNanos() >= TimeUnit.MILLISECONDS.toNanos(100), is(true));
+    }
+
+    @Test
+    public void injectsFailures()
+    {
+        SimulatedNetwork network = new SimulatedNetwork(NetworkProfile.LOCAL.withFailures(1, "commit"::equals));
+        ValidationDbInterpreter dbi = new ValidationDbInterpreter(
+                network.lift(() -> DriverManager.getConnection(URL, "sa", "")));
+
+        Exception e = dbi.transact(new UpdateOp("INSERT INTO SimulatedNetworkTest_FOO (ID) VALUES (1)", ps -> {
+        }))._1().fail();
+        assertThat(e instanceof SQLTransientConnectionException, is(true));
+        assertThat(network.failures(), is(1L));
+        assertThat(LOCAL.submit(COUNT), is(0L));
+    }
+
+    @Test
+    public void wrapsDataSources() throws Exception
+    {
+        JDBCDataSource ds = new JDBCDataSource();
+        ds.setUrl(URL);
+        ds.setUser("sa");
+
+        SimulatedNetwork network = new SimulatedNetwork(NetworkProfile.LOCAL);
+        SyncDbInterpreter dbi = new SyncDbInterpreter(network.wrap(ds)::getConnection);
+        assertThat(dbi.submit(COUNT), is(0L));
+        assertThat(network.roundTrips(), is(3L));
+        assertThat(List.list(network.toString()).isNotEmpty(), is(true));
+    }
+}